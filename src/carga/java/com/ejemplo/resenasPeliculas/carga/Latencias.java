@@ -0,0 +1,105 @@
+package com.ejemplo.resenasPeliculas.carga;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Latencias registradas para una operación.
+ * <p>
+ * Guarda todas las muestras para calcular percentiles exactos. Cada hilo de la
+ * prueba usa su propia instancia y al final se combinan, por lo que no necesita
+ * sincronización.
+ */
+class Latencias {
+
+    private long[] muestras = new long[1024];
+
+    private int total;
+
+    private long errores;
+
+    /**
+     * Registra una petición.
+     *
+     * @param nanos    Duración de la petición en nanosegundos.
+     * @param correcta {@code true} si la respuesta fue 2xx.
+     */
+    void registrar(long nanos, boolean correcta) {
+        if (!correcta) {
+            errores++;
+        }
+        if (total == muestras.length) {
+            muestras = Arrays.copyOf(muestras, total * 2);
+        }
+        muestras[total++] = nanos;
+    }
+
+    /**
+     * Añade las muestras de otra instancia.
+     *
+     * @param otras Latencias a añadir.
+     */
+    void combinar(Latencias otras) {
+        if (total + otras.total > muestras.length) {
+            muestras = Arrays.copyOf(muestras, total + otras.total);
+        }
+        System.arraycopy(otras.muestras, 0, muestras, total, otras.total);
+        total += otras.total;
+        errores += otras.errores;
+    }
+
+    int getTotal() {
+        return total;
+    }
+
+    long getErrores() {
+        return errores;
+    }
+
+    /**
+     * Resume las muestras: peticiones, errores, rendimiento y percentiles de
+     * latencia en milisegundos.
+     *
+     * @param segundos Duración de la medición.
+     * @return Resumen listo para serializar.
+     */
+    Map<String, Object> resumen(double segundos) {
+        long[] ordenadas = Arrays.copyOf(muestras, total);
+        Arrays.sort(ordenadas);
+        double suma = 0;
+        for (long muestra : ordenadas) {
+            suma += muestra;
+        }
+
+        Map<String, Object> latencia = new LinkedHashMap<>();
+        latencia.put("media", total == 0 ? 0.0 : milis(suma / total));
+        latencia.put("p50", percentil(ordenadas, 0.50));
+        latencia.put("p99", percentil(ordenadas, 0.99));
+        latencia.put("p999", percentil(ordenadas, 0.999));
+        latencia.put("max", total == 0 ? 0.0 : milis(ordenadas[total - 1]));
+
+        Map<String, Object> resumen = new LinkedHashMap<>();
+        resumen.put("peticiones", total);
+        resumen.put("errores", errores);
+        resumen.put("peticionesPorSegundo", redondear(total / segundos));
+        resumen.put("latenciaMs", latencia);
+        return resumen;
+    }
+
+    private static double percentil(long[] ordenadas, double p) {
+        if (ordenadas.length == 0) {
+            return 0.0;
+        }
+        int indice = (int) Math.ceil(p * ordenadas.length) - 1;
+        return milis(ordenadas[Math.max(0, indice)]);
+    }
+
+    private static double milis(double nanos) {
+        return redondear(nanos / 1_000_000.0);
+    }
+
+    private static double redondear(double valor) {
+        return Math.round(valor * 1000) / 1000.0;
+    }
+}
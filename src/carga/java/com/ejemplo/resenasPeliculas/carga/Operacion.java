@@ -0,0 +1,57 @@
+package com.ejemplo.resenasPeliculas.carga;
+
+/**
+ * Operaciones que puede lanzar la prueba de carga, cada una contra un endpoint
+ * real de la API.
+ */
+enum Operacion {
+
+    PELICULAS("peliculas", "GET /api/peliculas"),
+    PELICULA("pelicula", "GET /api/peliculas/{id}"),
+    RESENAS_PELICULA("resenasPelicula", "GET /api/peliculas/{id}/resenas"),
+    RESENAS("resenas", "GET /api/resenas"),
+    RESENA("resena", "GET /api/resenas/{id}"),
+    CREAR_RESENA("crearResena", "POST /api/resenas"),
+    LOGIN("login", "POST /api/usuarios/login"),
+    REGISTRO("registro", "POST /api/usuarios/registro"),
+    PERFIL("perfil", "GET /api/usuarios/me");
+
+    /**
+     * Nombre usado en la mezcla (carga.mezcla).
+     */
+    private final String nombre;
+
+    /**
+     * Endpoint, usado como clave en el informe.
+     */
+    private final String endpoint;
+
+    Operacion(String nombre, String endpoint) {
+        this.nombre = nombre;
+        this.endpoint = endpoint;
+    }
+
+    String getNombre() {
+        return nombre;
+    }
+
+    String getEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * Obtiene la operación con el nombre indicado.
+     *
+     * @param nombre Nombre de la operación.
+     * @return La operación.
+     * @throws IllegalArgumentException Si no existe.
+     */
+    static Operacion desdeNombre(String nombre) {
+        for (Operacion operacion : values()) {
+            if (operacion.nombre.equalsIgnoreCase(nombre)) {
+                return operacion;
+            }
+        }
+        throw new IllegalArgumentException("Operación no válida: " + nombre);
+    }
+}
@@ -0,0 +1,376 @@
+package com.ejemplo.resenasPeliculas.carga;
+
+import com.ejemplo.resenasPeliculas.ResenasPeliculasApplication;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Prueba de carga de extremo a extremo contra la API REST.
+ * <p>
+ * Si no se indica {@code carga.url}, arranca la aplicación en este mismo
+ * proceso con el perfil {@code embebido} (H2) en un puerto libre. Después carga
+ * los datos de prueba a través de la propia API, lanza durante un tiempo fijo
+ * la mezcla de operaciones configurada con el número de hilos indicado y
+ * escribe un informe JSON con el rendimiento y los percentiles de latencia de
+ * cada endpoint.
+ * <p>
+ * Parámetros (propiedades del sistema, todos opcionales):
+ * <ul>
+ * <li>{@code carga.url}: URL base de una instancia ya arrancada.</li>
+ * <li>{@code carga.concurrencia}: hilos que lanzan peticiones (16).</li>
+ * <li>{@code carga.duracion}: segundos de medición (30).</li>
+ * <li>{@code carga.calentamiento}: segundos previos sin medir (10).</li>
+ * <li>{@code carga.mezcla}: pesos de cada operación, por ejemplo
+ * {@code peliculas=30,resenasPelicula=30,crearResena=10}.</li>
+ * <li>{@code carga.peliculas}, {@code carga.usuarios} y {@code carga.resenas}:
+ * tamaño de los datos de prueba (50, 20 y 5000).</li>
+ * <li>{@code carga.salida}: fichero del informe
+ * ({@code target/carga/informe.json}).</li>
+ * <li>{@code carga.aplicacion}: propiedades para la aplicación embebida,
+ * separadas por {@code ;}. Por ejemplo, para comparar los hilos virtuales con
+ * los de plataforma se ejecuta la prueba con
+ * {@code spring.threads.virtual.enabled=true} y sin ella, cada una con su
+ * propio {@code carga.salida}; para medir solo el bulkhead de conexiones, con
+ * {@code bd.bulkhead.habilitado=true} y sin ella.</li>
+ * </ul>
+ */
+public class PruebaCarga {
+
+    private static final String MEZCLA_POR_DEFECTO = "peliculas=20,pelicula=15,resenasPelicula=25,resenas=10,"
+            + "resena=10,crearResena=10,login=5,registro=1,perfil=4";
+
+    private static final String PASSWORD = "secreto123";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final HttpClient cliente = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    private final String url;
+
+    /**
+     * Prefijo de los nombres de usuario, distinto en cada ejecución para poder
+     * repetir la prueba contra la misma base de datos.
+     */
+    private final String prefijo = "carga" + Long.toString(System.currentTimeMillis(), 36);
+
+    private final AtomicLong registros = new AtomicLong();
+
+    private final List<String> usernames = new ArrayList<>();
+
+    private final List<String> tokens = new ArrayList<>();
+
+    private final List<Long> peliculas = new ArrayList<>();
+
+    private final List<Long> resenas = new ArrayList<>();
+
+    private PruebaCarga(String url) {
+        this.url = url;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int concurrencia = Integer.getInteger("carga.concurrencia", 16);
+        int duracion = Integer.getInteger("carga.duracion", 30);
+        int calentamiento = Integer.getInteger("carga.calentamiento", 10);
+        String mezclaTexto = System.getProperty("carga.mezcla", MEZCLA_POR_DEFECTO);
+        int numPeliculas = Integer.getInteger("carga.peliculas", 50);
+        int numUsuarios = Integer.getInteger("carga.usuarios", 20);
+        int numResenas = Integer.getInteger("carga.resenas", 5000);
+        File salida = new File(System.getProperty("carga.salida", "target/carga/informe.json"));
+
+        Map<Operacion, Integer> mezcla = leerMezcla(mezclaTexto);
+        String propiedadesAplicacion = System.getProperty("carga.aplicacion", "");
+        String url = System.getProperty("carga.url");
+        ConfigurableApplicationContext contexto = null;
+        if (url == null || url.isBlank()) {
+            contexto = arrancarEmbebida(propiedadesAplicacion);
+            url = "http://localhost:" + ((ServletWebServerApplicationContext) contexto).getWebServer().getPort();
+        }
+
+        try {
+            PruebaCarga prueba = new PruebaCarga(url);
+            System.out.println("Cargando datos de prueba en " + url);
+            prueba.cargarDatos(numPeliculas, numUsuarios, numResenas);
+
+            System.out.println("Calentamiento: " + calentamiento + " s");
+            prueba.ejecutar(mezcla, concurrencia, calentamiento);
+            System.out.println("Medición: " + duracion + " s con " + concurrencia + " hilos");
+            Map<Operacion, Latencias> resultados = prueba.ejecutar(mezcla, concurrencia, duracion);
+
+            Map<String, Object> configuracion = new LinkedHashMap<>();
+            configuracion.put("url", url);
+            configuracion.put("embebida", contexto != null);
+            configuracion.put("java", Runtime.version().toString());
+            if (contexto != null) {
+                configuracion.put("aplicacion", propiedadesAplicacion);
+                configuracion.put("hilosVirtuales", Runtime.version().feature() >= 21 && contexto.getEnvironment()
+                        .getProperty("spring.threads.virtual.enabled", Boolean.class, false));
+            }
+            configuracion.put("concurrencia", concurrencia);
+            configuracion.put("duracionSegundos", duracion);
+            configuracion.put("calentamientoSegundos", calentamiento);
+            configuracion.put("mezcla", mezclaTexto);
+            configuracion.put("peliculas", numPeliculas);
+            configuracion.put("usuarios", numUsuarios);
+            configuracion.put("resenas", numResenas);
+
+            Map<String, Object> informe = prueba.informe(configuracion, resultados, duracion);
+            salida.getAbsoluteFile().getParentFile().mkdirs();
+            prueba.objectMapper.writerWithDefaultPrettyPrinter().writeValue(salida, informe);
+            System.out.println(prueba.objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(informe));
+            System.out.println("Informe escrito en " + salida.getAbsolutePath());
+        } finally {
+            if (contexto != null) {
+                contexto.close();
+            }
+        }
+    }
+
+    // Arranca la aplicación con H2 en un puerto libre
+    private static ConfigurableApplicationContext arrancarEmbebida(String propiedades) {
+        SpringApplication aplicacion = new SpringApplication(ResenasPeliculasApplication.class);
+        aplicacion.setAdditionalProfiles("embebido");
+        aplicacion.setDefaultProperties(Map.of(
+                "server.port", "0",
+                "logging.level.root", "WARN"));
+        // Como argumentos, para que prevalezcan sobre application.properties
+        List<String> argumentos = new ArrayList<>();
+        for (String propiedad : propiedades.split(";")) {
+            if (!propiedad.isBlank()) {
+                argumentos.add("--" + propiedad.trim());
+            }
+        }
+        return aplicacion.run(argumentos.toArray(new String[0]));
+    }
+
+    private static Map<Operacion, Integer> leerMezcla(String texto) {
+        Map<Operacion, Integer> mezcla = new EnumMap<>(Operacion.class);
+        for (String parte : texto.split(",")) {
+            String[] nombreYPeso = parte.trim().split("=");
+            if (nombreYPeso.length != 2) {
+                throw new IllegalArgumentException("Mezcla no válida: " + parte);
+            }
+            int peso = Integer.parseInt(nombreYPeso[1].trim());
+            if (peso > 0) {
+                mezcla.put(Operacion.desdeNombre(nombreYPeso[0].trim()), peso);
+            }
+        }
+        if (mezcla.isEmpty()) {
+            throw new IllegalArgumentException("La mezcla no contiene ninguna operación");
+        }
+        return mezcla;
+    }
+
+    // Crea usuarios, películas y reseñas a través de la API
+    private void cargarDatos(int numPeliculas, int numUsuarios, int numResenas) throws Exception {
+        for (int i = 0; i < numUsuarios; i++) {
+            String username = prefijo + "u" + i;
+            comprobar(enviar(post("/api/usuarios/registro", null, Map.of(
+                    "username", username, "email", username + "@ejemplo.com", "password", PASSWORD))));
+            JsonNode login = objectMapper.readTree(comprobar(enviar(post("/api/usuarios/login", null,
+                    Map.of("username", username, "password", PASSWORD)))).body());
+            usernames.add(username);
+            tokens.add(login.get("token").asText());
+        }
+
+        for (int i = 0; i < numPeliculas; i++) {
+            Map<String, Object> pelicula = new LinkedHashMap<>();
+            pelicula.put("titulo", "Película de carga " + i);
+            pelicula.put("director", "Director " + (i % 17));
+            pelicula.put("genero", new String[] { "Drama", "Comedia", "Fantasía", "Terror" }[i % 4]);
+            pelicula.put("anioEstreno", 1970 + i % 55);
+            pelicula.put("sinopsis", "Sinopsis de la película de carga número " + i
+                    + ". Una historia de amor, intriga y aventuras en un pueblo de la costa.");
+            JsonNode creada = objectMapper.readTree(comprobar(enviar(post("/api/peliculas", tokens.get(0),
+                    pelicula))).body());
+            peliculas.add(creada.get("id").asLong());
+        }
+
+        // La importación asigna las reseñas al usuario autenticado: cada usuario
+        // importa las suyas
+        List<StringBuilder> ndjson = new ArrayList<>();
+        for (int i = 0; i < numUsuarios; i++) {
+            ndjson.add(new StringBuilder());
+        }
+        ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+        for (int i = 0; i < numResenas; i++) {
+            Map<String, Object> resena = new LinkedHashMap<>();
+            resena.put("peliculaId", elegir(peliculas, aleatorio));
+            resena.put("rating", 1 + aleatorio.nextInt(5));
+            resena.put("contenido", "Reseña de carga " + i + ": buena fotografía y un guion sorprendente.");
+            ndjson.get(aleatorio.nextInt(numUsuarios)).append(objectMapper.writeValueAsString(resena)).append('\n');
+        }
+        for (int i = 0; i < numUsuarios; i++) {
+            if (ndjson.get(i).length() > 0) {
+                comprobar(enviar(HttpRequest.newBuilder(URI.create(url + "/api/importacion/resenas"))
+                        .header("Authorization", "Bearer " + tokens.get(i))
+                        .header("Content-Type", "application/x-ndjson")
+                        .POST(HttpRequest.BodyPublishers.ofString(ndjson.get(i).toString()))
+                        .build()));
+            }
+        }
+
+        // Ids de reseñas existentes para las consultas de detalle
+        JsonNode pagina = objectMapper.readTree(comprobar(enviar(get("/api/resenas?limit=100", null))).body());
+        for (JsonNode resena : pagina.get("elementos")) {
+            resenas.add(resena.get("id").asLong());
+        }
+    }
+
+    // Lanza la mezcla durante el tiempo indicado y devuelve las latencias por operación
+    private Map<Operacion, Latencias> ejecutar(Map<Operacion, Integer> mezcla, int concurrencia, int segundos)
+            throws InterruptedException {
+        List<Operacion> operaciones = new ArrayList<>(mezcla.keySet());
+        int[] pesosAcumulados = new int[operaciones.size()];
+        int acumulado = 0;
+        for (int i = 0; i < operaciones.size(); i++) {
+            acumulado += mezcla.get(operaciones.get(i));
+            pesosAcumulados[i] = acumulado;
+        }
+        int pesoTotal = acumulado;
+        long fin = System.nanoTime() + Duration.ofSeconds(segundos).toNanos();
+
+        List<Map<Operacion, Latencias>> porHilo = new ArrayList<>();
+        List<Thread> hilos = new ArrayList<>();
+        for (int h = 0; h < concurrencia; h++) {
+            Map<Operacion, Latencias> latencias = new EnumMap<>(Operacion.class);
+            porHilo.add(latencias);
+            Thread hilo = new Thread(() -> {
+                ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+                while (System.nanoTime() < fin) {
+                    int tirada = aleatorio.nextInt(pesoTotal);
+                    int i = 0;
+                    while (pesosAcumulados[i] <= tirada) {
+                        i++;
+                    }
+                    Operacion operacion = operaciones.get(i);
+                    long inicio = System.nanoTime();
+                    boolean correcta;
+                    try {
+                        int estado = enviar(peticion(operacion, aleatorio)).statusCode();
+                        correcta = estado >= 200 && estado < 300;
+                    } catch (Exception e) {
+                        correcta = false;
+                    }
+                    latencias.computeIfAbsent(operacion, o -> new Latencias())
+                            .registrar(System.nanoTime() - inicio, correcta);
+                }
+            }, "carga-" + h);
+            hilos.add(hilo);
+            hilo.start();
+        }
+        for (Thread hilo : hilos) {
+            hilo.join();
+        }
+
+        Map<Operacion, Latencias> total = new EnumMap<>(Operacion.class);
+        for (Map<Operacion, Latencias> latencias : porHilo) {
+            latencias.forEach((operacion, l) -> total.computeIfAbsent(operacion, o -> new Latencias()).combinar(l));
+        }
+        return total;
+    }
+
+    // Construye la petición HTTP de una operación con datos de prueba al azar
+    private HttpRequest peticion(Operacion operacion, ThreadLocalRandom aleatorio) throws Exception {
+        int usuario = aleatorio.nextInt(tokens.size());
+        switch (operacion) {
+            case PELICULAS:
+                return get("/api/peliculas", null);
+            case PELICULA:
+                return get("/api/peliculas/" + elegir(peliculas, aleatorio), null);
+            case RESENAS_PELICULA:
+                return get("/api/peliculas/" + elegir(peliculas, aleatorio) + "/resenas?limit=20", null);
+            case RESENAS:
+                return get("/api/resenas?limit=20&orden=" + (aleatorio.nextBoolean() ? "id" : "rating"), null);
+            case RESENA:
+                return get("/api/resenas/" + elegir(resenas, aleatorio), null);
+            case CREAR_RESENA:
+                return post("/api/resenas", tokens.get(usuario), Map.of(
+                        "contenido", "Reseña escrita durante la prueba de carga",
+                        "rating", 1 + aleatorio.nextInt(5),
+                        "pelicula", Map.of("id", elegir(peliculas, aleatorio))));
+            case LOGIN:
+                return post("/api/usuarios/login", null, Map.of(
+                        "username", usernames.get(usuario), "password", PASSWORD));
+            case REGISTRO:
+                String username = prefijo + "r" + registros.incrementAndGet();
+                return post("/api/usuarios/registro", null, Map.of(
+                        "username", username, "email", username + "@ejemplo.com", "password", PASSWORD));
+            case PERFIL:
+                return get("/api/usuarios/me", tokens.get(usuario));
+            default:
+                throw new IllegalStateException("Operación sin implementar: " + operacion);
+        }
+    }
+
+    private Map<String, Object> informe(Map<String, Object> configuracion, Map<Operacion, Latencias> resultados,
+            double segundos) {
+        Latencias total = new Latencias();
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        resultados.forEach((operacion, latencias) -> {
+            endpoints.put(operacion.getEndpoint(), latencias.resumen(segundos));
+            total.combinar(latencias);
+        });
+
+        Map<String, Object> informe = new LinkedHashMap<>();
+        informe.put("fecha", Instant.now().toString());
+        informe.put("configuracion", configuracion);
+        informe.put("total", total.resumen(segundos));
+        informe.put("endpoints", endpoints);
+        return informe;
+    }
+
+    private HttpRequest get(String ruta, String token) {
+        HttpRequest.Builder peticion = HttpRequest.newBuilder(URI.create(url + ruta)).GET();
+        if (token != null) {
+            peticion.header("Authorization", "Bearer " + token);
+        }
+        return peticion.build();
+    }
+
+    private HttpRequest post(String ruta, String token, Object cuerpo) throws Exception {
+        HttpRequest.Builder peticion = HttpRequest.newBuilder(URI.create(url + ruta))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(cuerpo)));
+        if (token != null) {
+            peticion.header("Authorization", "Bearer " + token);
+        }
+        return peticion.build();
+    }
+
+    private HttpResponse<String> enviar(HttpRequest peticion) throws Exception {
+        return cliente.send(peticion, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static HttpResponse<String> comprobar(HttpResponse<String> respuesta) {
+        if (respuesta.statusCode() < 200 || respuesta.statusCode() >= 300) {
+            throw new IllegalStateException("Error " + respuesta.statusCode() + " en " + respuesta.request().uri()
+                    + ": " + respuesta.body());
+        }
+        return respuesta;
+    }
+
+    private static long elegir(List<Long> ids, ThreadLocalRandom aleatorio) {
+        return ids.get(aleatorio.nextInt(ids.size()));
+    }
+}
@@ -0,0 +1,95 @@
+package com.ejemplo.resenasPeliculas.benchmark;
+
+import com.ejemplo.resenasPeliculas.dto.SugerenciaPeliculaDto;
+import com.ejemplo.resenasPeliculas.model.Pelicula;
+import com.ejemplo.resenasPeliculas.service.AutocompletadoService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latencia de {@link AutocompletadoService#getSugerencias(String, int)} con un
+ * millón de títulos, para prefijos de distinta longitud: los de una letra
+ * abarcan decenas de miles de películas. Se mide por muestreo para obtener los
+ * percentiles (el objetivo es un p99 por debajo de 100 µs).
+ * <p>
+ * Los títulos se forman con palabras al azar, con tildes y mayúsculas, y el
+ * número de reseñas sigue una distribución muy desigual, como en la realidad.
+ * Los resultados se guardan en {@code benchmarks/autocompletado.json}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class AutocompletadoBenchmark {
+
+    private static final int PELICULAS = 1_000_000;
+
+    private static final String[] PALABRAS = {
+            "El", "La", "Los", "Las", "Un", "Una", "Noche", "Día", "Último", "Primer", "Sueño", "Camino",
+            "Corazón", "Ciudad", "Mar", "Río", "Sombra", "Luz", "Tiempo", "Guerra", "Amor", "Secreto",
+            "Viaje", "Fantasma", "Jardín", "Invierno", "Verano", "Pájaro", "Laberinto", "Espíritu", "Reina",
+            "Rey", "Héroe", "Ladrón", "Misión", "Isla", "Montaña", "Estrella", "Dragón", "Volcán", "Árbol",
+            "Océano", "Niño", "Silencio", "Memoria", "Destino", "Fuego", "Hielo", "Lobo", "Tigre" };
+
+    @Param({"1", "3", "8"})
+    private int longitudPrefijo;
+
+    private AutocompletadoService servicio;
+
+    private String[] prefijos;
+
+    private int siguiente;
+
+    @Setup
+    public void preparar() {
+        Random aleatorio = new Random(42);
+        List<Pelicula> peliculas = new ArrayList<>(PELICULAS);
+        Map<Long, Long> resenasPorPelicula = new HashMap<>();
+        for (long id = 1; id <= PELICULAS; id++) {
+            StringBuilder titulo = new StringBuilder();
+            int palabras = 2 + aleatorio.nextInt(4);
+            for (int i = 0; i < palabras; i++) {
+                titulo.append(i == 0 ? "" : " ").append(PALABRAS[aleatorio.nextInt(PALABRAS.length)]);
+            }
+            titulo.append(' ').append(id);
+            Pelicula pelicula = new Pelicula(titulo.toString(), "Director", "Drama", 2000, null, null);
+            pelicula.setId(id);
+            peliculas.add(pelicula);
+            // Pocas películas con muchas reseñas y muchas con pocas
+            resenasPorPelicula.put(id, (long) (Math.pow(aleatorio.nextDouble(), 4) * 10_000));
+        }
+        servicio = new AutocompletadoService();
+        servicio.cargar(peliculas, resenasPorPelicula);
+
+        // Prefijos de títulos existentes, tal como los escribiría un usuario
+        prefijos = new String[1024];
+        for (int i = 0; i < prefijos.length; i++) {
+            String titulo = peliculas.get(aleatorio.nextInt(PELICULAS)).getTitulo().toLowerCase();
+            prefijos[i] = titulo.substring(0, Math.min(longitudPrefijo, titulo.length()));
+        }
+    }
+
+    @Benchmark
+    public List<SugerenciaPeliculaDto> sugerencias() {
+        String prefijo = prefijos[siguiente++ & (prefijos.length - 1)];
+        return servicio.getSugerencias(prefijo, 10);
+    }
+}
@@ -0,0 +1,132 @@
+package com.ejemplo.resenasPeliculas.benchmark;
+
+import com.ejemplo.resenasPeliculas.dto.ResultadoBusquedaDto;
+import com.ejemplo.resenasPeliculas.model.Pelicula;
+import com.ejemplo.resenasPeliculas.service.BusquedaService;
+import com.ejemplo.resenasPeliculas.service.EventoPelicula;
+import com.ejemplo.resenasPeliculas.service.EventoResena;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latencia de {@link BusquedaService#buscar(String, int)} con un millón de
+ * reseñas repartidas entre diez mil películas, para consultas de uno y de tres
+ * términos. Se mide por muestreo para obtener los percentiles (el objetivo es
+ * quedar muy por debajo de un milisegundo).
+ * <p>
+ * El índice se llena con los mismos eventos que publican los servicios de
+ * películas y reseñas. Las palabras de los textos y de las consultas siguen una
+ * distribución de Zipf, de modo que los términos frecuentes aparecen en casi
+ * todas las películas, como en un corpus real. Los resultados se guardan en
+ * {@code benchmarks/busqueda.json}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgs = "-Xmx3g")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class BusquedaBenchmark {
+
+    private static final int PELICULAS = 10_000;
+
+    private static final int RESENAS = 1_000_000;
+
+    private static final int PALABRAS_POR_RESENA = 12;
+
+    private static final String[] SILABAS = {
+            "ca", "lo", "mi", "ra", "te", "sol", "ven", "tu", "pa", "rio", "mar", "cie", "ga", "ni", "bo",
+            "fe", "lu", "der", "san", "to", "cor", "vi", "al", "es", "gue", "ma", "tor", "ba", "nu", "zon" };
+
+    private static final String[] GENEROS = { "Drama", "Comedia", "Acción", "Terror", "Animación", "Documental" };
+
+    @Param({"1", "3"})
+    private int terminos;
+
+    private BusquedaService servicio;
+
+    private String[] consultas;
+
+    private int siguiente;
+
+    private String[] vocabulario;
+
+    // Probabilidad acumulada de cada palabra del vocabulario
+    private double[] acumulada;
+
+    @Setup
+    public void preparar() {
+        Random aleatorio = new Random(42);
+        Set<String> palabras = new LinkedHashSet<>();
+        while (palabras.size() < 20_000) {
+            StringBuilder palabra = new StringBuilder();
+            int silabas = 2 + aleatorio.nextInt(3);
+            for (int i = 0; i < silabas; i++) {
+                palabra.append(SILABAS[aleatorio.nextInt(SILABAS.length)]);
+            }
+            palabras.add(palabra.toString());
+        }
+        vocabulario = palabras.toArray(new String[0]);
+        acumulada = new double[vocabulario.length];
+        double total = 0;
+        for (int i = 0; i < vocabulario.length; i++) {
+            total += 1.0 / (i + 1);
+            acumulada[i] = total;
+        }
+        for (int i = 0; i < acumulada.length; i++) {
+            acumulada[i] /= total;
+        }
+
+        servicio = new BusquedaService();
+        for (long id = 1; id <= PELICULAS; id++) {
+            Pelicula pelicula = new Pelicula(texto(aleatorio, 2 + aleatorio.nextInt(3)), texto(aleatorio, 2),
+                    GENEROS[aleatorio.nextInt(GENEROS.length)], 2000, texto(aleatorio, 20), null);
+            pelicula.setId(id);
+            servicio.onPelicula(new EventoPelicula(EventoPelicula.Tipo.CREADA, id, pelicula));
+        }
+        for (long id = 1; id <= RESENAS; id++) {
+            // Pocas películas con muchas reseñas y muchas con pocas
+            long peliculaId = 1 + (long) (Math.pow(aleatorio.nextDouble(), 2) * PELICULAS);
+            servicio.onResena(new EventoResena(EventoResena.Tipo.CREADA, id, peliculaId, null, 4, null,
+                    texto(aleatorio, PALABRAS_POR_RESENA), 0));
+        }
+
+        consultas = new String[1024];
+        for (int i = 0; i < consultas.length; i++) {
+            consultas[i] = texto(aleatorio, terminos);
+        }
+    }
+
+    @Benchmark
+    public List<ResultadoBusquedaDto> buscar() {
+        String consulta = consultas[siguiente++ & (consultas.length - 1)];
+        return servicio.buscar(consulta, 20);
+    }
+
+    // Texto de palabras del vocabulario elegidas según su frecuencia
+    private String texto(Random aleatorio, int palabras) {
+        StringBuilder texto = new StringBuilder();
+        for (int i = 0; i < palabras; i++) {
+            int posicion = Arrays.binarySearch(acumulada, aleatorio.nextDouble());
+            posicion = Math.min(posicion < 0 ? -posicion - 1 : posicion, vocabulario.length - 1);
+            texto.append(i == 0 ? "" : " ").append(vocabulario[posicion]);
+        }
+        return texto.toString();
+    }
+}
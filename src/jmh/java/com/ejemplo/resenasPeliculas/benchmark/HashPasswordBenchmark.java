@@ -0,0 +1,103 @@
+package com.ejemplo.resenasPeliculas.benchmark;
+
+import com.ejemplo.resenasPeliculas.security.CodificadorPasswordAcotado;
+import com.ejemplo.resenasPeliculas.security.JWTUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste de verificar una contraseña con BCrypt ({@code verificar}) y efecto de
+ * una ráfaga de logins sobre el resto de la API ({@code tormenta}): tres hilos
+ * verifican contraseñas sin pausa mientras otro valida tokens JWT, como haría
+ * cualquier petición autenticada.
+ * <p>
+ * Con {@code acotado=false} cada hilo de login calcula su hash, como sin
+ * {@link CodificadorPasswordAcotado}; con {@code acotado=true} los hashes pasan
+ * por su pool, con el mismo número de hilos que en la aplicación.
+ * <p>
+ * La puntuación de {@code tormenta} es la media de todo el grupo. El pool no
+ * reduce el trabajo de CPU, solo lo reparte, y añade el paso de cada hash a
+ * otro hilo: en la línea base, medida con un solo núcleo, la tormenta acotada
+ * es más lenta en conjunto (1739 ms frente a 1168 ms con coste 12). Los tiempos
+ * de {@code api} por separado con un solo núcleo no demuestran nada; el efecto
+ * sobre el resto de la API debe medirse con varios núcleos, donde el pool deja
+ * núcleos libres. Los resultados se guardan en
+ * {@code benchmarks/hash-password.json}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class HashPasswordBenchmark {
+
+    private static final String PASSWORD = "contraseña-de-prueba";
+
+    @Param({"10", "12"})
+    private int coste;
+
+    @Param({"false", "true"})
+    private boolean acotado;
+
+    private PasswordEncoder codificador;
+
+    private String hash;
+
+    private JWTUtil jwtUtil;
+
+    private String token;
+
+    @Setup
+    public void preparar() {
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(coste);
+        int hilos = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        codificador = acotado ? new CodificadorPasswordAcotado(bcrypt, hilos, 256, new SimpleMeterRegistry()) : bcrypt;
+        hash = bcrypt.encode(PASSWORD);
+        jwtUtil = new JWTUtil();
+        token = jwtUtil.generateToken("usuario", 42L);
+    }
+
+    @TearDown
+    public void cerrar() {
+        if (codificador instanceof CodificadorPasswordAcotado pool) {
+            pool.close();
+        }
+    }
+
+    @Benchmark
+    public boolean verificar() {
+        return codificador.matches(PASSWORD, hash);
+    }
+
+    @Benchmark
+    @Group("tormenta")
+    @GroupThreads(3)
+    public boolean login() {
+        return codificador.matches(PASSWORD, hash);
+    }
+
+    @Benchmark
+    @Group("tormenta")
+    @GroupThreads(1)
+    public boolean api() {
+        return jwtUtil.validateToken(token);
+    }
+}
@@ -0,0 +1,94 @@
+package com.ejemplo.resenasPeliculas.benchmark;
+
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste añadido por la instrumentación de Micrometer en cada llamada: un método
+ * sin instrumentar ({@code directo}), el mismo método medido con {@code @Timed}
+ * a través del proxy de Spring ({@code conTimed}), un temporizador con
+ * histograma como el de los repositorios ({@code timerConHistograma}) y el
+ * contador de validaciones JWT ({@code contador}). Los resultados se guardan
+ * en {@code benchmarks/instrumentacion.json}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class InstrumentacionBenchmark {
+
+    /**
+     * Servicio de ejemplo con un método trivial, para que el resultado mida
+     * solo la instrumentación.
+     */
+    @Timed("servicio.llamadas")
+    public static class Servicio {
+
+        public long sumar(long a, long b) {
+            return a + b;
+        }
+    }
+
+    private MeterRegistry registry;
+
+    private Servicio directo;
+
+    private Servicio instrumentado;
+
+    private Timer timerConHistograma;
+
+    private long valor;
+
+    @Setup
+    public void preparar() {
+        registry = new SimpleMeterRegistry();
+        directo = new Servicio();
+        AspectJProxyFactory fabrica = new AspectJProxyFactory(new Servicio());
+        fabrica.setProxyTargetClass(true);
+        fabrica.addAspect(new TimedAspect(registry));
+        instrumentado = fabrica.getProxy();
+        timerConHistograma = Timer.builder("spring.data.repository.invocations")
+                .tag("repository", "ResenaRepository")
+                .tag("method", "findById")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    @Benchmark
+    public long directo() {
+        return directo.sumar(valor++, 1);
+    }
+
+    @Benchmark
+    public long conTimed() {
+        return instrumentado.sumar(valor++, 1);
+    }
+
+    @Benchmark
+    public long timerConHistograma() {
+        return timerConHistograma.record(() -> directo.sumar(valor++, 1));
+    }
+
+    @Benchmark
+    public void contador() {
+        registry.counter("jwt.validaciones", "resultado", "valido").increment();
+    }
+}
@@ -0,0 +1,73 @@
+package com.ejemplo.resenasPeliculas.benchmark;
+
+import com.ejemplo.resenasPeliculas.security.CacheTokensVerificados;
+import com.ejemplo.resenasPeliculas.security.JWTAuthenticationFilter;
+import com.ejemplo.resenasPeliculas.security.JWTUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste de una pasada completa de {@link JWTAuthenticationFilter} sobre una
+ * petición con un token válido, con la caché de tokens verificados acertando
+ * ({@code hit}) o fallando siempre ({@code miss}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class JWTAuthenticationFilterBenchmark {
+
+    @Param({ "hit", "miss" })
+    public String cache;
+
+    private JWTAuthenticationFilter filtro;
+
+    private String cabecera;
+
+    @Setup
+    public void preparar() {
+        JWTUtil jwtUtil = new JWTUtil();
+        // Con una duración máxima nula ninguna entrada llega a guardarse
+        Duration ttl = "hit".equals(cache) ? Duration.ofMinutes(10) : Duration.ZERO;
+        CacheTokensVerificados cacheTokens = new CacheTokensVerificados(new SimpleMeterRegistry(), 10_000, ttl);
+
+        filtro = new JWTAuthenticationFilter();
+        ReflectionTestUtils.setField(filtro, "jwtUtil", jwtUtil);
+        ReflectionTestUtils.setField(filtro, "cacheTokens", cacheTokens);
+        ReflectionTestUtils.setField(filtro, "meterRegistry", new SimpleMeterRegistry());
+        cabecera = "Bearer " + jwtUtil.generateToken("usuario", 42L);
+    }
+
+    @Benchmark
+    public Authentication doFilter() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/resenas");
+        request.addHeader("Authorization", cabecera);
+        try {
+            filtro.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+            return SecurityContextHolder.getContext().getAuthentication();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.ejemplo.resenasPeliculas.benchmark;
+
+import com.ejemplo.resenasPeliculas.dto.ResenaResumenDto;
+import com.ejemplo.resenasPeliculas.model.Pelicula;
+import com.ejemplo.resenasPeliculas.model.Resena;
+import com.ejemplo.resenasPeliculas.model.Usuario;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste de serializar a JSON listas de películas y de reseñas con la misma
+ * configuración de Jackson que usa Spring MVC.
+ * <p>
+ * Las reseñas se serializan como entidades completas (con su película y su
+ * autor, como en el detalle) y como {@link ResenaResumenDto} (como en los
+ * listados).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SerializacionBenchmark {
+
+    private static final String SINOPSIS = "Durante la posguerra, una niña se traslada con su madre a un "
+            + "molino en el monte donde su padrastro, un capitán del ejército, persigue a los últimos "
+            + "guerrilleros. Allí descubre un laberinto custodiado por un fauno que le revela que es una "
+            + "princesa de un reino subterráneo y que, para regresar, deberá superar tres pruebas antes "
+            + "de la luna llena. Entre la crueldad del mundo real y los peligros del mundo fantástico, "
+            + "tendrá que decidir a quién obedecer.";
+
+    @Param({ "20", "100", "1000" })
+    public int tamano;
+
+    private ObjectMapper objectMapper;
+
+    private List<Pelicula> peliculas;
+
+    private List<Resena> resenas;
+
+    private List<ResenaResumenDto> resumenes;
+
+    @Setup
+    public void preparar() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        peliculas = new ArrayList<>(tamano);
+        resenas = new ArrayList<>(tamano);
+        resumenes = new ArrayList<>(tamano);
+        for (int i = 0; i < tamano; i++) {
+            Pelicula pelicula = new Pelicula("Película número " + i, "Director " + i, "Fantasía",
+                    1990 + i % 35, SINOPSIS, Pelicula.IMAGEN_POR_DEFECTO);
+            pelicula.setId((long) i);
+            peliculas.add(pelicula);
+
+            Usuario usuario = new Usuario();
+            usuario.setId((long) i);
+            usuario.setUsername("usuario" + i);
+            usuario.setEmail("usuario" + i + "@ejemplo.com");
+            usuario.setPassword("secreto" + i);
+
+            Resena resena = new Resena("Una película inolvidable, con una fotografía magnífica y un "
+                    + "reparto a la altura. Reseña " + i, 1 + i % 5, pelicula, usuario);
+            resena.setId((long) i);
+            resenas.add(resena);
+            resumenes.add(new ResenaResumenDto(resena.getId(), resena.getContenido(), resena.getRating(),
+                    pelicula.getId(), usuario.getId(), usuario.getUsername()));
+        }
+    }
+
+    @Benchmark
+    public byte[] listaPeliculas() throws Exception {
+        return objectMapper.writeValueAsBytes(peliculas);
+    }
+
+    @Benchmark
+    public byte[] listaResenas() throws Exception {
+        return objectMapper.writeValueAsBytes(resenas);
+    }
+
+    @Benchmark
+    public byte[] listaResumenesResenas() throws Exception {
+        return objectMapper.writeValueAsBytes(resumenes);
+    }
+}
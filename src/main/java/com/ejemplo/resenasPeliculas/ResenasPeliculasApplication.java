@@ -5,6 +5,7 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Clase principal de la aplicación de Reseñas de Películas.
@@ -12,6 +13,7 @@ import org.springframework.jdbc.core.JdbcTemplate;
  * Esta clase inicializa la aplicación Spring Boot y la ejecuta.
  */
 @SpringBootApplication
+@EnableScheduling
 public class ResenasPeliculasApplication {
 
 	/**
@@ -0,0 +1,68 @@
+package com.ejemplo.resenasPeliculas.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Configuración del bulkhead de conexiones a la base de datos.
+ * <p>
+ * Si {@code bd.bulkhead.habilitado} es {@code true} (por defecto, cuando lo es
+ * {@code spring.threads.virtual.enabled}), el {@link DataSource} se envuelve en
+ * un {@link LimiteConexionesDataSource} con tantos permisos como conexiones
+ * tiene el pool.
+ */
+@Configuration
+@ConditionalOnProperty(name = "bd.bulkhead.habilitado", havingValue = "true")
+public class BaseDatosConfig {
+
+    /**
+     * Envuelve el {@link DataSource} de la aplicación en el bulkhead.
+     *
+     * @param entorno Entorno con la configuración.
+     * @return El post-procesador que envuelve el {@link DataSource}.
+     */
+    @Bean
+    public static BeanPostProcessor limiteConexionesPostProcessor(Environment entorno) {
+        int maximo = entorno.getProperty("bd.bulkhead.permisos", Integer.class, 10);
+        Duration esperaMaxima = entorno.getProperty("bd.bulkhead.espera-maxima", Duration.class,
+                Duration.ofSeconds(30));
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof LimiteConexionesDataSource)) {
+                    return new LimiteConexionesDataSource(dataSource, maximo, esperaMaxima);
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * Publica en Micrometer las conexiones en uso y los hilos en espera del
+     * bulkhead ({@code bd.bulkhead.en.uso} y {@code bd.bulkhead.en.espera}).
+     *
+     * @param dataSource {@link DataSource} de la aplicación.
+     * @return El registrador de métricas.
+     */
+    @Bean
+    public MeterBinder metricasLimiteConexiones(DataSource dataSource) {
+        return registry -> {
+            if (dataSource instanceof LimiteConexionesDataSource limite) {
+                Gauge.builder("bd.bulkhead.en.uso", limite, LimiteConexionesDataSource::getEnUso)
+                        .description("Conexiones en uso a través del bulkhead")
+                        .register(registry);
+                Gauge.builder("bd.bulkhead.en.espera", limite, LimiteConexionesDataSource::getEnEspera)
+                        .description("Hilos esperando una conexión en el bulkhead")
+                        .register(registry);
+            }
+        };
+    }
+}
@@ -0,0 +1,44 @@
+package com.ejemplo.resenasPeliculas.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Cuenta las sentencias SQL que prepara Hibernate en el hilo actual.
+ * <p>
+ * Hibernate llama a {@link #inspect(String)} con cada sentencia antes de
+ * prepararla (consultas JPQL, nativas y cargas de asociaciones; no las de
+ * {@code JdbcTemplate}). Solo se cuenta entre {@link #iniciar()} y
+ * {@link #detener()}; fuera de ese intervalo el coste es una lectura de un
+ * {@link ThreadLocal}.
+ */
+public class ContadorSentencias implements StatementInspector {
+
+    private static final ThreadLocal<int[]> CONTADOR = new ThreadLocal<>();
+
+    /**
+     * Empieza a contar las sentencias del hilo actual.
+     */
+    public static void iniciar() {
+        CONTADOR.set(new int[1]);
+    }
+
+    /**
+     * Deja de contar las sentencias del hilo actual.
+     *
+     * @return Número de sentencias preparadas desde {@link #iniciar()}.
+     */
+    public static int detener() {
+        int[] contador = CONTADOR.get();
+        CONTADOR.remove();
+        return contador != null ? contador[0] : 0;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        int[] contador = CONTADOR.get();
+        if (contador != null) {
+            contador[0]++;
+        }
+        return sql;
+    }
+}
@@ -0,0 +1,117 @@
+package com.ejemplo.resenasPeliculas.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Diagnóstico de hilos virtuales fijados a su hilo portador (pinning).
+ * <p>
+ * Escucha con JFR el evento {@code jdk.VirtualThreadPinned}, que la JVM emite
+ * cuando un hilo virtual se bloquea sin poder liberar su portador (por ejemplo,
+ * dentro de un bloque {@code synchronized}) durante más de
+ * {@code diagnostico.pinning.umbral}. Cada evento se atribuye al primer método
+ * de la aplicación de su pila y se publica en el timer
+ * {@code hilos.virtuales.pinning} con la etiqueta {@code origen}; la primera
+ * vez que aparece un origen se registra además su pila en el log.
+ * <p>
+ * El evento solo existe a partir de Java 21: con versiones anteriores el
+ * diagnóstico no se arranca.
+ */
+@Component
+@ConditionalOnProperty(name = "diagnostico.pinning.habilitado", havingValue = "true")
+public class DiagnosticoPinning {
+
+    private static final Logger log = LoggerFactory.getLogger(DiagnosticoPinning.class);
+
+    private static final String EVENTO = "jdk.VirtualThreadPinned";
+
+    private static final String PAQUETE_APLICACION = "com.ejemplo.resenasPeliculas.";
+
+    private static final int MARCOS_EN_LOG = 20;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${diagnostico.pinning.umbral:20ms}")
+    private Duration umbral;
+
+    private final Set<String> origenesVistos = ConcurrentHashMap.newKeySet();
+
+    private RecordingStream stream;
+
+    @PostConstruct
+    public void iniciar() {
+        if (Runtime.version().feature() < 21) {
+            log.warn("El diagnóstico de pinning requiere Java 21 o superior (versión actual: {})",
+                    Runtime.version());
+            return;
+        }
+        stream = new RecordingStream();
+        stream.enable(EVENTO).withStackTrace().withThreshold(umbral);
+        stream.onEvent(EVENTO, this::registrar);
+        stream.startAsync();
+        log.info("Diagnóstico de pinning activo (umbral {})", umbral);
+    }
+
+    @PreDestroy
+    public void detener() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    private void registrar(RecordedEvent evento) {
+        List<RecordedFrame> marcos = marcos(evento.getStackTrace());
+        String origen = origen(marcos);
+        Timer.builder("hilos.virtuales.pinning")
+                .description("Tiempo que los hilos virtuales pasan fijados a su portador")
+                .tag("origen", origen)
+                .register(meterRegistry)
+                .record(evento.getDuration());
+
+        if (origenesVistos.add(origen)) {
+            log.warn("Hilo virtual fijado a su portador durante {} ms en {}:\n\t{}",
+                    evento.getDuration().toMillis(), origen, marcos.stream()
+                            .limit(MARCOS_EN_LOG)
+                            .map(DiagnosticoPinning::describir)
+                            .collect(Collectors.joining("\n\t")));
+        }
+    }
+
+    private static List<RecordedFrame> marcos(RecordedStackTrace pila) {
+        return pila == null ? List.of() : pila.getFrames();
+    }
+
+    // Primer método de la aplicación en la pila o, si no hay, el más interno
+    private static String origen(List<RecordedFrame> marcos) {
+        for (RecordedFrame marco : marcos) {
+            if (marco.getMethod().getType().getName().startsWith(PAQUETE_APLICACION)) {
+                return describir(marco);
+            }
+        }
+        return marcos.isEmpty() ? "desconocido" : describir(marcos.get(0));
+    }
+
+    private static String describir(RecordedFrame marco) {
+        return marco.getMethod().getType().getName() + "." + marco.getMethod().getName() + ":"
+                + marco.getLineNumber();
+    }
+}
@@ -0,0 +1,128 @@
+package com.ejemplo.resenasPeliculas.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * {@link DataSource} que limita cuántos hilos pueden tener a la vez una conexión
+ * del pool (bulkhead).
+ * <p>
+ * Cuando hay más peticiones que conexiones, este envoltorio las hace esperar en
+ * un semáforo justo, en orden de llegada y con un tiempo máximo, en lugar de
+ * dentro del pool, y permite medir cuántas esperan. El permiso se devuelve al
+ * cerrar la conexión.
+ * <p>
+ * Con hilos virtuales puede haber miles de peticiones simultáneas compitiendo
+ * por unas pocas conexiones: el semáforo aparca los hilos sin bloquear su hilo
+ * portador.
+ */
+public class LimiteConexionesDataSource extends DelegatingDataSource {
+
+    private final Semaphore permisos;
+
+    private final int maximo;
+
+    private final long esperaMaximaNanos;
+
+    /**
+     * Constructor con parámetros.
+     *
+     * @param destino      Pool de conexiones real.
+     * @param maximo       Número máximo de conexiones en uso a la vez.
+     * @param esperaMaxima Tiempo máximo de espera por un permiso.
+     */
+    public LimiteConexionesDataSource(DataSource destino, int maximo, Duration esperaMaxima) {
+        super(destino);
+        this.permisos = new Semaphore(maximo, true);
+        this.maximo = maximo;
+        this.esperaMaximaNanos = esperaMaxima.toNanos();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        adquirir();
+        try {
+            return envolver(super.getConnection());
+        } catch (SQLException | RuntimeException e) {
+            permisos.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        adquirir();
+        try {
+            return envolver(super.getConnection(username, password));
+        } catch (SQLException | RuntimeException e) {
+            permisos.release();
+            throw e;
+        }
+    }
+
+    /**
+     * @return Número máximo de conexiones en uso a la vez.
+     */
+    public int getMaximo() {
+        return maximo;
+    }
+
+    /**
+     * @return Conexiones en uso a través del bulkhead.
+     */
+    public int getEnUso() {
+        return maximo - permisos.availablePermits();
+    }
+
+    /**
+     * @return Hilos esperando un permiso (estimación).
+     */
+    public int getEnEspera() {
+        return permisos.getQueueLength();
+    }
+
+    private void adquirir() throws SQLException {
+        try {
+            if (!permisos.tryAcquire(esperaMaximaNanos, TimeUnit.NANOSECONDS)) {
+                throw new SQLTransientConnectionException("No hay conexiones disponibles tras esperar "
+                        + TimeUnit.NANOSECONDS.toMillis(esperaMaximaNanos) + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrumpido esperando una conexión", e);
+        }
+    }
+
+    // Conexión que devuelve el permiso la primera vez que se cierra
+    private Connection envolver(Connection conexion) {
+        AtomicBoolean cerrada = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, (proxy, metodo, args) -> {
+                    if ("close".equals(metodo.getName()) && metodo.getParameterCount() == 0) {
+                        try {
+                            conexion.close();
+                        } finally {
+                            if (cerrada.compareAndSet(false, true)) {
+                                permisos.release();
+                            }
+                        }
+                        return null;
+                    }
+                    try {
+                        return metodo.invoke(conexion, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+    }
+}
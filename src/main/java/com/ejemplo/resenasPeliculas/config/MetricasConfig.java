@@ -0,0 +1,35 @@
+package com.ejemplo.resenasPeliculas.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuración de las métricas de la aplicación.
+ * <p>
+ * Activa la anotación {@code @Timed} de Micrometer, con la que los servicios
+ * publican el tiempo de cada método ({@code servicio.llamadas}, con las
+ * etiquetas {@code class}, {@code method} y {@code exception}). Las llamadas a
+ * los repositorios las mide Spring Boot ({@code spring.data.repository.invocations})
+ * y las peticiones HTTP, Spring MVC ({@code http.server.requests}).
+ */
+@Configuration
+public class MetricasConfig {
+
+    /**
+     * Nombre de los temporizadores de los métodos de servicio.
+     */
+    public static final String TIMER_SERVICIOS = "servicio.llamadas";
+
+    /**
+     * Aspecto que mide los métodos anotados con {@code @Timed}.
+     *
+     * @param meterRegistry Registro de métricas.
+     * @return El aspecto.
+     */
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+}
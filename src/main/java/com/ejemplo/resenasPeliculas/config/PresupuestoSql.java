@@ -0,0 +1,35 @@
+package com.ejemplo.resenasPeliculas.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Presupuesto de sentencias SQL de un endpoint: número máximo de sentencias que
+ * Hibernate puede preparar mientras se atiende una petición, con las cachés
+ * vacías.
+ * <p>
+ * Se declara en el método del controlador (o en la clase, para todos sus
+ * métodos) y lo comprueba {@link PresupuestoSqlFilter}. Un presupuesto que no
+ * depende del tamaño de los datos detecta las consultas N+1 en cuanto
+ * aparecen.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.METHOD, ElementType.TYPE })
+public @interface PresupuestoSql {
+
+    /**
+     * Valor para los endpoints cuyo número de sentencias depende de la entrada
+     * (importaciones) o que las ejecutan fuera del hilo de la petición
+     * (respuestas en streaming).
+     */
+    int SIN_LIMITE = -1;
+
+    /**
+     * Número máximo de sentencias por petición, o {@link #SIN_LIMITE}.
+     */
+    int value();
+}
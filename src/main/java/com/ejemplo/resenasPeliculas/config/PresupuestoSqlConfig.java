@@ -0,0 +1,52 @@
+package com.ejemplo.resenasPeliculas.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Configuración del control del presupuesto de sentencias SQL por petición.
+ * <p>
+ * Registra {@link ContadorSentencias} en Hibernate y un interceptor que deja en
+ * la petición el {@link PresupuestoSql} del controlador que la atiende, para que
+ * {@link PresupuestoSqlFilter} lo compruebe al terminar.
+ */
+@Configuration
+public class PresupuestoSqlConfig implements WebMvcConfigurer {
+
+    /**
+     * Registra el contador de sentencias en Hibernate.
+     *
+     * @return El personalizador de las propiedades de Hibernate.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer contadorSentenciasCustomizer() {
+        return propiedades -> propiedades.put(AvailableSettings.STATEMENT_INSPECTOR, new ContadorSentencias());
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                if (handler instanceof HandlerMethod metodo) {
+                    PresupuestoSql presupuesto = metodo.getMethodAnnotation(PresupuestoSql.class);
+                    if (presupuesto == null) {
+                        presupuesto = metodo.getBeanType().getAnnotation(PresupuestoSql.class);
+                    }
+                    if (presupuesto != null) {
+                        request.setAttribute(PresupuestoSqlFilter.ATRIBUTO_PRESUPUESTO, presupuesto.value());
+                    }
+                }
+                return true;
+            }
+        });
+    }
+}
@@ -0,0 +1,94 @@
+package com.ejemplo.resenasPeliculas.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Filtro que cuenta las sentencias SQL de cada petición y las compara con el
+ * {@link PresupuestoSql} del endpoint.
+ * <p>
+ * Según {@code sql.presupuesto.modo}:
+ * <ul>
+ * <li>{@code desactivado}: no cuenta nada (producción).</li>
+ * <li>{@code registrar}: publica las sentencias por petición
+ * ({@code sql.sentencias.peticion}) y, si se supera el presupuesto, lo registra
+ * en el log y en {@code sql.presupuesto.superado} (preproducción).</li>
+ * <li>{@code fallar}: además lanza una excepción, de modo que el test que hizo la
+ * petición falla (tests).</li>
+ * </ul>
+ * El presupuesto lo deja en la petición el interceptor de
+ * {@link PresupuestoSqlConfig} una vez resuelto el controlador.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class PresupuestoSqlFilter extends OncePerRequestFilter {
+
+    /**
+     * Atributo de la petición con el presupuesto del endpoint.
+     */
+    public static final String ATRIBUTO_PRESUPUESTO = PresupuestoSqlFilter.class.getName() + ".presupuesto";
+
+    private static final Logger log = LoggerFactory.getLogger(PresupuestoSqlFilter.class);
+
+    /**
+     * Modo de comprobación del presupuesto.
+     */
+    public enum Modo {
+        DESACTIVADO, REGISTRAR, FALLAR
+    }
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${sql.presupuesto.modo:desactivado}")
+    private Modo modo;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return modo == Modo.DESACTIVADO;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        ContadorSentencias.iniciar();
+        int sentencias;
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            sentencias = ContadorSentencias.detener();
+        }
+
+        Integer presupuesto = (Integer) request.getAttribute(ATRIBUTO_PRESUPUESTO);
+        if (presupuesto == null || presupuesto == PresupuestoSql.SIN_LIMITE) {
+            return;
+        }
+        String uri = String.valueOf(request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE));
+        meterRegistry.summary("sql.sentencias.peticion", "method", request.getMethod(), "uri", uri)
+                .record(sentencias);
+        if (sentencias > presupuesto) {
+            String mensaje = "Presupuesto SQL superado en " + request.getMethod() + " " + uri + ": "
+                    + sentencias + " sentencias (máximo " + presupuesto + ")";
+            log.warn(mensaje);
+            meterRegistry.counter("sql.presupuesto.superado", "method", request.getMethod(), "uri", uri)
+                    .increment();
+            if (modo == Modo.FALLAR) {
+                throw new IllegalStateException(mensaje);
+            }
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.ejemplo.resenasPeliculas.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Endpoint de actuator ({@code /actuator/rutaslentas}) que ordena las rutas más
+ * costosas de la aplicación: peticiones HTTP por endpoint, métodos de servicio
+ * y métodos de repositorio.
+ * <p>
+ * Cada ruta agrupa los temporizadores con el mismo endpoint o método (sin
+ * distinguir estado ni excepción). Por defecto se ordenan por tiempo total, que
+ * combina lo lenta y lo frecuente que es cada ruta; también se pueden ordenar
+ * por tiempo medio o máximo. El máximo es el de la ventana reciente de
+ * Micrometer; el resto de valores se acumulan desde el arranque.
+ */
+@Component
+@Endpoint(id = "rutaslentas")
+public class RutasLentasEndpoint {
+
+    /**
+     * Número de rutas devueltas si no se indica otro.
+     */
+    private static final int LIMITE_POR_DEFECTO = 20;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * Obtiene las rutas más costosas.
+     *
+     * @param orden  Criterio de orden: "total" (por defecto), "media" o "max".
+     * @param limite Número máximo de rutas.
+     * @return Las rutas ordenadas de más a menos costosa.
+     */
+    @ReadOperation
+    public List<Map<String, Object>> rutas(@Nullable String orden, @Nullable Integer limite) {
+        Map<String, Ruta> rutas = new LinkedHashMap<>();
+        agrupar(rutas, "http", "http.server.requests", t -> t.getId().getTag("method") + " " + t.getId().getTag("uri"));
+        agrupar(rutas, "servicio", MetricasConfig.TIMER_SERVICIOS,
+                t -> nombreSimple(t.getId().getTag("class")) + "." + t.getId().getTag("method"));
+        agrupar(rutas, "repositorio", "spring.data.repository.invocations",
+                t -> t.getId().getTag("repository") + "." + t.getId().getTag("method"));
+
+        Comparator<Ruta> comparador;
+        if ("media".equals(orden)) {
+            comparador = Comparator.comparingDouble(Ruta::getMediaNanos);
+        } else if ("max".equals(orden)) {
+            comparador = Comparator.comparingDouble(ruta -> ruta.maxNanos);
+        } else {
+            comparador = Comparator.comparingDouble(ruta -> ruta.totalNanos);
+        }
+        return rutas.values().stream()
+                .filter(ruta -> ruta.llamadas > 0)
+                .sorted(comparador.reversed())
+                .limit(limite != null && limite > 0 ? limite : LIMITE_POR_DEFECTO)
+                .map(Ruta::resumen)
+                .toList();
+    }
+
+    /**
+     * Obtiene el nombre de una ruta a partir de las etiquetas de su
+     * temporizador.
+     */
+    @FunctionalInterface
+    private interface NombreRuta {
+        String de(Timer timer);
+    }
+
+    // Suma los temporizadores con el nombre indicado agrupándolos por ruta
+    private void agrupar(Map<String, Ruta> rutas, String tipo, String metrica, NombreRuta nombre) {
+        for (Timer timer : meterRegistry.find(metrica).timers()) {
+            String ruta = nombre.de(timer);
+            rutas.computeIfAbsent(tipo + " " + ruta, clave -> new Ruta(tipo, ruta)).sumar(timer);
+        }
+    }
+
+    // Nombre de una clase sin el paquete
+    private static String nombreSimple(String clase) {
+        return clase == null ? null : clase.substring(clase.lastIndexOf('.') + 1);
+    }
+
+    // Valores acumulados de una ruta
+    private static final class Ruta {
+
+        private final String tipo;
+
+        private final String nombre;
+
+        private long llamadas;
+
+        private double totalNanos;
+
+        private double maxNanos;
+
+        private Ruta(String tipo, String nombre) {
+            this.tipo = tipo;
+            this.nombre = nombre;
+        }
+
+        private void sumar(Timer timer) {
+            llamadas += timer.count();
+            totalNanos += timer.totalTime(TimeUnit.NANOSECONDS);
+            maxNanos = Math.max(maxNanos, timer.max(TimeUnit.NANOSECONDS));
+        }
+
+        private double getMediaNanos() {
+            return llamadas == 0 ? 0.0 : totalNanos / llamadas;
+        }
+
+        private Map<String, Object> resumen() {
+            Map<String, Object> resumen = new LinkedHashMap<>();
+            resumen.put("tipo", tipo);
+            resumen.put("ruta", nombre);
+            resumen.put("llamadas", llamadas);
+            resumen.put("totalMs", milis(totalNanos));
+            resumen.put("mediaMs", milis(getMediaNanos()));
+            resumen.put("maxMs", milis(maxNanos));
+            return resumen;
+        }
+
+        private static double milis(double nanos) {
+            return Math.round(nanos / 1_000.0) / 1_000.0;
+        }
+    }
+}
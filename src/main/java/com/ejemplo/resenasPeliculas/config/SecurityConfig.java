@@ -1,20 +1,27 @@
 package com.ejemplo.resenasPeliculas.config;
 
+import com.ejemplo.resenasPeliculas.security.CodificadorPasswordAcotado;
 import com.ejemplo.resenasPeliculas.security.CustomUserDetailsService;
 import com.ejemplo.resenasPeliculas.security.JWTAuthenticationFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.NoOpPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Configuración de seguridad para la aplicación mediante Spring Security.
@@ -46,16 +53,33 @@ public class SecurityConfig {
     }
 
     /**
-     * Proporciona un {@link PasswordEncoder} que no codifica las contraseñas.
+     * Proporciona el {@link PasswordEncoder} de la aplicación: BCrypt con coste
+     * {@code seguridad.hash.coste}, calculado en un pool acotado
+     * ({@link CodificadorPasswordAcotado}) para que una ráfaga de logins no
+     * ocupe toda la CPU.
      * <p>
-     * ⚠️ Solo se recomienda para entornos de desarrollo. En producción, usar una
-     * estrategia segura como BCrypt.
+     * Los hashes llevan el prefijo del algoritmo ({@code {bcrypt}}). Las
+     * contraseñas guardadas sin prefijo, anteriores al uso de BCrypt, se
+     * comparan en claro y se consideran obsoletas, igual que los hashes con un
+     * coste menor que el configurado: el login las vuelve a codificar.
      *
-     * @return Un {@link PasswordEncoder} sin cifrado.
+     * @param coste         Coste (log2 de las rondas) de BCrypt.
+     * @param hilos         Hashes calculados a la vez (0: la mitad de los
+     *                      núcleos, al menos uno).
+     * @param capacidad     Operaciones en espera antes de rechazar nuevas.
+     * @param meterRegistry Registro de métricas.
+     * @return El codificador de contraseñas.
      */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return NoOpPasswordEncoder.getInstance();
+    public PasswordEncoder passwordEncoder(@Value("${seguridad.hash.coste:12}") int coste,
+            @Value("${seguridad.hash.hilos:0}") int hilos,
+            @Value("${seguridad.hash.capacidad:256}") int capacidad,
+            MeterRegistry meterRegistry) {
+        DelegatingPasswordEncoder bcrypt = new DelegatingPasswordEncoder("bcrypt",
+                Map.of("bcrypt", new BCryptPasswordEncoder(coste), "noop", NoOpPasswordEncoder.getInstance()));
+        bcrypt.setDefaultPasswordEncoderForMatches(NoOpPasswordEncoder.getInstance());
+        int hilosHash = hilos > 0 ? hilos : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        return new CodificadorPasswordAcotado(bcrypt, hilosHash, capacidad, meterRegistry);
     }
 
     /**
@@ -80,8 +104,13 @@ public class SecurityConfig {
                 }))
                 .csrf(csrf -> csrf.disable()) // Deshabilita CSRF para permitir peticiones desde frontend
                 .authorizeHttpRequests(authz -> authz
+                        // Las respuestas en streaming se completan en un despacho asíncrono
+                        // de una petición que ya fue autorizada
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers("/api/usuarios/registro", "/api/usuarios/login")
                         .permitAll()
+                        .requestMatchers(HttpMethod.GET, "/api/usuarios/disponible")
+                        .permitAll()
                         .requestMatchers(HttpMethod.GET, "/api/peliculas/**", "/api/resenas/**").permitAll()
                         .anyRequest().authenticated()) // Protege otras rutas
                 .userDetailsService(userDetailsService);
@@ -1,5 +1,6 @@
 package com.ejemplo.resenasPeliculas.controller;
 
+import com.ejemplo.resenasPeliculas.config.PresupuestoSql;
 import com.ejemplo.resenasPeliculas.dto.LoginRequestDto;
 import com.ejemplo.resenasPeliculas.model.Usuario;
 import com.ejemplo.resenasPeliculas.security.JWTUtil;
@@ -7,13 +8,13 @@ import com.ejemplo.resenasPeliculas.service.UsuarioService;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.authentication.*;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.AuthenticationException;
-import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.web.bind.annotation.*;
 
 /**
@@ -25,9 +26,6 @@ import org.springframework.web.bind.annotation.*;
 @RequestMapping("/api/usuarios")
 public class AuthenticationController {
 
-    @Autowired
-    private AuthenticationManager authenticationManager;
-
     @Autowired
     private UsuarioService usuarioService;
 
@@ -36,32 +34,36 @@ public class AuthenticationController {
 
     /**
      * Autentica a un usuario y genera un token JWT en caso de éxito.
+     * <p>
+     * El usuario se consulta una sola vez y la contraseña se verifica en el pool
+     * acotado de hashes. Si ese pool está saturado se responde 503 con
+     * {@code Retry-After}.
      *
      * @param loginRequest Objeto que contiene el nombre de usuario y la contraseña.
      * @return Si las credenciales son correctas, devuelve un token JWT; de lo
      *         contrario, devuelve un error 401.
      */
+    @PresupuestoSql(2)
     @PostMapping("/login")
     public ResponseEntity<?> login(@RequestBody LoginRequestDto loginRequest) {
+        Optional<Usuario> usuario;
         try {
-            Authentication authentication = authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(
-                            loginRequest.getUsername(), loginRequest.getPassword()));
-
-            String token = jwtUtil.generateToken(loginRequest.getUsername());
-
-            // Recuperar el usuario autenticado
-            Usuario usuario = usuarioService.findByUsername(loginRequest.getUsername())
-                    .orElseThrow(() -> new UsernameNotFoundException("Usuario no encontrado"));
-
-            // Crear la respuesta con el token y datos del usuario
-            Map<String, Object> response = new HashMap<>();
-            response.put("token", token);
-            response.put("user", usuario);
-
-            return ResponseEntity.ok(response);
-        } catch (AuthenticationException e) {
+            usuario = usuarioService.autenticar(loginRequest.getUsername(), loginRequest.getPassword());
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body("Demasiados inicios de sesión, inténtalo más tarde");
+        }
+        if (usuario.isEmpty()) {
             return ResponseEntity.status(401).body("Credenciales inválidas");
         }
+        String token = jwtUtil.generateToken(usuario.get().getUsername(), usuario.get().getId());
+
+        // Crear la respuesta con el token y datos del usuario
+        Map<String, Object> response = new HashMap<>();
+        response.put("token", token);
+        response.put("user", usuario.get());
+
+        return ResponseEntity.ok(response);
     }
 }
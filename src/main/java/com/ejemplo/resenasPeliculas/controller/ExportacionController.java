@@ -0,0 +1,41 @@
+package com.ejemplo.resenasPeliculas.controller;
+
+import com.ejemplo.resenasPeliculas.config.PresupuestoSql;
+import com.ejemplo.resenasPeliculas.service.ExportacionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * Controlador para la exportación masiva de datos.
+ * <p>
+ * La respuesta se genera en streaming en un hilo aparte, sin construir el
+ * documento completo en memoria.
+ */
+@RestController
+@RequestMapping("/api/exportacion")
+public class ExportacionController {
+
+    @Autowired
+    private ExportacionService exportacionService;
+
+    /**
+     * Exporta todas las reseñas en formato NDJSON.
+     *
+     * @return Respuesta con las reseñas, una por línea.
+     */
+    @PresupuestoSql(PresupuestoSql.SIN_LIMITE)
+    @GetMapping("/resenas")
+    public ResponseEntity<StreamingResponseBody> exportarResenas() {
+        StreamingResponseBody cuerpo = salida -> exportacionService.exportarResenas(salida);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"resenas.ndjson\"")
+                .body(cuerpo);
+    }
+}
@@ -0,0 +1,76 @@
+package com.ejemplo.resenasPeliculas.controller;
+
+import com.ejemplo.resenasPeliculas.config.PresupuestoSql;
+import com.ejemplo.resenasPeliculas.security.UsuarioAutenticado;
+import com.ejemplo.resenasPeliculas.service.FormatoImportacion;
+import com.ejemplo.resenasPeliculas.service.ImportacionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Controlador para la importación masiva de películas y reseñas.
+ * <p>
+ * El cuerpo de la petición se procesa en streaming: se admite NDJSON
+ * ({@code application/x-ndjson}) o CSV con cabecera ({@code text/csv}). Las
+ * reseñas importadas pertenecen siempre al usuario autenticado.
+ */
+@RestController
+@PresupuestoSql(PresupuestoSql.SIN_LIMITE)
+@RequestMapping("/api/importacion")
+public class ImportacionController {
+
+    @Autowired
+    private ImportacionService importacionService;
+
+    /**
+     * Importa películas desde un fichero NDJSON o CSV.
+     *
+     * @param contentType Tipo de contenido del cuerpo.
+     * @param entrada     Cuerpo de la petición.
+     * @return Resumen con las filas insertadas, las rechazadas y el rendimiento.
+     */
+    @PostMapping("/peliculas")
+    public ResponseEntity<?> importarPeliculas(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream entrada) {
+        try {
+            FormatoImportacion formato = FormatoImportacion.desdeContentType(contentType);
+            return ResponseEntity.ok(importacionService.importarPeliculas(entrada, formato));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IOException e) {
+            return ResponseEntity.badRequest().body("Error al leer el fichero: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Importa reseñas desde un fichero NDJSON o CSV. Todas se asignan al usuario
+     * autenticado.
+     *
+     * @param contentType Tipo de contenido del cuerpo.
+     * @param entrada     Cuerpo de la petición.
+     * @param principal   Usuario autenticado, con su id obtenido del token.
+     * @return Resumen con las filas insertadas, las rechazadas y el rendimiento.
+     */
+    @PostMapping("/resenas")
+    public ResponseEntity<?> importarResenas(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream entrada, @AuthenticationPrincipal UsuarioAutenticado principal) {
+        if (principal == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Usuario no autenticado");
+        }
+        try {
+            FormatoImportacion formato = FormatoImportacion.desdeContentType(contentType);
+            return ResponseEntity.ok(importacionService.importarResenas(entrada, formato, principal.getId()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IOException e) {
+            return ResponseEntity.badRequest().body("Error al leer el fichero: " + e.getMessage());
+        }
+    }
+}
@@ -1,15 +1,25 @@
 package com.ejemplo.resenasPeliculas.controller;
 
+import com.ejemplo.resenasPeliculas.config.PresupuestoSql;
+import com.ejemplo.resenasPeliculas.dto.PeliculaConEstadisticasDto;
 import com.ejemplo.resenasPeliculas.model.Pelicula;
+import com.ejemplo.resenasPeliculas.service.AutocompletadoService;
+import com.ejemplo.resenasPeliculas.service.BusquedaService;
+import com.ejemplo.resenasPeliculas.service.CacheRespuestas;
+import com.ejemplo.resenasPeliculas.service.EstadisticaPeliculaService;
 import com.ejemplo.resenasPeliculas.service.PeliculaService;
+import com.ejemplo.resenasPeliculas.service.RankingService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import jakarta.validation.Valid;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Controlador para gestionar las películas en la aplicación.
@@ -21,31 +31,153 @@ public class PeliculaController {
     @Autowired
     private PeliculaService peliculaService;
 
+    @Autowired
+    private EstadisticaPeliculaService estadisticaPeliculaService;
+
+    @Autowired
+    private BusquedaService busquedaService;
+
+    @Autowired
+    private RankingService rankingService;
+
+    @Autowired
+    private AutocompletadoService autocompletadoService;
+
+    @Autowired
+    private CacheRespuestas cacheRespuestas;
+
     /**
-     * Obtiene todas las películas disponibles.
+     * Obtiene todas las películas disponibles con el resumen de sus reseñas. La
+     * sinopsis solo se devuelve en el detalle de cada película.
      * 
-     * @return Lista de películas.
+     * @return Lista de películas con sus estadísticas.
      */
     // Endpoint para listar todas las películas
+    @PresupuestoSql(2)
     @GetMapping
-    public ResponseEntity<List<Pelicula>> getAllPeliculas() {
-        return ResponseEntity.ok(peliculaService.getAllPeliculas());
+    public ResponseEntity<List<PeliculaConEstadisticasDto>> getAllPeliculas() {
+        return ResponseEntity.ok(peliculaService.getAllPeliculasConEstadisticas());
+    }
+
+    /**
+     * Busca películas por texto en su título, director, género, sinopsis y
+     * reseñas, sin distinguir mayúsculas ni tildes.
+     * 
+     * @param q     Texto a buscar.
+     * @param limit Número máximo de resultados.
+     * @return Películas ordenadas por relevancia.
+     */
+    // Endpoint para buscar películas
+    @PresupuestoSql(0)
+    @GetMapping("/buscar")
+    public ResponseEntity<?> buscarPeliculas(@RequestParam String q, @RequestParam(defaultValue = "20") int limit) {
+        try {
+            return ResponseEntity.ok(busquedaService.buscar(q, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * Sugiere títulos de películas que empiezan por un prefijo, para
+     * autocompletar mientras se escribe. Se ordenan por número de reseñas.
+     * 
+     * @param prefijo Comienzo del título (sin distinguir mayúsculas ni tildes).
+     * @param limit   Número máximo de sugerencias.
+     * @return Películas de más a menos reseñas.
+     */
+    // Endpoint para autocompletar títulos de películas
+    @PresupuestoSql(0)
+    @GetMapping("/autocompletar")
+    public ResponseEntity<?> autocompletarTitulo(@RequestParam String prefijo,
+            @RequestParam(defaultValue = "10") int limit) {
+        try {
+            return ResponseEntity.ok(autocompletadoService.getSugerencias(prefijo, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * Obtiene las películas mejor valoradas, en general o de un género. Se
+     * ordenan por su media bayesiana, de modo que las películas con pocas reseñas
+     * no dominan el ranking.
+     * 
+     * @param genero Género (sin distinguir mayúsculas ni tildes); si se omite,
+     *               se consideran todas las películas.
+     * @param limit  Número máximo de películas.
+     * @return Películas de mayor a menor puntuación.
+     */
+    // Endpoint para obtener el ranking de películas
+    @PresupuestoSql(0)
+    @GetMapping("/top")
+    public ResponseEntity<?> getMejoresPeliculas(@RequestParam(required = false) String genero,
+            @RequestParam(defaultValue = "10") int limit) {
+        try {
+            return ResponseEntity.ok(rankingService.getMejores(genero, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
     /**
      * Obtiene una película por su ID.
+     * <p>
+     * La respuesta lleva como ETag la versión de la película. Si la petición
+     * trae {@code If-None-Match}, se comprueba primero solo la versión y, si no
+     * ha cambiado, se responde 304 sin cargar la película. La respuesta
+     * serializada se guarda en {@link CacheRespuestas}, de donde se sirven las
+     * siguientes peticiones hasta que la película cambie.
      * 
-     * @param id ID de la película.
-     * @return La película encontrada.
+     * @param id         ID de la película.
+     * @param webRequest Petición, para la comprobación condicional.
+     * @return La película encontrada, 304 si el cliente ya la tiene o 404 si no
+     *         existe.
      */
     // Endpoint para obtener una película por id
+    @PresupuestoSql(1)
     @GetMapping("/{id}")
-    public ResponseEntity<?> getPeliculaById(@PathVariable Long id) {
+    public ResponseEntity<?> getPeliculaById(@PathVariable Long id, WebRequest webRequest) {
+        CacheRespuestas.Respuesta cacheada = cacheRespuestas.get(CacheRespuestas.Recurso.PELICULA, id, "");
+        if (cacheada != null) {
+            return cacheRespuestas.responder(cacheada, webRequest);
+        }
+        long generacion = cacheRespuestas.getGeneracion(CacheRespuestas.Recurso.PELICULA, id);
+        if (webRequest.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            Optional<Long> version = peliculaService.getVersionPelicula(id);
+            if (version.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Pelicula no encontrada");
+            }
+            String etag = etag(id, version.get());
+            ResponseEntity<?> noModificado = cacheRespuestas.noModificado(etag, webRequest);
+            if (noModificado != null) {
+                return noModificado;
+            }
+        }
         return peliculaService.getPeliculaById(id)
-                .map(pelicula -> ResponseEntity.ok((Object) pelicula))
+                .<ResponseEntity<?>>map(pelicula -> cacheRespuestas.responder(cacheRespuestas.guardar(
+                        CacheRespuestas.Recurso.PELICULA, id, "", etag(id, pelicula.getVersion()), pelicula,
+                        generacion), webRequest))
                 .orElse(ResponseEntity.status(HttpStatus.NOT_FOUND).body("Pelicula no encontrada"));
     }
 
+    /**
+     * Obtiene las estadísticas de reseñas de una película: número de reseñas,
+     * media e histograma de estrellas.
+     * 
+     * @param id ID de la película.
+     * @return Las estadísticas de la película.
+     */
+    // Endpoint para obtener las estadísticas de una película
+    @PresupuestoSql(2)
+    @GetMapping("/{id}/estadisticas")
+    public ResponseEntity<?> getEstadisticasPelicula(@PathVariable Long id) {
+        if (peliculaService.getPeliculaById(id).isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Pelicula no encontrada");
+        }
+        return ResponseEntity.ok(estadisticaPeliculaService.getEstadisticas(id));
+    }
+
     /**
      * Crea una nueva película.
      * 
@@ -53,13 +185,14 @@ public class PeliculaController {
      * @return La película creada.
      */
     // Endpoint para crear una nueva película
+    @PresupuestoSql(1)
     @PostMapping
     public ResponseEntity<?> createPelicula(@Valid @RequestBody Pelicula pelicula, BindingResult bindingResult) {
         if (bindingResult.hasErrors()) {
             return ResponseEntity.badRequest().body(bindingResult.getAllErrors());
         }
         if (pelicula.getImagenUrl() == null || pelicula.getImagenUrl().isEmpty()) {
-            pelicula.setImagenUrl("https://via.placeholder.com/300x400?text=No+Image"); // Imagen por defecto
+            pelicula.setImagenUrl(Pelicula.IMAGEN_POR_DEFECTO); // Imagen por defecto
         }
 
         Pelicula nuevaPelicula = peliculaService.createPelicula(pelicula);
@@ -74,6 +207,7 @@ public class PeliculaController {
      * @return La película creada.
      */
     // Endpoint para actualizar una película existente
+    @PresupuestoSql(2)
     @PutMapping("/{id}")
     public ResponseEntity<?> updatePelicula(@PathVariable Long id, @Valid @RequestBody Pelicula peliculaDetails,
             BindingResult bindingResult) {
@@ -95,6 +229,7 @@ public class PeliculaController {
      * @return La película creada.
      */
     // Endpoint para eliminar una película
+    @PresupuestoSql(4)
     @DeleteMapping("/{id}")
     public ResponseEntity<?> deletePelicula(@PathVariable Long id) {
         try {
@@ -104,4 +239,9 @@ public class PeliculaController {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Pelicula no encontrada");
         }
     }
+
+    // ETag fuerte del detalle de una película en una versión
+    private static String etag(Long id, long version) {
+        return "\"pelicula-" + id + "-v" + version + "\"";
+    }
 }
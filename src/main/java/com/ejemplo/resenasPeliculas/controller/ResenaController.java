@@ -1,22 +1,28 @@
 package com.ejemplo.resenasPeliculas.controller;
 
+import com.ejemplo.resenasPeliculas.config.PresupuestoSql;
+import com.ejemplo.resenasPeliculas.dto.PaginaCursor;
+import com.ejemplo.resenasPeliculas.dto.ResenaPendienteDto;
+import com.ejemplo.resenasPeliculas.dto.ResenaResumenDto;
 import com.ejemplo.resenasPeliculas.model.Resena;
 import com.ejemplo.resenasPeliculas.model.Usuario;
+import com.ejemplo.resenasPeliculas.security.UsuarioAutenticado;
+import com.ejemplo.resenasPeliculas.service.CacheRespuestas;
+import com.ejemplo.resenasPeliculas.service.OrdenResenas;
 import com.ejemplo.resenasPeliculas.service.ResenaService;
-import com.ejemplo.resenasPeliculas.service.UsuarioService;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.User;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import jakarta.validation.Valid;
-import java.security.Principal;
-import java.util.List;
-import java.util.Optional;
+import java.net.URI;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Controlador para gestionar las reseñas en la aplicación.
@@ -29,16 +35,29 @@ public class ResenaController {
     private ResenaService resenaService;
 
     @Autowired
-    private UsuarioService usuarioService;
+    private CacheRespuestas cacheRespuestas;
 
     /**
-     * Obtiene todas las reseñas registradas en la base de datos.
+     * Obtiene las reseñas registradas en la base de datos, paginadas por cursor.
      *
-     * @return Una lista de todas las reseñas.
+     * @param cursor Cursor devuelto por la página anterior (opcional).
+     * @param limit  Número máximo de reseñas por página.
+     * @param orden  Criterio de orden: "id" o "rating".
+     * @return Una página de reseñas con el cursor de la siguiente, o un error 400
+     *         si los parámetros no son válidos.
      */
+    @PresupuestoSql(1)
     @GetMapping("/resenas")
-    public ResponseEntity<List<Resena>> getAllResenas() {
-        return ResponseEntity.ok(resenaService.getAllResenas());
+    public ResponseEntity<?> getAllResenas(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(defaultValue = "id") String orden) {
+        try {
+            return ResponseEntity.ok(resenaService.getResenasPaginadas(
+                    null, OrdenResenas.desdeParametro(orden), cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
     /**
@@ -47,6 +66,7 @@ public class ResenaController {
      * @param id El identificador único de la reseña.
      * @return La reseña encontrada o un mensaje de error si no existe.
      */
+    @PresupuestoSql(1)
     @GetMapping("/resenas/{id}")
     public ResponseEntity<?> getResenaById(@PathVariable Long id) {
         return resenaService.getResenaById(id)
@@ -55,44 +75,117 @@ public class ResenaController {
     }
 
     /**
-     * Obtiene todas las reseñas asociadas a una película específica.
+     * Obtiene el estado de una reseña aceptada para su escritura diferida:
+     * pendiente, guardada (con su id) o rechazada.
+     *
+     * @param id Identificador devuelto al crear la reseña.
+     * @return El estado de la reseña o un mensaje de error si no existe o ha
+     *         caducado.
+     */
+    @PresupuestoSql(0)
+    @GetMapping("/resenas/pendientes/{id}")
+    public ResponseEntity<?> getResenaPendiente(@PathVariable String id) {
+        return resenaService.getResenaPendiente(id)
+                .map(pendiente -> ResponseEntity.ok((Object) pendiente))
+                .orElse(ResponseEntity.status(HttpStatus.NOT_FOUND).body("Reseña pendiente no encontrada"));
+    }
+
+    /**
+     * Obtiene las reseñas asociadas a una película específica, paginadas por
+     * cursor.
+     * <p>
+     * La respuesta lleva como ETag la versión de las reseñas de la película, que
+     * se lee antes que la página. Si coincide con {@code If-None-Match} se
+     * responde 304 sin consultar ni serializar las reseñas. Cada página
+     * serializada se guarda en {@link CacheRespuestas} hasta que cambien las
+     * reseñas de la película.
      *
      * @param peliculaId El identificador único de la película.
-     * @return Una lista de reseñas asociadas a la película.
+     * @param cursor     Cursor devuelto por la página anterior (opcional).
+     * @param limit      Número máximo de reseñas por página.
+     * @param orden      Criterio de orden: "id" o "rating".
+     * @param webRequest Petición, para la comprobación condicional.
+     * @return Una página de reseñas de la película con el cursor de la siguiente,
+     *         304 si el cliente ya la tiene o un error 400 si los parámetros no
+     *         son válidos.
      */
+    @PresupuestoSql(2)
     @GetMapping("/peliculas/{peliculaId}/resenas")
-    public ResponseEntity<List<Resena>> getResenasByPeliculaId(@PathVariable Long peliculaId) {
-        return ResponseEntity.ok(resenaService.getResenasByPeliculaId(peliculaId));
+    public ResponseEntity<?> getResenasByPeliculaId(
+            @PathVariable Long peliculaId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(defaultValue = "id") String orden,
+            WebRequest webRequest) {
+        String variante = orden + ":" + limit + ":" + (cursor != null ? cursor : "");
+        CacheRespuestas.Respuesta cacheada = cacheRespuestas.get(CacheRespuestas.Recurso.RESENAS_PELICULA,
+                peliculaId, variante);
+        if (cacheada != null) {
+            return cacheRespuestas.responder(cacheada, webRequest);
+        }
+        long generacion = cacheRespuestas.getGeneracion(CacheRespuestas.Recurso.RESENAS_PELICULA, peliculaId);
+        String etag = "\"resenas-pelicula-" + peliculaId + "-v" + resenaService.getVersionResenas(peliculaId) + "\"";
+        ResponseEntity<?> noModificado = cacheRespuestas.noModificado(etag, webRequest);
+        if (noModificado != null) {
+            return noModificado;
+        }
+        try {
+            PaginaCursor<ResenaResumenDto> pagina = resenaService.getResenasPaginadas(
+                    peliculaId, OrdenResenas.desdeParametro(orden), cursor, limit);
+            return cacheRespuestas.responder(cacheRespuestas.guardar(CacheRespuestas.Recurso.RESENAS_PELICULA,
+                    peliculaId, variante, etag, pagina, generacion), webRequest);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
     /**
      * Crea una nueva reseña en la base de datos.
+     * <p>
+     * Con la escritura diferida habilitada, la reseña se acepta con 202 y se
+     * guarda después, agrupada con otras. La respuesta lleva su estado y, en
+     * {@code Location}, la URL donde consultarlo. Si hay demasiadas reseñas
+     * pendientes se responde 503 con {@code Retry-After}.
      *
      * @param resena        La reseña a crear.
      * @param bindingResult Resultado de la validación de la entrada.
-     * @param principal     Información del usuario autenticado.
-     * @return La reseña creada o un mensaje de error en caso de datos inválidos.
+     * @param principal     Usuario autenticado, con su id obtenido del token.
+     * @return La reseña creada (o aceptada) o un mensaje de error en caso de
+     *         datos inválidos.
      */
+    @PresupuestoSql(3)
     @PostMapping("/resenas")
     public ResponseEntity<?> createResena(
             @Valid @RequestBody Resena resena,
             BindingResult bindingResult,
-            Principal principal) {
+            @AuthenticationPrincipal UsuarioAutenticado principal) {
 
         if (bindingResult.hasErrors()) {
             return ResponseEntity.badRequest().body(bindingResult.getAllErrors());
         }
 
-        // Obtener el usuario autenticado desde el token
-        String username = principal.getName();
-        Optional<Usuario> usuarioOptional = usuarioService.findByUsername(username);
-
-        if (usuarioOptional.isEmpty()) {
+        if (principal == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Usuario no autenticado");
         }
 
-        Usuario usuario = usuarioOptional.get();
-        resena.setUsuario(usuario); // Asociar el usuario autenticado a la reseña
+        // Asociar el usuario autenticado a la reseña usando solo su id, sin
+        // consultarlo en la base de datos
+        resena.setUsuario(usuarioDe(principal));
+
+        if (resenaService.isCreacionDiferida()) {
+            try {
+                ResenaPendienteDto pendiente = resenaService.encolarResena(resena);
+                return ResponseEntity.accepted()
+                        .location(URI.create("/api/resenas/pendientes/" + pendiente.getId()))
+                        .body(pendiente);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(e.getMessage());
+            } catch (RejectedExecutionException e) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .header(HttpHeaders.RETRY_AFTER, "1")
+                        .body(e.getMessage());
+            }
+        }
 
         Resena nuevaResena = resenaService.createResena(resena);
         return ResponseEntity.status(HttpStatus.CREATED).body(nuevaResena);
@@ -104,36 +197,35 @@ public class ResenaController {
      * @param id            El identificador único de la reseña a actualizar.
      * @param resenaDetails Los nuevos datos de la reseña.
      * @param bindingResult Resultado de la validación de la entrada.
+     * @param principal     Usuario autenticado, con su id obtenido del token.
      * @return La reseña actualizada o un mensaje de error si la reseña no existe.
      */
+    @PresupuestoSql(4)
     @PutMapping("/resenas/{id}")
     public ResponseEntity<?> updateResena(
             @PathVariable Long id,
             @Valid @RequestBody Resena resenaDetails,
             BindingResult bindingResult,
-            Principal principal) {
+            @AuthenticationPrincipal UsuarioAutenticado principal) {
 
         if (bindingResult.hasErrors()) {
             return ResponseEntity.badRequest().body(bindingResult.getAllErrors());
         }
 
-        Optional<Resena> existingResenaOptional = resenaService.getResenaById(id);
-        if (existingResenaOptional.isEmpty()) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Reseña no encontrada");
-        }
-
-        Resena existingResena = existingResenaOptional.get();
-        Usuario usuarioAutenticado = usuarioService.findByUsername(principal.getName()).orElse(null);
-
-        if (usuarioAutenticado == null || !existingResena.getUsuario().getId().equals(usuarioAutenticado.getId())) {
+        if (principal == null) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).body("No puedes actualizar esta reseña.");
         }
 
         try {
-            existingResena.setContenido(resenaDetails.getContenido());
-            existingResena.setRating(resenaDetails.getRating());
-            Resena resenaActualizada = resenaService.updateResena(id, existingResena);
-            return ResponseEntity.ok(resenaActualizada);
+            switch (resenaService.updateResena(id, principal.getId(), resenaDetails)) {
+                case NO_ENCONTRADO:
+                    return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Reseña no encontrada");
+                case NO_AUTORIZADO:
+                    return ResponseEntity.status(HttpStatus.FORBIDDEN).body("No puedes actualizar esta reseña.");
+                default:
+                    resenaDetails.setUsuario(usuarioDe(principal));
+                    return ResponseEntity.ok(resenaDetails);
+            }
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error al actualizar la reseña.");
         }
@@ -143,26 +235,33 @@ public class ResenaController {
      * Elimina una reseña de la base de datos si pertenece al usuario autenticado.
      *
      * @param id        El identificador único de la reseña a eliminar.
-     * @param principal Información del usuario autenticado.
+     * @param principal Usuario autenticado, con su id obtenido del token.
      * @return Un mensaje de éxito si se eliminó correctamente o un mensaje de error
      *         si la reseña no existe.
      */
+    @PresupuestoSql(4)
     @DeleteMapping("/resenas/{id}")
-    public ResponseEntity<?> deleteResena(@PathVariable Long id, Principal principal) {
-        Optional<Resena> resenaOptional = resenaService.getResenaById(id);
-
-        if (resenaOptional.isEmpty()) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Reseña no encontrada");
+    public ResponseEntity<?> deleteResena(@PathVariable Long id,
+            @AuthenticationPrincipal UsuarioAutenticado principal) {
+        if (principal == null) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("No puedes eliminar esta reseña.");
         }
 
-        Resena resena = resenaOptional.get();
-        Usuario usuarioAutenticado = usuarioService.findByUsername(principal.getName()).orElse(null);
-
-        if (usuarioAutenticado == null || !resena.getUsuario().getId().equals(usuarioAutenticado.getId())) {
-            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("No puedes eliminar esta reseña.");
+        switch (resenaService.deleteResena(id, principal.getId())) {
+            case NO_ENCONTRADO:
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Reseña no encontrada");
+            case NO_AUTORIZADO:
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).body("No puedes eliminar esta reseña.");
+            default:
+                return ResponseEntity.ok("Reseña eliminada exitosamente");
         }
+    }
 
-        resenaService.deleteResena(id);
-        return ResponseEntity.ok("Reseña eliminada exitosamente");
+    // Usuario con los datos del token, sin consultarlo en la base de datos
+    private Usuario usuarioDe(UsuarioAutenticado principal) {
+        Usuario usuario = new Usuario();
+        usuario.setId(principal.getId());
+        usuario.setUsername(principal.getUsername());
+        return usuario;
     }
 }
@@ -1,16 +1,24 @@
 package com.ejemplo.resenasPeliculas.controller;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.core.Authentication;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.web.bind.annotation.*;
 
+import com.ejemplo.resenasPeliculas.config.PresupuestoSql;
 import com.ejemplo.resenasPeliculas.dto.UsuarioRegistrationDto;
 import com.ejemplo.resenasPeliculas.model.Usuario;
+import com.ejemplo.resenasPeliculas.security.UsuarioAutenticado;
+import com.ejemplo.resenasPeliculas.service.DisponibilidadUsuariosService;
 import com.ejemplo.resenasPeliculas.service.UsuarioService;
 
 import jakarta.validation.Valid;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
@@ -27,6 +35,9 @@ public class UsuarioController {
     @Autowired
     private UsuarioService usuarioService;
 
+    @Autowired
+    private DisponibilidadUsuariosService disponibilidadUsuariosService;
+
     /**
      * Registra un nuevo usuario en la aplicación.
      *
@@ -35,6 +46,7 @@ public class UsuarioController {
      * @return Respuesta con el usuario creado si el registro fue exitoso, o un
      *         mensaje de error en caso de fallo.
      */
+    @PresupuestoSql(1)
     @PostMapping("/registro")
     public ResponseEntity<?> registrarUsuario(@Valid @RequestBody UsuarioRegistrationDto dto,
             BindingResult bindingResult) {
@@ -47,6 +59,11 @@ public class UsuarioController {
             // Intentamos registrar al usuario
             Usuario usuario = usuarioService.registerUser(dto);
             return new ResponseEntity<>(usuario, HttpStatus.CREATED);
+        } catch (RejectedExecutionException e) {
+            // El pool de hashes de contraseñas está saturado
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body("Demasiadas peticiones, inténtalo más tarde");
         } catch (Exception e) {
             // Si ocurre un error como usuario o email duplicado, retornamos un error 400
             return ResponseEntity.badRequest().body(e.getMessage());
@@ -54,18 +71,50 @@ public class UsuarioController {
     }
 
     /**
-     * Obtiene los datos del usuario autenticado.
+     * Comprueba si un nombre de usuario y/o un email están libres, para el
+     * formulario de registro. La mayoría de las respuestas no acceden a la base
+     * de datos.
+     *
+     * @param username Nombre de usuario (opcional).
+     * @param email    Email (opcional).
+     * @return Disponibilidad de cada valor indicado, o un error 400 si no se
+     *         indica ninguno.
+     */
+    @PresupuestoSql(2)
+    @GetMapping("/disponible")
+    public ResponseEntity<?> comprobarDisponibilidad(@RequestParam(required = false) String username,
+            @RequestParam(required = false) String email) {
+        boolean conUsername = username != null && !username.isBlank();
+        boolean conEmail = email != null && !email.isBlank();
+        if (!conUsername && !conEmail) {
+            return ResponseEntity.badRequest().body("Indica un nombre de usuario o un email");
+        }
+
+        Map<String, Boolean> disponibilidad = new LinkedHashMap<>();
+        if (conUsername) {
+            disponibilidad.put("username", disponibilidadUsuariosService.isUsernameDisponible(username));
+        }
+        if (conEmail) {
+            disponibilidad.put("email", disponibilidadUsuariosService.isEmailDisponible(email));
+        }
+        return ResponseEntity.ok(disponibilidad);
+    }
+
+    /**
+     * Obtiene los datos del usuario autenticado. Se carga por clave primaria,
+     * igual que al comprobar el token, para aprovechar la caché de segundo nivel.
      * 
-     * @param authentication Información de autenticación del usuario.
+     * @param principal Usuario autenticado.
      * @return Datos del usuario autenticado o un error si no está autenticado.
      */
+    @PresupuestoSql(1)
     @GetMapping("/me")
-    public ResponseEntity<?> getCurrentUser(Authentication authentication) {
-        if (authentication == null || authentication.getName() == null) {
+    public ResponseEntity<?> getCurrentUser(@AuthenticationPrincipal UsuarioAutenticado principal) {
+        if (principal == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("No autenticado");
         }
 
-        Usuario usuario = usuarioService.findByUsername(authentication.getName())
+        Usuario usuario = usuarioService.findById(principal.getId())
                 .orElseThrow(() -> new UsernameNotFoundException("Usuario no encontrado"));
 
         return ResponseEntity.ok(usuario);
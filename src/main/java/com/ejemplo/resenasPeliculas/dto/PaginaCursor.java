@@ -0,0 +1,63 @@
+package com.ejemplo.resenasPeliculas.dto;
+
+import java.util.List;
+
+/**
+ * DTO (Data Transfer Object) para una página de resultados paginada por cursor.
+ * <p>
+ * Contiene los elementos de la página y un cursor opaco que el cliente debe
+ * reenviar para obtener la página siguiente.
+ *
+ * @param <T> Tipo de los elementos de la página.
+ */
+public class PaginaCursor<T> {
+
+    /**
+     * Elementos de la página actual.
+     */
+    private final List<T> elementos;
+
+    /**
+     * Cursor opaco para pedir la página siguiente, o {@code null} si no hay más
+     * resultados.
+     */
+    private final String siguienteCursor;
+
+    /**
+     * Constructor con parámetros para la creación de una página.
+     *
+     * @param elementos       Elementos de la página.
+     * @param siguienteCursor Cursor de la página siguiente, o {@code null}.
+     */
+    public PaginaCursor(List<T> elementos, String siguienteCursor) {
+        this.elementos = elementos;
+        this.siguienteCursor = siguienteCursor;
+    }
+
+    /**
+     * Obtiene los elementos de la página.
+     *
+     * @return Elementos de la página.
+     */
+    public List<T> getElementos() {
+        return elementos;
+    }
+
+    /**
+     * Obtiene el cursor de la página siguiente.
+     *
+     * @return Cursor opaco, o {@code null} si es la última página.
+     */
+    public String getSiguienteCursor() {
+        return siguienteCursor;
+    }
+
+    /**
+     * Indica si existen más resultados después de esta página.
+     *
+     * @return {@code true} si hay una página siguiente.
+     */
+    public boolean isHayMas() {
+        return siguienteCursor != null;
+    }
+}
@@ -0,0 +1,54 @@
+package com.ejemplo.resenasPeliculas.dto;
+
+import com.ejemplo.resenasPeliculas.model.EstadisticaPelicula;
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+
+/**
+ * DTO (Data Transfer Object) que combina el resumen de una película con el
+ * resumen de sus reseñas.
+ * <p>
+ * Se serializa con los mismos campos que {@link PeliculaResumenDto} más un campo
+ * {@code estadisticas}.
+ */
+public class PeliculaConEstadisticasDto {
+
+    /**
+     * Película, serializada en el mismo nivel que las estadísticas.
+     */
+    @JsonUnwrapped
+    private final PeliculaResumenDto pelicula;
+
+    /**
+     * Estadísticas agregadas de las reseñas de la película.
+     */
+    private final EstadisticaPelicula estadisticas;
+
+    /**
+     * Constructor con parámetros.
+     *
+     * @param pelicula     Resumen de la película.
+     * @param estadisticas Estadísticas de sus reseñas.
+     */
+    public PeliculaConEstadisticasDto(PeliculaResumenDto pelicula, EstadisticaPelicula estadisticas) {
+        this.pelicula = pelicula;
+        this.estadisticas = estadisticas;
+    }
+
+    /**
+     * Obtiene el resumen de la película.
+     *
+     * @return Resumen de la película.
+     */
+    public PeliculaResumenDto getPelicula() {
+        return pelicula;
+    }
+
+    /**
+     * Obtiene las estadísticas de la película.
+     *
+     * @return Estadísticas de reseñas.
+     */
+    public EstadisticaPelicula getEstadisticas() {
+        return estadisticas;
+    }
+}
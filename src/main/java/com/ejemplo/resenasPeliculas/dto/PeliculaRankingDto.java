@@ -0,0 +1,90 @@
+package com.ejemplo.resenasPeliculas.dto;
+
+/**
+ * DTO (Data Transfer Object) con una película de un ranking y su puntuación
+ * bayesiana.
+ */
+public class PeliculaRankingDto {
+
+    private final Long id;
+    private final String titulo;
+    private final String director;
+    private final String genero;
+    private final Integer anioEstreno;
+    private final String imagenUrl;
+
+    /**
+     * Media bayesiana: la media de la película acercada a la media global tanto
+     * más cuantas menos reseñas tenga.
+     */
+    private final double puntuacion;
+
+    /**
+     * Media aritmética de las calificaciones de la película.
+     */
+    private final double media;
+
+    private final long totalResenas;
+
+    /**
+     * Constructor con parámetros.
+     *
+     * @param id           Id de la película.
+     * @param titulo       Título.
+     * @param director     Director.
+     * @param genero       Género.
+     * @param anioEstreno  Año de estreno.
+     * @param imagenUrl    URL de la imagen.
+     * @param puntuacion   Media bayesiana.
+     * @param media        Media de las calificaciones.
+     * @param totalResenas Número de reseñas.
+     */
+    public PeliculaRankingDto(Long id, String titulo, String director, String genero, Integer anioEstreno,
+            String imagenUrl, double puntuacion, double media, long totalResenas) {
+        this.id = id;
+        this.titulo = titulo;
+        this.director = director;
+        this.genero = genero;
+        this.anioEstreno = anioEstreno;
+        this.imagenUrl = imagenUrl;
+        this.puntuacion = puntuacion;
+        this.media = media;
+        this.totalResenas = totalResenas;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getTitulo() {
+        return titulo;
+    }
+
+    public String getDirector() {
+        return director;
+    }
+
+    public String getGenero() {
+        return genero;
+    }
+
+    public Integer getAnioEstreno() {
+        return anioEstreno;
+    }
+
+    public String getImagenUrl() {
+        return imagenUrl;
+    }
+
+    public double getPuntuacion() {
+        return puntuacion;
+    }
+
+    public double getMedia() {
+        return media;
+    }
+
+    public long getTotalResenas() {
+        return totalResenas;
+    }
+}
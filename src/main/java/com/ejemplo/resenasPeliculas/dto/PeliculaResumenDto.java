@@ -0,0 +1,62 @@
+package com.ejemplo.resenasPeliculas.dto;
+
+/**
+ * DTO (Data Transfer Object) con los datos de una película que se muestran en
+ * los listados, sin la sinopsis.
+ * <p>
+ * Se construye directamente en la consulta, de modo que solo se leen estas
+ * columnas.
+ */
+public class PeliculaResumenDto {
+
+    private final Long id;
+    private final String titulo;
+    private final String director;
+    private final String genero;
+    private final Integer anioEstreno;
+    private final String imagenUrl;
+
+    /**
+     * Constructor con parámetros.
+     *
+     * @param id          Id de la película.
+     * @param titulo      Título.
+     * @param director    Director.
+     * @param genero      Género.
+     * @param anioEstreno Año de estreno.
+     * @param imagenUrl   URL de la imagen.
+     */
+    public PeliculaResumenDto(Long id, String titulo, String director, String genero, Integer anioEstreno,
+            String imagenUrl) {
+        this.id = id;
+        this.titulo = titulo;
+        this.director = director;
+        this.genero = genero;
+        this.anioEstreno = anioEstreno;
+        this.imagenUrl = imagenUrl;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getTitulo() {
+        return titulo;
+    }
+
+    public String getDirector() {
+        return director;
+    }
+
+    public String getGenero() {
+        return genero;
+    }
+
+    public Integer getAnioEstreno() {
+        return anioEstreno;
+    }
+
+    public String getImagenUrl() {
+        return imagenUrl;
+    }
+}
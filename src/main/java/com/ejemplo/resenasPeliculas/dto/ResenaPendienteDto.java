@@ -0,0 +1,63 @@
+package com.ejemplo.resenasPeliculas.dto;
+
+/**
+ * DTO (Data Transfer Object) con el estado de una reseña aceptada para su
+ * escritura diferida.
+ */
+public class ResenaPendienteDto {
+
+    /**
+     * Estado de la reseña.
+     */
+    public enum Estado {
+        PENDIENTE, GUARDADA, RECHAZADA
+    }
+
+    /**
+     * Identificador con el que el cliente consulta el estado.
+     */
+    private final String id;
+
+    private final Estado estado;
+
+    /**
+     * Id de la reseña una vez guardada.
+     */
+    private final Long resenaId;
+
+    /**
+     * Motivo por el que no se ha podido guardar.
+     */
+    private final String error;
+
+    /**
+     * Constructor con parámetros.
+     *
+     * @param id       Identificador de la reseña pendiente.
+     * @param estado   Estado.
+     * @param resenaId Id de la reseña guardada, o {@code null}.
+     * @param error    Motivo del rechazo, o {@code null}.
+     */
+    public ResenaPendienteDto(String id, Estado estado, Long resenaId, String error) {
+        this.id = id;
+        this.estado = estado;
+        this.resenaId = resenaId;
+        this.error = error;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Estado getEstado() {
+        return estado;
+    }
+
+    public Long getResenaId() {
+        return resenaId;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
@@ -0,0 +1,63 @@
+package com.ejemplo.resenasPeliculas.dto;
+
+/**
+ * DTO (Data Transfer Object) con los datos de una reseña que se muestran en los
+ * listados.
+ * <p>
+ * De la película solo incluye el id y del autor el id y el nombre de usuario,
+ * en lugar de las entidades completas. Se construye directamente en la
+ * consulta, de modo que solo se leen estas columnas.
+ */
+public class ResenaResumenDto {
+
+    private final Long id;
+    private final String contenido;
+    private final Integer rating;
+    private final Long peliculaId;
+    private final Long usuarioId;
+    private final String username;
+
+    /**
+     * Constructor con parámetros.
+     *
+     * @param id         Id de la reseña.
+     * @param contenido  Contenido de la reseña.
+     * @param rating     Calificación.
+     * @param peliculaId Id de la película reseñada.
+     * @param usuarioId  Id del autor.
+     * @param username   Nombre de usuario del autor.
+     */
+    public ResenaResumenDto(Long id, String contenido, Integer rating, Long peliculaId, Long usuarioId,
+            String username) {
+        this.id = id;
+        this.contenido = contenido;
+        this.rating = rating;
+        this.peliculaId = peliculaId;
+        this.usuarioId = usuarioId;
+        this.username = username;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getContenido() {
+        return contenido;
+    }
+
+    public Integer getRating() {
+        return rating;
+    }
+
+    public Long getPeliculaId() {
+        return peliculaId;
+    }
+
+    public Long getUsuarioId() {
+        return usuarioId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+}
@@ -0,0 +1,70 @@
+package com.ejemplo.resenasPeliculas.dto;
+
+/**
+ * DTO (Data Transfer Object) con una película encontrada por la búsqueda y su
+ * puntuación de relevancia.
+ */
+public class ResultadoBusquedaDto {
+
+    private final Long id;
+    private final String titulo;
+    private final String director;
+    private final String genero;
+    private final Integer anioEstreno;
+    private final String imagenUrl;
+
+    /**
+     * Puntuación BM25 del resultado: cuanto mayor, más relevante.
+     */
+    private final double puntuacion;
+
+    /**
+     * Constructor con parámetros.
+     *
+     * @param id          Id de la película.
+     * @param titulo      Título.
+     * @param director    Director.
+     * @param genero      Género.
+     * @param anioEstreno Año de estreno.
+     * @param imagenUrl   URL de la imagen.
+     * @param puntuacion  Puntuación de relevancia.
+     */
+    public ResultadoBusquedaDto(Long id, String titulo, String director, String genero, Integer anioEstreno,
+            String imagenUrl, double puntuacion) {
+        this.id = id;
+        this.titulo = titulo;
+        this.director = director;
+        this.genero = genero;
+        this.anioEstreno = anioEstreno;
+        this.imagenUrl = imagenUrl;
+        this.puntuacion = puntuacion;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getTitulo() {
+        return titulo;
+    }
+
+    public String getDirector() {
+        return director;
+    }
+
+    public String getGenero() {
+        return genero;
+    }
+
+    public Integer getAnioEstreno() {
+        return anioEstreno;
+    }
+
+    public String getImagenUrl() {
+        return imagenUrl;
+    }
+
+    public double getPuntuacion() {
+        return puntuacion;
+    }
+}
@@ -0,0 +1,123 @@
+package com.ejemplo.resenasPeliculas.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DTO (Data Transfer Object) con el resumen de una importación masiva.
+ * <p>
+ * Incluye el número de filas procesadas, el rendimiento obtenido y los errores
+ * de las filas rechazadas (hasta un máximo, para que la memoria no dependa del
+ * tamaño del fichero).
+ */
+public class ResultadoImportacionDto {
+
+    /**
+     * Error de una fila concreta del fichero.
+     */
+    public static class ErrorFila {
+
+        private final long linea;
+        private final String mensaje;
+
+        public ErrorFila(long linea, String mensaje) {
+            this.linea = linea;
+            this.mensaje = mensaje;
+        }
+
+        public long getLinea() {
+            return linea;
+        }
+
+        public String getMensaje() {
+            return mensaje;
+        }
+    }
+
+    private final int maxErrores;
+    private long filasLeidas;
+    private long filasInsertadas;
+    private long filasRechazadas;
+    private long duracionMs;
+    private final List<ErrorFila> errores = new ArrayList<>();
+
+    /**
+     * Constructor con parámetros.
+     *
+     * @param maxErrores Número máximo de errores de fila que se guardan.
+     */
+    public ResultadoImportacionDto(int maxErrores) {
+        this.maxErrores = maxErrores;
+    }
+
+    /**
+     * Registra una fila leída del fichero.
+     */
+    public void filaLeida() {
+        filasLeidas++;
+    }
+
+    /**
+     * Registra filas insertadas en la base de datos.
+     *
+     * @param filas Número de filas insertadas.
+     */
+    public void filasInsertadas(long filas) {
+        filasInsertadas += filas;
+    }
+
+    /**
+     * Registra una fila rechazada.
+     *
+     * @param linea   Número de línea en el fichero.
+     * @param mensaje Motivo del rechazo.
+     */
+    public void filaRechazada(long linea, String mensaje) {
+        filasRechazadas++;
+        if (errores.size() < maxErrores) {
+            errores.add(new ErrorFila(linea, mensaje));
+        }
+    }
+
+    public void setDuracionMs(long duracionMs) {
+        this.duracionMs = duracionMs;
+    }
+
+    public long getFilasLeidas() {
+        return filasLeidas;
+    }
+
+    public long getFilasInsertadas() {
+        return filasInsertadas;
+    }
+
+    public long getFilasRechazadas() {
+        return filasRechazadas;
+    }
+
+    public long getDuracionMs() {
+        return duracionMs;
+    }
+
+    /**
+     * Calcula el rendimiento de la importación.
+     *
+     * @return Filas insertadas por segundo.
+     */
+    public double getFilasPorSegundo() {
+        return duracionMs == 0 ? filasInsertadas : filasInsertadas * 1000.0 / duracionMs;
+    }
+
+    public List<ErrorFila> getErrores() {
+        return errores;
+    }
+
+    /**
+     * Indica si se descartaron errores por superar el máximo.
+     *
+     * @return {@code true} si hay más filas rechazadas que errores devueltos.
+     */
+    public boolean isErroresTruncados() {
+        return filasRechazadas > errores.size();
+    }
+}
@@ -0,0 +1,37 @@
+package com.ejemplo.resenasPeliculas.dto;
+
+/**
+ * DTO (Data Transfer Object) con una película sugerida al autocompletar su
+ * título.
+ */
+public class SugerenciaPeliculaDto {
+
+    private final Long id;
+    private final String titulo;
+    private final long totalResenas;
+
+    /**
+     * Constructor con parámetros.
+     *
+     * @param id           Id de la película.
+     * @param titulo       Título.
+     * @param totalResenas Número de reseñas.
+     */
+    public SugerenciaPeliculaDto(Long id, String titulo, long totalResenas) {
+        this.id = id;
+        this.titulo = titulo;
+        this.totalResenas = totalResenas;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getTitulo() {
+        return titulo;
+    }
+
+    public long getTotalResenas() {
+        return totalResenas;
+    }
+}
@@ -0,0 +1,94 @@
+package com.ejemplo.resenasPeliculas.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Clase que representa las estadísticas agregadas de las reseñas de una
+ * película.
+ * <p>
+ * Guarda el número de reseñas, la suma de calificaciones y el histograma de
+ * estrellas (1 a 5). Se actualiza de forma incremental con cada alta, cambio o
+ * baja de reseña, de modo que leer la media de una película no requiere
+ * recorrer sus reseñas.
+ */
+
+@Entity
+@Table(name = "estadisticas_peliculas")
+public class EstadisticaPelicula {
+
+    /**
+     * Id de la película a la que pertenecen las estadísticas.
+     */
+    @Id
+    @Column(name = "pelicula_id")
+    private Long peliculaId;
+
+    /**
+     * Número total de reseñas de la película.
+     */
+    @Column(name = "total_resenas", nullable = false)
+    private long totalResenas;
+
+    /**
+     * Suma de las calificaciones de todas las reseñas.
+     */
+    @Column(name = "suma_ratings", nullable = false)
+    private long sumaRatings;
+
+    // Histograma de estrellas: número de reseñas con cada calificación
+    @Column(nullable = false)
+    private long estrellas1;
+
+    @Column(nullable = false)
+    private long estrellas2;
+
+    @Column(nullable = false)
+    private long estrellas3;
+
+    @Column(nullable = false)
+    private long estrellas4;
+
+    @Column(nullable = false)
+    private long estrellas5;
+
+    // Constructor por defecto
+    public EstadisticaPelicula() {
+    }
+
+    // Constructor para una película sin reseñas
+    public EstadisticaPelicula(Long peliculaId) {
+        this.peliculaId = peliculaId;
+    }
+
+    // Getters
+    public Long getPeliculaId() {
+        return peliculaId;
+    }
+
+    public long getTotalResenas() {
+        return totalResenas;
+    }
+
+    public long getSumaRatings() {
+        return sumaRatings;
+    }
+
+    /**
+     * Calcula la calificación media de la película.
+     *
+     * @return Media de las calificaciones, o 0 si no hay reseñas.
+     */
+    public double getMedia() {
+        return totalResenas == 0 ? 0.0 : (double) sumaRatings / totalResenas;
+    }
+
+    /**
+     * Obtiene el histograma de estrellas.
+     *
+     * @return Array de 5 posiciones donde la posición {@code i} contiene el
+     *         número de reseñas con {@code i + 1} estrellas.
+     */
+    public long[] getHistograma() {
+        return new long[] { estrellas1, estrellas2, estrellas3, estrellas4, estrellas5 };
+    }
+}
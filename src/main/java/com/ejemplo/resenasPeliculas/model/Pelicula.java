@@ -1,6 +1,10 @@
 package com.ejemplo.resenasPeliculas.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 
@@ -12,8 +16,15 @@ import jakarta.validation.constraints.NotNull;
 
 @Entity
 @Table(name = "peliculas")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "peliculas")
 public class Pelicula {
 
+    /**
+     * Imagen que se asigna a las películas creadas sin imagen.
+     */
+    public static final String IMAGEN_POR_DEFECTO = "https://via.placeholder.com/300x400?text=No+Image";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -51,6 +62,16 @@ public class Pelicula {
 
     private String imagenUrl;
 
+    /**
+     * Versión de la película, incrementada por Hibernate en cada actualización.
+     * Se usa para el control de concurrencia optimista y como ETag del detalle.
+     */
+    @JsonIgnore
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private long version;
+
     public String getImagenUrl() {
         return imagenUrl;
     }
@@ -123,4 +144,8 @@ public class Pelicula {
         this.sinopsis = sinopsis;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
 }
@@ -1,10 +1,12 @@
 package com.ejemplo.resenasPeliculas.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import org.hibernate.annotations.ColumnDefault;
 
 /**
  * Clase que representa una reseña escrita por un usuario sobre una película.
@@ -13,7 +15,12 @@ import jakarta.validation.constraints.NotNull;
  */
 
 @Entity
-@Table(name = "resenas")
+@Table(name = "resenas", indexes = {
+        // Índices para la paginación por cursor de los listados de reseñas
+        @Index(name = "idx_resenas_rating_id", columnList = "rating, id"),
+        @Index(name = "idx_resenas_pelicula_id", columnList = "pelicula_id, id"),
+        @Index(name = "idx_resenas_pelicula_rating_id", columnList = "pelicula_id, rating, id")
+})
 public class Resena {
 
     @Id
@@ -37,21 +44,32 @@ public class Resena {
     private Integer rating;
 
     /**
-     * Película sobre la que se ha realizado la reseña.
+     * Película sobre la que se ha realizado la reseña. Se carga de forma
+     * perezosa: cada consulta del repositorio indica si la necesita.
      */
     // Relación con Pelicula (muchas reseñas para una película)
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "pelicula_id", nullable = false)
     private Pelicula pelicula;
 
     /**
-     * Usuario que ha escrito la reseña.
+     * Usuario que ha escrito la reseña. Se carga de forma perezosa: cada
+     * consulta del repositorio indica si lo necesita.
      */
     // Relación con Usuario (muchas reseñas escritas por un usuario)
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "usuario_id", nullable = false)
     private Usuario usuario;
 
+    /**
+     * Versión de la reseña, incrementada en cada actualización.
+     */
+    @JsonIgnore
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private long version;
+
     // Constructor por defecto
     public Resena() {
     }
@@ -104,4 +122,8 @@ public class Resena {
     public void setUsuario(Usuario usuario) {
         this.usuario = usuario;
     }
+
+    public long getVersion() {
+        return version;
+    }
 }
@@ -1,6 +1,9 @@
 package com.ejemplo.resenasPeliculas.model;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import jakarta.validation.constraints.*;
 
 /**
@@ -9,9 +12,23 @@ import jakarta.validation.constraints.*;
  */
 
 @Entity
-@Table(name = "usuarios")
+@Table(name = "usuarios", uniqueConstraints = {
+        @UniqueConstraint(name = Usuario.RESTRICCION_USERNAME, columnNames = "username"),
+        @UniqueConstraint(name = Usuario.RESTRICCION_EMAIL, columnNames = "email") })
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "usuarios")
 public class Usuario {
 
+    /**
+     * Nombre de la restricción de unicidad del nombre de usuario.
+     */
+    public static final String RESTRICCION_USERNAME = "uk_usuarios_username";
+
+    /**
+     * Nombre de la restricción de unicidad del email.
+     */
+    public static final String RESTRICCION_EMAIL = "uk_usuarios_email";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -20,7 +37,7 @@ public class Usuario {
      * Nombre de usuario único.
      */
     @NotBlank(message = "El nombre de usuario es obligatorio")
-    @Column(nullable = false, unique = true)
+    @Column(nullable = false)
     private String username;
 
     /**
@@ -28,12 +45,13 @@ public class Usuario {
      */
     @NotBlank(message = "El email es obligatorio")
     @Email(message = "El email debe ser válido")
-    @Column(nullable = false, unique = true)
+    @Column(nullable = false)
     private String email;
 
     /**
-     * Contraseña cifrada del usuario.
+     * Contraseña cifrada del usuario. Nunca se incluye en las respuestas JSON.
      */
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     @NotBlank(message = "La contraseña es obligatoria")
     @Size(min = 6, message = "La contraseña debe tener al menos 6 caracteres")
     @Column(nullable = false)
@@ -0,0 +1,42 @@
+package com.ejemplo.resenasPeliculas.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Clase que representa la versión del conjunto de reseñas de una película.
+ * <p>
+ * Se incrementa con cada alta, cambio o baja de una reseña de la película, de
+ * modo que basta con leerla para saber si el listado de reseñas ha cambiado
+ * desde la última vez que un cliente lo pidió.
+ */
+
+@Entity
+@Table(name = "versiones_resenas_peliculas")
+public class VersionResenasPelicula {
+
+    /**
+     * Id de la película a la que pertenecen las reseñas.
+     */
+    @Id
+    @Column(name = "pelicula_id")
+    private Long peliculaId;
+
+    /**
+     * Versión actual de las reseñas de la película.
+     */
+    @Column(nullable = false)
+    private long version;
+
+    // Constructor por defecto
+    public VersionResenasPelicula() {
+    }
+
+    // Getters
+    public Long getPeliculaId() {
+        return peliculaId;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,106 @@
+package com.ejemplo.resenasPeliculas.repository;
+
+import com.ejemplo.resenasPeliculas.model.EstadisticaPelicula;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+
+/**
+ * Repositorio JPA para la gestión de las estadísticas de reseñas por película.
+ * <p>
+ * Las sentencias nativas de escritura declaran la tabla que modifican; sin esa
+ * indicación Hibernate vaciaría toda la caché de segundo nivel en cada una.
+ */
+@Repository
+public interface EstadisticaPeliculaRepository extends JpaRepository<EstadisticaPelicula, Long> {
+
+    /**
+     * Suma de forma atómica un incremento a los contadores de una película,
+     * creando la fila si todavía no existe.
+     *
+     * @param peliculaId Id de la película.
+     * @param total      Incremento del número de reseñas.
+     * @param suma       Incremento de la suma de calificaciones.
+     * @param e1         Incremento de reseñas de 1 estrella.
+     * @param e2         Incremento de reseñas de 2 estrellas.
+     * @param e3         Incremento de reseñas de 3 estrellas.
+     * @param e4         Incremento de reseñas de 4 estrellas.
+     * @param e5         Incremento de reseñas de 5 estrellas.
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "estadisticas_peliculas"))
+    @Query(value = "INSERT INTO estadisticas_peliculas "
+            + "(pelicula_id, total_resenas, suma_ratings, estrellas1, estrellas2, estrellas3, estrellas4, estrellas5) "
+            + "VALUES (:peliculaId, :total, :suma, :e1, :e2, :e3, :e4, :e5) "
+            + "ON DUPLICATE KEY UPDATE total_resenas = total_resenas + :total, suma_ratings = suma_ratings + :suma, "
+            + "estrellas1 = estrellas1 + :e1, estrellas2 = estrellas2 + :e2, estrellas3 = estrellas3 + :e3, "
+            + "estrellas4 = estrellas4 + :e4, estrellas5 = estrellas5 + :e5", nativeQuery = true)
+    void aplicarIncremento(@Param("peliculaId") Long peliculaId, @Param("total") long total,
+            @Param("suma") long suma, @Param("e1") long e1, @Param("e2") long e2, @Param("e3") long e3,
+            @Param("e4") long e4, @Param("e5") long e5);
+
+    /**
+     * Suma de forma atómica un ajuste, que puede restar, a los contadores de una
+     * película que ya tiene estadísticas. No crea la fila si no existe, y ningún
+     * contador baja de cero.
+     *
+     * @param peliculaId Id de la película.
+     * @param total      Ajuste del número de reseñas.
+     * @param suma       Ajuste de la suma de calificaciones.
+     * @param e1         Ajuste de reseñas de 1 estrella.
+     * @param e2         Ajuste de reseñas de 2 estrellas.
+     * @param e3         Ajuste de reseñas de 3 estrellas.
+     * @param e4         Ajuste de reseñas de 4 estrellas.
+     * @param e5         Ajuste de reseñas de 5 estrellas.
+     * @return Número de filas actualizadas (0 si la película no tiene
+     *         estadísticas).
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "estadisticas_peliculas"))
+    @Query(value = "UPDATE estadisticas_peliculas SET total_resenas = GREATEST(total_resenas + :total, 0), "
+            + "suma_ratings = GREATEST(suma_ratings + :suma, 0), estrellas1 = GREATEST(estrellas1 + :e1, 0), "
+            + "estrellas2 = GREATEST(estrellas2 + :e2, 0), estrellas3 = GREATEST(estrellas3 + :e3, 0), "
+            + "estrellas4 = GREATEST(estrellas4 + :e4, 0), estrellas5 = GREATEST(estrellas5 + :e5, 0) "
+            + "WHERE pelicula_id = :peliculaId", nativeQuery = true)
+    int aplicarAjuste(@Param("peliculaId") Long peliculaId, @Param("total") long total,
+            @Param("suma") long suma, @Param("e1") long e1, @Param("e2") long e2, @Param("e3") long e3,
+            @Param("e4") long e4, @Param("e5") long e5);
+
+    /**
+     * Elimina las estadísticas de las películas de un rango de ids.
+     *
+     * @param desde Primer id del rango (excluido).
+     * @param hasta Último id del rango (incluido).
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "estadisticas_peliculas"))
+    @Query(value = "DELETE FROM estadisticas_peliculas WHERE pelicula_id > :desde AND pelicula_id <= :hasta",
+            nativeQuery = true)
+    void eliminarRango(@Param("desde") Long desde, @Param("hasta") Long hasta);
+
+    /**
+     * Recalcula las estadísticas de las películas de un rango de ids a partir de
+     * la tabla de reseñas.
+     *
+     * @param desde Primer id del rango (excluido).
+     * @param hasta Último id del rango (incluido).
+     * @return Número de películas con estadísticas recalculadas.
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "estadisticas_peliculas"))
+    @Query(value = "INSERT INTO estadisticas_peliculas "
+            + "(pelicula_id, total_resenas, suma_ratings, estrellas1, estrellas2, estrellas3, estrellas4, estrellas5) "
+            + "SELECT pelicula_id, COUNT(*), SUM(rating), "
+            + "SUM(CASE WHEN rating = 1 THEN 1 ELSE 0 END), SUM(CASE WHEN rating = 2 THEN 1 ELSE 0 END), "
+            + "SUM(CASE WHEN rating = 3 THEN 1 ELSE 0 END), SUM(CASE WHEN rating = 4 THEN 1 ELSE 0 END), "
+            + "SUM(CASE WHEN rating = 5 THEN 1 ELSE 0 END) "
+            + "FROM resenas WHERE pelicula_id > :desde AND pelicula_id <= :hasta GROUP BY pelicula_id",
+            nativeQuery = true)
+    int reconstruirRango(@Param("desde") Long desde, @Param("hasta") Long hasta);
+}
@@ -1,13 +1,54 @@
 package com.ejemplo.resenasPeliculas.repository;
 
+import com.ejemplo.resenasPeliculas.dto.PeliculaResumenDto;
 import com.ejemplo.resenasPeliculas.model.Pelicula;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+
+import java.util.List;
+import java.util.Optional;
+
 /**
  * Repositorio JPA para la gestión de peliculas en la base de datos.
  */
 @Repository
 public interface PeliculaRepository extends JpaRepository<Pelicula, Long> {
 
+    /**
+     * Obtiene el resumen de todas las películas, sin leer la sinopsis.
+     *
+     * @return Resúmenes de las películas ordenados por id.
+     */
+    @Query("SELECT new com.ejemplo.resenasPeliculas.dto.PeliculaResumenDto("
+            + "p.id, p.titulo, p.director, p.genero, p.anioEstreno, p.imagenUrl) FROM Pelicula p ORDER BY p.id")
+    List<PeliculaResumenDto> findResumenes();
+
+    /**
+     * Obtiene la versión de una película sin cargarla. La consulta se guarda en
+     * la caché de consultas, que se invalida con cada cambio en las películas.
+     *
+     * @param id Id de la película.
+     * @return La versión, o vacío si la película no existe.
+     */
+    @Query("SELECT p.version FROM Pelicula p WHERE p.id = :id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    /**
+     * Obtiene los ids de las películas posteriores a uno dado, en orden, para
+     * recorrerlas por lotes.
+     *
+     * @param desde  Id a partir del cual buscar (excluido).
+     * @param limite Número máximo de ids.
+     * @return Ids de las películas ordenados.
+     */
+    @Query("SELECT p.id FROM Pelicula p WHERE p.id > :desde ORDER BY p.id")
+    List<Long> findIdsDesde(@Param("desde") Long desde, Limit limite);
 }
@@ -1,11 +1,23 @@
 package com.ejemplo.resenasPeliculas.repository;
 
+import com.ejemplo.resenasPeliculas.dto.ResenaResumenDto;
 import com.ejemplo.resenasPeliculas.model.Resena;
 import com.ejemplo.resenasPeliculas.model.Pelicula;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Repositorio JPA para la gestión de reseñas en la base de datos.
@@ -14,9 +26,240 @@ import java.util.List;
 @Repository
 public interface ResenaRepository extends JpaRepository<Resena, Long> {
 
+    /**
+     * Región de la caché de consultas para las reseñas de una película.
+     */
+    String REGION_RESENAS_POR_PELICULA = "resenasPorPelicula";
+
+    /**
+     * Inicio común de las consultas que devuelven {@link ResenaResumenDto}: solo
+     * leen las columnas del listado y unen la tabla de usuarios para el nombre
+     * del autor, sin cargar la película.
+     */
+    String SELECT_RESUMEN = "SELECT new com.ejemplo.resenasPeliculas.dto.ResenaResumenDto(r.id, r.contenido, "
+            + "r.rating, r.pelicula.id, r.usuario.id, r.usuario.username) FROM Resena r ";
+
+    /**
+     * Proyección con el autor, la película, la calificación, el contenido y la
+     * versión de una reseña.
+     */
+    interface ClaveResena {
+
+        Long getUsuarioId();
+
+        Long getPeliculaId();
+
+        Integer getRating();
+
+        String getContenido();
+
+        Long getVersion();
+    }
+
+    /**
+     * Proyección con el número de reseñas de una película y la suma de sus
+     * calificaciones.
+     */
+    interface TotalesResenas {
+
+        Long getPeliculaId();
+
+        Long getTotal();
+
+        Long getSuma();
+    }
+
+    /**
+     * Proyección con el texto de una reseña, usada para construir índices.
+     */
+    interface ContenidoResena {
+
+        Long getId();
+
+        Long getPeliculaId();
+
+        String getContenido();
+    }
+
+    /**
+     * Proyección con el id y la versión de una reseña.
+     */
+    interface VersionResena {
+
+        Long getId();
+
+        Long getVersion();
+    }
+
+    /**
+     * Obtiene una reseña con su película y su autor en una sola consulta.
+     *
+     * @param id Id de la reseña.
+     * @return La reseña, o vacío si no existe.
+     */
+    @Override
+    @EntityGraph(attributePaths = { "pelicula", "usuario" })
+    Optional<Resena> findById(Long id);
+
+    /**
+     * Obtiene todas las reseñas con su película y su autor en una sola consulta.
+     *
+     * @return Todas las reseñas.
+     */
+    @Override
+    @EntityGraph(attributePaths = { "pelicula", "usuario" })
+    List<Resena> findAll();
+
     // Método para buscar reseñas por la película
+    @EntityGraph(attributePaths = { "pelicula", "usuario" })
     List<Resena> findByPelicula(Pelicula pelicula);
 
     // Método para buscar reseñas por el ID de la película
+    @EntityGraph(attributePaths = { "pelicula", "usuario" })
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = REGION_RESENAS_POR_PELICULA) })
     List<Resena> findByPeliculaId(Long peliculaId);
+
+    /**
+     * Página de reseñas ordenadas por id ascendente a partir de un cursor.
+     *
+     * @param despuesDeId Id de la última reseña entregada (0 para la primera
+     *                    página).
+     * @param limite      Número máximo de reseñas a devolver.
+     * @return Reseñas con id mayor que el cursor.
+     */
+    @Query(SELECT_RESUMEN + "WHERE r.id > :despuesDeId ORDER BY r.id ASC")
+    List<ResenaResumenDto> findPaginaPorId(@Param("despuesDeId") long despuesDeId, Limit limite);
+
+    /**
+     * Página de reseñas ordenadas por calificación descendente a partir de un
+     * cursor.
+     *
+     * @param rating Calificación de la última reseña entregada.
+     * @param id     Id de la última reseña entregada.
+     * @param limite Número máximo de reseñas a devolver.
+     * @return Reseñas situadas después del cursor.
+     */
+    @Query(SELECT_RESUMEN + "WHERE r.rating < :rating OR (r.rating = :rating AND r.id < :id) "
+            + "ORDER BY r.rating DESC, r.id DESC")
+    List<ResenaResumenDto> findPaginaPorRating(@Param("rating") int rating, @Param("id") long id, Limit limite);
+
+    /**
+     * Página de reseñas de una película ordenadas por id ascendente.
+     *
+     * @param peliculaId  Id de la película.
+     * @param despuesDeId Id de la última reseña entregada (0 para la primera
+     *                    página).
+     * @param limite      Número máximo de reseñas a devolver.
+     * @return Reseñas de la película con id mayor que el cursor.
+     */
+    @Query(SELECT_RESUMEN + "WHERE r.pelicula.id = :peliculaId AND r.id > :despuesDeId ORDER BY r.id ASC")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = REGION_RESENAS_POR_PELICULA) })
+    List<ResenaResumenDto> findPaginaPorPeliculaYId(@Param("peliculaId") Long peliculaId,
+            @Param("despuesDeId") long despuesDeId, Limit limite);
+
+    /**
+     * Página de reseñas de una película ordenadas por calificación descendente.
+     *
+     * @param peliculaId Id de la película.
+     * @param rating     Calificación de la última reseña entregada.
+     * @param id         Id de la última reseña entregada.
+     * @param limite     Número máximo de reseñas a devolver.
+     * @return Reseñas de la película situadas después del cursor.
+     */
+    @Query(SELECT_RESUMEN + "WHERE r.pelicula.id = :peliculaId "
+            + "AND (r.rating < :rating OR (r.rating = :rating AND r.id < :id)) "
+            + "ORDER BY r.rating DESC, r.id DESC")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = REGION_RESENAS_POR_PELICULA) })
+    List<ResenaResumenDto> findPaginaPorPeliculaYRating(@Param("peliculaId") Long peliculaId, @Param("rating") int rating,
+            @Param("id") long id, Limit limite);
+
+    /**
+     * Lee el autor, la película, la calificación, el contenido y la versión de
+     * una reseña, sin bloquearla ni cargar la película ni el usuario.
+     *
+     * @param id Id de la reseña.
+     * @return Los datos de la reseña, o vacío si no existe.
+     */
+    @Query("SELECT r.usuario.id AS usuarioId, r.pelicula.id AS peliculaId, r.rating AS rating, "
+            + "r.contenido AS contenido, r.version AS version FROM Resena r WHERE r.id = :id")
+    Optional<ClaveResena> findClave(@Param("id") Long id);
+
+    /**
+     * Igual que {@link #findClave(Long)}, pero bloqueando la fila y leyendo
+     * siempre su último valor confirmado.
+     *
+     * @param id Id de la reseña.
+     * @return Los datos de la reseña, o vacío si no existe.
+     */
+    @Query(value = "SELECT usuario_id AS usuarioId, pelicula_id AS peliculaId, rating AS rating, "
+            + "contenido AS contenido, version AS version FROM resenas WHERE id = :id FOR UPDATE", nativeQuery = true)
+    Optional<ClaveResena> bloquearClave(@Param("id") Long id);
+
+    /**
+     * Actualiza el contenido y la calificación de una reseña solo si pertenece al
+     * usuario indicado y sigue en la versión indicada.
+     *
+     * @param id        Id de la reseña.
+     * @param usuarioId Id del usuario que debe ser su autor.
+     * @param version   Versión leída de la reseña.
+     * @param contenido Nuevo contenido.
+     * @param rating    Nueva calificación.
+     * @return Número de filas actualizadas (0 o 1).
+     */
+    @Modifying
+    @Query("UPDATE Resena r SET r.contenido = :contenido, r.rating = :rating, r.version = r.version + 1 "
+            + "WHERE r.id = :id AND r.usuario.id = :usuarioId AND r.version = :version")
+    int actualizarDeUsuario(@Param("id") Long id, @Param("usuarioId") Long usuarioId, @Param("version") long version,
+            @Param("contenido") String contenido, @Param("rating") Integer rating);
+
+    /**
+     * Elimina una reseña solo si pertenece al usuario indicado y sigue en la
+     * versión indicada.
+     *
+     * @param id        Id de la reseña.
+     * @param usuarioId Id del usuario que debe ser su autor.
+     * @param version   Versión leída de la reseña.
+     * @return Número de filas eliminadas (0 o 1).
+     */
+    @Modifying
+    @Query("DELETE FROM Resena r WHERE r.id = :id AND r.usuario.id = :usuarioId AND r.version = :version")
+    int eliminarDeUsuario(@Param("id") Long id, @Param("usuarioId") Long usuarioId, @Param("version") long version);
+
+    /**
+     * Recorre el texto de las reseñas por lotes, en orden de id, sin cargar la
+     * película ni el usuario.
+     *
+     * @param despuesDeId Id de la última reseña del lote anterior (0 para el
+     *                    primero).
+     * @param limite      Tamaño del lote.
+     * @return Lote de reseñas con id mayor que el indicado.
+     */
+    @Query("SELECT r.id AS id, r.pelicula.id AS peliculaId, r.contenido AS contenido FROM Resena r "
+            + "WHERE r.id > :despuesDeId ORDER BY r.id ASC")
+    List<ContenidoResena> findContenidosDesde(@Param("despuesDeId") long despuesDeId, Limit limite);
+
+    /**
+     * Obtiene la versión actual de varias reseñas.
+     *
+     * @param ids Ids de las reseñas.
+     * @return Id y versión de las que existen.
+     */
+    @Query("SELECT r.id AS id, r.version AS version FROM Resena r WHERE r.id IN :ids")
+    List<VersionResena> findVersiones(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Cuenta las reseñas de varias películas y suma sus calificaciones.
+     *
+     * @param peliculaIds Ids de las películas.
+     * @return Totales de las películas que tienen alguna reseña.
+     */
+    @Query("SELECT r.pelicula.id AS peliculaId, COUNT(r) AS total, SUM(r.rating) AS suma FROM Resena r "
+            + "WHERE r.pelicula.id IN :peliculaIds GROUP BY r.pelicula.id")
+    List<TotalesResenas> findTotales(@Param("peliculaIds") Collection<Long> peliculaIds);
 }
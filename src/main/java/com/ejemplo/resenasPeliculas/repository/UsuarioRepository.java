@@ -1,9 +1,21 @@
 package com.ejemplo.resenasPeliculas.repository;
 
+import java.util.List;
 import java.util.Optional;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
 import com.ejemplo.resenasPeliculas.model.Usuario;
 
+import jakarta.persistence.QueryHint;
+
 /**
  * Repositorio JPA para la gestión de usuarios en la base de datos.
  */
@@ -13,5 +25,47 @@ public interface UsuarioRepository extends JpaRepository<Usuario, Long> {
 
     boolean existsByEmail(String email);
 
+    /**
+     * Proyección con el nombre de usuario y el email de un usuario.
+     */
+    interface NombreYEmail {
+
+        Long getId();
+
+        String getUsername();
+
+        String getEmail();
+    }
+
+    /**
+     * Recorre el nombre de usuario y el email de los usuarios por lotes, en
+     * orden de id, sin cargar las entidades.
+     *
+     * @param despuesDeId Id del último usuario del lote anterior (0 para el
+     *                    primero).
+     * @param limite      Tamaño del lote.
+     * @return Lote de usuarios con id mayor que el indicado.
+     */
+    @Query("SELECT u.id AS id, u.username AS username, u.email AS email FROM Usuario u "
+            + "WHERE u.id > :despuesDeId ORDER BY u.id ASC")
+    List<NombreYEmail> findNombresYEmailsDesde(@Param("despuesDeId") long despuesDeId, Limit limite);
+
+    // Consulta cacheada: el id resultante se resuelve desde la caché de entidades
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "usuariosPorUsername") })
     Optional<Usuario> findByUsername(String username);
+
+    /**
+     * Reemplaza el hash de la contraseña de un usuario. Al ser una
+     * actualización JPQL, Hibernate descarta el usuario de la caché de
+     * entidades.
+     *
+     * @param id       Id del usuario.
+     * @param password Nuevo hash de la contraseña.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Usuario u SET u.password = :password WHERE u.id = :id")
+    void actualizarPassword(@Param("id") Long id, @Param("password") String password);
 }
@@ -0,0 +1,54 @@
+package com.ejemplo.resenasPeliculas.repository;
+
+import com.ejemplo.resenasPeliculas.model.VersionResenasPelicula;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+
+import java.util.Optional;
+
+/**
+ * Repositorio JPA para la gestión de las versiones de las reseñas por película.
+ */
+@Repository
+public interface VersionResenasPeliculaRepository extends JpaRepository<VersionResenasPelicula, Long> {
+
+    /**
+     * Obtiene la versión de las reseñas de una película. La consulta se guarda
+     * en la caché de consultas, que se invalida con cada incremento.
+     *
+     * @param peliculaId Id de la película.
+     * @return La versión, o vacío si las reseñas de la película nunca han
+     *         cambiado.
+     */
+    @Query("SELECT v.version FROM VersionResenasPelicula v WHERE v.peliculaId = :peliculaId")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    Optional<Long> findVersion(@Param("peliculaId") Long peliculaId);
+
+    /**
+     * Incrementa de forma atómica la versión de las reseñas de una película,
+     * creando la fila si todavía no existe.
+     *
+     * @param peliculaId Id de la película.
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "versiones_resenas_peliculas"))
+    @Query(value = "INSERT INTO versiones_resenas_peliculas (pelicula_id, version) VALUES (:peliculaId, 1) "
+            + "ON DUPLICATE KEY UPDATE version = version + 1", nativeQuery = true)
+    void incrementar(@Param("peliculaId") Long peliculaId);
+
+    /**
+     * Elimina la versión de las reseñas de una película.
+     *
+     * @param peliculaId Id de la película.
+     */
+    @Modifying
+    @Query("DELETE FROM VersionResenasPelicula v WHERE v.peliculaId = :peliculaId")
+    void eliminar(@Param("peliculaId") Long peliculaId);
+}
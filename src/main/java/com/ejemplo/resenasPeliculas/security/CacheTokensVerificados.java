@@ -0,0 +1,143 @@
+package com.ejemplo.resenasPeliculas.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caché acotada de tokens JWT ya verificados.
+ * <p>
+ * Asocia cada token válido con el {@link UsuarioAutenticado} de su usuario, de
+ * forma que las peticiones siguientes con el mismo token no vuelven a verificar
+ * la firma ni a consultar la base de datos. Cada entrada caduca cuando expira el
+ * token o, como máximo, tras {@code jwt.cache.ttl-maximo}. Al verificarlo de
+ * nuevo se comprueba que el usuario sigue existiendo, así que un usuario
+ * eliminado conserva el acceso durante ese tiempo como mucho, y no hasta que
+ * caduque su token.
+ * <p>
+ * Publica en Micrometer las métricas de la caché ({@code cache.gets} con
+ * {@code cache=jwt.tokens}), el tiempo de autenticación por resultado
+ * ({@code jwt.autenticacion} con {@code cache=hit|miss}) y el ahorro medio por
+ * petición servida desde la caché ({@code jwt.cache.ahorro.medio}).
+ */
+@Component
+public class CacheTokensVerificados {
+
+    private final Cache<String, Entrada> cache;
+
+    private final Timer tiempoHit;
+
+    private final Timer tiempoMiss;
+
+    public CacheTokensVerificados(MeterRegistry meterRegistry,
+            @Value("${jwt.cache.tamano-maximo:10000}") long tamanoMaximo,
+            @Value("${jwt.cache.ttl-maximo:10m}") Duration ttlMaximo) {
+        long ttlMaximoNanos = ttlMaximo.toNanos();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(tamanoMaximo)
+                .expireAfter(new Expiry<String, Entrada>() {
+                    @Override
+                    public long expireAfterCreate(String token, Entrada entrada, long ahora) {
+                        long restante = TimeUnit.MILLISECONDS.toNanos(
+                                entrada.expiraEnMillis - System.currentTimeMillis());
+                        return Math.max(0, Math.min(restante, ttlMaximoNanos));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String token, Entrada entrada, long ahora, long duracionActual) {
+                        return duracionActual;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String token, Entrada entrada, long ahora, long duracionActual) {
+                        return duracionActual;
+                    }
+                })
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "jwt.tokens");
+        this.tiempoHit = Timer.builder("jwt.autenticacion")
+                .description("Tiempo de autenticación de una petición con token JWT")
+                .tag("cache", "hit")
+                .register(meterRegistry);
+        this.tiempoMiss = Timer.builder("jwt.autenticacion")
+                .description("Tiempo de autenticación de una petición con token JWT")
+                .tag("cache", "miss")
+                .register(meterRegistry);
+        Gauge.builder("jwt.cache.ahorro.medio", this, c -> c.getAhorroMedioNanos() / 1_000_000.0)
+                .description("Tiempo medio ahorrado por cada autenticación servida desde la caché")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Busca un token en la caché.
+     *
+     * @param token Token JWT.
+     * @return El usuario autenticado si el token ya fue verificado y sigue
+     *         vigente, o {@code null} en caso contrario.
+     */
+    public UsuarioAutenticado get(String token) {
+        Entrada entrada = cache.getIfPresent(token);
+        return entrada != null ? entrada.usuario : null;
+    }
+
+    /**
+     * Guarda un token recién verificado.
+     *
+     * @param token          Token JWT.
+     * @param usuario        Usuario del token.
+     * @param expiraEnMillis Instante de expiración del token (epoch en ms).
+     */
+    public void put(String token, UsuarioAutenticado usuario, long expiraEnMillis) {
+        cache.put(token, new Entrada(usuario, expiraEnMillis));
+    }
+
+    /**
+     * Registra la duración de una autenticación.
+     *
+     * @param hit           {@code true} si se resolvió desde la caché.
+     * @param duracionNanos Duración en nanosegundos.
+     */
+    public void registrarTiempo(boolean hit, long duracionNanos) {
+        (hit ? tiempoHit : tiempoMiss).record(duracionNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Vacía la caché (por ejemplo, tras cambiar credenciales de usuarios).
+     */
+    public void invalidarTodo() {
+        cache.invalidateAll();
+    }
+
+    // Diferencia entre el tiempo medio de un fallo y el de un acierto
+    private double getAhorroMedioNanos() {
+        if (tiempoHit.count() == 0 || tiempoMiss.count() == 0) {
+            return 0.0;
+        }
+        return Math.max(0.0, tiempoMiss.mean(TimeUnit.NANOSECONDS) - tiempoHit.mean(TimeUnit.NANOSECONDS));
+    }
+
+    // Valor almacenado para cada token
+    private static final class Entrada {
+
+        private final UsuarioAutenticado usuario;
+
+        private final long expiraEnMillis;
+
+        private Entrada(UsuarioAutenticado usuario, long expiraEnMillis) {
+            this.usuario = usuario;
+            this.expiraEnMillis = expiraEnMillis;
+        }
+    }
+}
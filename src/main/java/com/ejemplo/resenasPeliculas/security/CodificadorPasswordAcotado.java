@@ -0,0 +1,133 @@
+package com.ejemplo.resenasPeliculas.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link PasswordEncoder} que ejecuta el cálculo de los hashes en un pool de
+ * hilos propio y acotado.
+ * <p>
+ * Un hash adaptativo (BCrypt) consume decenas de milisegundos de CPU a
+ * propósito. Si cada petición de login lo calculara en su propio hilo, una
+ * ráfaga de logins ocuparía todos los núcleos y retrasaría al resto de la API.
+ * Aquí, como mucho {@code hilos} hashes se calculan a la vez; el resto espera en
+ * una cola de tamaño {@code capacidad}. Si la cola está llena, la operación
+ * falla enseguida con {@link RejectedExecutionException}.
+ * <p>
+ * Publica el tiempo de espera en la cola ({@code password.hash.espera}) y el de
+ * cálculo ({@code password.hash.calculo}), ambos con la etiqueta
+ * {@code operacion=codificar|verificar}, además de las métricas del pool
+ * ({@code executor.*} con {@code name=password.hash}).
+ */
+public class CodificadorPasswordAcotado implements PasswordEncoder, AutoCloseable {
+
+    private final PasswordEncoder delegado;
+
+    private final ThreadPoolExecutor executor;
+
+    private final Timer esperaCodificar;
+
+    private final Timer esperaVerificar;
+
+    private final Timer calculoCodificar;
+
+    private final Timer calculoVerificar;
+
+    /**
+     * Constructor con parámetros.
+     *
+     * @param delegado      Codificador que calcula los hashes.
+     * @param hilos         Número máximo de hashes calculados a la vez.
+     * @param capacidad     Número máximo de operaciones en espera.
+     * @param meterRegistry Registro de métricas.
+     */
+    public CodificadorPasswordAcotado(PasswordEncoder delegado, int hilos, int capacidad,
+            MeterRegistry meterRegistry) {
+        this.delegado = delegado;
+        AtomicInteger numero = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(hilos, hilos, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacidad), tarea -> {
+                    Thread hilo = new Thread(tarea, "hash-password-" + numero.incrementAndGet());
+                    hilo.setDaemon(true);
+                    return hilo;
+                });
+        this.executor = pool;
+        ExecutorServiceMetrics.monitor(meterRegistry, pool, "password.hash");
+        this.esperaCodificar = timer(meterRegistry, "password.hash.espera", "codificar",
+                "Tiempo de espera en la cola del pool de hashes");
+        this.esperaVerificar = timer(meterRegistry, "password.hash.espera", "verificar",
+                "Tiempo de espera en la cola del pool de hashes");
+        this.calculoCodificar = timer(meterRegistry, "password.hash.calculo", "codificar",
+                "Tiempo de cálculo de un hash de contraseña");
+        this.calculoVerificar = timer(meterRegistry, "password.hash.calculo", "verificar",
+                "Tiempo de cálculo de un hash de contraseña");
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return ejecutar(() -> delegado.encode(rawPassword), esperaCodificar, calculoCodificar);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return ejecutar(() -> delegado.matches(rawPassword, encodedPassword), esperaVerificar, calculoVerificar);
+    }
+
+    /**
+     * Indica si un hash se calculó con otro algoritmo o con un coste menor que
+     * el configurado. No calcula ningún hash, por lo que no usa el pool.
+     */
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegado.upgradeEncoding(encodedPassword);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    // Ejecuta la operación en el pool y espera su resultado
+    private <T> T ejecutar(Callable<T> operacion, Timer espera, Timer calculo) {
+        long encolada = System.nanoTime();
+        Future<T> resultado = executor.submit(() -> {
+            long inicio = System.nanoTime();
+            espera.record(inicio - encolada, TimeUnit.NANOSECONDS);
+            try {
+                return operacion.call();
+            } finally {
+                calculo.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+            }
+        });
+        try {
+            return resultado.get();
+        } catch (InterruptedException e) {
+            resultado.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrumpido mientras se calculaba un hash", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static Timer timer(MeterRegistry meterRegistry, String nombre, String operacion, String descripcion) {
+        return Timer.builder(nombre)
+                .description(descripcion)
+                .tag("operacion", operacion)
+                .register(meterRegistry);
+    }
+}
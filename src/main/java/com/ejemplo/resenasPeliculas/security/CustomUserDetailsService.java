@@ -25,8 +25,8 @@ public class CustomUserDetailsService implements UserDetailsService {
      * Este método es utilizado por Spring Security para autenticar a los usuarios.
      *
      * @param username El nombre de usuario del usuario a buscar.
-     * @return Un objeto {@link UserDetails} que contiene la información del usuario
-     *         autenticado.
+     * @return Un {@link UsuarioAutenticado} que contiene la información del
+     *         usuario autenticado, incluido su id.
      * @throws UsernameNotFoundException Si el usuario no es encontrado en la base
      *                                   de datos.
      */
@@ -35,7 +35,8 @@ public class CustomUserDetailsService implements UserDetailsService {
         Usuario usuario = usuarioRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("Usuario no encontrado"));
 
-        return new org.springframework.security.core.userdetails.User(
+        return new UsuarioAutenticado(
+                usuario.getId(),
                 usuario.getUsername(),
                 usuario.getPassword(),
                 Collections.emptyList());
@@ -1,5 +1,9 @@
 package com.ejemplo.resenasPeliculas.security;
 
+import com.ejemplo.resenasPeliculas.repository.UsuarioRepository;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -7,11 +11,13 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Collections;
 
 /**
  * Filtro de autenticación JWT para interceptar las solicitudes HTTP y validar
@@ -19,6 +25,11 @@ import java.io.IOException;
  * <p>
  * Extiende {@link OncePerRequestFilter}, lo que garantiza que se ejecute una
  * vez por solicitud.
+ * <p>
+ * Cuenta cada verificación completa de un token (las que no se resuelven desde
+ * la caché) en {@code jwt.validaciones}, con la etiqueta {@code resultado}:
+ * {@code valido}, {@code caducado}, {@code invalido} o
+ * {@code usuario_inexistente}.
  */
 @Component
 public class JWTAuthenticationFilter extends OncePerRequestFilter {
@@ -29,6 +40,15 @@ public class JWTAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private CustomUserDetailsService userDetailsService;
 
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private CacheTokensVerificados cacheTokens;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     /**
      * Método que intercepta las solicitudes HTTP, extrae y valida el token JWT si
      * está presente.
@@ -44,23 +64,14 @@ public class JWTAuthenticationFilter extends OncePerRequestFilter {
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
         String authHeader = request.getHeader("Authorization");
-        String token = null;
-        String username = null;
 
-        // Verifica si el encabezado de autorización contiene un token válido
-        if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            token = authHeader.substring(7);
-            try {
-                username = jwtUtil.getUsernameFromToken(token);
-            } catch (Exception e) {
-                logger.error("Error al extraer el username del token", e);
-            }
-        }
-
-        // Si se extrajo un username y no hay autenticación
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            var userDetails = userDetailsService.loadUserByUsername(username);
-            if (jwtUtil.validateToken(token)) {
+        // Verifica si el encabezado de autorización contiene un token y no hay
+        // autenticación
+        if (authHeader != null && authHeader.startsWith("Bearer ")
+                && SecurityContextHolder.getContext().getAuthentication() == null) {
+            String token = authHeader.substring(7);
+            UsuarioAutenticado userDetails = resolverUsuario(token);
+            if (userDetails != null) {
                 UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
                         userDetails, null, userDetails.getAuthorities());
                 authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
@@ -71,4 +82,59 @@ public class JWTAuthenticationFilter extends OncePerRequestFilter {
         // Continúa con la ejecución del siguiente filtro en la cadena
         filterChain.doFilter(request, response);
     }
+
+    /**
+     * Obtiene el usuario de un token, desde la caché de tokens verificados o, si
+     * no está, verificando el token una sola vez.
+     * <p>
+     * El principal se construye a partir de los claims del token. Al verificarlo
+     * se comprueba que el usuario sigue existiendo, por clave primaria y desde la
+     * caché de segundo nivel si está allí (eliminarlo con JPA lo quita de ella);
+     * los tokens emitidos antes de incluir el id del usuario lo cargan por
+     * nombre. Mientras el token está en la caché de tokens no se comprueba: un
+     * usuario eliminado pierde el acceso, como mucho, tras
+     * {@code jwt.cache.ttl-maximo}.
+     *
+     * @param token Token JWT recibido.
+     * @return El usuario autenticado, o {@code null} si el token no es válido.
+     */
+    private UsuarioAutenticado resolverUsuario(String token) {
+        long inicio = System.nanoTime();
+        UsuarioAutenticado userDetails = cacheTokens.get(token);
+        if (userDetails != null) {
+            cacheTokens.registrarTiempo(true, System.nanoTime() - inicio);
+            return userDetails;
+        }
+
+        try {
+            Claims claims = jwtUtil.parseClaims(token);
+            Long usuarioId = claims.get(JWTUtil.CLAIM_USUARIO_ID, Long.class);
+            if (usuarioId == null) {
+                // Token antiguo sin id: se obtiene de la base de datos
+                usuarioId = ((UsuarioAutenticado) userDetailsService.loadUserByUsername(claims.getSubject())).getId();
+            } else if (usuarioRepository.findById(usuarioId).isEmpty()) {
+                throw new UsernameNotFoundException("Usuario no encontrado: " + usuarioId);
+            }
+            // No se guarda ninguna contraseña en el principal
+            userDetails = new UsuarioAutenticado(usuarioId, claims.getSubject(), "", Collections.emptyList());
+            cacheTokens.put(token, userDetails, claims.getExpiration().getTime());
+            cacheTokens.registrarTiempo(false, System.nanoTime() - inicio);
+            contarValidacion("valido");
+            return userDetails;
+        } catch (UsernameNotFoundException e) {
+            contarValidacion("usuario_inexistente");
+            logger.warn("Token válido de un usuario inexistente");
+        } catch (Exception e) {
+            // Un token caducado o alterado es un error del cliente: sin la pila
+            contarValidacion(e instanceof ExpiredJwtException ? "caducado" : "invalido");
+            if (logger.isDebugEnabled()) {
+                logger.debug("Token JWT rechazado: " + e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    private void contarValidacion(String resultado) {
+        meterRegistry.counter("jwt.validaciones", "resultado", resultado).increment();
+    }
 }
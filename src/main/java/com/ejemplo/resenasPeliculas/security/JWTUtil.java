@@ -2,7 +2,9 @@ package com.ejemplo.resenasPeliculas.security;
 
 import org.springframework.stereotype.Component;
 
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
@@ -27,24 +29,46 @@ public class JWTUtil {
      */
     private final long jwtExpirationMs = 86400000L;
 
+    /**
+     * Nombre del claim que contiene el id del usuario.
+     */
+    public static final String CLAIM_USUARIO_ID = "uid";
+
+    /**
+     * Clave de firma, construida una sola vez a partir del secreto.
+     */
+    private final Key signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+
+    /**
+     * Parser de tokens reutilizable (es inmutable y seguro entre hilos).
+     */
+    private final JwtParser parser = Jwts.parserBuilder()
+            .setSigningKey(signingKey)
+            .build();
+
     /**
      * Obtiene la clave de firma utilizada para firmar y validar los tokens JWT.
      *
      * @return Clave de firma utilizada para los tokens.
      */
     private Key getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        return signingKey;
     }
 
     /**
      * Genera un token JWT basado en el nombre de usuario proporcionado.
+     * <p>
+     * El id del usuario se incluye como claim para que las peticiones
+     * autenticadas lo conozcan sin consultar la base de datos.
      *
-     * @param username Nombre de usuario para el cual se generará el token.
+     * @param username  Nombre de usuario para el cual se generará el token.
+     * @param usuarioId Id del usuario.
      * @return Token JWT generado.
      */
-    public String generateToken(String username) {
+    public String generateToken(String username, Long usuarioId) {
         return Jwts.builder()
                 .setSubject(username)
+                .claim(CLAIM_USUARIO_ID, usuarioId)
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + jwtExpirationMs))
                 .signWith(getSigningKey(), SignatureAlgorithm.HS256)
@@ -58,12 +82,21 @@ public class JWTUtil {
      * @return Nombre de usuario contenido en el token.
      */
     public String getUsernameFromToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
+        return parseClaims(token).getSubject();
+    }
+
+    /**
+     * Verifica la firma y la expiración de un token JWT y devuelve sus claims.
+     * <p>
+     * Permite validar el token y leer su contenido con un único análisis.
+     *
+     * @param token Token JWT a analizar.
+     * @return Claims contenidos en el token.
+     * @throws JwtException             Si el token es inválido o ha expirado.
+     * @throws IllegalArgumentException Si el token está vacío.
+     */
+    public Claims parseClaims(String token) {
+        return parser.parseClaimsJws(token).getBody();
     }
 
     /**
@@ -75,10 +108,7 @@ public class JWTUtil {
      */
     public boolean validateToken(String token) {
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(token);
+            parseClaims(token);
             return true;
         } catch (JwtException | IllegalArgumentException e) {
             // Token inválido o expirado
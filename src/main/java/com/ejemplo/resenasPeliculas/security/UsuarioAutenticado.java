@@ -0,0 +1,41 @@
+package com.ejemplo.resenasPeliculas.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collection;
+
+/**
+ * Principal de Spring Security que, además del nombre de usuario, expone el id
+ * del {@link com.ejemplo.resenasPeliculas.model.Usuario}.
+ * <p>
+ * Permite a los controladores comprobar la propiedad de los recursos sin
+ * volver a consultar el usuario en la base de datos.
+ */
+public class UsuarioAutenticado extends User {
+
+    private final Long id;
+
+    /**
+     * Constructor con parámetros.
+     *
+     * @param id          Id del usuario.
+     * @param username    Nombre de usuario.
+     * @param password    Contraseña (vacía si el usuario procede de un token).
+     * @param authorities Permisos del usuario.
+     */
+    public UsuarioAutenticado(Long id, String username, String password,
+            Collection<? extends GrantedAuthority> authorities) {
+        super(username, password, authorities);
+        this.id = id;
+    }
+
+    /**
+     * Obtiene el id del usuario autenticado.
+     *
+     * @return Id del usuario.
+     */
+    public Long getId() {
+        return id;
+    }
+}
@@ -0,0 +1,79 @@
+package com.ejemplo.resenasPeliculas.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Análisis de texto en español para la búsqueda.
+ * <p>
+ * Pasa el texto a minúsculas, elimina las tildes y diéresis ("acción" y
+ * "accion" son equivalentes), lo divide en palabras, descarta las palabras
+ * vacías más frecuentes y reduce cada palabra a una raíz simple que unifica
+ * singular/plural y masculino/femenino ("película", "películas" → "pelicul").
+ */
+public final class AnalizadorTexto {
+
+    private static final Pattern MARCAS_DIACRITICAS = Pattern.compile("\\p{M}+");
+
+    private static final Pattern SEPARADORES = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final Set<String> PALABRAS_VACIAS = Set.of(
+            "a", "al", "algo", "ante", "aun", "bajo", "como", "con", "contra", "cual", "cuando", "de", "del",
+            "desde", "donde", "durante", "e", "el", "ella", "ellas", "ellos", "en", "entre", "era", "es", "esa",
+            "ese", "eso", "esta", "este", "esto", "fue", "ha", "hay", "la", "las", "le", "les", "lo", "los", "mas",
+            "me", "mi", "muy", "no", "nos", "o", "para", "pero", "por", "que", "se", "sea", "si", "sin", "sobre",
+            "su", "sus", "tan", "te", "tiene", "todo", "tu", "u", "un", "una", "uno", "unos", "unas", "y", "ya", "yo");
+
+    private AnalizadorTexto() {
+    }
+
+    /**
+     * Normaliza un texto: minúsculas y sin tildes ni diéresis.
+     *
+     * @param texto Texto original.
+     * @return Texto normalizado, o cadena vacía si es {@code null}.
+     */
+    public static String normalizar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        String descompuesto = Normalizer.normalize(texto.toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        return MARCAS_DIACRITICAS.matcher(descompuesto).replaceAll("");
+    }
+
+    /**
+     * Divide un texto en términos de búsqueda.
+     *
+     * @param texto Texto a analizar.
+     * @return Términos normalizados, sin palabras vacías, en orden de aparición.
+     */
+    public static List<String> terminos(String texto) {
+        List<String> terminos = new ArrayList<>();
+        for (String palabra : SEPARADORES.split(normalizar(texto))) {
+            if (palabra.isEmpty() || PALABRAS_VACIAS.contains(palabra)) {
+                continue;
+            }
+            terminos.add(raiz(palabra));
+        }
+        return terminos;
+    }
+
+    // Raíz ligera: quita la "s" del plural y la vocal final de género/número
+    static String raiz(String palabra) {
+        String raiz = palabra;
+        if (raiz.length() > 3 && raiz.endsWith("s")) {
+            raiz = raiz.substring(0, raiz.length() - 1);
+        }
+        if (raiz.length() > 4) {
+            char ultima = raiz.charAt(raiz.length() - 1);
+            if (ultima == 'a' || ultima == 'e' || ultima == 'o') {
+                raiz = raiz.substring(0, raiz.length() - 1);
+            }
+        }
+        return raiz;
+    }
+}
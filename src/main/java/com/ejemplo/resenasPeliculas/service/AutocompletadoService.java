@@ -0,0 +1,125 @@
+package com.ejemplo.resenasPeliculas.service;
+
+import com.ejemplo.resenasPeliculas.dto.SugerenciaPeliculaDto;
+import com.ejemplo.resenasPeliculas.model.EstadisticaPelicula;
+import com.ejemplo.resenasPeliculas.model.Pelicula;
+import com.ejemplo.resenasPeliculas.repository.PeliculaRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Servicio de autocompletado de títulos de películas.
+ * <p>
+ * Las sugerencias se leen de un índice en memoria ({@link IndiceAutocompletado})
+ * sin acceder a la base de datos. El índice se carga al arrancar a partir de
+ * las películas y sus estadísticas, y se mantiene al día con los eventos de
+ * {@link PeliculaService} y {@link ResenaService}.
+ */
+@Service
+public class AutocompletadoService {
+
+    private static final Logger log = LoggerFactory.getLogger(AutocompletadoService.class);
+
+    /**
+     * Número máximo de sugerencias por consulta.
+     */
+    public static final int LIMITE_MAXIMO = 20;
+
+    @Autowired
+    private PeliculaRepository peliculaRepository;
+
+    @Autowired
+    private EstadisticaPeliculaService estadisticaPeliculaService;
+
+    private final IndiceAutocompletado indice = new IndiceAutocompletado();
+
+    /**
+     * Obtiene las películas con más reseñas cuyo título empieza por un prefijo,
+     * sin distinguir mayúsculas ni tildes.
+     *
+     * @param prefijo Comienzo del título.
+     * @param limite  Número máximo de películas (entre 1 y
+     *                {@link #LIMITE_MAXIMO}).
+     * @return Películas de más a menos reseñas.
+     * @throws IllegalArgumentException Si el prefijo está vacío o el límite no
+     *                                  es válido.
+     */
+    public List<SugerenciaPeliculaDto> getSugerencias(String prefijo, int limite) {
+        if (limite < 1 || limite > LIMITE_MAXIMO) {
+            throw new IllegalArgumentException("El límite debe estar entre 1 y " + LIMITE_MAXIMO);
+        }
+        String normalizado = IndiceAutocompletado.prefijo(prefijo == null ? "" : prefijo);
+        if (normalizado.isEmpty()) {
+            throw new IllegalArgumentException("El prefijo es obligatorio");
+        }
+        return indice.sugerencias(normalizado, limite);
+    }
+
+    /**
+     * Carga el índice a partir de las películas y sus estadísticas.
+     * <p>
+     * Se ejecuta después de que {@link EstadisticaPeliculaService} haya
+     * inicializado las estadísticas.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconstruir() {
+        long inicio = System.currentTimeMillis();
+        List<Pelicula> peliculas = peliculaRepository.findAll();
+        Map<Long, Long> resenasPorPelicula = new HashMap<>();
+        for (EstadisticaPelicula estadistica : estadisticaPeliculaService.getTodasLasEstadisticas().values()) {
+            resenasPorPelicula.put(estadistica.getPeliculaId(), estadistica.getTotalResenas());
+        }
+        cargar(peliculas, resenasPorPelicula);
+        log.info("Índice de autocompletado cargado con {} películas en {} ms", peliculas.size(),
+                System.currentTimeMillis() - inicio);
+    }
+
+    /**
+     * Sustituye el contenido del índice.
+     *
+     * @param peliculas          Todas las películas.
+     * @param resenasPorPelicula Número de reseñas por id de película; las que
+     *                           no aparecen no tienen reseñas.
+     */
+    public void cargar(Collection<Pelicula> peliculas, Map<Long, Long> resenasPorPelicula) {
+        indice.cargar(peliculas, resenasPorPelicula);
+    }
+
+    /**
+     * Aplica al índice un cambio en una película.
+     *
+     * @param evento Evento publicado por {@link PeliculaService}.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPelicula(EventoPelicula evento) {
+        if (evento.getTipo() == EventoPelicula.Tipo.ELIMINADA) {
+            indice.quitarPelicula(evento.getPeliculaId());
+        } else {
+            indice.ponerPelicula(evento.getPelicula());
+        }
+    }
+
+    /**
+     * Aplica al índice el alta o la baja de una reseña.
+     *
+     * @param evento Evento publicado por {@link ResenaService}.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onResena(EventoResena evento) {
+        if (evento.getTipo() == EventoResena.Tipo.CREADA) {
+            indice.aplicarResenas(evento.getPeliculaId(), 1);
+        } else if (evento.getTipo() == EventoResena.Tipo.ELIMINADA) {
+            indice.aplicarResenas(evento.getPeliculaId(), -1);
+        }
+    }
+}
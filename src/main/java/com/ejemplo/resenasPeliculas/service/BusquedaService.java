@@ -0,0 +1,241 @@
+package com.ejemplo.resenasPeliculas.service;
+
+import com.ejemplo.resenasPeliculas.dto.ResultadoBusquedaDto;
+import com.ejemplo.resenasPeliculas.model.Pelicula;
+import com.ejemplo.resenasPeliculas.repository.PeliculaRepository;
+import com.ejemplo.resenasPeliculas.repository.ResenaRepository;
+import com.ejemplo.resenasPeliculas.repository.ResenaRepository.ContenidoResena;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Servicio de búsqueda de texto completo sobre películas y reseñas.
+ * <p>
+ * Las consultas se resuelven sobre un índice invertido en memoria, sin acceder
+ * a la base de datos. El índice se construye al arrancar la aplicación y se
+ * mantiene al día con los eventos de {@link PeliculaService} y
+ * {@link ResenaService}, que se aplican tras el commit de cada cambio.
+ * <p>
+ * Una reconstrucción no toca el índice en uso: crea uno nuevo a partir de una
+ * instantánea de la base de datos y lo sustituye al terminar. Los eventos que
+ * llegan mientras tanto se aplican al índice en uso y se guardan para
+ * aplicarlos también al nuevo, salvo los cambios que la instantánea ya
+ * incluye, que se reconocen por la versión de cada reseña.
+ */
+@Service
+public class BusquedaService {
+
+    private static final Logger log = LoggerFactory.getLogger(BusquedaService.class);
+
+    /**
+     * Número máximo de resultados por búsqueda.
+     */
+    public static final int LIMITE_MAXIMO = 100;
+
+    // Tamaño de lote al recorrer las reseñas durante la carga inicial
+    private static final int TAMANO_LOTE = 5000;
+
+    @Autowired
+    private PeliculaRepository peliculaRepository;
+
+    @Autowired
+    private ResenaRepository resenaRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private volatile IndiceBusqueda indice = new IndiceBusqueda();
+
+    /**
+     * Serializa la aplicación de eventos con la sustitución del índice, para que
+     * ningún evento quede fuera del índice nuevo.
+     */
+    private final Object eventos = new Object();
+
+    /**
+     * Eventos recibidos durante la reconstrucción en curso, en orden de llegada,
+     * o {@code null} si no hay ninguna. Protegido por {@link #eventos}.
+     */
+    private List<Object> pendientes;
+
+    /**
+     * Busca películas cuyo título, director, género, sinopsis o reseñas
+     * coincidan con la consulta.
+     *
+     * @param consulta Texto de la consulta.
+     * @param limite   Número máximo de resultados (entre 1 y
+     *                 {@link #LIMITE_MAXIMO}).
+     * @return Películas ordenadas por relevancia.
+     * @throws IllegalArgumentException Si el límite no es válido.
+     */
+    public List<ResultadoBusquedaDto> buscar(String consulta, int limite) {
+        if (limite < 1 || limite > LIMITE_MAXIMO) {
+            throw new IllegalArgumentException("El límite debe estar entre 1 y " + LIMITE_MAXIMO);
+        }
+        return indice.buscar(consulta, limite);
+    }
+
+    /**
+     * Construye un índice nuevo a partir de la base de datos y sustituye al
+     * actual, que sigue atendiendo las búsquedas mientras tanto.
+     * <p>
+     * Películas y reseñas se leen en una transacción de solo lectura con
+     * aislamiento {@code REPEATABLE_READ}, es decir, de una misma instantánea.
+     * Las reseñas se recorren por lotes para no cargarlas todas a la vez.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void reconstruir() {
+        long inicio = System.currentTimeMillis();
+        // Se empiezan a guardar los eventos antes de tomar la instantánea: los
+        // que ya estén incluidos en ella se descartan al final
+        synchronized (eventos) {
+            pendientes = new ArrayList<>();
+        }
+        try {
+            TransactionTemplate transaccion = new TransactionTemplate(transactionManager);
+            transaccion.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+            transaccion.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+            transaccion.setReadOnly(true);
+            long[] totales = transaccion.execute(estado -> construir());
+            log.info("Índice de búsqueda construido con {} películas y {} reseñas en {} ms",
+                    totales[0], totales[1], System.currentTimeMillis() - inicio);
+        } finally {
+            synchronized (eventos) {
+                pendientes = null;
+            }
+        }
+    }
+
+    /**
+     * Aplica al índice un cambio en una película.
+     *
+     * @param evento Evento publicado por {@link PeliculaService}.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPelicula(EventoPelicula evento) {
+        synchronized (eventos) {
+            aplicar(indice, evento);
+            if (pendientes != null) {
+                pendientes.add(evento);
+            }
+        }
+    }
+
+    /**
+     * Aplica al índice un cambio en una reseña.
+     *
+     * @param evento Evento publicado por {@link ResenaService}.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onResena(EventoResena evento) {
+        synchronized (eventos) {
+            aplicar(indice, evento);
+            if (pendientes != null) {
+                pendientes.add(evento);
+            }
+        }
+    }
+
+    // Construye el índice nuevo dentro de la transacción de la instantánea y lo
+    // pone en uso. Devuelve el número de películas y de reseñas leídas
+    private long[] construir() {
+        IndiceBusqueda nuevo = new IndiceBusqueda();
+        List<Pelicula> peliculas = peliculaRepository.findAll();
+        peliculas.forEach(nuevo::ponerPelicula);
+
+        long ultimoId = 0;
+        long resenas = 0;
+        List<ContenidoResena> lote;
+        do {
+            lote = resenaRepository.findContenidosDesde(ultimoId, Limit.of(TAMANO_LOTE));
+            for (ContenidoResena resena : lote) {
+                nuevo.aplicarResena(resena.getPeliculaId(), resena.getContenido(), 1);
+                ultimoId = resena.getId();
+            }
+            resenas += lote.size();
+        } while (lote.size() == TAMANO_LOTE);
+
+        synchronized (eventos) {
+            reaplicar(nuevo, pendientes);
+            indice = nuevo;
+            pendientes = null;
+        }
+        return new long[] { peliculas.size(), resenas };
+    }
+
+    // Aplica al índice nuevo los eventos recibidos durante su construcción que
+    // la instantánea no incluye. Los de películas reemplazan o quitan la
+    // película entera, así que se aplican todos. De cada reseña se consulta su
+    // versión en la instantánea: si está, solo faltan los cambios posteriores a
+    // esa versión; si no está, o se creó después (y su alta está entre los
+    // eventos) o ya se había eliminado
+    private void reaplicar(IndiceBusqueda nuevo, List<Object> recibidos) {
+        Set<Long> ids = new HashSet<>();
+        Set<Long> creadas = new HashSet<>();
+        for (Object evento : recibidos) {
+            if (evento instanceof EventoResena resena && resena.getResenaId() != null) {
+                ids.add(resena.getResenaId());
+                if (resena.getTipo() == EventoResena.Tipo.CREADA) {
+                    creadas.add(resena.getResenaId());
+                }
+            }
+        }
+        Map<Long, Long> versiones = new HashMap<>();
+        List<Long> porConsultar = new ArrayList<>(ids);
+        for (int i = 0; i < porConsultar.size(); i += TAMANO_LOTE) {
+            List<Long> lote = porConsultar.subList(i, Math.min(i + TAMANO_LOTE, porConsultar.size()));
+            resenaRepository.findVersiones(lote).forEach(v -> versiones.put(v.getId(), v.getVersion()));
+        }
+
+        for (Object evento : recibidos) {
+            if (evento instanceof EventoPelicula pelicula) {
+                aplicar(nuevo, pelicula);
+                continue;
+            }
+            EventoResena resena = (EventoResena) evento;
+            Long enInstantanea = versiones.get(resena.getResenaId());
+            boolean falta = enInstantanea == null ? creadas.contains(resena.getResenaId())
+                    : switch (resena.getTipo()) {
+                        case CREADA -> false;
+                        case ACTUALIZADA -> resena.getVersion() > enInstantanea;
+                        case ELIMINADA -> true;
+                    };
+            if (falta) {
+                aplicar(nuevo, resena);
+            }
+        }
+    }
+
+    private static void aplicar(IndiceBusqueda indice, EventoPelicula evento) {
+        if (evento.getTipo() == EventoPelicula.Tipo.ELIMINADA) {
+            indice.quitarPelicula(evento.getPeliculaId());
+        } else {
+            indice.ponerPelicula(evento.getPelicula());
+        }
+    }
+
+    private static void aplicar(IndiceBusqueda indice, EventoResena evento) {
+        if (evento.getContenidoAnterior() != null) {
+            indice.aplicarResena(evento.getPeliculaId(), evento.getContenidoAnterior(), -1);
+        }
+        if (evento.getContenidoNuevo() != null) {
+            indice.aplicarResena(evento.getPeliculaId(), evento.getContenidoNuevo(), 1);
+        }
+    }
+}
@@ -0,0 +1,391 @@
+package com.ejemplo.resenasPeliculas.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.ConcurrentStatsCounter;
+import com.github.benmanes.caffeine.cache.stats.StatsCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.context.request.WebRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Caché acotada de respuestas JSON ya serializadas de los endpoints de lectura
+ * más consultados: el detalle de una película y las páginas de sus reseñas.
+ * <p>
+ * Cada entrada guarda los bytes JSON, su versión comprimida con gzip (si el
+ * cuerpo supera {@code respuestas.cache.gzip.umbral}) y el ETag. Un acierto se
+ * responde copiando los bytes a la respuesta, sin consultar la base de datos ni
+ * serializar. El tamaño total se limita en bytes con
+ * {@code respuestas.cache.tamano-maximo}, y cada entrada caduca tras
+ * {@code respuestas.cache.ttl}.
+ * <p>
+ * Las entradas se agrupan por recurso y película, con todas sus variantes
+ * (parámetros) en un mismo valor, de modo que un cambio en la película o en sus
+ * reseñas invalida exactamente su clave tras el commit, sin recorrer la caché.
+ * Cada clave tiene su propia generación, que evita guardar una respuesta
+ * calculada antes de una invalidación de esa misma clave que ocurrió mientras
+ * se calculaba; los cambios de otras películas no le afectan. Las generaciones
+ * también caducan tras {@code respuestas.cache.ttl} sin cambios, así que solo
+ * se conservan las de las claves invalidadas recientemente, y las de una
+ * película eliminada se quitan con ella.
+ * <p>
+ * La versión comprimida tiene su propio ETag (el de la respuesta con el sufijo
+ * {@code -gz}), porque sus bytes son distintos, y las respuestas indican
+ * {@code Vary: Accept-Encoding}. Publica las métricas de la caché como
+ * {@code cache.gets} con {@code cache=respuestas}, contando cada variante.
+ */
+@Component
+public class CacheRespuestas {
+
+    /**
+     * Recurso al que corresponde una respuesta.
+     */
+    public enum Recurso {
+        PELICULA, RESENAS_PELICULA
+    }
+
+    private final Cache<Clave, Variantes> cache;
+
+    // Aciertos y fallos por variante: las consultas a la caché no los registran
+    private final StatsCounter estadisticas = new ConcurrentStatsCounter();
+
+    // Marca creciente que recibe cada invalidación
+    private final AtomicLong reloj = new AtomicLong();
+
+    /**
+     * Marca de la última invalidación de cada clave. Solo tiene entradas para
+     * las claves invalidadas en el último {@code respuestas.cache.ttl}: perder
+     * una permitiría guardar una respuesta anterior a la invalidación, pero solo
+     * a una petición que lleve todo ese tiempo calculándola, y esa respuesta
+     * caduca a su vez.
+     */
+    private final ConcurrentMap<Clave, Long> generaciones;
+
+    // Marca del último vaciado, que cuenta en la generación de todas las claves
+    private final AtomicLong vaciadoEn = new AtomicLong();
+
+    private final ObjectMapper objectMapper;
+
+    private final int umbralGzip;
+
+    public CacheRespuestas(MeterRegistry meterRegistry, ObjectMapper objectMapper,
+            @Value("${respuestas.cache.tamano-maximo:32MB}") DataSize tamanoMaximo,
+            @Value("${respuestas.cache.gzip.umbral:1KB}") DataSize umbralGzip,
+            @Value("${respuestas.cache.ttl:10m}") Duration ttl) {
+        this.objectMapper = objectMapper;
+        this.umbralGzip = (int) umbralGzip.toBytes();
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(tamanoMaximo.toBytes())
+                .weigher((Clave clave, Variantes variantes) -> variantes.tamano)
+                .expireAfterWrite(ttl)
+                .recordStats(() -> estadisticas)
+                .build();
+        this.generaciones = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .<Clave, Long>build()
+                .asMap();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "respuestas");
+    }
+
+    /**
+     * Busca una respuesta en la caché.
+     *
+     * @param recurso    Recurso.
+     * @param peliculaId Id de la película.
+     * @param variante   Parámetros que distinguen respuestas del mismo recurso
+     *                   (cadena vacía si no hay).
+     * @return La respuesta, o {@code null} si no está en la caché.
+     */
+    public Respuesta get(Recurso recurso, Long peliculaId, String variante) {
+        Variantes variantes = cache.asMap().get(new Clave(recurso, peliculaId));
+        Respuesta respuesta = variantes != null ? variantes.respuestas.get(variante) : null;
+        if (respuesta != null) {
+            estadisticas.recordHits(1);
+        } else {
+            estadisticas.recordMisses(1);
+        }
+        return respuesta;
+    }
+
+    /**
+     * Obtiene la generación actual de un recurso de una película. Debe leerse
+     * antes de consultar los datos de una respuesta que se vaya a guardar con
+     * {@link #guardar(Recurso, Long, String, String, Object, long)}.
+     *
+     * @param recurso    Recurso.
+     * @param peliculaId Id de la película.
+     * @return La generación actual.
+     */
+    public long getGeneracion(Recurso recurso, Long peliculaId) {
+        return generacion(new Clave(recurso, peliculaId));
+    }
+
+    /**
+     * Serializa un cuerpo y lo guarda en la caché.
+     * <p>
+     * Si desde {@code generacionLeida} se ha invalidado el recurso de la
+     * película, la respuesta se devuelve pero no se conserva: los datos podrían
+     * ser anteriores al cambio.
+     *
+     * @param recurso         Recurso.
+     * @param peliculaId      Id de la película.
+     * @param variante        Parámetros que distinguen respuestas del mismo
+     *                        recurso.
+     * @param etag            ETag de la respuesta.
+     * @param cuerpo          Objeto a serializar como JSON.
+     * @param generacionLeida Generación leída antes de consultar los datos.
+     * @return La respuesta serializada.
+     */
+    public Respuesta guardar(Recurso recurso, Long peliculaId, String variante, String etag, Object cuerpo,
+            long generacionLeida) {
+        Respuesta respuesta = serializar(etag, cuerpo);
+        Clave clave = new Clave(recurso, peliculaId);
+        // La invalidación incrementa la generación antes de eliminar la clave, y
+        // ambas operaciones se excluyen con esta
+        cache.asMap().compute(clave, (c, actuales) -> generacion(c) != generacionLeida
+                ? actuales : Variantes.con(actuales, variante, respuesta));
+        return respuesta;
+    }
+
+    /**
+     * Comprueba si el cliente ya tiene la versión vigente de una respuesta, sin
+     * calcularla, tanto si la recibió comprimida como si no.
+     *
+     * @param etag       ETag de la respuesta sin comprimir.
+     * @param webRequest Petición.
+     * @return La respuesta 304, o {@code null} si el cliente no tiene la versión
+     *         vigente.
+     */
+    public ResponseEntity<?> noModificado(String etag, WebRequest webRequest) {
+        String enviado = webRequest.getHeader(HttpHeaders.IF_NONE_MATCH);
+        String etagGzip = etagGzip(etag);
+        return noModificado(enviado != null && enviado.contains(etagGzip) ? etagGzip : etag, webRequest, true);
+    }
+
+    /**
+     * Construye la respuesta HTTP a partir de una respuesta serializada: 304 si
+     * el cliente ya tiene el ETag, o los bytes JSON (comprimidos si el cliente
+     * acepta gzip y existe la versión comprimida).
+     *
+     * @param respuesta  Respuesta serializada.
+     * @param webRequest Petición.
+     * @return La respuesta HTTP.
+     */
+    public ResponseEntity<?> responder(Respuesta respuesta, WebRequest webRequest) {
+        String aceptadas = webRequest.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        boolean gzip = respuesta.gzip != null && aceptadas != null && aceptadas.contains("gzip");
+        String etag = gzip ? etagGzip(respuesta.etag) : respuesta.etag;
+        ResponseEntity<?> noModificado = noModificado(etag, webRequest, respuesta.gzip != null);
+        if (noModificado != null) {
+            return noModificado;
+        }
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .eTag(etag)
+                .contentType(MediaType.APPLICATION_JSON);
+        if (respuesta.gzip == null) {
+            return builder.body(respuesta.json);
+        }
+        builder.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            return builder.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(respuesta.gzip);
+        }
+        return builder.body(respuesta.json);
+    }
+
+    /**
+     * Invalida las respuestas de una película cuando cambia, y las quita junto
+     * con sus generaciones cuando se elimina.
+     *
+     * @param evento Evento publicado por {@link PeliculaService}.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPelicula(EventoPelicula evento) {
+        if (evento.getTipo() == EventoPelicula.Tipo.ELIMINADA) {
+            eliminar(evento.getPeliculaId());
+        } else {
+            invalidar(Recurso.PELICULA, evento.getPeliculaId());
+        }
+    }
+
+    /**
+     * Invalida las páginas de reseñas de una película cuando cambia una de sus
+     * reseñas.
+     *
+     * @param evento Evento publicado por {@link ResenaService}.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onResena(EventoResena evento) {
+        invalidar(Recurso.RESENAS_PELICULA, evento.getPeliculaId());
+    }
+
+    /**
+     * Vacía la caché (por ejemplo, tras una importación masiva).
+     */
+    public void invalidarTodo() {
+        vaciadoEn.accumulateAndGet(reloj.incrementAndGet(), Math::max);
+        cache.invalidateAll();
+    }
+
+    // Elimina todas las variantes de un recurso de la película
+    private void invalidar(Recurso recurso, Long peliculaId) {
+        Clave clave = new Clave(recurso, peliculaId);
+        generaciones.merge(clave, reloj.incrementAndGet(), Math::max);
+        cache.invalidate(clave);
+    }
+
+    // Quita las respuestas y las generaciones de una película eliminada. La
+    // marca de vaciado descarta las respuestas que se estén calculando, que sin
+    // la generación de su clave podrían guardarse
+    private void eliminar(Long peliculaId) {
+        vaciadoEn.accumulateAndGet(reloj.incrementAndGet(), Math::max);
+        for (Recurso recurso : Recurso.values()) {
+            Clave clave = new Clave(recurso, peliculaId);
+            cache.invalidate(clave);
+            generaciones.remove(clave);
+        }
+    }
+
+    /**
+     * Número de claves con generación propia.
+     *
+     * @return Número de claves invalidadas recientemente.
+     */
+    int getClavesConGeneracion() {
+        return generaciones.size();
+    }
+
+    // Cualquier invalidación que afecte a la clave recibe una marca mayor que
+    // todas las anteriores, así que la generación cambia
+    private long generacion(Clave clave) {
+        return Math.max(vaciadoEn.get(), generaciones.getOrDefault(clave, 0L));
+    }
+
+    // 304 con el ETag indicado si el cliente ya lo tiene
+    private static ResponseEntity<?> noModificado(String etag, WebRequest webRequest, boolean variaConCodificacion) {
+        if (!webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        ResponseEntity.HeadersBuilder<?> builder = ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag);
+        if (variaConCodificacion) {
+            builder.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+        return builder.build();
+    }
+
+    // ETag de la versión comprimida: el mismo con el sufijo -gz
+    private static String etagGzip(String etag) {
+        return etag.endsWith("\"") ? etag.substring(0, etag.length() - 1) + "-gz\"" : etag + "-gz";
+    }
+
+    private Respuesta serializar(String etag, Object cuerpo) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(cuerpo);
+            return new Respuesta(etag, json, json.length >= umbralGzip ? comprimir(json) : null);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] comprimir(byte[] datos) {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream(datos.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(salida)) {
+            gzip.write(datos);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return salida.toByteArray();
+    }
+
+    /**
+     * Respuesta serializada.
+     */
+    public static final class Respuesta {
+
+        private final String etag;
+
+        private final byte[] json;
+
+        private final byte[] gzip;
+
+        private Respuesta(String etag, byte[] json, byte[] gzip) {
+            this.etag = etag;
+            this.json = json;
+            this.gzip = gzip;
+        }
+
+        // Peso en la caché
+        private int getTamano() {
+            return json.length + (gzip != null ? gzip.length : 0);
+        }
+    }
+
+    // Variantes guardadas de un recurso de una película. Inmutable: añadir una
+    // variante crea un valor nuevo, para que la caché recalcule su peso
+    private static final class Variantes {
+
+        private final Map<String, Respuesta> respuestas;
+
+        private final int tamano;
+
+        private Variantes(Map<String, Respuesta> respuestas, int tamano) {
+            this.respuestas = respuestas;
+            this.tamano = tamano;
+        }
+
+        private static Variantes con(Variantes actuales, String variante, Respuesta respuesta) {
+            Map<String, Respuesta> respuestas = actuales != null ? new HashMap<>(actuales.respuestas) : new HashMap<>();
+            Respuesta anterior = respuestas.put(variante, respuesta);
+            int tamano = (actuales != null ? actuales.tamano : 0) + respuesta.getTamano()
+                    - (anterior != null ? anterior.getTamano() : 0);
+            return new Variantes(respuestas, tamano);
+        }
+    }
+
+    // Clave de las respuestas de un recurso de una película
+    private static final class Clave {
+
+        private final Recurso recurso;
+
+        private final Long peliculaId;
+
+        private Clave(Recurso recurso, Long peliculaId) {
+            this.recurso = recurso;
+            this.peliculaId = peliculaId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Clave)) {
+                return false;
+            }
+            Clave otra = (Clave) o;
+            return recurso == otra.recurso && peliculaId.equals(otra.peliculaId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(recurso, peliculaId);
+        }
+    }
+}
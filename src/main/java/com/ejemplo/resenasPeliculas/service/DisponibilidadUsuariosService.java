@@ -0,0 +1,250 @@
+package com.ejemplo.resenasPeliculas.service;
+
+import com.ejemplo.resenasPeliculas.model.Usuario;
+import com.ejemplo.resenasPeliculas.repository.UsuarioRepository;
+import com.ejemplo.resenasPeliculas.repository.UsuarioRepository.NombreYEmail;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Servicio que comprueba si un nombre de usuario o un email están libres, para
+ * el formulario de registro.
+ * <p>
+ * La mayoría de las consultas son de valores libres y se responden con un
+ * filtro de Bloom en memoria ({@link FiltroBloom}) por campo, sin acceder a la
+ * base de datos. Solo cuando el filtro indica que el valor puede estar en uso
+ * se confirma con una consulta. Los filtros se cargan al arrancar con todos los
+ * usuarios, {@link UsuarioService} les añade cada usuario registrado y una
+ * recarga periódica recoge los usuarios creados por otras instancias y limpia
+ * la ocupación que dejan los falsos positivos. Hasta la primera carga se
+ * consulta siempre la base de datos.
+ * <p>
+ * Los valores se normalizan (minúsculas, sin tildes ni espacios en los
+ * extremos) antes de pasar por el filtro, igual que los compara la colación de
+ * MySQL: así dos valores que la base de datos considera iguales nunca dan un
+ * falso negativo.
+ * <p>
+ * El resultado es orientativo: la unicidad la garantiza el registro.
+ * <p>
+ * Publica, por campo ({@code campo=username|email}), las consultas según quién
+ * las responde ({@code usuarios.disponibilidad.consultas} con
+ * {@code resultado=filtro|base_datos}), los falsos positivos del filtro
+ * ({@code usuarios.disponibilidad.falsos.positivos}), la tasa de consultas a la
+ * base de datos ({@code usuarios.disponibilidad.tasa.base.datos}), la tasa de
+ * falsos positivos entre los valores libres
+ * ({@code usuarios.disponibilidad.tasa.falsos.positivos}) y la probabilidad de
+ * falso positivo estimada con la ocupación del filtro
+ * ({@code usuarios.disponibilidad.filtro.fpp}).
+ */
+@Service
+public class DisponibilidadUsuariosService {
+
+    private static final Logger log = LoggerFactory.getLogger(DisponibilidadUsuariosService.class);
+
+    // Tamaño de lote al recorrer los usuarios durante la carga
+    private static final int TAMANO_LOTE = 5000;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    private final long capacidad;
+
+    private final double probabilidadFalsosPositivos;
+
+    private final Campo username;
+
+    private final Campo email;
+
+    // Filtros y métricas de uno de los campos únicos
+    private final class Campo {
+
+        private final Function<Usuario, String> valor;
+
+        private final Predicate<String> existe;
+
+        private final Counter respondidasPorFiltro;
+
+        private final Counter respondidasPorBaseDatos;
+
+        private final Counter falsosPositivos;
+
+        /**
+         * Filtro en uso, o {@code null} hasta la primera carga.
+         */
+        private volatile FiltroBloom filtro;
+
+        /**
+         * Filtro que se está cargando, para no perder los usuarios registrados
+         * durante la carga.
+         */
+        private volatile FiltroBloom enCarga;
+
+        private Campo(String nombre, Function<Usuario, String> valor, Predicate<String> existe,
+                MeterRegistry meterRegistry) {
+            this.valor = valor;
+            this.existe = existe;
+            this.respondidasPorFiltro = Counter.builder("usuarios.disponibilidad.consultas")
+                    .description("Consultas de disponibilidad por quién las responde")
+                    .tag("campo", nombre)
+                    .tag("resultado", "filtro")
+                    .register(meterRegistry);
+            this.respondidasPorBaseDatos = Counter.builder("usuarios.disponibilidad.consultas")
+                    .description("Consultas de disponibilidad por quién las responde")
+                    .tag("campo", nombre)
+                    .tag("resultado", "base_datos")
+                    .register(meterRegistry);
+            this.falsosPositivos = Counter.builder("usuarios.disponibilidad.falsos.positivos")
+                    .description("Valores libres que el filtro no pudo descartar")
+                    .tag("campo", nombre)
+                    .register(meterRegistry);
+            Gauge.builder("usuarios.disponibilidad.tasa.base.datos", this,
+                    c -> tasa(c.respondidasPorBaseDatos.count(),
+                            c.respondidasPorFiltro.count() + c.respondidasPorBaseDatos.count()))
+                    .description("Fracción de las consultas de disponibilidad que llegan a la base de datos")
+                    .tag("campo", nombre)
+                    .register(meterRegistry);
+            Gauge.builder("usuarios.disponibilidad.tasa.falsos.positivos", this,
+                    c -> tasa(c.falsosPositivos.count(), c.respondidasPorFiltro.count() + c.falsosPositivos.count()))
+                    .description("Fracción de los valores libres que el filtro no pudo descartar")
+                    .tag("campo", nombre)
+                    .register(meterRegistry);
+            Gauge.builder("usuarios.disponibilidad.filtro.fpp", this,
+                    c -> c.filtro == null ? 1.0 : c.filtro.getProbabilidadFalsosPositivos())
+                    .description("Probabilidad de falso positivo estimada con la ocupación del filtro")
+                    .tag("campo", nombre)
+                    .register(meterRegistry);
+        }
+
+        private boolean disponible(String texto) {
+            FiltroBloom actual = filtro;
+            if (actual != null && !actual.puedeContener(clave(texto))) {
+                respondidasPorFiltro.increment();
+                return true;
+            }
+            respondidasPorBaseDatos.increment();
+            boolean libre = !existe.test(texto);
+            if (libre && actual != null) {
+                falsosPositivos.increment();
+            }
+            return libre;
+        }
+
+        private void anadir(Usuario usuario) {
+            String clave = clave(valor.apply(usuario));
+            // Primero el filtro en carga: si ya no hay ninguno, el filtro en uso
+            // es el nuevo o la carga aún no ha leído los usuarios
+            FiltroBloom siguiente = enCarga;
+            if (siguiente != null) {
+                siguiente.anadir(clave);
+            }
+            FiltroBloom actual = filtro;
+            if (actual != null) {
+                actual.anadir(clave);
+            }
+        }
+    }
+
+    public DisponibilidadUsuariosService(MeterRegistry meterRegistry,
+            @Value("${usuarios.disponibilidad.capacidad:1000000}") long capacidad,
+            @Value("${usuarios.disponibilidad.falsos-positivos:0.01}") double probabilidadFalsosPositivos) {
+        this.capacidad = capacidad;
+        this.probabilidadFalsosPositivos = probabilidadFalsosPositivos;
+        this.username = new Campo("username", Usuario::getUsername,
+                u -> usuarioRepository.existsByUsername(u), meterRegistry);
+        this.email = new Campo("email", Usuario::getEmail,
+                e -> usuarioRepository.existsByEmail(e), meterRegistry);
+    }
+
+    /**
+     * Indica si un nombre de usuario está libre.
+     *
+     * @param nombre Nombre de usuario.
+     * @return {@code true} si ningún usuario lo tiene.
+     */
+    public boolean isUsernameDisponible(String nombre) {
+        return username.disponible(nombre);
+    }
+
+    /**
+     * Indica si un email está libre.
+     *
+     * @param direccion Email.
+     * @return {@code true} si ningún usuario lo tiene.
+     */
+    public boolean isEmailDisponible(String direccion) {
+        return email.disponible(direccion);
+    }
+
+    /**
+     * Añade a los filtros un usuario recién registrado.
+     *
+     * @param usuario Usuario ya guardado.
+     */
+    public void registrar(Usuario usuario) {
+        username.anadir(usuario);
+        email.anadir(usuario);
+    }
+
+    /**
+     * Carga los filtros con todos los usuarios y sustituye a los anteriores.
+     * Los usuarios se leen por lotes en orden de id y se añaden a medida que
+     * llegan, sin reunirlos todos en memoria.
+     * <p>
+     * Los usuarios registrados mientras tanto se añaden tanto al filtro en uso
+     * como al que se está cargando.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${usuarios.disponibilidad.reconstruccion.cron:0 45 3 * * *}")
+    public synchronized void reconstruir() {
+        long inicio = System.currentTimeMillis();
+        FiltroBloom usernames = new FiltroBloom(capacidad, probabilidadFalsosPositivos);
+        FiltroBloom emails = new FiltroBloom(capacidad, probabilidadFalsosPositivos);
+        username.enCarga = usernames;
+        email.enCarga = emails;
+        try {
+            long ultimoId = 0;
+            long usuarios = 0;
+            List<NombreYEmail> lote;
+            do {
+                lote = usuarioRepository.findNombresYEmailsDesde(ultimoId, Limit.of(TAMANO_LOTE));
+                for (NombreYEmail usuario : lote) {
+                    usernames.anadir(clave(usuario.getUsername()));
+                    emails.anadir(clave(usuario.getEmail()));
+                    ultimoId = usuario.getId();
+                }
+                usuarios += lote.size();
+            } while (lote.size() == TAMANO_LOTE);
+            username.filtro = usernames;
+            email.filtro = emails;
+            log.info("Filtros de disponibilidad cargados con {} usuarios ({} bits y {} hashes por filtro) en {} ms",
+                    usuarios, usernames.getNumeroBits(), usernames.getNumeroHashes(),
+                    System.currentTimeMillis() - inicio);
+        } finally {
+            username.enCarga = null;
+            email.enCarga = null;
+        }
+    }
+
+    // Misma equivalencia que la colación de la base de datos, o más amplia
+    private static String clave(String valor) {
+        return AnalizadorTexto.normalizar(valor).strip();
+    }
+
+    private static double tasa(double parte, double total) {
+        return total == 0 ? 0.0 : parte / total;
+    }
+}
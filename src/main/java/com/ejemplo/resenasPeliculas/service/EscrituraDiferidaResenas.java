@@ -0,0 +1,339 @@
+package com.ejemplo.resenasPeliculas.service;
+
+import com.ejemplo.resenasPeliculas.dto.ResenaPendienteDto;
+import com.ejemplo.resenasPeliculas.model.Resena;
+import com.ejemplo.resenasPeliculas.repository.ResenaRepository;
+import com.ejemplo.resenasPeliculas.repository.VersionResenasPeliculaRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Escritura diferida de reseñas nuevas (write-behind).
+ * <p>
+ * Con {@code resenas.escritura-diferida.habilitada=true}, las reseñas ya
+ * validadas se dejan en una cola acotada y se responde enseguida con un
+ * identificador para consultar su estado. Un único hilo escritor vacía la cola
+ * por lotes: toma todas las reseñas que haya (hasta
+ * {@code resenas.escritura-diferida.tamano-lote}) y las guarda en una sola
+ * transacción, con un {@code INSERT} por lotes que el driver de MySQL convierte
+ * en uno de varias filas, una actualización de estadísticas y de versión por
+ * película y un único commit. Mientras se escribe un lote se acumula el
+ * siguiente, de modo que el tamaño de los lotes crece con la carga sin añadir
+ * espera cuando hay poco tráfico.
+ * <p>
+ * Si un lote falla se reintenta reseña a reseña para rechazar solo las
+ * erróneas. Si la cola está llena, {@link #encolar(Resena)} lo indica con
+ * {@link RejectedExecutionException} en lugar de bloquear la petición.
+ * <p>
+ * Al cerrar la aplicación se deja de aceptar reseñas y se guardan todas las
+ * pendientes antes de cerrar las conexiones. La fase del ciclo de vida es
+ * menor que la del servidor web, que por tanto se detiene antes.
+ * <p>
+ * Publica el tamaño de la cola ({@code resenas.diferidas.cola}), el tamaño de
+ * los lotes ({@code resenas.diferidas.lote}) y las reseñas no aceptadas por
+ * tener la cola llena ({@code resenas.diferidas.rechazadas}).
+ */
+@Component
+public class EscrituraDiferidaResenas implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(EscrituraDiferidaResenas.class);
+
+    private static final String INSERT_RESENA = "INSERT INTO resenas "
+            + "(contenido, rating, pelicula_id, usuario_id) VALUES (?, ?, ?, ?)";
+
+    // Anterior a la del servidor web (SmartLifecycle.DEFAULT_PHASE - 2048)
+    private static final int FASE = SmartLifecycle.DEFAULT_PHASE - 4096;
+
+    // Espera máxima del escritor en cada consulta de la cola
+    private static final long ESPERA_COLA_MS = 100;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private EstadisticaPeliculaService estadisticaPeliculaService;
+
+    @Autowired
+    private VersionResenasPeliculaRepository versionResenasPeliculaRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private final boolean habilitada;
+
+    private final int tamanoLote;
+
+    private final Duration esperaCierre;
+
+    private final BlockingQueue<Pendiente> cola;
+
+    /**
+     * Estado de las reseñas aceptadas, consultable durante
+     * {@code resenas.escritura-diferida.retencion-estados}.
+     */
+    private final Cache<String, ResenaPendienteDto> estados;
+
+    private final Counter rechazadas;
+
+    private final DistributionSummary lotes;
+
+    private volatile boolean aceptando;
+
+    private volatile boolean activo;
+
+    private Thread escritor;
+
+    // Reseña a la espera de ser guardada
+    private static final class Pendiente {
+
+        private final String id;
+
+        private final Resena resena;
+
+        private Pendiente(String id, Resena resena) {
+            this.id = id;
+            this.resena = resena;
+        }
+    }
+
+    public EscrituraDiferidaResenas(MeterRegistry meterRegistry,
+            @Value("${resenas.escritura-diferida.habilitada:false}") boolean habilitada,
+            @Value("${resenas.escritura-diferida.capacidad:10000}") int capacidad,
+            @Value("${resenas.escritura-diferida.tamano-lote:500}") int tamanoLote,
+            @Value("${resenas.escritura-diferida.retencion-estados:10m}") Duration retencionEstados,
+            @Value("${resenas.escritura-diferida.espera-cierre:30s}") Duration esperaCierre) {
+        this.habilitada = habilitada;
+        this.tamanoLote = tamanoLote;
+        this.esperaCierre = esperaCierre;
+        this.cola = new ArrayBlockingQueue<>(capacidad);
+        this.estados = Caffeine.newBuilder()
+                .expireAfterWrite(retencionEstados)
+                .maximumSize(10L * capacidad)
+                .build();
+        Gauge.builder("resenas.diferidas.cola", cola, BlockingQueue::size)
+                .description("Reseñas a la espera de ser guardadas")
+                .register(meterRegistry);
+        this.rechazadas = Counter.builder("resenas.diferidas.rechazadas")
+                .description("Reseñas no aceptadas por tener la cola llena")
+                .register(meterRegistry);
+        this.lotes = DistributionSummary.builder("resenas.diferidas.lote")
+                .description("Reseñas guardadas en cada lote")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Indica si la escritura diferida está habilitada.
+     *
+     * @return {@code true} si las reseñas nuevas se deben encolar.
+     */
+    public boolean isHabilitada() {
+        return habilitada;
+    }
+
+    /**
+     * Deja una reseña validada en la cola.
+     *
+     * @param resena Reseña a guardar, con la película y el usuario indicados por
+     *               su id.
+     * @return El estado inicial de la reseña, con su identificador.
+     * @throws RejectedExecutionException Si la cola está llena o la aplicación
+     *                                    se está cerrando.
+     */
+    public ResenaPendienteDto encolar(Resena resena) {
+        if (!aceptando) {
+            throw new RejectedExecutionException("No se aceptan reseñas en este momento");
+        }
+        String id = UUID.randomUUID().toString();
+        ResenaPendienteDto estado = new ResenaPendienteDto(id, ResenaPendienteDto.Estado.PENDIENTE, null, null);
+        estados.put(id, estado);
+        if (!cola.offer(new Pendiente(id, resena))) {
+            estados.invalidate(id);
+            rechazadas.increment();
+            throw new RejectedExecutionException("Demasiadas reseñas pendientes, inténtalo más tarde");
+        }
+        return estado;
+    }
+
+    /**
+     * Obtiene el estado de una reseña encolada.
+     *
+     * @param id Identificador devuelto por {@link #encolar(Resena)}.
+     * @return El estado, o vacío si no existe o ha caducado.
+     */
+    public ResenaPendienteDto getEstado(String id) {
+        return estados.getIfPresent(id);
+    }
+
+    @Override
+    public void start() {
+        if (!habilitada) {
+            return;
+        }
+        activo = true;
+        aceptando = true;
+        escritor = new Thread(this::escribir, "escritura-resenas");
+        escritor.start();
+        log.info("Escritura diferida de reseñas activa (capacidad {}, lotes de hasta {})",
+                cola.remainingCapacity(), tamanoLote);
+    }
+
+    @Override
+    public void stop() {
+        if (escritor == null) {
+            return;
+        }
+        aceptando = false;
+        activo = false;
+        try {
+            escritor.join(esperaCierre.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (escritor.isAlive()) {
+            log.warn("La escritura diferida no ha terminado en {}; quedan {} reseñas sin guardar",
+                    esperaCierre, cola.size());
+        } else {
+            // Reseñas encoladas mientras el escritor terminaba
+            List<Pendiente> restantes = new ArrayList<>();
+            cola.drainTo(restantes);
+            if (!restantes.isEmpty()) {
+                guardar(restantes);
+            }
+            log.info("Escritura diferida de reseñas detenida con la cola vacía");
+        }
+        escritor = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return escritor != null;
+    }
+
+    @Override
+    public int getPhase() {
+        return FASE;
+    }
+
+    // Bucle del hilo escritor: termina al cerrar, con la cola ya vacía
+    private void escribir() {
+        List<Pendiente> lote = new ArrayList<>(tamanoLote);
+        while (activo || !cola.isEmpty()) {
+            try {
+                Pendiente primera = cola.poll(ESPERA_COLA_MS, TimeUnit.MILLISECONDS);
+                if (primera == null) {
+                    continue;
+                }
+                lote.add(primera);
+                cola.drainTo(lote, tamanoLote - 1);
+                guardar(lote);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lote.clear();
+            }
+        }
+    }
+
+    // Guarda un lote en una transacción; si falla, reseña a reseña
+    private void guardar(List<Pendiente> lote) {
+        try {
+            insertar(lote);
+            lotes.record(lote.size());
+        } catch (RuntimeException e) {
+            log.warn("Error al guardar un lote de {} reseñas; se reintentan una a una", lote.size(), e);
+            for (Pendiente pendiente : lote) {
+                try {
+                    insertar(List.of(pendiente));
+                    lotes.record(1);
+                } catch (RuntimeException errorResena) {
+                    log.debug("Reseña {} rechazada", pendiente.id, errorResena);
+                    estados.put(pendiente.id, new ResenaPendienteDto(pendiente.id,
+                            ResenaPendienteDto.Estado.RECHAZADA, null, "No se ha podido guardar la reseña"));
+                }
+            }
+        }
+    }
+
+    // Inserta las reseñas y actualiza estadísticas y versiones con un solo commit
+    private void insertar(List<Pendiente> lote) {
+        GeneratedKeyHolder claves = new GeneratedKeyHolder();
+        new TransactionTemplate(transactionManager).executeWithoutResult(estado -> {
+            jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_RESENA, new String[] { "id" }),
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            Resena resena = lote.get(i).resena;
+                            ps.setString(1, resena.getContenido());
+                            ps.setInt(2, resena.getRating());
+                            ps.setLong(3, resena.getPelicula().getId());
+                            ps.setLong(4, resena.getUsuario().getId());
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return lote.size();
+                        }
+                    }, claves);
+
+            Map<Long, List<Integer>> ratingsPorPelicula = new LinkedHashMap<>();
+            for (int i = 0; i < lote.size(); i++) {
+                Resena resena = lote.get(i).resena;
+                Long peliculaId = resena.getPelicula().getId();
+                resena.setId(((Number) claves.getKeyList().get(i).values().iterator().next()).longValue());
+                ratingsPorPelicula.computeIfAbsent(peliculaId, p -> new ArrayList<>()).add(resena.getRating());
+                eventPublisher.publishEvent(new EventoResena(EventoResena.Tipo.CREADA, resena.getId(), peliculaId,
+                        null, resena.getRating(), null, resena.getContenido(), 0));
+            }
+            ratingsPorPelicula.forEach((peliculaId, ratings) -> {
+                estadisticaPeliculaService.registrarAltas(peliculaId, ratings);
+                versionResenasPeliculaRepository.incrementar(peliculaId);
+            });
+        });
+
+        // Las inserciones no pasan por Hibernate: se descartan las páginas cacheadas
+        entityManagerFactory.unwrap(SessionFactory.class).getCache()
+                .evictQueryRegion(ResenaRepository.REGION_RESENAS_POR_PELICULA);
+        for (Pendiente pendiente : lote) {
+            estados.put(pendiente.id, new ResenaPendienteDto(pendiente.id, ResenaPendienteDto.Estado.GUARDADA,
+                    pendiente.resena.getId(), null));
+        }
+    }
+}
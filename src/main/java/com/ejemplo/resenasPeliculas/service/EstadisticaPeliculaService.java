@@ -0,0 +1,204 @@
+package com.ejemplo.resenasPeliculas.service;
+
+import com.ejemplo.resenasPeliculas.model.EstadisticaPelicula;
+import com.ejemplo.resenasPeliculas.repository.EstadisticaPeliculaRepository;
+import com.ejemplo.resenasPeliculas.repository.PeliculaRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Servicio que mantiene las estadísticas agregadas de reseñas por película.
+ * <p>
+ * Los contadores se actualizan de forma incremental dentro de la misma
+ * transacción que modifica la reseña, y una tarea programada los reconcilia
+ * periódicamente con la tabla de reseñas, por lotes de películas.
+ */
+@Service
+public class EstadisticaPeliculaService {
+
+    private static final Logger log = LoggerFactory.getLogger(EstadisticaPeliculaService.class);
+
+    // Películas que se reconstruyen en cada transacción
+    private static final int TAMANO_LOTE = 200;
+
+    @Autowired
+    private EstadisticaPeliculaRepository estadisticaPeliculaRepository;
+
+    @Autowired
+    private PeliculaRepository peliculaRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * Obtiene las estadísticas de una película.
+     *
+     * @param peliculaId Id de la película.
+     * @return Las estadísticas, con contadores a cero si no tiene reseñas.
+     */
+    public EstadisticaPelicula getEstadisticas(Long peliculaId) {
+        return estadisticaPeliculaRepository.findById(peliculaId)
+                .orElseGet(() -> new EstadisticaPelicula(peliculaId));
+    }
+
+    /**
+     * Obtiene las estadísticas de todas las películas que tienen reseñas.
+     *
+     * @return Mapa de id de película a estadísticas.
+     */
+    public Map<Long, EstadisticaPelicula> getTodasLasEstadisticas() {
+        return estadisticaPeliculaRepository.findAll().stream()
+                .collect(Collectors.toMap(EstadisticaPelicula::getPeliculaId, Function.identity()));
+    }
+
+    /**
+     * Registra el alta de una reseña.
+     *
+     * @param peliculaId Id de la película reseñada.
+     * @param rating     Calificación de la reseña.
+     */
+    @Transactional
+    public void registrarAlta(Long peliculaId, int rating) {
+        long[] estrellas = new long[5];
+        estrellas[rating - 1] = 1;
+        estadisticaPeliculaRepository.aplicarIncremento(peliculaId, 1, rating,
+                estrellas[0], estrellas[1], estrellas[2], estrellas[3], estrellas[4]);
+    }
+
+    /**
+     * Registra el alta de varias reseñas de una película con una sola
+     * actualización.
+     *
+     * @param peliculaId Id de la película reseñada.
+     * @param ratings    Calificaciones de las reseñas.
+     */
+    @Transactional
+    public void registrarAltas(Long peliculaId, List<Integer> ratings) {
+        long suma = 0;
+        long[] estrellas = new long[5];
+        for (int rating : ratings) {
+            suma += rating;
+            estrellas[rating - 1]++;
+        }
+        estadisticaPeliculaRepository.aplicarIncremento(peliculaId, ratings.size(), suma,
+                estrellas[0], estrellas[1], estrellas[2], estrellas[3], estrellas[4]);
+    }
+
+    /**
+     * Registra la baja de una reseña.
+     * <p>
+     * Si la película no tiene estadísticas no se crean: solo puede ocurrir si
+     * los contadores ya estaban desviados, y la reconstrucción periódica los
+     * corrige.
+     *
+     * @param peliculaId Id de la película reseñada.
+     * @param rating     Calificación que tenía la reseña.
+     */
+    @Transactional
+    public void registrarBaja(Long peliculaId, int rating) {
+        long[] estrellas = new long[5];
+        estrellas[rating - 1] = -1;
+        ajustar(peliculaId, -1, -rating, estrellas);
+    }
+
+    /**
+     * Registra el cambio de calificación de una reseña. Como en una baja, no se
+     * crean estadísticas que no existan.
+     *
+     * @param peliculaId     Id de la película reseñada.
+     * @param ratingAnterior Calificación anterior.
+     * @param ratingNuevo    Calificación nueva.
+     */
+    @Transactional
+    public void registrarCambio(Long peliculaId, int ratingAnterior, int ratingNuevo) {
+        if (ratingAnterior == ratingNuevo) {
+            return;
+        }
+        long[] estrellas = new long[5];
+        estrellas[ratingAnterior - 1] = -1;
+        estrellas[ratingNuevo - 1] = 1;
+        ajustar(peliculaId, 0, ratingNuevo - ratingAnterior, estrellas);
+    }
+
+    /**
+     * Elimina las estadísticas de una película.
+     *
+     * @param peliculaId Id de la película.
+     */
+    @Transactional
+    public void eliminar(Long peliculaId) {
+        estadisticaPeliculaRepository.deleteById(peliculaId);
+    }
+
+    /**
+     * Reconstruye todas las estadísticas a partir de la tabla de reseñas.
+     * <p>
+     * Corrige cualquier desviación de los contadores incrementales (por ejemplo,
+     * reseñas modificadas directamente en la base de datos). Recorre los ids de
+     * las películas en rangos de {@value #TAMANO_LOTE}, cada uno en su propia
+     * transacción: solo se bloquean las filas del rango, y el resto de lectores
+     * siguen viendo las estadísticas anteriores del rango hasta el commit. El
+     * último rango llega hasta el final para quitar las filas de películas que
+     * ya no existen.
+     *
+     * @return Número de películas con estadísticas.
+     */
+    @Scheduled(cron = "${estadisticas.reconstruccion.cron:0 30 3 * * *}")
+    public int reconstruir() {
+        TransactionTemplate transaccion = new TransactionTemplate(transactionManager);
+        int peliculas = 0;
+        long desde = 0;
+        List<Long> lote;
+        do {
+            lote = peliculaRepository.findIdsDesde(desde, Limit.of(TAMANO_LOTE));
+            long inicio = desde;
+            long hasta = lote.size() == TAMANO_LOTE ? lote.get(lote.size() - 1) : Long.MAX_VALUE;
+            peliculas += transaccion.execute(estado -> {
+                estadisticaPeliculaRepository.eliminarRango(inicio, hasta);
+                return estadisticaPeliculaRepository.reconstruirRango(inicio, hasta);
+            });
+            desde = hasta;
+        } while (lote.size() == TAMANO_LOTE);
+        log.info("Estadísticas de reseñas reconstruidas para {} películas", peliculas);
+        return peliculas;
+    }
+
+    /**
+     * Calcula las estadísticas al arrancar si la tabla está vacía (por ejemplo,
+     * en el primer despliegue con reseñas ya existentes). Se ejecuta antes que
+     * los demás inicializadores, que pueden partir de estas estadísticas.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void inicializar() {
+        if (estadisticaPeliculaRepository.count() == 0) {
+            reconstruir();
+        }
+    }
+
+    // Aplica un ajuste que resta a las estadísticas existentes de la película
+    private void ajustar(Long peliculaId, long total, long suma, long[] estrellas) {
+        int filas = estadisticaPeliculaRepository.aplicarAjuste(peliculaId, total, suma,
+                estrellas[0], estrellas[1], estrellas[2], estrellas[3], estrellas[4]);
+        if (filas == 0) {
+            log.warn("La película {} no tiene estadísticas que ajustar; se corregirán en la próxima reconstrucción",
+                    peliculaId);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.ejemplo.resenasPeliculas.service;
+
+import com.ejemplo.resenasPeliculas.model.Pelicula;
+
+/**
+ * Evento publicado por {@link PeliculaService} cuando se crea, actualiza o
+ * elimina una película.
+ * <p>
+ * Se recomienda escucharlo con {@code @TransactionalEventListener} para
+ * procesarlo solo tras el commit.
+ */
+public class EventoPelicula {
+
+    /**
+     * Tipo de cambio realizado sobre la película.
+     */
+    public enum Tipo {
+        CREADA, ACTUALIZADA, ELIMINADA
+    }
+
+    private final Tipo tipo;
+    private final Long peliculaId;
+    private final Pelicula pelicula;
+
+    /**
+     * Constructor con parámetros.
+     *
+     * @param tipo       Tipo de cambio.
+     * @param peliculaId Id de la película.
+     * @param pelicula   Estado de la película tras el cambio, o {@code null} si se
+     *                   ha eliminado.
+     */
+    public EventoPelicula(Tipo tipo, Long peliculaId, Pelicula pelicula) {
+        this.tipo = tipo;
+        this.peliculaId = peliculaId;
+        this.pelicula = pelicula;
+    }
+
+    public Tipo getTipo() {
+        return tipo;
+    }
+
+    public Long getPeliculaId() {
+        return peliculaId;
+    }
+
+    public Pelicula getPelicula() {
+        return pelicula;
+    }
+}
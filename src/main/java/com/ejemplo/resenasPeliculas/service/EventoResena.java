@@ -0,0 +1,86 @@
+package com.ejemplo.resenasPeliculas.service;
+
+/**
+ * Evento publicado por {@link ResenaService} cuando se crea, actualiza o elimina
+ * una reseña.
+ * <p>
+ * Permite a las estructuras en memoria (índices, cachés) mantenerse al día sin
+ * que el servicio de reseñas dependa de ellas. Se recomienda escucharlo con
+ * {@code @TransactionalEventListener} para procesarlo solo tras el commit.
+ */
+public class EventoResena {
+
+    /**
+     * Tipo de cambio realizado sobre la reseña.
+     */
+    public enum Tipo {
+        CREADA, ACTUALIZADA, ELIMINADA
+    }
+
+    private final Tipo tipo;
+    private final Long resenaId;
+    private final Long peliculaId;
+    private final Integer ratingAnterior;
+    private final Integer ratingNuevo;
+    private final String contenidoAnterior;
+    private final String contenidoNuevo;
+    private final long version;
+
+    /**
+     * Constructor con parámetros. Los valores anteriores son {@code null} en una
+     * creación y los nuevos son {@code null} en una eliminación.
+     *
+     * @param tipo              Tipo de cambio.
+     * @param resenaId          Id de la reseña.
+     * @param peliculaId        Id de la película reseñada.
+     * @param ratingAnterior    Calificación antes del cambio.
+     * @param ratingNuevo       Calificación después del cambio.
+     * @param contenidoAnterior Contenido antes del cambio.
+     * @param contenidoNuevo    Contenido después del cambio.
+     * @param version           Versión de la reseña después del cambio (en una
+     *                          eliminación, la de la reseña eliminada).
+     */
+    public EventoResena(Tipo tipo, Long resenaId, Long peliculaId, Integer ratingAnterior, Integer ratingNuevo,
+            String contenidoAnterior, String contenidoNuevo, long version) {
+        this.tipo = tipo;
+        this.resenaId = resenaId;
+        this.peliculaId = peliculaId;
+        this.ratingAnterior = ratingAnterior;
+        this.ratingNuevo = ratingNuevo;
+        this.contenidoAnterior = contenidoAnterior;
+        this.contenidoNuevo = contenidoNuevo;
+        this.version = version;
+    }
+
+    public Tipo getTipo() {
+        return tipo;
+    }
+
+    public Long getResenaId() {
+        return resenaId;
+    }
+
+    public Long getPeliculaId() {
+        return peliculaId;
+    }
+
+    public Integer getRatingAnterior() {
+        return ratingAnterior;
+    }
+
+    public Integer getRatingNuevo() {
+        return ratingNuevo;
+    }
+
+    public String getContenidoAnterior() {
+        return contenidoAnterior;
+    }
+
+    public String getContenidoNuevo() {
+        return contenidoNuevo;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,92 @@
+package com.ejemplo.resenasPeliculas.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Servicio de exportación masiva de reseñas.
+ * <p>
+ * Escribe las reseñas en NDJSON (un objeto JSON por línea) a medida que se leen
+ * de la base de datos, sin crear entidades. La consulta usa su propio
+ * {@link JdbcTemplate} con el fetch size de {@code exportacion.fetch-size}: con
+ * MySQL es {@link Integer#MIN_VALUE}, que hace que Connector/J entregue las
+ * filas una a una según llegan en lugar de cargar el resultado completo. Así no
+ * hace falta {@code useCursorFetch} en la URL, que activaría las sentencias
+ * preparadas en el servidor para toda la aplicación. El resto de bases de datos
+ * (H2 en los perfiles de pruebas) usan un fetch size positivo.
+ * <p>
+ * La salida se vacía cada {@link #FILAS_POR_VACIADO} filas, por lo que el
+ * consumo de memoria no depende del número de reseñas.
+ */
+@Service
+public class ExportacionService {
+
+    /**
+     * Filas escritas entre dos vaciados de la salida.
+     */
+    static final int FILAS_POR_VACIADO = 1000;
+
+    private static final String SELECT_RESENAS = "SELECT id, pelicula_id, usuario_id, rating, contenido "
+            + "FROM resenas ORDER BY id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    public ExportacionService(DataSource dataSource, @Value("${exportacion.fetch-size:1000}") int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+    }
+
+    /**
+     * Exporta todas las reseñas en orden de id. Cada línea contiene id,
+     * peliculaId, usuarioId, rating y contenido.
+     *
+     * @param salida Flujo de salida; no se cierra.
+     * @return Número de reseñas exportadas.
+     * @throws IOException Si falla la escritura (por ejemplo, si el cliente
+     *                     cierra la conexión).
+     */
+    @Transactional(readOnly = true)
+    public long exportarResenas(OutputStream salida) throws IOException {
+        long[] filas = { 0 };
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(salida)) {
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // Las líneas se separan explícitamente con '\n'
+            json.setRootValueSeparator(null);
+
+            jdbcTemplate.query(SELECT_RESENAS, rs -> {
+                try {
+                    json.writeStartObject();
+                    json.writeNumberField("id", rs.getLong(1));
+                    json.writeNumberField("peliculaId", rs.getLong(2));
+                    json.writeNumberField("usuarioId", rs.getLong(3));
+                    json.writeNumberField("rating", rs.getInt(4));
+                    json.writeStringField("contenido", rs.getString(5));
+                    json.writeEndObject();
+                    json.writeRaw('\n');
+                    if (++filas[0] % FILAS_POR_VACIADO == 0) {
+                        json.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            json.flush();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return filas[0];
+    }
+}
@@ -0,0 +1,128 @@
+package com.ejemplo.resenasPeliculas.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Filtro de Bloom de cadenas: indica si una cadena <em>no</em> se ha añadido
+ * nunca, o si <em>puede</em> haberse añadido.
+ * <p>
+ * Cada cadena activa {@code k} bits de un array de {@code m} bits, calculados
+ * por doble hashing a partir de un hash de 64 bits. Una consulta con algún bit
+ * a cero es un negativo seguro; con todos a uno puede ser un falso positivo.
+ * Los tamaños se eligen a partir del número de elementos esperado {@code n} y
+ * la probabilidad de falso positivo deseada {@code p}:
+ * {@code m = -n·ln(p) / ln(2)²} y {@code k = m/n · ln(2)}.
+ * <p>
+ * Es seguro entre hilos sin cerrojos: los bits se activan con
+ * compare-and-set y nunca se desactivan, por lo que no se pueden eliminar
+ * elementos.
+ */
+class FiltroBloom {
+
+    private final AtomicLongArray bits;
+
+    private final long numeroBits;
+
+    private final int numeroHashes;
+
+    private final LongAdder bitsActivos = new LongAdder();
+
+    /**
+     * Constructor con parámetros.
+     *
+     * @param elementosEsperados           Número de elementos previsto.
+     * @param probabilidadFalsosPositivos Probabilidad de falso positivo con ese
+     *                                     número de elementos.
+     */
+    FiltroBloom(long elementosEsperados, double probabilidadFalsosPositivos) {
+        if (elementosEsperados < 1) {
+            throw new IllegalArgumentException("El número de elementos debe ser positivo");
+        }
+        if (probabilidadFalsosPositivos <= 0 || probabilidadFalsosPositivos >= 1) {
+            throw new IllegalArgumentException("La probabilidad de falsos positivos debe estar entre 0 y 1");
+        }
+        long m = (long) Math.ceil(-elementosEsperados * Math.log(probabilidadFalsosPositivos)
+                / (Math.log(2) * Math.log(2)));
+        int palabras = Math.toIntExact((m + 63) / 64);
+        this.bits = new AtomicLongArray(palabras);
+        this.numeroBits = (long) palabras * 64;
+        this.numeroHashes = Math.max(1, (int) Math.round((double) numeroBits / elementosEsperados * Math.log(2)));
+    }
+
+    /**
+     * Añade una cadena al filtro.
+     *
+     * @param valor Cadena a añadir.
+     */
+    void anadir(String valor) {
+        long h1 = hash(valor);
+        long h2 = mezclar(h1) | 1;
+        for (int i = 0; i < numeroHashes; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, numeroBits);
+            int palabra = (int) (bit >>> 6);
+            long mascara = 1L << bit;
+            long actual = bits.get(palabra);
+            while ((actual & mascara) == 0) {
+                if (bits.compareAndSet(palabra, actual, actual | mascara)) {
+                    bitsActivos.increment();
+                    break;
+                }
+                actual = bits.get(palabra);
+            }
+        }
+    }
+
+    /**
+     * Indica si una cadena puede haberse añadido al filtro.
+     *
+     * @param valor Cadena a consultar.
+     * @return {@code false} si seguro que no se ha añadido; {@code true} si
+     *         puede haberse añadido.
+     */
+    boolean puedeContener(String valor) {
+        long h1 = hash(valor);
+        long h2 = mezclar(h1) | 1;
+        for (int i = 0; i < numeroHashes; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, numeroBits);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Probabilidad de falso positivo estimada con la ocupación actual:
+     * {@code (bits activos / m)^k}.
+     */
+    double getProbabilidadFalsosPositivos() {
+        return Math.pow((double) bitsActivos.sum() / numeroBits, numeroHashes);
+    }
+
+    long getNumeroBits() {
+        return numeroBits;
+    }
+
+    int getNumeroHashes() {
+        return numeroHashes;
+    }
+
+    // FNV-1a de 64 bits sobre los caracteres, con una mezcla final para
+    // repartir los bits
+    private static long hash(String valor) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < valor.length(); i++) {
+            h ^= valor.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return mezclar(h);
+    }
+
+    // Función de mezcla final de SplitMix64
+    private static long mezclar(long h) {
+        h = (h ^ (h >>> 30)) * 0xbf58476d1ce4e5b9L;
+        h = (h ^ (h >>> 27)) * 0x94d049bb133111ebL;
+        return h ^ (h >>> 31);
+    }
+}
@@ -0,0 +1,37 @@
+package com.ejemplo.resenasPeliculas.service;
+
+/**
+ * Formatos de fichero admitidos en la importación masiva.
+ */
+public enum FormatoImportacion {
+
+    /**
+     * Un objeto JSON por línea.
+     */
+    NDJSON,
+
+    /**
+     * Valores separados por comas, con una primera línea de cabecera. Los campos
+     * pueden ir entre comillas dobles, pero cada registro ocupa una sola línea.
+     */
+    CSV;
+
+    /**
+     * Obtiene el formato a partir del tipo de contenido de la petición.
+     *
+     * @param contentType Cabecera Content-Type.
+     * @return El formato correspondiente.
+     * @throws IllegalArgumentException Si el tipo de contenido no es admitido.
+     */
+    public static FormatoImportacion desdeContentType(String contentType) {
+        if (contentType != null) {
+            if (contentType.startsWith("text/csv")) {
+                return CSV;
+            }
+            if (contentType.startsWith("application/x-ndjson") || contentType.startsWith("application/json")) {
+                return NDJSON;
+            }
+        }
+        throw new IllegalArgumentException("Formato no admitido: use text/csv o application/x-ndjson");
+    }
+}
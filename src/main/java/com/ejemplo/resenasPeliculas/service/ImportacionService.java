@@ -0,0 +1,378 @@
+package com.ejemplo.resenasPeliculas.service;
+
+import com.ejemplo.resenasPeliculas.dto.ResultadoImportacionDto;
+import com.ejemplo.resenasPeliculas.model.Pelicula;
+import com.ejemplo.resenasPeliculas.model.Resena;
+import com.ejemplo.resenasPeliculas.repository.VersionResenasPeliculaRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Servicio de importación masiva de películas y reseñas.
+ * <p>
+ * Lee el fichero línea a línea (NDJSON o CSV), valida cada fila con las mismas
+ * restricciones que las entidades y la inserta en lotes JDBC de tamaño
+ * configurable. Solo se mantiene en memoria un lote, por lo que el consumo no
+ * depende del tamaño del fichero.
+ * <p>
+ * Las inserciones usan JDBC directamente: con ids {@code IDENTITY} Hibernate no
+ * puede agrupar inserciones, mientras que el driver de MySQL, con
+ * {@code rewriteBatchedStatements=true}, convierte cada lote en un único
+ * {@code INSERT} de varias filas.
+ * <p>
+ * Las estructuras derivadas se actualizan con cada lote, igual que con las
+ * altas individuales: las estadísticas y la versión de las reseñas de cada
+ * película afectada en la misma transacción que el INSERT, y los índices en
+ * memoria y la caché de respuestas con los eventos, tras el commit.
+ */
+@Service
+public class ImportacionService {
+
+    private static final Logger log = LoggerFactory.getLogger(ImportacionService.class);
+
+    // Mensaje de una fila que la base de datos rechaza: el de la excepción
+    // incluye la sentencia SQL, así que solo se registra en el log
+    static final String MENSAJE_FILA_RECHAZADA = "La base de datos ha rechazado la fila "
+            + "(por ejemplo, porque la película no existe)";
+
+    private static final String INSERT_PELICULA = "INSERT INTO peliculas "
+            + "(titulo, director, genero, anio_estreno, sinopsis, imagen_url) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_RESENA = "INSERT INTO resenas "
+            + "(contenido, rating, pelicula_id, usuario_id) VALUES (?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EstadisticaPeliculaService estadisticaPeliculaService;
+
+    @Autowired
+    private VersionResenasPeliculaRepository versionResenasPeliculaRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${importacion.tamano-lote:500}")
+    private int tamanoLote;
+
+    @Value("${importacion.max-errores:1000}")
+    private int maxErrores;
+
+    /**
+     * Importa películas. Campos: titulo, director, genero, anioEstreno, sinopsis
+     * e imagenUrl.
+     *
+     * @param entrada Contenido del fichero.
+     * @param formato Formato del fichero.
+     * @return Resumen de la importación.
+     * @throws IOException Si falla la lectura de la entrada.
+     */
+    public ResultadoImportacionDto importarPeliculas(InputStream entrada, FormatoImportacion formato)
+            throws IOException {
+        return importar(entrada, formato, INSERT_PELICULA, campos -> {
+            Pelicula pelicula = new Pelicula(campos.get("titulo"), campos.get("director"), campos.get("genero"),
+                    entero(campos.get("anioEstreno")), campos.get("sinopsis"), campos.get("imagenUrl"));
+            if (pelicula.getImagenUrl() == null || pelicula.getImagenUrl().isEmpty()) {
+                pelicula.setImagenUrl(Pelicula.IMAGEN_POR_DEFECTO);
+            }
+            validar(pelicula);
+            return new Object[] { pelicula.getTitulo(), pelicula.getDirector(), pelicula.getGenero(),
+                    pelicula.getAnioEstreno(), pelicula.getSinopsis(), pelicula.getImagenUrl() };
+        }, (filas, ids) -> {
+            for (int i = 0; i < filas.size(); i++) {
+                Object[] fila = filas.get(i);
+                Pelicula pelicula = new Pelicula((String) fila[0], (String) fila[1], (String) fila[2],
+                        (Integer) fila[3], (String) fila[4], (String) fila[5]);
+                pelicula.setId(ids.get(i));
+                eventPublisher.publishEvent(new EventoPelicula(EventoPelicula.Tipo.CREADA, pelicula.getId(),
+                        pelicula));
+            }
+        });
+    }
+
+    /**
+     * Importa reseñas. Campos: peliculaId, rating y contenido.
+     * <p>
+     * Todas las reseñas se asignan al usuario que importa: un campo usuarioId
+     * en el fichero se ignora, para que nadie pueda publicar reseñas en nombre
+     * de otro.
+     *
+     * @param entrada   Contenido del fichero.
+     * @param formato   Formato del fichero.
+     * @param usuarioId Id del usuario autenticado, autor de las reseñas.
+     * @return Resumen de la importación.
+     * @throws IOException Si falla la lectura de la entrada.
+     */
+    public ResultadoImportacionDto importarResenas(InputStream entrada, FormatoImportacion formato,
+            Long usuarioId) throws IOException {
+        return importar(entrada, formato, INSERT_RESENA, campos -> {
+            Long peliculaId = largo(campos.get("peliculaId"));
+            if (peliculaId == null) {
+                throw new IllegalArgumentException("peliculaId es obligatorio");
+            }
+            Resena resena = new Resena(campos.get("contenido"), entero(campos.get("rating")), null, null);
+            validar(resena);
+            return new Object[] { resena.getContenido(), resena.getRating(), peliculaId, usuarioId };
+        }, (filas, ids) -> {
+            // Como en las altas individuales, pero con una actualización de las
+            // estadísticas y de la versión por película
+            Map<Long, List<Integer>> ratingsPorPelicula = new LinkedHashMap<>();
+            for (int i = 0; i < filas.size(); i++) {
+                Object[] fila = filas.get(i);
+                Integer rating = (Integer) fila[1];
+                Long peliculaId = (Long) fila[2];
+                ratingsPorPelicula.computeIfAbsent(peliculaId, p -> new ArrayList<>()).add(rating);
+                eventPublisher.publishEvent(new EventoResena(EventoResena.Tipo.CREADA, ids.get(i), peliculaId,
+                        null, rating, null, (String) fila[0], 0));
+            }
+            ratingsPorPelicula.forEach((peliculaId, ratings) -> {
+                estadisticaPeliculaService.registrarAltas(peliculaId, ratings);
+                versionResenasPeliculaRepository.incrementar(peliculaId);
+            });
+        });
+    }
+
+    /**
+     * Convierte los campos de una fila en los parámetros del INSERT.
+     */
+    @FunctionalInterface
+    private interface ConversorFila {
+        Object[] convertir(Map<String, String> campos);
+    }
+
+    /**
+     * Actualiza las estructuras derivadas con las filas insertadas, dentro de la
+     * transacción del INSERT.
+     */
+    @FunctionalInterface
+    private interface AccionInsertadas {
+        void aplicar(List<Object[]> filas, List<Long> ids);
+    }
+
+    // Lee, valida e inserta por lotes las filas de la entrada
+    private ResultadoImportacionDto importar(InputStream entrada, FormatoImportacion formato, String insert,
+            ConversorFila conversor, AccionInsertadas accion) throws IOException {
+        long inicio = System.currentTimeMillis();
+        ResultadoImportacionDto resultado = new ResultadoImportacionDto(maxErrores);
+        List<Object[]> lote = new ArrayList<>(tamanoLote);
+        List<Long> lineasLote = new ArrayList<>(tamanoLote);
+
+        BufferedReader lector = new BufferedReader(new InputStreamReader(entrada, StandardCharsets.UTF_8));
+        List<String> cabecera = null;
+        long numeroLinea = 0;
+        String linea;
+        while ((linea = lector.readLine()) != null) {
+            numeroLinea++;
+            if (linea.isBlank()) {
+                continue;
+            }
+            if (formato == FormatoImportacion.CSV && cabecera == null) {
+                cabecera = partirCsv(linea);
+                continue;
+            }
+            resultado.filaLeida();
+            try {
+                Map<String, String> campos = formato == FormatoImportacion.CSV
+                        ? camposCsv(cabecera, linea)
+                        : camposJson(linea);
+                lote.add(conversor.convertir(campos));
+                lineasLote.add(numeroLinea);
+            } catch (Exception e) {
+                resultado.filaRechazada(numeroLinea, e.getMessage());
+            }
+            if (lote.size() == tamanoLote) {
+                insertarLote(insert, lote, lineasLote, accion, resultado);
+            }
+        }
+        insertarLote(insert, lote, lineasLote, accion, resultado);
+
+        // Las inserciones no pasan por Hibernate: se descartan las consultas cacheadas
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictQueryRegions();
+        resultado.setDuracionMs(System.currentTimeMillis() - inicio);
+        return resultado;
+    }
+
+    // Inserta un lote en una transacción; si falla, se deshace entero y se
+    // reintenta fila a fila para identificar las erróneas
+    private void insertarLote(String insert, List<Object[]> lote, List<Long> lineasLote, AccionInsertadas accion,
+            ResultadoImportacionDto resultado) {
+        if (lote.isEmpty()) {
+            return;
+        }
+        try {
+            insertar(insert, lote, accion);
+            resultado.filasInsertadas(lote.size());
+        } catch (DataAccessException e) {
+            log.debug("Error al insertar un lote de {} filas; se reintentan una a una", lote.size(), e);
+            for (int i = 0; i < lote.size(); i++) {
+                try {
+                    insertar(insert, List.<Object[]>of(lote.get(i)), accion);
+                    resultado.filasInsertadas(1);
+                } catch (DataAccessException errorFila) {
+                    log.warn("Fila {} rechazada en la importación: {}", lineasLote.get(i),
+                            errorFila.getMostSpecificCause().getMessage());
+                    resultado.filaRechazada(lineasLote.get(i), MENSAJE_FILA_RECHAZADA);
+                }
+            }
+        }
+        lote.clear();
+        lineasLote.clear();
+    }
+
+    // Inserta las filas y aplica la acción con sus ids en la misma transacción
+    private void insertar(String insert, List<Object[]> filas, AccionInsertadas accion) {
+        GeneratedKeyHolder claves = new GeneratedKeyHolder();
+        new TransactionTemplate(transactionManager).executeWithoutResult(estado -> {
+            jdbcTemplate.batchUpdate(con -> con.prepareStatement(insert, new String[] { "id" }),
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            new ArgumentPreparedStatementSetter(filas.get(i)).setValues(ps);
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return filas.size();
+                        }
+                    }, claves);
+            List<Long> ids = new ArrayList<>(filas.size());
+            for (Map<String, Object> clave : claves.getKeyList()) {
+                ids.add(((Number) clave.values().iterator().next()).longValue());
+            }
+            accion.aplicar(filas, ids);
+        });
+    }
+
+    // Comprueba las restricciones de validación de la entidad
+    private void validar(Object entidad) {
+        Set<ConstraintViolation<Object>> violaciones = validator.validate(entidad);
+        if (!violaciones.isEmpty()) {
+            throw new IllegalArgumentException(violaciones.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining("; ")));
+        }
+    }
+
+    private Map<String, String> camposJson(String linea) throws IOException {
+        JsonNode nodo = objectMapper.readTree(linea);
+        if (nodo == null || !nodo.isObject()) {
+            throw new IllegalArgumentException("La línea no es un objeto JSON");
+        }
+        Map<String, String> campos = new HashMap<>();
+        Iterator<Map.Entry<String, JsonNode>> it = nodo.fields();
+        while (it.hasNext()) {
+            Map.Entry<String, JsonNode> campo = it.next();
+            campos.put(campo.getKey(), campo.getValue().isNull() ? null : campo.getValue().asText());
+        }
+        return campos;
+    }
+
+    private Map<String, String> camposCsv(List<String> cabecera, String linea) {
+        List<String> valores = partirCsv(linea);
+        if (valores.size() != cabecera.size()) {
+            throw new IllegalArgumentException("Se esperaban " + cabecera.size() + " columnas y hay "
+                    + valores.size());
+        }
+        Map<String, String> campos = new HashMap<>();
+        for (int i = 0; i < cabecera.size(); i++) {
+            String valor = valores.get(i);
+            campos.put(cabecera.get(i), valor.isEmpty() ? null : valor);
+        }
+        return campos;
+    }
+
+    // Divide una línea CSV respetando las comillas dobles ("" es una comilla literal)
+    static List<String> partirCsv(String linea) {
+        List<String> valores = new ArrayList<>();
+        StringBuilder actual = new StringBuilder();
+        boolean entreComillas = false;
+        for (int i = 0; i < linea.length(); i++) {
+            char c = linea.charAt(i);
+            if (entreComillas) {
+                if (c == '"' && i + 1 < linea.length() && linea.charAt(i + 1) == '"') {
+                    actual.append('"');
+                    i++;
+                } else if (c == '"') {
+                    entreComillas = false;
+                } else {
+                    actual.append(c);
+                }
+            } else if (c == '"') {
+                entreComillas = true;
+            } else if (c == ',') {
+                valores.add(actual.toString().trim());
+                actual.setLength(0);
+            } else {
+                actual.append(c);
+            }
+        }
+        if (entreComillas) {
+            throw new IllegalArgumentException("Comillas sin cerrar");
+        }
+        valores.add(actual.toString().trim());
+        return valores;
+    }
+
+    private static Integer entero(String valor) {
+        try {
+            return valor == null ? null : Integer.valueOf(valor.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Número no válido: " + valor);
+        }
+    }
+
+    private static Long largo(String valor) {
+        try {
+            return valor == null ? null : Long.valueOf(valor.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Número no válido: " + valor);
+        }
+    }
+}
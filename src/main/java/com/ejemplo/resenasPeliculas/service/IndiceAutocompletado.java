@@ -0,0 +1,558 @@
+package com.ejemplo.resenasPeliculas.service;
+
+import com.ejemplo.resenasPeliculas.dto.SugerenciaPeliculaDto;
+import com.ejemplo.resenasPeliculas.model.Pelicula;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Índice en memoria de títulos de películas para autocompletar por prefijo.
+ * <p>
+ * Los títulos normalizados se guardan ordenados en un único array de
+ * caracteres, con la posición en la que empieza cada uno; el resto de datos de
+ * cada película (id, título original y número de reseñas) está en arrays
+ * paralelos. Los títulos con un prefijo ocupan un intervalo contiguo, que se
+ * localiza con dos búsquedas binarias. Un árbol de segmentos sobre el número
+ * de reseñas da la película con más reseñas de cualquier intervalo en
+ * O(log n), de modo que las {@code k} primeras se obtienen en O(k log n) sin
+ * recorrer el intervalo, aunque el prefijo sea de una sola letra.
+ * <p>
+ * Un cambio en el número de reseñas actualiza el árbol en O(log n). Crear,
+ * renombrar o eliminar una película obliga a rehacer los arrays y el árbol, en
+ * O(n) (unos milisegundos con un millón de títulos). Para que ese coste no
+ * bloquee las consultas, los cambios se encolan y se aplican por lotes: la
+ * modificación que consigue el turno aplica todos los pendientes a la vez sobre
+ * arrays nuevos, mientras las consultas siguen leyendo los anteriores, y solo
+ * el intercambio final excluye a las consultas. Cambiar un título sin que
+ * cambie su forma normalizada no rehace nada.
+ * <p>
+ * Es seguro entre hilos: las consultas comparten un cerrojo de lectura, y las
+ * modificaciones se ejecutan de una en una y solo toman el cerrojo exclusivo
+ * para cambiar los datos que leen las consultas.
+ */
+class IndiceAutocompletado {
+
+    private static final Pattern ESPACIOS = Pattern.compile("\\s+");
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Serializa las modificaciones. Quien lo tiene puede leer {@link #datos} sin
+     * el cerrojo de lectura, porque nadie más los cambia.
+     */
+    private final ReentrantLock escritura = new ReentrantLock();
+
+    /**
+     * Altas, cambios y bajas de películas pendientes, en orden de llegada.
+     */
+    private final Queue<Cambio> pendientes = new ConcurrentLinkedQueue<>();
+
+    private Datos datos = new Datos(0, new char[0], new int[1], new String[0], new long[0], new long[0]);
+
+    // Alta o cambio de una película, o baja si no hay película
+    private record Cambio(long peliculaId, Pelicula pelicula) {
+    }
+
+    // Película que se añade en un lote
+    private record Entrada(String clave, String titulo, long id, long resenas) {
+    }
+
+    // Intervalo de posiciones pendiente de explorar y su mejor posición
+    private record Intervalo(int desde, int hasta, int mejor) {
+    }
+
+    /**
+     * Contenido del índice. Solo cambian los números de reseñas, el árbol y los
+     * títulos que conservan su forma normalizada; el resto se sustituye entero.
+     */
+    private static final class Datos {
+
+        private final int total;
+
+        /**
+         * Títulos normalizados, concatenados en orden.
+         */
+        private final char[] claves;
+
+        /**
+         * Posición en {@link #claves} del título {@code i}; la de {@code total}
+         * es el final del último.
+         */
+        private final int[] inicios;
+
+        private final String[] titulos;
+
+        private final long[] ids;
+
+        private final long[] resenas;
+
+        /**
+         * Árbol de segmentos: el nodo {@code i} guarda la posición con más
+         * reseñas de sus hojas, que son los nodos {@code total .. 2·total-1}.
+         */
+        private final int[] arbol;
+
+        /**
+         * Ids ordenados y su posición en los arrays anteriores, para localizar
+         * una película por id.
+         */
+        private long[] idsOrdenados;
+
+        private int[] posiciones;
+
+        private Datos(int total, char[] claves, int[] inicios, String[] titulos, long[] ids, long[] resenas) {
+            this.total = total;
+            this.claves = claves;
+            this.inicios = inicios;
+            this.titulos = titulos;
+            this.ids = ids;
+            this.resenas = resenas;
+            this.arbol = new int[2 * total];
+            for (int i = 0; i < total; i++) {
+                arbol[total + i] = i;
+            }
+            for (int nodo = total - 1; nodo >= 1; nodo--) {
+                arbol[nodo] = mejor(arbol[2 * nodo], arbol[2 * nodo + 1]);
+            }
+            this.idsOrdenados = new long[0];
+            this.posiciones = new int[0];
+        }
+
+        private void ordenarIds() {
+            idsOrdenados = ids.clone();
+            Arrays.sort(idsOrdenados);
+            posiciones = new int[total];
+            // Los ids son únicos: basta buscar cada uno en el array ordenado
+            for (int i = 0; i < total; i++) {
+                posiciones[Arrays.binarySearch(idsOrdenados, ids[i])] = i;
+            }
+        }
+
+        private int buscarId(long id) {
+            int indice = Arrays.binarySearch(idsOrdenados, id);
+            return indice >= 0 ? posiciones[indice] : -1;
+        }
+
+        private void aplicarResenas(int posicion, long delta) {
+            resenas[posicion] = Math.max(0, resenas[posicion] + delta);
+            for (int nodo = (posicion + total) >> 1; nodo >= 1; nodo >>= 1) {
+                arbol[nodo] = mejor(arbol[2 * nodo], arbol[2 * nodo + 1]);
+            }
+        }
+
+        // Posición con más reseñas; a igualdad, la primera (orden alfabético)
+        private int mejor(int a, int b) {
+            if (a < 0) {
+                return b;
+            }
+            if (b < 0) {
+                return a;
+            }
+            if (resenas[a] != resenas[b]) {
+                return resenas[a] > resenas[b] ? a : b;
+            }
+            return Math.min(a, b);
+        }
+
+        // Mejor posición del intervalo [desde, hasta)
+        private int consultar(int desde, int hasta) {
+            int resultado = -1;
+            for (int izquierda = desde + total, derecha = hasta + total; izquierda < derecha;
+                    izquierda >>= 1, derecha >>= 1) {
+                if ((izquierda & 1) == 1) {
+                    resultado = mejor(resultado, arbol[izquierda++]);
+                }
+                if ((derecha & 1) == 1) {
+                    resultado = mejor(resultado, arbol[--derecha]);
+                }
+            }
+            return resultado;
+        }
+
+        // Primera posición cuyo título es mayor o igual que el prefijo o, con
+        // despues, la primera que ya no empieza por él
+        private int limiteInferior(String prefijo, boolean despues) {
+            int bajo = 0;
+            int alto = total;
+            while (bajo < alto) {
+                int medio = (bajo + alto) >>> 1;
+                int comparacion = compararPrefijo(medio, prefijo);
+                if (comparacion < 0 || (despues && comparacion == 0)) {
+                    bajo = medio + 1;
+                } else {
+                    alto = medio;
+                }
+            }
+            return bajo;
+        }
+
+        // Compara el título de una posición con un prefijo: 0 si empieza por él
+        private int compararPrefijo(int posicion, String prefijo) {
+            int inicio = inicios[posicion];
+            int longitud = inicios[posicion + 1] - inicio;
+            int comunes = Math.min(longitud, prefijo.length());
+            for (int i = 0; i < comunes; i++) {
+                int diferencia = claves[inicio + i] - prefijo.charAt(i);
+                if (diferencia != 0) {
+                    return diferencia;
+                }
+            }
+            return longitud >= prefijo.length() ? 0 : -1;
+        }
+
+        // Compara el título completo de una posición con una clave
+        private int compararClave(int posicion, String clave) {
+            int comparacion = compararPrefijo(posicion, clave);
+            if (comparacion != 0) {
+                return comparacion;
+            }
+            return longitud(posicion) - clave.length();
+        }
+
+        private int longitud(int posicion) {
+            return inicios[posicion + 1] - inicios[posicion];
+        }
+    }
+
+    /**
+     * Sustituye el contenido del índice.
+     *
+     * @param peliculas          Todas las películas.
+     * @param resenasPorPelicula Número de reseñas por id de película; las que
+     *                           no aparecen no tienen reseñas.
+     */
+    void cargar(Collection<Pelicula> peliculas, Map<Long, Long> resenasPorPelicula) {
+        int n = peliculas.size();
+        String[] clavesPorPelicula = new String[n];
+        Pelicula[] ordenadas = new Pelicula[n];
+        Integer[] orden = new Integer[n];
+        int i = 0;
+        for (Pelicula pelicula : peliculas) {
+            ordenadas[i] = pelicula;
+            clavesPorPelicula[i] = clave(pelicula.getTitulo());
+            orden[i] = i;
+            i++;
+        }
+        Arrays.sort(orden, Comparator.comparing((Integer p) -> clavesPorPelicula[p])
+                .thenComparingLong(p -> ordenadas[p].getId()));
+
+        int longitud = 0;
+        for (String clave : clavesPorPelicula) {
+            longitud += clave.length();
+        }
+        char[] claves = new char[longitud];
+        int[] inicios = new int[n + 1];
+        String[] titulos = new String[n];
+        long[] ids = new long[n];
+        long[] resenas = new long[n];
+        int posicion = 0;
+        for (int j = 0; j < n; j++) {
+            int p = orden[j];
+            String clave = clavesPorPelicula[p];
+            clave.getChars(0, clave.length(), claves, posicion);
+            inicios[j] = posicion;
+            posicion += clave.length();
+            titulos[j] = ordenadas[p].getTitulo();
+            ids[j] = ordenadas[p].getId();
+            resenas[j] = resenasPorPelicula.getOrDefault(ids[j], 0L);
+        }
+        inicios[n] = posicion;
+        Datos nuevos = new Datos(n, claves, inicios, titulos, ids, resenas);
+        nuevos.ordenarIds();
+
+        escritura.lock();
+        try {
+            sustituir(nuevos);
+        } finally {
+            escritura.unlock();
+        }
+    }
+
+    /**
+     * Añade una película o actualiza su título.
+     *
+     * @param pelicula Película creada o modificada.
+     */
+    void ponerPelicula(Pelicula pelicula) {
+        pendientes.add(new Cambio(pelicula.getId(), pelicula));
+        escritura.lock();
+        try {
+            aplicarPendientes();
+        } finally {
+            escritura.unlock();
+        }
+    }
+
+    /**
+     * Elimina una película del índice.
+     *
+     * @param peliculaId Id de la película.
+     */
+    void quitarPelicula(Long peliculaId) {
+        pendientes.add(new Cambio(peliculaId, null));
+        escritura.lock();
+        try {
+            aplicarPendientes();
+        } finally {
+            escritura.unlock();
+        }
+    }
+
+    /**
+     * Suma o resta reseñas a una película.
+     *
+     * @param peliculaId Id de la película.
+     * @param delta      Reseñas añadidas (positivo) o eliminadas (negativo).
+     */
+    void aplicarResenas(Long peliculaId, long delta) {
+        escritura.lock();
+        try {
+            // La película puede estar todavía en la cola
+            aplicarPendientes();
+            int posicion = datos.buscarId(peliculaId);
+            if (posicion < 0) {
+                return;
+            }
+            lock.writeLock().lock();
+            try {
+                datos.aplicarResenas(posicion, delta);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            escritura.unlock();
+        }
+    }
+
+    /**
+     * Obtiene las películas con más reseñas cuyo título normalizado empieza por
+     * un prefijo.
+     *
+     * @param prefijo Prefijo ya normalizado.
+     * @param limite  Número máximo de películas.
+     * @return Películas de más a menos reseñas; a igualdad, por orden
+     *         alfabético.
+     */
+    List<SugerenciaPeliculaDto> sugerencias(String prefijo, int limite) {
+        lock.readLock().lock();
+        try {
+            Datos d = datos;
+            int desde = d.limiteInferior(prefijo, false);
+            int hasta = d.limiteInferior(prefijo, true);
+            List<SugerenciaPeliculaDto> resultado = new ArrayList<>(Math.min(limite, hasta - desde));
+            if (desde >= hasta) {
+                return resultado;
+            }
+            PriorityQueue<Intervalo> intervalos = new PriorityQueue<>(
+                    (a, b) -> a.mejor == b.mejor ? 0 : d.mejor(a.mejor, b.mejor) == a.mejor ? -1 : 1);
+            intervalos.add(new Intervalo(desde, hasta, d.consultar(desde, hasta)));
+            while (resultado.size() < limite && !intervalos.isEmpty()) {
+                Intervalo intervalo = intervalos.poll();
+                int p = intervalo.mejor;
+                resultado.add(new SugerenciaPeliculaDto(d.ids[p], d.titulos[p], d.resenas[p]));
+                if (intervalo.desde < p) {
+                    intervalos.add(new Intervalo(intervalo.desde, p, d.consultar(intervalo.desde, p)));
+                }
+                if (p + 1 < intervalo.hasta) {
+                    intervalos.add(new Intervalo(p + 1, intervalo.hasta, d.consultar(p + 1, intervalo.hasta)));
+                }
+            }
+            return resultado;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Normaliza un título: minúsculas, sin tildes y sin espacios repetidos ni en
+     * los extremos.
+     */
+    static String clave(String titulo) {
+        return ESPACIOS.matcher(AnalizadorTexto.normalizar(titulo).strip()).replaceAll(" ");
+    }
+
+    /**
+     * Normaliza un prefijo como los títulos, pero conservando un espacio final:
+     * "el " no debe coincidir con "elegido".
+     */
+    static String prefijo(String texto) {
+        return ESPACIOS.matcher(AnalizadorTexto.normalizar(texto).stripLeading()).replaceAll(" ");
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return datos.total;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void sustituir(Datos nuevos) {
+        lock.writeLock().lock();
+        try {
+            datos = nuevos;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Aplica de una vez todos los cambios encolados. Se llama con escritura
+    // tomado
+    private void aplicarPendientes() {
+        if (pendientes.isEmpty()) {
+            return;
+        }
+        Datos d = datos;
+        // Películas actuales que desaparecen (o cambian de posición), títulos que
+        // cambian sin moverse y películas que se insertan
+        Set<Long> quitadas = new HashSet<>();
+        Map<Integer, String> retitulados = new HashMap<>();
+        Map<Long, Entrada> anadidas = new LinkedHashMap<>();
+        Cambio cambio;
+        while ((cambio = pendientes.poll()) != null) {
+            long id = cambio.peliculaId();
+            Entrada anterior = anadidas.remove(id);
+            int posicion = quitadas.contains(id) ? -1 : d.buscarId(id);
+            if (posicion >= 0) {
+                retitulados.remove(posicion);
+            }
+            if (cambio.pelicula() == null) {
+                if (posicion >= 0) {
+                    quitadas.add(id);
+                }
+                continue;
+            }
+            String titulo = cambio.pelicula().getTitulo();
+            String clave = clave(titulo);
+            if (posicion >= 0 && d.compararClave(posicion, clave) == 0) {
+                // Mismo título normalizado: el orden no cambia
+                retitulados.put(posicion, titulo);
+                continue;
+            }
+            long numeroResenas = anterior != null ? anterior.resenas() : posicion >= 0 ? d.resenas[posicion] : 0;
+            if (posicion >= 0) {
+                quitadas.add(id);
+            }
+            anadidas.put(id, new Entrada(clave, titulo, id, numeroResenas));
+        }
+
+        if (quitadas.isEmpty() && anadidas.isEmpty()) {
+            lock.writeLock().lock();
+            try {
+                retitulados.forEach((posicion, titulo) -> d.titulos[posicion] = titulo);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return;
+        }
+        sustituir(fusionar(d, quitadas, retitulados, anadidas.values()));
+    }
+
+    // Construye los datos que resultan de quitar y añadir películas, con un solo
+    // recorrido de los actuales
+    private static Datos fusionar(Datos d, Set<Long> quitadas, Map<Integer, String> retitulados,
+            Collection<Entrada> nuevas) {
+        List<Entrada> anadidas = new ArrayList<>(nuevas);
+        anadidas.sort(Comparator.comparing(Entrada::clave).thenComparingLong(Entrada::id));
+        BitSet eliminadas = new BitSet(d.total);
+        int longitud = d.claves.length;
+        for (long id : quitadas) {
+            int posicion = d.buscarId(id);
+            eliminadas.set(posicion);
+            longitud -= d.longitud(posicion);
+        }
+        for (Entrada entrada : anadidas) {
+            longitud += entrada.clave().length();
+        }
+
+        int total = d.total - quitadas.size() + anadidas.size();
+        char[] claves = new char[longitud];
+        int[] inicios = new int[total + 1];
+        String[] titulos = new String[total];
+        long[] ids = new long[total];
+        long[] resenas = new long[total];
+        // Nueva posición de cada posición actual (-1 si se elimina) y de cada
+        // película añadida
+        int[] nuevaPosicion = new int[d.total];
+        int[] posicionAnadida = new int[anadidas.size()];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        int caracteres = 0;
+        while (i < d.total || j < anadidas.size()) {
+            if (i < d.total && eliminadas.get(i)) {
+                nuevaPosicion[i++] = -1;
+                continue;
+            }
+            boolean actual = j == anadidas.size();
+            if (!actual && i < d.total) {
+                int comparacion = d.compararClave(i, anadidas.get(j).clave());
+                actual = comparacion < 0 || (comparacion == 0 && d.ids[i] < anadidas.get(j).id());
+            }
+            inicios[k] = caracteres;
+            if (actual) {
+                int longitudClave = d.longitud(i);
+                System.arraycopy(d.claves, d.inicios[i], claves, caracteres, longitudClave);
+                caracteres += longitudClave;
+                titulos[k] = retitulados.getOrDefault(i, d.titulos[i]);
+                ids[k] = d.ids[i];
+                resenas[k] = d.resenas[i];
+                nuevaPosicion[i++] = k++;
+            } else {
+                Entrada entrada = anadidas.get(j);
+                entrada.clave().getChars(0, entrada.clave().length(), claves, caracteres);
+                caracteres += entrada.clave().length();
+                titulos[k] = entrada.titulo();
+                ids[k] = entrada.id();
+                resenas[k] = entrada.resenas();
+                posicionAnadida[j++] = k++;
+            }
+        }
+        inicios[total] = caracteres;
+        Datos nuevos = new Datos(total, claves, inicios, titulos, ids, resenas);
+
+        // Ids ordenados: los que siguen, ya en orden, intercalados con los añadidos
+        Integer[] porId = new Integer[anadidas.size()];
+        for (int a = 0; a < porId.length; a++) {
+            porId[a] = a;
+        }
+        Arrays.sort(porId, Comparator.comparingLong(a -> anadidas.get(a).id()));
+        nuevos.idsOrdenados = new long[total];
+        nuevos.posiciones = new int[total];
+        int m = 0;
+        int a = 0;
+        k = 0;
+        while (m < d.total || a < porId.length) {
+            if (m < d.total && nuevaPosicion[d.posiciones[m]] < 0) {
+                m++;
+                continue;
+            }
+            if (a == porId.length || (m < d.total && d.idsOrdenados[m] < anadidas.get(porId[a]).id())) {
+                nuevos.idsOrdenados[k] = d.idsOrdenados[m];
+                nuevos.posiciones[k++] = nuevaPosicion[d.posiciones[m++]];
+            } else {
+                nuevos.idsOrdenados[k] = anadidas.get(porId[a]).id();
+                nuevos.posiciones[k++] = posicionAnadida[porId[a++]];
+            }
+        }
+        return nuevos;
+    }
+}
@@ -0,0 +1,409 @@
+package com.ejemplo.resenasPeliculas.service;
+
+import com.ejemplo.resenasPeliculas.dto.ResultadoBusquedaDto;
+import com.ejemplo.resenasPeliculas.model.Pelicula;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice invertido en memoria de películas con ranking BM25.
+ * <p>
+ * Cada película es un documento formado por su título, director, género y
+ * sinopsis más el texto de todas sus reseñas. La frecuencia de cada término se
+ * pondera según el campo en el que aparece, de forma que una coincidencia en el
+ * título pesa más que una en una reseña. Las reseñas no se guardan una a una:
+ * solo se acumula su aportación a la película, y para retirarla hay que volver
+ * a pasar el texto que se añadió.
+ * <p>
+ * Las frecuencias de cada término se guardan en un array que apunta
+ * directamente a los documentos, y los {@code k} mejores se eligen con un
+ * montículo de tamaño {@code k}. Con varios términos, las puntuaciones se
+ * acumulan en un array indexado por un número denso de cada documento cuando
+ * los términos aparecen en buena parte de ellos.
+ * <p>
+ * Es seguro entre hilos: las búsquedas comparten un cerrojo de lectura y las
+ * modificaciones toman el de escritura.
+ */
+class IndiceBusqueda {
+
+    // Pesos de cada campo en la frecuencia de los términos
+    static final float PESO_TITULO = 3.0f;
+    static final float PESO_DIRECTOR = 2.0f;
+    static final float PESO_GENERO = 2.0f;
+    static final float PESO_SINOPSIS = 1.0f;
+    static final float PESO_RESENA = 0.5f;
+
+    // Parámetros de BM25
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    // Por debajo de este valor una frecuencia se considera cero (errores de redondeo)
+    private static final float EPSILON = 1e-4f;
+
+    /**
+     * Término → frecuencias ponderadas del término en cada documento.
+     */
+    private final Map<String, Postings> postings = new HashMap<>();
+
+    private final Map<Long, Documento> documentos = new HashMap<>();
+
+    /**
+     * Documentos por número. Cada documento tiene un número denso, que se
+     * reutiliza al quitarlo, para acumular puntuaciones en un array.
+     */
+    private Documento[] porNumero = new Documento[16];
+
+    // Números asignados alguna vez y números libres para reutilizar
+    private int numeros;
+    private final Deque<Integer> numerosLibres = new ArrayDeque<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Número de películas indexadas (con datos de película).
+     */
+    private int totalPeliculas;
+
+    /**
+     * Suma de las longitudes de las películas indexadas.
+     */
+    private double longitudTotal;
+
+    // Documento de una película
+    private static final class Documento {
+
+        private final int numero;
+
+        private ResultadoBusquedaDto resumen;
+
+        /**
+         * Aportación de los campos de la película, para poder retirarla al
+         * actualizarla.
+         */
+        private Map<String, Float> terminosPelicula = Collections.emptyMap();
+
+        /**
+         * Todos los términos del documento (película y reseñas) con su frecuencia.
+         */
+        private final Map<String, Frecuencia> terminos = new HashMap<>();
+
+        private float longitud;
+
+        private Documento(int numero) {
+            this.numero = numero;
+        }
+    }
+
+    // Frecuencia ponderada de un término en un documento. Es el mismo objeto en
+    // las postings y en el documento, y apunta a este para que las búsquedas no
+    // tengan que buscarlo por id
+    private static final class Frecuencia {
+
+        private final Documento documento;
+
+        private float valor;
+
+        // Posición en las postings del término
+        private int posicion;
+
+        private Frecuencia(Documento documento) {
+            this.documento = documento;
+        }
+    }
+
+    // Frecuencias de un término en los documentos en los que aparece, en un
+    // array sin orden que se recorre sin saltos intermedios. Quitar una mueve la
+    // última a su posición
+    private static final class Postings {
+
+        private Frecuencia[] frecuencias = new Frecuencia[4];
+
+        private int tamano;
+
+        private void anadir(Frecuencia tf) {
+            if (tamano == frecuencias.length) {
+                frecuencias = Arrays.copyOf(frecuencias, tamano * 2);
+            }
+            tf.posicion = tamano;
+            frecuencias[tamano++] = tf;
+        }
+
+        private void quitar(Frecuencia tf) {
+            Frecuencia ultima = frecuencias[--tamano];
+            frecuencias[tf.posicion] = ultima;
+            ultima.posicion = tf.posicion;
+            frecuencias[tamano] = null;
+        }
+    }
+
+    // Película candidata con su puntuación
+    private record Puntuado(Documento documento, double puntuacion) {
+    }
+
+    /**
+     * Añade o reemplaza los datos de una película, conservando la aportación de
+     * sus reseñas.
+     *
+     * @param pelicula Película a indexar.
+     */
+    void ponerPelicula(Pelicula pelicula) {
+        Map<String, Float> nuevos = new HashMap<>();
+        acumular(nuevos, pelicula.getTitulo(), PESO_TITULO);
+        acumular(nuevos, pelicula.getDirector(), PESO_DIRECTOR);
+        acumular(nuevos, pelicula.getGenero(), PESO_GENERO);
+        acumular(nuevos, pelicula.getSinopsis(), PESO_SINOPSIS);
+
+        lock.writeLock().lock();
+        try {
+            Documento doc = documentos.computeIfAbsent(pelicula.getId(), id -> nuevoDocumento());
+            if (doc.resumen == null) {
+                // Hasta ahora solo tenía reseñas: pasa a contar en las estadísticas
+                totalPeliculas++;
+                longitudTotal += doc.longitud;
+            }
+            doc.resumen = new ResultadoBusquedaDto(pelicula.getId(), pelicula.getTitulo(), pelicula.getDirector(),
+                    pelicula.getGenero(), pelicula.getAnioEstreno(), pelicula.getImagenUrl(), 0.0);
+            aplicar(doc, doc.terminosPelicula, -1);
+            aplicar(doc, nuevos, 1);
+            doc.terminosPelicula = nuevos;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Elimina una película y la aportación de todas sus reseñas.
+     *
+     * @param peliculaId Id de la película.
+     */
+    void quitarPelicula(Long peliculaId) {
+        lock.writeLock().lock();
+        try {
+            Documento doc = documentos.remove(peliculaId);
+            if (doc == null) {
+                return;
+            }
+            porNumero[doc.numero] = null;
+            numerosLibres.push(doc.numero);
+            doc.terminos.forEach(this::quitarFrecuencia);
+            if (doc.resumen != null) {
+                totalPeliculas--;
+                longitudTotal -= doc.longitud;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Suma o resta el texto de una reseña al documento de su película.
+     *
+     * @param peliculaId Id de la película reseñada.
+     * @param contenido  Texto de la reseña.
+     * @param signo      1 para añadirlo, -1 para retirarlo.
+     */
+    void aplicarResena(Long peliculaId, String contenido, int signo) {
+        Map<String, Float> terminos = new HashMap<>();
+        acumular(terminos, contenido, PESO_RESENA);
+        if (terminos.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Documento doc = documentos.get(peliculaId);
+            if (doc == null) {
+                if (signo < 0) {
+                    return;
+                }
+                // La reseña puede llegar antes que su película durante la carga inicial
+                doc = nuevoDocumento();
+                documentos.put(peliculaId, doc);
+            }
+            aplicar(doc, terminos, signo);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Busca las películas más relevantes para una consulta.
+     *
+     * @param consulta Texto de la consulta.
+     * @param limite   Número máximo de resultados.
+     * @return Películas ordenadas por relevancia descendente.
+     */
+    List<ResultadoBusquedaDto> buscar(String consulta, int limite) {
+        // Cada término de la consulta cuenta una sola vez
+        List<String> terminos = new ArrayList<>(new LinkedHashSet<>(AnalizadorTexto.terminos(consulta)));
+        if (terminos.isEmpty()) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            if (totalPeliculas == 0) {
+                return List.of();
+            }
+            double longitudMedia = Math.max(longitudTotal / totalPeliculas, EPSILON);
+            PriorityQueue<Puntuado> cola = new PriorityQueue<>(limite + 1,
+                    Comparator.comparingDouble(Puntuado::puntuacion));
+            if (terminos.size() == 1) {
+                // Con un solo término la puntuación de cada película es definitiva
+                Postings lista = postings.get(terminos.get(0));
+                if (lista != null) {
+                    double idf = idf(lista.tamano);
+                    for (int i = 0; i < lista.tamano; i++) {
+                        Frecuencia tf = lista.frecuencias[i];
+                        if (tf.documento.resumen != null) {
+                            seleccionar(cola, tf.documento, puntuacion(tf, idf, longitudMedia), limite);
+                        }
+                    }
+                }
+            } else {
+                List<Postings> listas = new ArrayList<>(terminos.size());
+                long frecuencias = 0;
+                for (String termino : terminos) {
+                    Postings lista = postings.get(termino);
+                    if (lista != null) {
+                        listas.add(lista);
+                        frecuencias += lista.tamano;
+                    }
+                }
+                if (frecuencias * 8 >= numeros) {
+                    // Los términos frecuentes aparecen en buena parte de los
+                    // documentos: recorrer un array con todos cuesta menos que un
+                    // mapa con los que aparecen
+                    double[] puntuaciones = new double[numeros];
+                    for (Postings lista : listas) {
+                        double idf = idf(lista.tamano);
+                        for (int i = 0; i < lista.tamano; i++) {
+                            Frecuencia tf = lista.frecuencias[i];
+                            puntuaciones[tf.documento.numero] += puntuacion(tf, idf, longitudMedia);
+                        }
+                    }
+                    for (int i = 0; i < numeros; i++) {
+                        Documento documento = porNumero[i];
+                        if (puntuaciones[i] != 0 && documento.resumen != null) {
+                            seleccionar(cola, documento, puntuaciones[i], limite);
+                        }
+                    }
+                } else {
+                    Map<Documento, double[]> puntuaciones = new HashMap<>();
+                    for (Postings lista : listas) {
+                        double idf = idf(lista.tamano);
+                        for (int i = 0; i < lista.tamano; i++) {
+                            Frecuencia tf = lista.frecuencias[i];
+                            if (tf.documento.resumen != null) {
+                                puntuaciones.computeIfAbsent(tf.documento, d -> new double[1])[0] +=
+                                        puntuacion(tf, idf, longitudMedia);
+                            }
+                        }
+                    }
+                    puntuaciones.forEach((documento, puntuacion) ->
+                            seleccionar(cola, documento, puntuacion[0], limite));
+                }
+            }
+            List<ResultadoBusquedaDto> resultados = new ArrayList<>(cola.size());
+            while (!cola.isEmpty()) {
+                Puntuado puntuado = cola.poll();
+                ResultadoBusquedaDto r = puntuado.documento().resumen;
+                resultados.add(new ResultadoBusquedaDto(r.getId(), r.getTitulo(), r.getDirector(), r.getGenero(),
+                        r.getAnioEstreno(), r.getImagenUrl(), puntuado.puntuacion()));
+            }
+            Collections.reverse(resultados);
+            return resultados;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Crea un documento con el primer número libre. Se llama con el cerrojo de
+    // escritura tomado
+    private Documento nuevoDocumento() {
+        Integer libre = numerosLibres.poll();
+        int numero = libre != null ? libre : numeros++;
+        if (numero == porNumero.length) {
+            porNumero = Arrays.copyOf(porNumero, numero * 2);
+        }
+        Documento documento = new Documento(numero);
+        porNumero[numero] = documento;
+        return documento;
+    }
+
+    private double idf(int df) {
+        return Math.log(1 + (totalPeliculas - df + 0.5) / (df + 0.5));
+    }
+
+    // Aportación BM25 de un término a la puntuación de su documento
+    private static double puntuacion(Frecuencia tf, double idf, double longitudMedia) {
+        double norma = K1 * (1 - B + B * tf.documento.longitud / longitudMedia);
+        return idf * tf.valor * (K1 + 1) / (tf.valor + norma);
+    }
+
+    // Conserva en la cola los k documentos con mayor puntuación sin ordenar todos:
+    // solo entra uno si supera al peor de los que ya hay
+    private static void seleccionar(PriorityQueue<Puntuado> cola, Documento documento, double puntuacion,
+            int limite) {
+        if (cola.size() < limite) {
+            cola.offer(new Puntuado(documento, puntuacion));
+        } else if (puntuacion > cola.peek().puntuacion()) {
+            cola.poll();
+            cola.offer(new Puntuado(documento, puntuacion));
+        }
+    }
+
+    // Suma (o resta) unas frecuencias al documento y a las listas de postings
+    private void aplicar(Documento doc, Map<String, Float> terminos, int signo) {
+        float delta = 0;
+        for (Map.Entry<String, Float> entrada : terminos.entrySet()) {
+            String termino = entrada.getKey();
+            float valor = signo * entrada.getValue();
+            delta += valor;
+            Frecuencia tf = doc.terminos.get(termino);
+            if (tf == null) {
+                if (signo < 0) {
+                    continue;
+                }
+                tf = new Frecuencia(doc);
+                doc.terminos.put(termino, tf);
+                postings.computeIfAbsent(termino, t -> new Postings()).anadir(tf);
+            }
+            tf.valor += valor;
+            if (tf.valor <= EPSILON) {
+                doc.terminos.remove(termino);
+                quitarFrecuencia(termino, tf);
+            }
+        }
+        doc.longitud = Math.max(0, doc.longitud + delta);
+        if (doc.resumen != null) {
+            longitudTotal += delta;
+        }
+    }
+
+    private void quitarFrecuencia(String termino, Frecuencia tf) {
+        Postings lista = postings.get(termino);
+        lista.quitar(tf);
+        if (lista.tamano == 0) {
+            postings.remove(termino);
+        }
+    }
+
+    // Cuenta los términos de un texto con el peso de su campo
+    private static void acumular(Map<String, Float> destino, String texto, float peso) {
+        for (String termino : AnalizadorTexto.terminos(texto)) {
+            destino.merge(termino, peso, Float::sum);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.ejemplo.resenasPeliculas.service;
+
+/**
+ * Criterios de orden admitidos en los listados paginados de reseñas.
+ */
+public enum OrdenResenas {
+
+    /**
+     * Por id ascendente (orden de creación).
+     */
+    ID,
+
+    /**
+     * Por calificación descendente; a igual calificación, por id descendente.
+     */
+    RATING;
+
+    /**
+     * Obtiene el criterio de orden a partir del parámetro de la petición.
+     *
+     * @param valor Valor del parámetro (ej. "id" o "rating").
+     * @return El criterio correspondiente.
+     * @throws IllegalArgumentException Si el valor no es un criterio válido.
+     */
+    public static OrdenResenas desdeParametro(String valor) {
+        for (OrdenResenas orden : values()) {
+            if (orden.name().equalsIgnoreCase(valor)) {
+                return orden;
+            }
+        }
+        throw new IllegalArgumentException("Orden no válido: " + valor);
+    }
+}
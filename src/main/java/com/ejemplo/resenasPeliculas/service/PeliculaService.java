@@ -1,22 +1,41 @@
 package com.ejemplo.resenasPeliculas.service;
 
+import com.ejemplo.resenasPeliculas.config.MetricasConfig;
+import com.ejemplo.resenasPeliculas.dto.PeliculaConEstadisticasDto;
+import com.ejemplo.resenasPeliculas.dto.PeliculaResumenDto;
+import com.ejemplo.resenasPeliculas.model.EstadisticaPelicula;
 import com.ejemplo.resenasPeliculas.model.Pelicula;
 import com.ejemplo.resenasPeliculas.repository.PeliculaRepository;
+import com.ejemplo.resenasPeliculas.repository.VersionResenasPeliculaRepository;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
  * Servicio que maneja la lógica de negocio de las películas.
  */
 @Service
+@Timed(MetricasConfig.TIMER_SERVICIOS)
 public class PeliculaService {
 
     @Autowired
     private PeliculaRepository peliculaRepository;
 
+    @Autowired
+    private EstadisticaPeliculaService estadisticaPeliculaService;
+
+    @Autowired
+    private VersionResenasPeliculaRepository versionResenasPeliculaRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     /**
      * Obtiene todas las películas almacenadas en la base de datos.
      *
@@ -27,6 +46,23 @@ public class PeliculaService {
         return peliculaRepository.findAll();
     }
 
+    /**
+     * Obtiene todas las películas junto con el resumen de sus reseñas.
+     * <p>
+     * Las películas se leen sin la sinopsis y las estadísticas en una única
+     * consulta, sin recorrer las reseñas.
+     *
+     * @return Lista de películas con sus estadísticas.
+     */
+    // Obtener todas las películas con sus estadísticas
+    public List<PeliculaConEstadisticasDto> getAllPeliculasConEstadisticas() {
+        Map<Long, EstadisticaPelicula> estadisticas = estadisticaPeliculaService.getTodasLasEstadisticas();
+        return peliculaRepository.findResumenes().stream()
+                .map(pelicula -> new PeliculaConEstadisticasDto(pelicula,
+                        estadisticas.getOrDefault(pelicula.getId(), new EstadisticaPelicula(pelicula.getId()))))
+                .toList();
+    }
+
     /**
      * Obtiene la película almacenadas en la base de datos con ese ID.
      *
@@ -37,6 +73,16 @@ public class PeliculaService {
         return peliculaRepository.findById(id);
     }
 
+    /**
+     * Obtiene la versión de una película sin cargarla.
+     *
+     * @param id Id de la película.
+     * @return La versión, o vacío si la película no existe.
+     */
+    public Optional<Long> getVersionPelicula(Long id) {
+        return peliculaRepository.findVersionById(id);
+    }
+
     /**
      * Guarda una nueva película en la base de datos.
      *
@@ -44,11 +90,15 @@ public class PeliculaService {
      * @return La película guardada.
      */
     // crear una nueva película
+    @Transactional
     public Pelicula createPelicula(Pelicula pelicula) {
-        return peliculaRepository.save(pelicula);
+        Pelicula guardada = peliculaRepository.save(pelicula);
+        eventPublisher.publishEvent(new EventoPelicula(EventoPelicula.Tipo.CREADA, guardada.getId(), guardada));
+        return guardada;
     }
 
     // actualizar una película existente
+    @Transactional
     public Pelicula updatePelicula(Long id, Pelicula peliculaDetails) throws Exception {
         Pelicula pelicula = peliculaRepository.findById(id)
                 .orElseThrow(() -> new Exception("Pelicula no encontrada con id " + id));
@@ -57,11 +107,18 @@ public class PeliculaService {
         pelicula.setGenero(peliculaDetails.getGenero());
         pelicula.setAnioEstreno(peliculaDetails.getAnioEstreno());
         pelicula.setSinopsis(peliculaDetails.getSinopsis());
-        return peliculaRepository.save(pelicula);
+        Pelicula guardada = peliculaRepository.save(pelicula);
+        eventPublisher.publishEvent(new EventoPelicula(EventoPelicula.Tipo.ACTUALIZADA, id, guardada));
+        return guardada;
     }
 
-    // Eliminar una película
+    // Eliminar una película, con sus estadísticas y la versión de sus reseñas.
+    // El evento quita también sus respuestas de CacheRespuestas
+    @Transactional
     public void deletePelicula(Long id) {
         peliculaRepository.deleteById(id);
+        estadisticaPeliculaService.eliminar(id);
+        versionResenasPeliculaRepository.eliminar(id);
+        eventPublisher.publishEvent(new EventoPelicula(EventoPelicula.Tipo.ELIMINADA, id, null));
     }
 }
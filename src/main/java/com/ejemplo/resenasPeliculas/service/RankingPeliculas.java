@@ -0,0 +1,298 @@
+package com.ejemplo.resenasPeliculas.service;
+
+import com.ejemplo.resenasPeliculas.dto.PeliculaRankingDto;
+import com.ejemplo.resenasPeliculas.dto.PeliculaResumenDto;
+import com.ejemplo.resenasPeliculas.model.EstadisticaPelicula;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Rankings en memoria de las películas mejor valoradas, uno general y uno por
+ * género.
+ * <p>
+ * Las películas se ordenan por su media bayesiana:
+ * {@code (C·m + suma) / (C + n)}, donde {@code n} y {@code suma} son el número
+ * de reseñas y la suma de sus calificaciones, {@code m} es la media global y
+ * {@code C} el peso de esa media (equivale a sumar {@code C} reseñas ficticias
+ * con la media global). Así una película con pocas reseñas no supera a otra con
+ * muchas solo por tener unas pocas de cinco estrellas.
+ * <p>
+ * Cada ranking es un conjunto ordenado: una reseña nueva, modificada o
+ * eliminada recoloca su película en O(log n) y leer las {@code k} primeras es
+ * O(k). La media global solo se recalcula al cargar el ranking completo; entre
+ * cargas se mantiene fija para que el orden de las demás películas no cambie.
+ * <p>
+ * Es seguro entre hilos: las lecturas comparten un cerrojo de lectura y las
+ * modificaciones toman el de escritura.
+ */
+class RankingPeliculas {
+
+    // Media de partida si todavía no hay ninguna reseña (centro de la escala 1-5)
+    static final double MEDIA_SIN_RESENAS = 3.0;
+
+    // Mayor puntuación primero; a igualdad, la película más antigua
+    private static final Comparator<Entrada> ORDEN = Comparator.comparingDouble((Entrada e) -> -e.puntuacion)
+            .thenComparing(e -> e.id);
+
+    private final double pesoPrevio;
+
+    private final Map<Long, Entrada> entradas = new HashMap<>();
+
+    private final NavigableSet<Entrada> general = new TreeSet<>(ORDEN);
+
+    /**
+     * Género normalizado → ranking del género.
+     */
+    private final Map<String, NavigableSet<Entrada>> porGenero = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private double mediaGlobal = MEDIA_SIN_RESENAS;
+
+    // Película con sus contadores de reseñas
+    private static final class Entrada {
+
+        private final Long id;
+
+        /**
+         * Datos de la película, sin la sinopsis, o {@code null} si solo se
+         * conocen sus reseñas.
+         */
+        private PeliculaResumenDto pelicula;
+
+        private String genero;
+
+        private long totalResenas;
+
+        private long sumaRatings;
+
+        private double puntuacion;
+
+        /**
+         * Resultado ya construido para las lecturas.
+         */
+        private PeliculaRankingDto resultado;
+
+        private Entrada(Long id) {
+            this.id = id;
+        }
+
+        // Solo entran en los rankings las películas conocidas con alguna reseña
+        private boolean clasificable() {
+            return pelicula != null && totalResenas > 0;
+        }
+    }
+
+    /**
+     * Constructor con parámetros.
+     *
+     * @param pesoPrevio Peso {@code C} de la media global, en reseñas.
+     */
+    RankingPeliculas(double pesoPrevio) {
+        this.pesoPrevio = pesoPrevio;
+    }
+
+    /**
+     * Reemplaza todo el contenido y recalcula la media global.
+     *
+     * @param peliculas    Todas las películas.
+     * @param estadisticas Estadísticas de las películas con reseñas.
+     */
+    void cargar(Collection<PeliculaResumenDto> peliculas, Collection<EstadisticaPelicula> estadisticas) {
+        long total = 0;
+        long suma = 0;
+        for (EstadisticaPelicula estadistica : estadisticas) {
+            total += estadistica.getTotalResenas();
+            suma += estadistica.getSumaRatings();
+        }
+
+        lock.writeLock().lock();
+        try {
+            entradas.clear();
+            general.clear();
+            porGenero.clear();
+            mediaGlobal = total == 0 ? MEDIA_SIN_RESENAS : (double) suma / total;
+            for (EstadisticaPelicula estadistica : estadisticas) {
+                Entrada entrada = new Entrada(estadistica.getPeliculaId());
+                entrada.totalResenas = estadistica.getTotalResenas();
+                entrada.sumaRatings = estadistica.getSumaRatings();
+                entradas.put(entrada.id, entrada);
+            }
+            for (PeliculaResumenDto pelicula : peliculas) {
+                Entrada entrada = entradas.computeIfAbsent(pelicula.getId(), Entrada::new);
+                entrada.pelicula = pelicula;
+                entrada.genero = AnalizadorTexto.normalizar(pelicula.getGenero()).trim();
+                colocar(entrada);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Añade o reemplaza los datos de una película, conservando sus reseñas.
+     *
+     * @param pelicula Película.
+     */
+    void ponerPelicula(PeliculaResumenDto pelicula) {
+        lock.writeLock().lock();
+        try {
+            Entrada entrada = entradas.computeIfAbsent(pelicula.getId(), Entrada::new);
+            retirar(entrada);
+            entrada.pelicula = pelicula;
+            entrada.genero = AnalizadorTexto.normalizar(pelicula.getGenero()).trim();
+            colocar(entrada);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Reemplaza los contadores de reseñas de una película y la recoloca en los
+     * rankings.
+     *
+     * @param peliculaId   Id de la película.
+     * @param totalResenas Número de reseñas.
+     * @param sumaRatings  Suma de sus calificaciones.
+     */
+    void ponerContadores(Long peliculaId, long totalResenas, long sumaRatings) {
+        lock.writeLock().lock();
+        try {
+            Entrada entrada = entradas.computeIfAbsent(peliculaId, Entrada::new);
+            retirar(entrada);
+            entrada.totalResenas = totalResenas;
+            entrada.sumaRatings = sumaRatings;
+            colocar(entrada);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Elimina una película de todos los rankings.
+     *
+     * @param peliculaId Id de la película.
+     */
+    void quitarPelicula(Long peliculaId) {
+        lock.writeLock().lock();
+        try {
+            Entrada entrada = entradas.remove(peliculaId);
+            if (entrada != null) {
+                retirar(entrada);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Suma o resta una reseña a su película y la recoloca en los rankings.
+     *
+     * @param peliculaId Id de la película reseñada.
+     * @param rating     Calificación de la reseña.
+     * @param signo      1 para añadirla, -1 para retirarla.
+     */
+    void aplicarResena(Long peliculaId, int rating, int signo) {
+        lock.writeLock().lock();
+        try {
+            Entrada entrada = entradas.get(peliculaId);
+            if (entrada == null) {
+                if (signo < 0) {
+                    return;
+                }
+                // La reseña puede llegar antes que su película durante la carga
+                entrada = new Entrada(peliculaId);
+                entradas.put(peliculaId, entrada);
+            }
+            retirar(entrada);
+            entrada.totalResenas = Math.max(0, entrada.totalResenas + signo);
+            entrada.sumaRatings = entrada.totalResenas == 0 ? 0 : entrada.sumaRatings + (long) signo * rating;
+            colocar(entrada);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Obtiene las primeras películas de un ranking.
+     *
+     * @param genero Género, o {@code null} para el ranking general. No distingue
+     *               mayúsculas ni tildes.
+     * @param limite Número máximo de películas.
+     * @return Películas de mayor a menor puntuación.
+     */
+    List<PeliculaRankingDto> mejores(String genero, int limite) {
+        lock.readLock().lock();
+        try {
+            NavigableSet<Entrada> ranking = genero == null ? general
+                    : porGenero.get(AnalizadorTexto.normalizar(genero).trim());
+            if (ranking == null) {
+                return List.of();
+            }
+            List<PeliculaRankingDto> resultados = new ArrayList<>(Math.min(limite, ranking.size()));
+            for (Entrada entrada : ranking) {
+                if (resultados.size() == limite) {
+                    break;
+                }
+                resultados.add(entrada.resultado);
+            }
+            return resultados;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Obtiene la media global usada en las puntuaciones.
+     *
+     * @return La media global.
+     */
+    double getMediaGlobal() {
+        lock.readLock().lock();
+        try {
+            return mediaGlobal;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Saca la entrada de sus rankings antes de cambiar la puntuación o el género
+    private void retirar(Entrada entrada) {
+        if (!entrada.clasificable()) {
+            return;
+        }
+        general.remove(entrada);
+        NavigableSet<Entrada> ranking = porGenero.get(entrada.genero);
+        if (ranking != null) {
+            ranking.remove(entrada);
+            if (ranking.isEmpty()) {
+                porGenero.remove(entrada.genero);
+            }
+        }
+    }
+
+    // Recalcula la puntuación de la entrada y la inserta en sus rankings
+    private void colocar(Entrada entrada) {
+        if (!entrada.clasificable()) {
+            return;
+        }
+        PeliculaResumenDto pelicula = entrada.pelicula;
+        entrada.puntuacion = (pesoPrevio * mediaGlobal + entrada.sumaRatings) / (pesoPrevio + entrada.totalResenas);
+        entrada.resultado = new PeliculaRankingDto(entrada.id, pelicula.getTitulo(), pelicula.getDirector(),
+                pelicula.getGenero(), pelicula.getAnioEstreno(), pelicula.getImagenUrl(), entrada.puntuacion,
+                (double) entrada.sumaRatings / entrada.totalResenas, entrada.totalResenas);
+        general.add(entrada);
+        if (!entrada.genero.isEmpty()) {
+            porGenero.computeIfAbsent(entrada.genero, g -> new TreeSet<>(ORDEN)).add(entrada);
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.ejemplo.resenasPeliculas.service;
+
+import com.ejemplo.resenasPeliculas.dto.PeliculaRankingDto;
+import com.ejemplo.resenasPeliculas.dto.PeliculaResumenDto;
+import com.ejemplo.resenasPeliculas.model.EstadisticaPelicula;
+import com.ejemplo.resenasPeliculas.model.Pelicula;
+import com.ejemplo.resenasPeliculas.repository.PeliculaRepository;
+import com.ejemplo.resenasPeliculas.repository.ResenaRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Servicio de rankings de las películas mejor valoradas, en general y por
+ * género.
+ * <p>
+ * Los rankings se guardan en memoria ({@link RankingPeliculas}) y se leen sin
+ * acceder a la base de datos. Se cargan al arrancar a partir de las
+ * estadísticas de reseñas y se mantienen al día con los eventos de
+ * {@link PeliculaService} y {@link ResenaService}. Una recarga periódica
+ * actualiza la media global de la puntuación bayesiana y corrige cualquier
+ * cambio que no haya pasado por los servicios.
+ * <p>
+ * De cada película solo se guarda su resumen, sin la sinopsis. Los eventos que
+ * llegan durante una recarga se aplican al ranking en uso y se guardan para
+ * aplicarlos también sobre la instantánea cargada, salvo los cambios que esta
+ * ya incluye, que se reconocen por la versión de cada reseña.
+ */
+@Service
+public class RankingService {
+
+    private static final Logger log = LoggerFactory.getLogger(RankingService.class);
+
+    /**
+     * Número máximo de películas por ranking.
+     */
+    public static final int LIMITE_MAXIMO = 100;
+
+    // Tamaño de lote al consultar las versiones de las reseñas recibidas
+    private static final int TAMANO_LOTE = 5000;
+
+    @Autowired
+    private PeliculaRepository peliculaRepository;
+
+    @Autowired
+    private ResenaRepository resenaRepository;
+
+    @Autowired
+    private EstadisticaPeliculaService estadisticaPeliculaService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final RankingPeliculas ranking;
+
+    /**
+     * Serializa la aplicación de eventos con la carga de la instantánea, para
+     * que ningún evento quede fuera de los rankings.
+     */
+    private final Object eventos = new Object();
+
+    /**
+     * Eventos recibidos durante la recarga en curso, en orden de llegada, o
+     * {@code null} si no hay ninguna. Protegido por {@link #eventos}.
+     */
+    private List<Object> pendientes;
+
+    public RankingService(@Value("${ranking.peso-previo:10}") double pesoPrevio) {
+        this.ranking = new RankingPeliculas(pesoPrevio);
+    }
+
+    /**
+     * Obtiene las películas mejor valoradas según su media bayesiana.
+     *
+     * @param genero Género, o {@code null} para todas las películas.
+     * @param limite Número máximo de películas (entre 1 y {@link #LIMITE_MAXIMO}).
+     * @return Películas de mayor a menor puntuación.
+     * @throws IllegalArgumentException Si el límite no es válido.
+     */
+    public List<PeliculaRankingDto> getMejores(String genero, int limite) {
+        if (limite < 1 || limite > LIMITE_MAXIMO) {
+            throw new IllegalArgumentException("El límite debe estar entre 1 y " + LIMITE_MAXIMO);
+        }
+        return ranking.mejores(genero == null || genero.isBlank() ? null : genero, limite);
+    }
+
+    /**
+     * Carga los rankings a partir de las películas y sus estadísticas.
+     * <p>
+     * Se ejecuta después de que {@link EstadisticaPeliculaService} haya
+     * inicializado las estadísticas. Los resúmenes de las películas y las
+     * estadísticas se leen en una transacción de solo lectura con aislamiento
+     * {@code REPEATABLE_READ}, es decir, de una misma instantánea.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${ranking.reconstruccion.cron:0 0 * * * *}")
+    public synchronized void reconstruir() {
+        long inicio = System.currentTimeMillis();
+        // Se empiezan a guardar los eventos antes de tomar la instantánea: los
+        // que ya estén incluidos en ella se descartan al final
+        synchronized (eventos) {
+            pendientes = new ArrayList<>();
+        }
+        try {
+            TransactionTemplate transaccion = new TransactionTemplate(transactionManager);
+            transaccion.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+            transaccion.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+            transaccion.setReadOnly(true);
+            int peliculas = transaccion.execute(estado -> cargar());
+            log.info("Rankings cargados con {} películas (media global {}) en {} ms", peliculas,
+                    String.format("%.3f", ranking.getMediaGlobal()), System.currentTimeMillis() - inicio);
+        } finally {
+            synchronized (eventos) {
+                pendientes = null;
+            }
+        }
+    }
+
+    /**
+     * Aplica a los rankings un cambio en una película.
+     *
+     * @param evento Evento publicado por {@link PeliculaService}.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPelicula(EventoPelicula evento) {
+        synchronized (eventos) {
+            aplicar(evento);
+            if (pendientes != null) {
+                pendientes.add(evento);
+            }
+        }
+    }
+
+    /**
+     * Aplica a los rankings un cambio en una reseña.
+     *
+     * @param evento Evento publicado por {@link ResenaService}.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onResena(EventoResena evento) {
+        synchronized (eventos) {
+            aplicar(evento);
+            if (pendientes != null) {
+                pendientes.add(evento);
+            }
+        }
+    }
+
+    // Carga la instantánea dentro de su transacción y vuelve a aplicar los
+    // eventos que no incluye. Devuelve el número de películas leídas
+    private int cargar() {
+        List<PeliculaResumenDto> peliculas = peliculaRepository.findResumenes();
+        Collection<EstadisticaPelicula> estadisticas = estadisticaPeliculaService.getTodasLasEstadisticas().values();
+
+        synchronized (eventos) {
+            ranking.cargar(peliculas, estadisticas);
+            reaplicar(pendientes);
+            pendientes = null;
+        }
+        return peliculas.size();
+    }
+
+    // Aplica los eventos recibidos durante la recarga que la instantánea no
+    // incluye, con el mismo criterio que BusquedaService. Los de películas
+    // reemplazan o quitan la película entera, así que se aplican todos. De cada
+    // reseña se consulta su versión en la instantánea: si está, solo faltan los
+    // cambios posteriores a esa versión; si no está, o se creó después (y su
+    // alta está entre los eventos) o ya se había eliminado.
+    // Los contadores de las películas afectadas se vuelven a contar en la tabla
+    // de reseñas, la misma de la que salen las versiones: así coinciden con
+    // ellas aunque la base de datos no tome la instantánea de todas las tablas a
+    // la vez (H2 la toma de cada tabla al leerla por primera vez)
+    private void reaplicar(List<Object> recibidos) {
+        Set<Long> ids = new HashSet<>();
+        Set<Long> creadas = new HashSet<>();
+        Set<Long> afectadas = new HashSet<>();
+        for (Object evento : recibidos) {
+            if (evento instanceof EventoResena resena && resena.getResenaId() != null) {
+                ids.add(resena.getResenaId());
+                afectadas.add(resena.getPeliculaId());
+                if (resena.getTipo() == EventoResena.Tipo.CREADA) {
+                    creadas.add(resena.getResenaId());
+                }
+            }
+        }
+        Map<Long, Long> versiones = new HashMap<>();
+        List<Long> porConsultar = new ArrayList<>(ids);
+        for (int i = 0; i < porConsultar.size(); i += TAMANO_LOTE) {
+            List<Long> lote = porConsultar.subList(i, Math.min(i + TAMANO_LOTE, porConsultar.size()));
+            resenaRepository.findVersiones(lote).forEach(v -> versiones.put(v.getId(), v.getVersion()));
+        }
+        Map<Long, ResenaRepository.TotalesResenas> totales = new HashMap<>();
+        List<Long> peliculas = new ArrayList<>(afectadas);
+        for (int i = 0; i < peliculas.size(); i += TAMANO_LOTE) {
+            List<Long> lote = peliculas.subList(i, Math.min(i + TAMANO_LOTE, peliculas.size()));
+            resenaRepository.findTotales(lote).forEach(t -> totales.put(t.getPeliculaId(), t));
+        }
+        for (Long peliculaId : afectadas) {
+            ResenaRepository.TotalesResenas total = totales.get(peliculaId);
+            ranking.ponerContadores(peliculaId, total == null ? 0 : total.getTotal(),
+                    total == null ? 0 : total.getSuma());
+        }
+
+        for (Object evento : recibidos) {
+            if (evento instanceof EventoPelicula pelicula) {
+                aplicar(pelicula);
+                continue;
+            }
+            EventoResena resena = (EventoResena) evento;
+            Long enInstantanea = versiones.get(resena.getResenaId());
+            boolean falta = enInstantanea == null ? creadas.contains(resena.getResenaId())
+                    : switch (resena.getTipo()) {
+                        case CREADA -> false;
+                        case ACTUALIZADA -> resena.getVersion() > enInstantanea;
+                        case ELIMINADA -> true;
+                    };
+            if (falta) {
+                aplicar(resena);
+            }
+        }
+    }
+
+    private void aplicar(EventoPelicula evento) {
+        if (evento.getTipo() == EventoPelicula.Tipo.ELIMINADA) {
+            ranking.quitarPelicula(evento.getPeliculaId());
+        } else {
+            // Solo el resumen: la entidad del evento no se retiene
+            Pelicula pelicula = evento.getPelicula();
+            ranking.ponerPelicula(new PeliculaResumenDto(pelicula.getId(), pelicula.getTitulo(),
+                    pelicula.getDirector(), pelicula.getGenero(), pelicula.getAnioEstreno(), pelicula.getImagenUrl()));
+        }
+    }
+
+    private void aplicar(EventoResena evento) {
+        if (evento.getRatingNuevo() != null && evento.getRatingNuevo().equals(evento.getRatingAnterior())) {
+            return;
+        }
+        if (evento.getRatingAnterior() != null) {
+            ranking.aplicarResena(evento.getPeliculaId(), evento.getRatingAnterior(), -1);
+        }
+        if (evento.getRatingNuevo() != null) {
+            ranking.aplicarResena(evento.getPeliculaId(), evento.getRatingNuevo(), 1);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.ejemplo.resenasPeliculas.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Posición de continuación para la paginación por cursor (keyset) de reseñas.
+ * <p>
+ * Guarda el criterio de orden y la clave de la última reseña entregada
+ * ({@code rating} e {@code id}). Se serializa como una cadena Base64 opaca para
+ * que el cliente no dependa de su formato.
+ */
+final class ResenaCursor {
+
+    private final OrdenResenas orden;
+    private final int rating;
+    private final long id;
+
+    ResenaCursor(OrdenResenas orden, int rating, long id) {
+        this.orden = orden;
+        this.rating = rating;
+        this.id = id;
+    }
+
+    /**
+     * Cursor que apunta antes de la primera reseña para el orden indicado.
+     *
+     * @param orden Criterio de orden.
+     * @return Cursor inicial.
+     */
+    static ResenaCursor inicial(OrdenResenas orden) {
+        return orden == OrdenResenas.RATING
+                ? new ResenaCursor(orden, Integer.MAX_VALUE, Long.MAX_VALUE)
+                : new ResenaCursor(orden, 0, 0L);
+    }
+
+    /**
+     * Decodifica un cursor recibido del cliente.
+     *
+     * @param valor Cursor opaco.
+     * @param orden Criterio de orden de la petición actual.
+     * @return El cursor decodificado.
+     * @throws IllegalArgumentException Si el cursor está mal formado o pertenece a
+     *                                  otro criterio de orden.
+     */
+    static ResenaCursor decodificar(String valor, OrdenResenas orden) {
+        try {
+            String texto = new String(Base64.getUrlDecoder().decode(valor), StandardCharsets.UTF_8);
+            String[] partes = texto.split(":");
+            if (partes.length != 3 || OrdenResenas.valueOf(partes[0]) != orden) {
+                throw new IllegalArgumentException("Cursor inválido");
+            }
+            return new ResenaCursor(orden, Integer.parseInt(partes[1]), Long.parseLong(partes[2]));
+        } catch (IllegalArgumentException e) {
+            // Incluye NumberFormatException y errores de Base64
+            throw new IllegalArgumentException("Cursor inválido", e);
+        }
+    }
+
+    /**
+     * Codifica el cursor como cadena opaca.
+     *
+     * @return Cursor en Base64 URL-safe.
+     */
+    String codificar() {
+        String texto = orden.name() + ":" + rating + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(texto.getBytes(StandardCharsets.UTF_8));
+    }
+
+    int getRating() {
+        return rating;
+    }
+
+    long getId() {
+        return id;
+    }
+}
@@ -1,24 +1,54 @@
 package com.ejemplo.resenasPeliculas.service;
 
+import com.ejemplo.resenasPeliculas.config.MetricasConfig;
+import com.ejemplo.resenasPeliculas.dto.PaginaCursor;
+import com.ejemplo.resenasPeliculas.dto.ResenaPendienteDto;
+import com.ejemplo.resenasPeliculas.dto.ResenaResumenDto;
 import com.ejemplo.resenasPeliculas.model.Resena;
 import com.ejemplo.resenasPeliculas.model.Pelicula;
 import com.ejemplo.resenasPeliculas.repository.ResenaRepository;
+import com.ejemplo.resenasPeliculas.repository.ResenaRepository.ClaveResena;
+import com.ejemplo.resenasPeliculas.repository.VersionResenasPeliculaRepository;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.ToIntFunction;
 
 /**
  * Servicio que maneja la lógica de negocio de las reseñas.
  */
 
 @Service
+@Timed(MetricasConfig.TIMER_SERVICIOS)
 public class ResenaService {
 
+    /**
+     * Tamaño de página máximo admitido en los listados paginados.
+     */
+    public static final int LIMITE_MAXIMO = 100;
+
     @Autowired
     private ResenaRepository resenaRepository;
 
+    @Autowired
+    private EstadisticaPeliculaService estadisticaPeliculaService;
+
+    @Autowired
+    private VersionResenasPeliculaRepository versionResenasPeliculaRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private EscrituraDiferidaResenas escrituraDiferida;
+
     /**
      * Obtiene todas las reseñas almacenadas en la base de datos.
      *
@@ -40,37 +70,226 @@ public class ResenaService {
     }
 
     /**
-     * Guarda una nueva reseña en la base de datos.
+     * Obtiene la versión de las reseñas de una película. Cambia con cada alta,
+     * cambio o baja de una de sus reseñas.
+     *
+     * @param peliculaId Id de la película.
+     * @return La versión, 0 si sus reseñas nunca han cambiado.
+     */
+    public long getVersionResenas(Long peliculaId) {
+        return versionResenasPeliculaRepository.findVersion(peliculaId).orElse(0L);
+    }
+
+    /**
+     * Obtiene una página de reseñas usando paginación por cursor (keyset).
+     * <p>
+     * Cada página se resuelve con una consulta indexada que empieza justo después
+     * de la última reseña entregada, por lo que el coste no crece con la
+     * profundidad de la paginación ni con el total de reseñas. Cada reseña se
+     * devuelve como un resumen con el id de la película y el autor.
+     *
+     * @param peliculaId Id de la película, o {@code null} para todas las reseñas.
+     * @param orden      Criterio de orden.
+     * @param cursor     Cursor recibido de la página anterior, o {@code null} para
+     *                   la primera página.
+     * @param limite     Número de reseñas por página (entre 1 y
+     *                   {@link #LIMITE_MAXIMO}).
+     * @return La página de reseñas y el cursor de la siguiente.
+     * @throws IllegalArgumentException Si el cursor o el límite no son válidos.
+     */
+    // Obtener una página de reseñas
+    public PaginaCursor<ResenaResumenDto> getResenasPaginadas(Long peliculaId, OrdenResenas orden, String cursor, int limite) {
+        if (limite < 1 || limite > LIMITE_MAXIMO) {
+            throw new IllegalArgumentException("El límite debe estar entre 1 y " + LIMITE_MAXIMO);
+        }
+        ResenaCursor posicion = cursor == null || cursor.isEmpty()
+                ? ResenaCursor.inicial(orden)
+                : ResenaCursor.decodificar(cursor, orden);
+
+        // Se pide una reseña de más para saber si existe una página siguiente
+        Limit limitePeticion = Limit.of(limite + 1);
+        List<ResenaResumenDto> resenas;
+        if (orden == OrdenResenas.RATING) {
+            resenas = peliculaId == null
+                    ? resenaRepository.findPaginaPorRating(posicion.getRating(), posicion.getId(), limitePeticion)
+                    : resenaRepository.findPaginaPorPeliculaYRating(peliculaId, posicion.getRating(),
+                            posicion.getId(), limitePeticion);
+        } else {
+            resenas = peliculaId == null
+                    ? resenaRepository.findPaginaPorId(posicion.getId(), limitePeticion)
+                    : resenaRepository.findPaginaPorPeliculaYId(peliculaId, posicion.getId(), limitePeticion);
+        }
+
+        if (resenas.size() <= limite) {
+            return new PaginaCursor<>(resenas, null);
+        }
+        List<ResenaResumenDto> pagina = resenas.subList(0, limite);
+        ResenaResumenDto ultima = pagina.get(limite - 1);
+        String siguiente = new ResenaCursor(orden, ultima.getRating(), ultima.getId()).codificar();
+        return new PaginaCursor<>(pagina, siguiente);
+    }
+
+    /**
+     * Guarda una nueva reseña en la base de datos y actualiza las estadísticas y
+     * la versión de las reseñas de la película.
      *
      * @param resena La reseña a guardar.
      * @return La reseña guardada.
      */
     // Crear una nueva reseña
+    @Transactional
     public Resena createResena(Resena resena) {
-        return resenaRepository.save(resena);
+        Resena guardada = resenaRepository.save(resena);
+        estadisticaPeliculaService.registrarAlta(guardada.getPelicula().getId(), guardada.getRating());
+        versionResenasPeliculaRepository.incrementar(guardada.getPelicula().getId());
+        eventPublisher.publishEvent(new EventoResena(EventoResena.Tipo.CREADA, guardada.getId(),
+                guardada.getPelicula().getId(), null, guardada.getRating(), null, guardada.getContenido(),
+                guardada.getVersion()));
+        return guardada;
     }
 
     /**
-     * Actualiza una nueva reseña en la base de datos.
+     * Indica si las reseñas nuevas se guardan de forma diferida con
+     * {@link #encolarResena(Resena)} en lugar de con
+     * {@link #createResena(Resena)}.
+     *
+     * @return {@code true} si la escritura diferida está habilitada.
+     */
+    public boolean isCreacionDiferida() {
+        return escrituraDiferida.isHabilitada();
+    }
+
+    /**
+     * Acepta una reseña ya validada para guardarla más tarde, agrupada con otras
+     * en una sola transacción. Las estadísticas, la versión de las reseñas y los
+     * eventos se actualizan al guardarla.
      *
-     * @param id     La id de la reseña.
      * @param resena La reseña a guardar.
-     * @return La reseña guardada nueva.
+     * @return El estado de la reseña, con el identificador para consultarlo.
+     * @throws IllegalArgumentException   Si no indica la película.
+     * @throws RejectedExecutionException Si hay demasiadas reseñas pendientes.
+     */
+    public ResenaPendienteDto encolarResena(Resena resena) {
+        if (resena.getPelicula() == null || resena.getPelicula().getId() == null) {
+            throw new IllegalArgumentException("La película es obligatoria");
+        }
+        return escrituraDiferida.encolar(resena);
+    }
+
+    /**
+     * Obtiene el estado de una reseña aceptada con
+     * {@link #encolarResena(Resena)}.
+     *
+     * @param id Identificador de la reseña pendiente.
+     * @return El estado, o vacío si no existe o ha caducado.
+     */
+    public Optional<ResenaPendienteDto> getResenaPendiente(String id) {
+        return Optional.ofNullable(escrituraDiferida.getEstado(id));
+    }
+
+    /**
+     * Actualiza una reseña en la base de datos si pertenece al usuario indicado.
+     * <p>
+     * La comprobación de propiedad solo está en el {@code WHERE} del
+     * {@code UPDATE} condicional, junto al id y la versión, y el número de filas
+     * actualizadas decide el resultado. Las estadísticas, los rankings y el
+     * índice de búsqueda necesitan la calificación y el contenido anteriores, y
+     * MySQL no puede devolverlos desde el {@code UPDATE}, así que se leen antes
+     * por clave primaria, sin bloqueo: son dos sentencias. Las comprobaciones
+     * solo se hacen si no se actualiza ninguna fila, y casi siempre con lo ya
+     * leído. Si la operación tiene éxito, {@code resenaDetails} se completa con
+     * el id de la reseña y de su película.
+     *
+     * @param id            La id de la reseña.
+     * @param usuarioId     La id del usuario autenticado.
+     * @param resenaDetails Los nuevos datos de la reseña.
+     * @return El resultado de la operación.
      */
     // Actualizar una reseña existente
-    public Resena updateResena(Long id, Resena resenaDetails) throws Exception {
-        Resena resena = resenaRepository.findById(id)
-                .orElseThrow(() -> new Exception("Reseña no encontrada con id " + id));
-        resena.setContenido(resenaDetails.getContenido());
-        resena.setRating(resenaDetails.getRating());
-        return resenaRepository.save(resena);
+    @Transactional
+    public ResultadoOperacion updateResena(Long id, Long usuarioId, Resena resenaDetails) {
+        Escritura escritura = escribir(id, usuarioId, anterior -> resenaRepository.actualizarDeUsuario(id, usuarioId,
+                anterior.getVersion(), resenaDetails.getContenido(), resenaDetails.getRating()));
+        if (escritura.resultado != ResultadoOperacion.OK) {
+            return escritura.resultado;
+        }
+        ClaveResena anterior = escritura.anterior;
+        Long peliculaId = anterior.getPeliculaId();
+        estadisticaPeliculaService.registrarCambio(peliculaId, anterior.getRating(), resenaDetails.getRating());
+        versionResenasPeliculaRepository.incrementar(peliculaId);
+        eventPublisher.publishEvent(new EventoResena(EventoResena.Tipo.ACTUALIZADA, id, peliculaId,
+                anterior.getRating(), resenaDetails.getRating(), anterior.getContenido(),
+                resenaDetails.getContenido(), anterior.getVersion() + 1));
+
+        Pelicula pelicula = new Pelicula();
+        pelicula.setId(peliculaId);
+        resenaDetails.setId(id);
+        resenaDetails.setPelicula(pelicula);
+        return ResultadoOperacion.OK;
     }
 
     /**
-     * Elimina una reseña en la base de datos.
+     * Elimina una reseña en la base de datos si pertenece al usuario indicado y
+     * actualiza las estadísticas y la versión de las reseñas de la película.
+     * <p>
+     * Como en {@link #updateResena(Long, Long, Resena)}, el autor forma parte del
+     * {@code WHERE} del {@code DELETE}, la calificación y el contenido se leen
+     * antes y el borrado se condiciona a la versión leída.
+     *
+     * @param id        La id de la reseña.
+     * @param usuarioId La id del usuario autenticado.
+     * @return El resultado de la operación.
      */
     // Eliminar una reseña
-    public void deleteResena(Long id) {
-        resenaRepository.deleteById(id);
+    @Transactional
+    public ResultadoOperacion deleteResena(Long id, Long usuarioId) {
+        Escritura escritura = escribir(id, usuarioId,
+                anterior -> resenaRepository.eliminarDeUsuario(id, usuarioId, anterior.getVersion()));
+        if (escritura.resultado != ResultadoOperacion.OK) {
+            return escritura.resultado;
+        }
+        ClaveResena anterior = escritura.anterior;
+        estadisticaPeliculaService.registrarBaja(anterior.getPeliculaId(), anterior.getRating());
+        versionResenasPeliculaRepository.incrementar(anterior.getPeliculaId());
+        eventPublisher.publishEvent(new EventoResena(EventoResena.Tipo.ELIMINADA, id, anterior.getPeliculaId(),
+                anterior.getRating(), null, anterior.getContenido(), null, anterior.getVersion()));
+        return ResultadoOperacion.OK;
+    }
+
+    // Valores de una reseña antes de escribirla y resultado de la escritura
+    private static final class Escritura {
+
+        private final ClaveResena anterior;
+
+        private final ResultadoOperacion resultado;
+
+        private Escritura(ClaveResena anterior, ResultadoOperacion resultado) {
+            this.anterior = anterior;
+            this.resultado = resultado;
+        }
+    }
+
+    // Lee los valores de una reseña y aplica una escritura condicionada a su
+    // autor y a su versión. Si no afecta a ninguna fila, lo leído decide entre
+    // reseña inexistente y ajena (el autor de una reseña no cambia)
+    private Escritura escribir(Long id, Long usuarioId, ToIntFunction<ClaveResena> escritura) {
+        Optional<ClaveResena> anterior = resenaRepository.findClave(id);
+        if (anterior.isEmpty()) {
+            return new Escritura(null, ResultadoOperacion.NO_ENCONTRADO);
+        }
+        if (escritura.applyAsInt(anterior.get()) == 1) {
+            return new Escritura(anterior.get(), ResultadoOperacion.OK);
+        }
+        if (!anterior.get().getUsuarioId().equals(usuarioId)) {
+            return new Escritura(null, ResultadoOperacion.NO_AUTORIZADO);
+        }
+        // Otra petición la ha cambiado o eliminado tras leerla: la lectura con
+        // bloqueo ve el último valor confirmado y nadie puede cambiarlo ya
+        Optional<ClaveResena> actual = resenaRepository.bloquearClave(id);
+        if (actual.isEmpty()) {
+            return new Escritura(null, ResultadoOperacion.NO_ENCONTRADO);
+        }
+        escritura.applyAsInt(actual.get());
+        return new Escritura(actual.get(), ResultadoOperacion.OK);
     }
 }
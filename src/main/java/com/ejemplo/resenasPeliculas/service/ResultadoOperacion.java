@@ -0,0 +1,23 @@
+package com.ejemplo.resenasPeliculas.service;
+
+/**
+ * Resultado de una operación de escritura sobre un recurso que pertenece a un
+ * usuario (por ejemplo, editar o eliminar una reseña).
+ */
+public enum ResultadoOperacion {
+
+    /**
+     * La operación se realizó correctamente.
+     */
+    OK,
+
+    /**
+     * El recurso no existe.
+     */
+    NO_ENCONTRADO,
+
+    /**
+     * El recurso existe pero pertenece a otro usuario.
+     */
+    NO_AUTORIZADO
+}
@@ -1,10 +1,19 @@
 package com.ejemplo.resenasPeliculas.service;
 
+import java.util.Locale;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
+import io.micrometer.core.annotation.Timed;
+import org.hibernate.exception.ConstraintViolationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import com.ejemplo.resenasPeliculas.config.MetricasConfig;
 import com.ejemplo.resenasPeliculas.dto.UsuarioRegistrationDto;
 import com.ejemplo.resenasPeliculas.model.Usuario;
 import com.ejemplo.resenasPeliculas.repository.UsuarioRepository;
@@ -13,35 +22,129 @@ import com.ejemplo.resenasPeliculas.repository.UsuarioRepository;
  * Servicio que maneja la lógica de negocio relacionada con los usuarios.
  */
 @Service
+@Timed(MetricasConfig.TIMER_SERVICIOS)
 public class UsuarioService {
 
+    private static final Logger log = LoggerFactory.getLogger(UsuarioService.class);
+
+    // Contraseña con la que se calcula un hash cuando el usuario no existe
+    private static final String PASSWORD_FICTICIA = "usuario-inexistente";
+
     @Autowired
     private UsuarioRepository usuarioRepository;
 
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private DisponibilidadUsuariosService disponibilidadUsuariosService;
+
+    // Hash de PASSWORD_FICTICIA, calculado la primera vez que se necesita
+    private volatile String hashFicticio;
+
     public Optional<Usuario> findByUsername(String username) {
         return usuarioRepository.findByUsername(username);
     }
 
+    public Optional<Usuario> findById(Long id) {
+        return usuarioRepository.findById(id);
+    }
+
     /**
-     * Registra un nuevo usuario en la base de datos.
+     * Comprueba las credenciales de un usuario con una sola consulta.
+     * <p>
+     * Si el hash guardado es de un algoritmo antiguo o tiene un coste menor que
+     * el configurado, se vuelve a calcular con la contraseña recibida y se
+     * guarda. No abre ninguna transacción y la sesión no sigue abierta durante la
+     * petición ({@code spring.jpa.open-in-view=false}), así que la conexión de
+     * cada consulta se devuelve antes de esperar en el pool de hashes y no se
+     * ocupa ninguna mientras se calculan. Si el usuario no existe se
+     * calcula igualmente un hash, para que el tiempo de respuesta no revele qué
+     * nombres de usuario existen.
+     *
+     * @param username Nombre de usuario.
+     * @param password Contraseña en claro.
+     * @return El usuario, o vacío si las credenciales no son válidas.
+     * @throws RejectedExecutionException Si hay demasiados hashes pendientes de
+     *                                    calcular.
      */
-    public Usuario registerUser(UsuarioRegistrationDto dto) throws Exception {
-        // Verificar que el nombre de usuario no exista
-        if (usuarioRepository.existsByUsername(dto.getUsername())) {
-            throw new Exception("El nombre de usuario ya existe");
+    public Optional<Usuario> autenticar(String username, String password) {
+        Optional<Usuario> usuario = usuarioRepository.findByUsername(username);
+        if (usuario.isEmpty()) {
+            passwordEncoder.matches(password, getHashFicticio());
+            return Optional.empty();
         }
-        // Verificar que el email no exista
-        if (usuarioRepository.existsByEmail(dto.getEmail())) {
-            throw new Exception("El email ya existe");
+        if (!passwordEncoder.matches(password, usuario.get().getPassword())) {
+            return Optional.empty();
         }
+        if (passwordEncoder.upgradeEncoding(usuario.get().getPassword())) {
+            usuarioRepository.actualizarPassword(usuario.get().getId(), passwordEncoder.encode(password));
+        }
+        return usuario;
+    }
 
+    /**
+     * Registra un nuevo usuario en la base de datos, con el hash de su
+     * contraseña.
+     * <p>
+     * Se hace con un único INSERT: la unicidad del nombre de usuario y del email
+     * la garantizan las restricciones de la tabla, también con registros
+     * concurrentes, y sus violaciones se traducen al mensaje de error
+     * correspondiente.
+     */
+    public Usuario registerUser(UsuarioRegistrationDto dto) throws Exception {
         // Creamos un nuevo usuario
         Usuario usuario = new Usuario();
         usuario.setUsername(dto.getUsername());
         usuario.setEmail(dto.getEmail());
-        usuario.setPassword(dto.getPassword());
+        usuario.setPassword(passwordEncoder.encode(dto.getPassword()));
 
         // Guardamos y retornamos el usuario registrado
-        return usuarioRepository.save(usuario);
+        Usuario guardado;
+        try {
+            guardado = usuarioRepository.save(usuario);
+        } catch (DataIntegrityViolationException e) {
+            throw new Exception(mensajeDuplicado(e, dto), e);
+        }
+        disponibilidadUsuariosService.registrar(guardado);
+        return guardado;
+    }
+
+    // Mensaje de error según la restricción de unicidad que ha fallado
+    private String mensajeDuplicado(DataIntegrityViolationException e, UsuarioRegistrationDto dto) {
+        String restriccion = null;
+        for (Throwable causa = e; causa != null; causa = causa.getCause()) {
+            if (causa instanceof ConstraintViolationException violacion && violacion.getConstraintName() != null) {
+                restriccion = violacion.getConstraintName().toLowerCase(Locale.ROOT);
+                break;
+            }
+        }
+        if (restriccion != null && restriccion.contains(Usuario.RESTRICCION_USERNAME)) {
+            return "El nombre de usuario ya existe";
+        }
+        if (restriccion != null && restriccion.contains(Usuario.RESTRICCION_EMAIL)) {
+            return "El email ya existe";
+        }
+        // Restricción sin nombre conocido (índices creados antes de nombrarlas):
+        // se consulta qué valor está repetido
+        if (usuarioRepository.existsByUsername(dto.getUsername())) {
+            return "El nombre de usuario ya existe";
+        }
+        if (usuarioRepository.existsByEmail(dto.getEmail())) {
+            return "El email ya existe";
+        }
+        // Otra restricción: el mensaje de la base de datos incluye la sentencia
+        // SQL, así que solo se registra en el log
+        log.warn("No se ha podido registrar el usuario {}", dto.getUsername(), e);
+        return "No se ha podido registrar el usuario";
+    }
+
+    private String getHashFicticio() {
+        String hash = hashFicticio;
+        if (hash == null) {
+            hash = passwordEncoder.encode(PASSWORD_FICTICIA);
+            hashFicticio = hash;
+        }
+        return hash;
     }
 }
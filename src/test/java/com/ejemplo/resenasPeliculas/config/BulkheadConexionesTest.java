@@ -0,0 +1,68 @@
+package com.ejemplo.resenasPeliculas.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Comprueba el bulkhead de conexiones: limita las conexiones en uso, la espera
+ * por un permiso está acotada y cada permiso se devuelve una sola vez al cerrar
+ * la conexión.
+ * <p>
+ * Usa su propia base de datos en memoria: el contexto es distinto del de los
+ * demás tests y no debe recrear sus tablas.
+ */
+@SpringBootTest(properties = {
+		"bd.bulkhead.habilitado=true",
+		"bd.bulkhead.permisos=2",
+		"bd.bulkhead.espera-maxima=100ms",
+		"spring.datasource.url=jdbc:h2:mem:bulkhead;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1" })
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class BulkheadConexionesTest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Test
+	void limitaLasConexionesEnUso() throws Exception {
+		LimiteConexionesDataSource limite = assertInstanceOf(LimiteConexionesDataSource.class, dataSource);
+		Connection primera = dataSource.getConnection();
+		Connection segunda = dataSource.getConnection();
+		assertEquals(2, limite.getEnUso());
+
+		// Sin permisos libres, la espera termina con un error transitorio
+		assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+		assertEquals(0, limite.getEnEspera());
+
+		// Cerrar dos veces la misma conexión solo devuelve un permiso
+		primera.close();
+		primera.close();
+		assertEquals(1, limite.getEnUso());
+		Connection tercera = dataSource.getConnection();
+		assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+		segunda.close();
+		tercera.close();
+		assertEquals(0, limite.getEnUso());
+
+		// Las peticiones siguen funcionando a través del bulkhead
+		mockMvc.perform(get("/api/peliculas")).andExpect(status().isOk());
+		assertEquals(0, limite.getEnUso());
+	}
+}
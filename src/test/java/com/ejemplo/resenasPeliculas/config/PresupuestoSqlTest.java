@@ -0,0 +1,202 @@
+package com.ejemplo.resenasPeliculas.config;
+
+import com.ejemplo.resenasPeliculas.controller.PeliculaController;
+import com.ejemplo.resenasPeliculas.service.CacheRespuestas;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static java.util.Map.entry;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+
+/**
+ * Fija el presupuesto de sentencias SQL de cada endpoint y comprueba que se
+ * cumple con las cachés vacías.
+ * <p>
+ * En el perfil de test {@link PresupuestoSqlFilter} lanza una excepción si una
+ * petición supera su presupuesto, por lo que cualquier test que la haga falla.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class PresupuestoSqlTest {
+
+	// Presupuestos declarados: cambiar uno exige cambiarlo también aquí
+	private static final Map<String, Integer> PRESUPUESTOS = Map.ofEntries(
+			entry("POST /api/usuarios/registro", 1),
+			entry("POST /api/usuarios/login", 2),
+			entry("GET /api/usuarios/me", 1),
+			entry("GET /api/usuarios/disponible", 2),
+			entry("GET /api/peliculas", 2),
+			entry("GET /api/peliculas/buscar", 0),
+			entry("GET /api/peliculas/top", 0),
+			entry("GET /api/peliculas/autocompletar", 0),
+			entry("GET /api/peliculas/{id}", 1),
+			entry("GET /api/peliculas/{id}/estadisticas", 2),
+			entry("POST /api/peliculas", 1),
+			entry("PUT /api/peliculas/{id}", 2),
+			entry("DELETE /api/peliculas/{id}", 4),
+			entry("GET /api/resenas", 1),
+			entry("GET /api/resenas/{id}", 1),
+			entry("GET /api/resenas/pendientes/{id}", 0),
+			entry("GET /api/peliculas/{peliculaId}/resenas", 2),
+			entry("POST /api/resenas", 3),
+			entry("PUT /api/resenas/{id}", 4),
+			entry("DELETE /api/resenas/{id}", 4),
+			entry("POST /api/importacion/peliculas", PresupuestoSql.SIN_LIMITE),
+			entry("POST /api/importacion/resenas", PresupuestoSql.SIN_LIMITE),
+			entry("GET /api/exportacion/resenas", PresupuestoSql.SIN_LIMITE));
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	@Qualifier("requestMappingHandlerMapping")
+	private RequestMappingHandlerMapping handlerMapping;
+
+	@Autowired
+	private PresupuestoSqlFilter presupuestoSqlFilter;
+
+	@Autowired
+	private CacheRespuestas cacheRespuestas;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	// Compartido entre tests: la base de datos se mantiene durante toda la clase
+	private static int secuencia;
+
+	@Test
+	void todosLosEndpointsTienenPresupuesto() {
+		Map<String, Integer> declarados = new TreeMap<>();
+		for (Map.Entry<RequestMappingInfo, HandlerMethod> entrada : handlerMapping.getHandlerMethods().entrySet()) {
+			HandlerMethod metodo = entrada.getValue();
+			if (!metodo.getBeanType().getPackageName().equals(PeliculaController.class.getPackageName())) {
+				continue;
+			}
+			PresupuestoSql presupuesto = metodo.getMethodAnnotation(PresupuestoSql.class);
+			if (presupuesto == null) {
+				presupuesto = metodo.getBeanType().getAnnotation(PresupuestoSql.class);
+			}
+			assertNotNull(presupuesto, "Endpoint sin @PresupuestoSql: " + entrada.getKey());
+			for (var verbo : entrada.getKey().getMethodsCondition().getMethods()) {
+				for (String ruta : entrada.getKey().getPatternValues()) {
+					declarados.put(verbo + " " + ruta, presupuesto.value());
+				}
+			}
+		}
+		assertEquals(new TreeMap<>(PRESUPUESTOS), declarados);
+	}
+
+	@Test
+	void endpointsDentroDelPresupuesto() throws Exception {
+		int n = ++secuencia;
+		String usuario = "presupuesto" + n;
+		peticion(post("/api/usuarios/registro").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"username\":\"" + usuario + "\",\"email\":\"" + usuario
+						+ "@ejemplo.com\",\"password\":\"secreto\"}"));
+		JsonNode login = json(peticion(post("/api/usuarios/login").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"username\":\"" + usuario + "\",\"password\":\"secreto\"}")));
+		String token = "Bearer " + login.get("token").asText();
+		peticion(get("/api/usuarios/me").header("Authorization", token));
+		peticion(get("/api/usuarios/disponible?username=" + usuario + "&email=" + usuario + "@ejemplo.com"));
+
+		String pelicula = "{\"titulo\":\"Película " + n + "\",\"director\":\"Director\",\"genero\":\"Drama\","
+				+ "\"anioEstreno\":2000,\"sinopsis\":\"Sinopsis\"}";
+		long peliculaId = json(peticion(post("/api/peliculas").header("Authorization", token)
+				.contentType(MediaType.APPLICATION_JSON).content(pelicula))).get("id").asLong();
+		long resenaId = 0;
+		for (int i = 1; i <= 5; i++) {
+			resenaId = json(peticion(post("/api/resenas").header("Authorization", token)
+					.contentType(MediaType.APPLICATION_JSON)
+					.content("{\"contenido\":\"Reseña " + i + "\",\"rating\":" + i + ",\"pelicula\":{\"id\":"
+							+ peliculaId + "}}"))).get("id").asLong();
+		}
+
+		peticion(get("/api/peliculas"));
+		peticion(get("/api/peliculas/buscar?q=película"));
+		peticion(get("/api/peliculas/top?genero=drama&limit=5"));
+		peticion(get("/api/peliculas/autocompletar?prefijo=pel"));
+		peticion(get("/api/peliculas/" + peliculaId));
+		peticion(get("/api/peliculas/" + peliculaId + "/estadisticas"));
+		peticion(put("/api/peliculas/" + peliculaId).header("Authorization", token)
+				.contentType(MediaType.APPLICATION_JSON).content(pelicula.replace("Sinopsis", "Otra sinopsis")));
+		peticion(get("/api/resenas?limit=100"));
+		peticion(get("/api/resenas?limit=100&orden=rating"));
+		peticion(get("/api/resenas/" + resenaId));
+		peticion(get("/api/peliculas/" + peliculaId + "/resenas?limit=100"));
+		peticion(put("/api/resenas/" + resenaId).header("Authorization", token)
+				.contentType(MediaType.APPLICATION_JSON).content("{\"contenido\":\"Editada\",\"rating\":2}"));
+		peticion(delete("/api/resenas/" + resenaId).header("Authorization", token));
+		assertTrue(peticion(get("/api/exportacion/resenas").header("Authorization", token)).getResponse()
+				.getContentAsString(StandardCharsets.UTF_8).contains("\"contenido\":\"Reseña 4\""));
+
+		long otraId = json(peticion(post("/api/peliculas").header("Authorization", token)
+				.contentType(MediaType.APPLICATION_JSON).content(pelicula))).get("id").asLong();
+		peticion(delete("/api/peliculas/" + otraId).header("Authorization", token));
+	}
+
+	@Test
+	void superarElPresupuestoFalla() {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/peliculas");
+		request.setAttribute(PresupuestoSqlFilter.ATRIBUTO_PRESUPUESTO, 1);
+		request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/peliculas");
+		ContadorSentencias contador = new ContadorSentencias();
+
+		IllegalStateException error = assertThrows(IllegalStateException.class,
+				() -> presupuestoSqlFilter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+					contador.inspect("select 1");
+					contador.inspect("select 2");
+				}));
+		assertTrue(error.getMessage().contains("2 sentencias (máximo 1)"));
+	}
+
+	// Hace una petición con las cachés vacías y comprueba que termina sin error
+	private MvcResult peticion(RequestBuilder peticion) throws Exception {
+		entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+		cacheRespuestas.invalidarTodo();
+		MvcResult inicial = mockMvc.perform(peticion).andReturn();
+		MvcResult resultado = inicial.getRequest().isAsyncStarted()
+				? mockMvc.perform(asyncDispatch(inicial)).andReturn()
+				: inicial;
+		assertTrue(resultado.getResponse().getStatus() < 400,
+				() -> "Respuesta " + resultado.getResponse().getStatus());
+		return resultado;
+	}
+
+	private JsonNode json(MvcResult resultado) throws Exception {
+		return objectMapper.readTree(resultado.getResponse().getContentAsString());
+	}
+}
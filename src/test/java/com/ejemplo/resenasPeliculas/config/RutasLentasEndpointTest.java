@@ -0,0 +1,96 @@
+package com.ejemplo.resenasPeliculas.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Comprueba el orden de {@code /actuator/rutaslentas}: los temporizadores de la
+ * misma ruta se suman aunque difieran en el estado o la excepción, y cada
+ * criterio (total, media y máximo) da un orden distinto.
+ */
+class RutasLentasEndpointTest {
+
+	private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private final RutasLentasEndpoint endpoint = new RutasLentasEndpoint();
+
+	@BeforeEach
+	void registrarTiempos() {
+		ReflectionTestUtils.setField(endpoint, "meterRegistry", meterRegistry);
+
+		// Frecuente y rápida salvo una llamada: 318 ms en total, 3,18 ms de media, 120 ms de máximo
+		Timer ok = Timer.builder("http.server.requests")
+				.tags("method", "GET", "uri", "/api/peliculas", "status", "200").register(meterRegistry);
+		Timer noModificado = Timer.builder("http.server.requests")
+				.tags("method", "GET", "uri", "/api/peliculas", "status", "304").register(meterRegistry);
+		for (int i = 0; i < 60; i++) {
+			ok.record(Duration.ofMillis(2));
+		}
+		for (int i = 0; i < 39; i++) {
+			noModificado.record(Duration.ofMillis(2));
+		}
+		noModificado.record(Duration.ofMillis(120));
+
+		// Dos llamadas: 100 ms en total, 50 ms de media, 80 ms de máximo
+		Timer.builder(MetricasConfig.TIMER_SERVICIOS)
+				.tags("class", "com.ejemplo.resenasPeliculas.service.PeliculaService", "method", "getPelicula",
+						"exception", "none")
+				.register(meterRegistry).record(Duration.ofMillis(20));
+		Timer.builder(MetricasConfig.TIMER_SERVICIOS)
+				.tags("class", "com.ejemplo.resenasPeliculas.service.PeliculaService", "method", "getPelicula",
+						"exception", "NoSuchElementException")
+				.register(meterRegistry).record(Duration.ofMillis(80));
+
+		// Una sola llamada lenta: 150 ms
+		Timer.builder("spring.data.repository.invocations")
+				.tags("repository", "PeliculaRepository", "method", "findById").register(meterRegistry)
+				.record(Duration.ofMillis(150));
+
+		// Sin llamadas: no aparece
+		Timer.builder("spring.data.repository.invocations")
+				.tags("repository", "PeliculaRepository", "method", "findAll").register(meterRegistry);
+	}
+
+	@Test
+	void ordenPorTiempoTotal() {
+		List<Map<String, Object>> rutas = endpoint.rutas(null, null);
+
+		assertEquals(List.of("GET /api/peliculas", "PeliculaRepository.findById", "PeliculaService.getPelicula"),
+				nombres(rutas));
+		Map<String, Object> http = rutas.get(0);
+		assertEquals("http", http.get("tipo"));
+		assertEquals(100L, http.get("llamadas"));
+		assertEquals(318.0, http.get("totalMs"));
+		assertEquals(3.18, http.get("mediaMs"));
+		assertEquals(120.0, http.get("maxMs"));
+		assertEquals("servicio", rutas.get(2).get("tipo"));
+		assertEquals(2L, rutas.get(2).get("llamadas"));
+	}
+
+	@Test
+	void ordenPorMediaYPorMaximo() {
+		assertEquals(List.of("PeliculaRepository.findById", "PeliculaService.getPelicula", "GET /api/peliculas"),
+				nombres(endpoint.rutas("media", null)));
+		assertEquals(List.of("PeliculaRepository.findById", "GET /api/peliculas", "PeliculaService.getPelicula"),
+				nombres(endpoint.rutas("max", null)));
+	}
+
+	@Test
+	void limite() {
+		assertEquals(List.of("PeliculaRepository.findById"), nombres(endpoint.rutas("media", 1)));
+	}
+
+	private static List<Object> nombres(List<Map<String, Object>> rutas) {
+		return rutas.stream().map(ruta -> ruta.get("ruta")).toList();
+	}
+}
@@ -0,0 +1,279 @@
+package com.ejemplo.resenasPeliculas.controller;
+
+import com.ejemplo.resenasPeliculas.model.Pelicula;
+import com.ejemplo.resenasPeliculas.model.Resena;
+import com.ejemplo.resenasPeliculas.model.Usuario;
+import com.ejemplo.resenasPeliculas.repository.PeliculaRepository;
+import com.ejemplo.resenasPeliculas.repository.ResenaRepository;
+import com.ejemplo.resenasPeliculas.repository.UsuarioRepository;
+import com.ejemplo.resenasPeliculas.service.CacheRespuestas;
+import com.ejemplo.resenasPeliculas.service.PeliculaService;
+import com.ejemplo.resenasPeliculas.service.ResenaService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Comprueba que cada endpoint de lectura ejecuta un número fijo de sentencias
+ * SQL, independiente del número de reseñas, películas y autores devueltos.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ConsultasPorEndpointTest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private PeliculaRepository peliculaRepository;
+
+	@Autowired
+	private UsuarioRepository usuarioRepository;
+
+	@Autowired
+	private ResenaRepository resenaRepository;
+
+	@Autowired
+	private PeliculaService peliculaService;
+
+	@Autowired
+	private ResenaService resenaService;
+
+	@Autowired
+	private CacheRespuestas cacheRespuestas;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private SessionFactory sessionFactory;
+
+	// Compartido entre tests: la base de datos se mantiene durante toda la clase
+	private static int secuencia;
+
+	@FunctionalInterface
+	private interface Accion {
+		void ejecutar() throws Exception;
+	}
+
+	@BeforeEach
+	void preparar() {
+		sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+	}
+
+	@Test
+	void detalleDeResena() throws Exception {
+		Pelicula pelicula = crearPelicula();
+		Resena resena = crearResenas(pelicula, 1, 1).get(0);
+
+		assertEquals(1, sentencias(() -> mockMvc.perform(get("/api/resenas/" + resena.getId()))
+				.andExpect(status().isOk())));
+	}
+
+	@Test
+	void resenasDeUnaPelicula() throws Exception {
+		Pelicula pelicula = crearPelicula();
+		crearResenas(pelicula, 2, 2);
+		String url = "/api/peliculas/" + pelicula.getId() + "/resenas?limit=100";
+		long conPocas = sentencias(() -> mockMvc.perform(get(url)).andExpect(status().isOk()));
+
+		crearResenas(pelicula, 20, 10);
+		long conMuchas = sentencias(() -> mockMvc.perform(get(url)).andExpect(status().isOk()));
+
+		// Versión de las reseñas (ETag) y página
+		assertEquals(2, conPocas);
+		assertEquals(conPocas, conMuchas);
+	}
+
+	@Test
+	void peticionesCondicionales() throws Exception {
+		Pelicula pelicula = crearPelicula();
+		crearResenas(pelicula, 5, 2);
+		String urlPelicula = "/api/peliculas/" + pelicula.getId();
+		String urlResenas = urlPelicula + "/resenas?limit=100";
+		String etagPelicula = mockMvc.perform(get(urlPelicula)).andReturn().getResponse().getHeader("ETag");
+		String etagResenas = mockMvc.perform(get(urlResenas)).andReturn().getResponse().getHeader("ETag");
+
+		// Con el ETag vigente solo se lee la versión
+		assertEquals(1, sentencias(() -> mockMvc.perform(get(urlPelicula).header("If-None-Match", etagPelicula))
+				.andExpect(status().isNotModified())));
+		assertEquals(1, sentencias(() -> mockMvc.perform(get(urlResenas).header("If-None-Match", etagResenas))
+				.andExpect(status().isNotModified())));
+
+		// Una reseña nueva cambia la versión de las reseñas, no la de la película
+		resenaService.createResena(new Resena("Otra", 3, pelicula, usuarioRepository.findAll().get(0)));
+		mockMvc.perform(get(urlResenas).header("If-None-Match", etagResenas))
+				.andExpect(status().isOk())
+				.andExpect(header().string("ETag", not(etagResenas)));
+		mockMvc.perform(get(urlPelicula).header("If-None-Match", etagPelicula))
+				.andExpect(status().isNotModified());
+
+		// Editar la película cambia su versión
+		Pelicula cambios = new Pelicula("Nuevo título", pelicula.getDirector(), pelicula.getGenero(),
+				pelicula.getAnioEstreno(), pelicula.getSinopsis(), pelicula.getImagenUrl());
+		peliculaService.updatePelicula(pelicula.getId(), cambios);
+		mockMvc.perform(get(urlPelicula).header("If-None-Match", etagPelicula))
+				.andExpect(status().isOk())
+				.andExpect(header().string("ETag", not(etagPelicula)));
+	}
+
+	@Test
+	void respuestasCacheadas() throws Exception {
+		Pelicula pelicula = crearPelicula();
+		crearResenas(pelicula, 30, 3);
+		String urlPelicula = "/api/peliculas/" + pelicula.getId();
+		String urlResenas = urlPelicula + "/resenas?limit=30";
+		String detalle = mockMvc.perform(get(urlPelicula)).andReturn().getResponse().getContentAsString();
+		String resenas = mockMvc.perform(get(urlResenas)).andReturn().getResponse().getContentAsString();
+
+		// Los aciertos no ejecutan ninguna sentencia y devuelven los mismos bytes
+		Statistics estadisticas = sessionFactory.getStatistics();
+		estadisticas.clear();
+		mockMvc.perform(get(urlPelicula)).andExpect(status().isOk()).andExpect(content().string(detalle));
+		mockMvc.perform(get(urlResenas)).andExpect(status().isOk()).andExpect(content().string(resenas));
+		// La versión comprimida tiene su propio ETag
+		String etagResenas = mockMvc.perform(get(urlResenas)).andReturn().getResponse().getHeader("ETag");
+		String etagGzip = mockMvc.perform(get(urlResenas).header("Accept-Encoding", "gzip"))
+				.andExpect(status().isOk())
+				.andExpect(header().string("Content-Encoding", "gzip"))
+				.andExpect(header().stringValues("Vary", hasItem("Accept-Encoding")))
+				.andReturn().getResponse().getHeader("ETag");
+		assertEquals(etagResenas.substring(0, etagResenas.length() - 1) + "-gz\"", etagGzip);
+		mockMvc.perform(get(urlResenas).header("Accept-Encoding", "gzip").header("If-None-Match", etagGzip))
+				.andExpect(status().isNotModified())
+				.andExpect(header().string("ETag", etagGzip))
+				.andExpect(header().stringValues("Vary", hasItem("Accept-Encoding")));
+		mockMvc.perform(get(urlResenas).header("If-None-Match", etagGzip))
+				.andExpect(status().isOk())
+				.andExpect(header().string("ETag", etagResenas))
+				.andExpect(header().doesNotExist("Content-Encoding"));
+		assertEquals(0, estadisticas.getPrepareStatementCount());
+
+		// Un cambio en las reseñas invalida solo las páginas de reseñas de esa
+		// película
+		Pelicula otra = crearPelicula();
+		crearResenas(otra, 30, 3);
+		String urlOtra = "/api/peliculas/" + otra.getId() + "/resenas?limit=30";
+		mockMvc.perform(get(urlOtra)).andExpect(status().isOk());
+		resenaService.createResena(new Resena("Otra", 3, pelicula, usuarioRepository.findAll().get(0)));
+		estadisticas.clear();
+		mockMvc.perform(get(urlPelicula)).andExpect(status().isOk());
+		mockMvc.perform(get(urlOtra)).andExpect(status().isOk());
+		assertEquals(0, estadisticas.getPrepareStatementCount());
+		mockMvc.perform(get(urlResenas)).andExpect(status().isOk())
+				.andExpect(content().string(not(resenas)));
+
+		// Con el ETag comprimido de antes del cambio tampoco hay 304; con el nuevo
+		// sí, aunque la respuesta no esté en la caché, leyendo solo la versión
+		String etagNuevo = mockMvc.perform(get(urlResenas).header("Accept-Encoding", "gzip")
+						.header("If-None-Match", etagGzip))
+				.andExpect(status().isOk())
+				.andExpect(header().string("ETag", not(etagGzip)))
+				.andReturn().getResponse().getHeader("ETag");
+		assertEquals(1, sentencias(() -> mockMvc.perform(get(urlResenas).header("Accept-Encoding", "gzip")
+						.header("If-None-Match", etagNuevo))
+				.andExpect(status().isNotModified())
+				.andExpect(header().string("ETag", etagNuevo))));
+	}
+
+	@Test
+	void listadoDeResenas() throws Exception {
+		crearResenas(crearPelicula(), 2, 2);
+		long conPocas = sentencias(() -> mockMvc.perform(get("/api/resenas?limit=100&orden=rating"))
+				.andExpect(status().isOk()));
+
+		for (int i = 0; i < 5; i++) {
+			crearResenas(crearPelicula(), 4, 4);
+		}
+		long conMuchas = sentencias(() -> mockMvc.perform(get("/api/resenas?limit=100&orden=rating"))
+				.andExpect(status().isOk()));
+
+		assertEquals(1, conPocas);
+		assertEquals(conPocas, conMuchas);
+	}
+
+	@Test
+	void listadoDePeliculas() throws Exception {
+		crearResenas(crearPelicula(), 1, 1);
+		long conPocas = sentencias(() -> mockMvc.perform(get("/api/peliculas")).andExpect(status().isOk()));
+
+		for (int i = 0; i < 5; i++) {
+			crearResenas(crearPelicula(), 3, 3);
+		}
+		long conMuchas = sentencias(() -> mockMvc.perform(get("/api/peliculas")).andExpect(status().isOk()));
+
+		// Películas y estadísticas
+		assertEquals(2, conPocas);
+		assertEquals(conPocas, conMuchas);
+	}
+
+	@Test
+	void resenasPorPeliculaConGrafoCompleto() throws Exception {
+		Pelicula pelicula = crearPelicula();
+		crearResenas(pelicula, 10, 5);
+
+		// Fuera de una transacción: acceder a una asociación no cargada fallaría
+		assertEquals(1, sentencias(() -> resenaRepository.findByPeliculaId(pelicula.getId())
+				.forEach(ConsultasPorEndpointTest::recorrerAsociaciones)));
+		assertEquals(1, sentencias(() -> resenaRepository.findAll()
+				.forEach(ConsultasPorEndpointTest::recorrerAsociaciones)));
+	}
+
+	// Ejecuta una acción con las cachés vacías y cuenta las sentencias preparadas
+	private long sentencias(Accion accion) throws Exception {
+		sessionFactory.getCache().evictAllRegions();
+		cacheRespuestas.invalidarTodo();
+		Statistics estadisticas = sessionFactory.getStatistics();
+		estadisticas.clear();
+		accion.ejecutar();
+		return estadisticas.getPrepareStatementCount();
+	}
+
+	private static void recorrerAsociaciones(Resena resena) {
+		resena.getPelicula().getTitulo();
+		resena.getUsuario().getUsername();
+	}
+
+	private Pelicula crearPelicula() {
+		int n = ++secuencia;
+		return peliculaRepository.save(new Pelicula("Película " + n, "Director " + n, "Drama", 2000,
+				"Sinopsis " + n, Pelicula.IMAGEN_POR_DEFECTO));
+	}
+
+	// Crea reseñas de la película repartidas entre varios autores nuevos
+	private List<Resena> crearResenas(Pelicula pelicula, int numero, int autores) {
+		List<Usuario> usuarios = new ArrayList<>();
+		for (int i = 0; i < autores; i++) {
+			int n = ++secuencia;
+			Usuario usuario = new Usuario();
+			usuario.setUsername("usuario" + n);
+			usuario.setEmail("usuario" + n + "@ejemplo.com");
+			usuario.setPassword("secreto" + n);
+			usuarios.add(usuarioRepository.save(usuario));
+		}
+		List<Resena> resenas = new ArrayList<>();
+		for (int i = 0; i < numero; i++) {
+			resenas.add(resenaRepository.save(new Resena("Reseña " + i, 1 + i % 5, pelicula,
+					usuarios.get(i % autores))));
+		}
+		return resenas;
+	}
+}
@@ -0,0 +1,131 @@
+package com.ejemplo.resenasPeliculas.controller;
+
+import com.ejemplo.resenasPeliculas.model.Pelicula;
+import com.ejemplo.resenasPeliculas.service.PeliculaService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Comprueba que la importación de reseñas las asigna siempre al usuario
+ * autenticado, aunque el fichero indique otro autor, y que las importaciones
+ * actualizan las estadísticas, la búsqueda y la caché de respuestas de cada
+ * película afectada sin exponer el SQL de las filas rechazadas.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ImportacionResenasTest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private PeliculaService peliculaService;
+
+	// Compartido entre tests: la base de datos se mantiene durante toda la clase
+	private static int secuencia;
+
+	@Test
+	void asignaLasResenasAlUsuarioAutenticado() throws Exception {
+		JsonNode importador = registrar();
+		JsonNode otro = registrar();
+		long importadorId = importador.get("user").get("id").asLong();
+		Pelicula pelicula = peliculaService.createPelicula(new Pelicula("Importada", "Director", "Drama", 2000,
+				"Sinopsis", Pelicula.IMAGEN_POR_DEFECTO));
+
+		String ndjson = "{\"peliculaId\":" + pelicula.getId() + ",\"usuarioId\":" + otro.get("user").get("id")
+				+ ",\"rating\":4,\"contenido\":\"En nombre de otro\"}\n"
+				+ "{\"peliculaId\":" + pelicula.getId() + ",\"rating\":5,\"contenido\":\"Sin autor\"}\n";
+		mockMvc.perform(post("/api/importacion/resenas")
+						.header("Authorization", "Bearer " + importador.get("token").asText())
+						.contentType("application/x-ndjson")
+						.content(ndjson))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.filasInsertadas", is(2)));
+
+		mockMvc.perform(get("/api/peliculas/" + pelicula.getId() + "/resenas"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.elementos", hasSize(2)))
+				.andExpect(jsonPath("$.elementos[*].usuarioId", everyItem(is((int) importadorId))));
+
+		// Sin autenticar no se importa nada
+		mockMvc.perform(post("/api/importacion/resenas").contentType("application/x-ndjson").content(ndjson))
+				.andExpect(status().is4xxClientError());
+	}
+
+	@Test
+	void actualizaCadaPeliculaAfectada() throws Exception {
+		String token = "Bearer " + registrar().get("token").asText();
+		mockMvc.perform(post("/api/importacion/peliculas")
+						.header("Authorization", token)
+						.contentType("application/x-ndjson")
+						.content("{\"titulo\":\"Cormorán\",\"director\":\"Directora\",\"genero\":\"Drama\","
+								+ "\"anioEstreno\":2003,\"sinopsis\":\"Sinopsis\"}\n"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.filasInsertadas", is(1)));
+		String encontradas = mockMvc.perform(get("/api/peliculas/buscar").param("q", "cormoran"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$", hasSize(1)))
+				.andReturn().getResponse().getContentAsString();
+		long peliculaId = objectMapper.readTree(encontradas).get(0).get("id").asLong();
+
+		// Respuesta cacheada antes de la importación
+		mockMvc.perform(get("/api/peliculas/" + peliculaId + "/resenas"))
+				.andExpect(jsonPath("$.elementos", hasSize(0)));
+
+		// La fila de una película inexistente hace fallar el lote, que se reintenta fila a fila
+		String ndjson = "{\"peliculaId\":" + peliculaId + ",\"rating\":4,\"contenido\":\"Vuelo rasante\"}\n"
+				+ "{\"peliculaId\":999999999,\"rating\":3,\"contenido\":\"Sin película\"}\n"
+				+ "{\"peliculaId\":" + peliculaId + ",\"rating\":2,\"contenido\":\"Otra más\"}\n";
+		mockMvc.perform(post("/api/importacion/resenas")
+						.header("Authorization", token)
+						.contentType("application/x-ndjson")
+						.content(ndjson))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.filasInsertadas", is(2)))
+				.andExpect(jsonPath("$.errores[*].linea", contains(2)))
+				.andExpect(jsonPath("$.errores[0].mensaje", is(
+						"La base de datos ha rechazado la fila (por ejemplo, porque la película no existe)")));
+
+		mockMvc.perform(get("/api/peliculas/" + peliculaId + "/resenas"))
+				.andExpect(jsonPath("$.elementos", hasSize(2)));
+		mockMvc.perform(get("/api/peliculas/" + peliculaId + "/estadisticas"))
+				.andExpect(jsonPath("$.totalResenas", is(2)))
+				.andExpect(jsonPath("$.sumaRatings", is(6)));
+		mockMvc.perform(get("/api/peliculas/buscar").param("q", "rasante"))
+				.andExpect(jsonPath("$[*].id", contains((int) peliculaId)));
+	}
+
+	// Registra un usuario nuevo y devuelve la respuesta de su login
+	private JsonNode registrar() throws Exception {
+		String usuario = "importador" + (++secuencia);
+		mockMvc.perform(post("/api/usuarios/registro").contentType(MediaType.APPLICATION_JSON)
+						.content("{\"username\":\"" + usuario + "\",\"email\":\"" + usuario
+								+ "@ejemplo.com\",\"password\":\"secreto\"}"))
+				.andExpect(status().isCreated());
+		String login = mockMvc.perform(post("/api/usuarios/login").contentType(MediaType.APPLICATION_JSON)
+						.content("{\"username\":\"" + usuario + "\",\"password\":\"secreto\"}"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+		return objectMapper.readTree(login);
+	}
+}
@@ -0,0 +1,156 @@
+package com.ejemplo.resenasPeliculas.controller;
+
+import com.ejemplo.resenasPeliculas.model.Usuario;
+import com.ejemplo.resenasPeliculas.repository.UsuarioRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.sql.DataSource;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Satura el pool acotado de hashes: un login que espera en la cola no ocupa
+ * ninguna conexión a la base de datos, y con la cola llena el login responde
+ * 503 con {@code Retry-After} en lugar de esperar.
+ * <p>
+ * Usa su propia base de datos en memoria: el pool de hashes es distinto del de
+ * los demás tests y el contexto no debe recrear sus tablas.
+ */
+@SpringBootTest(properties = {
+		"seguridad.hash.hilos=1",
+		"seguridad.hash.capacidad=2",
+		"spring.datasource.url=jdbc:h2:mem:loginsaturado;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1" })
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class LoginSaturadoTest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private PasswordEncoder passwordEncoder;
+
+	@Autowired
+	private UsuarioRepository usuarioRepository;
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	/**
+	 * Contraseña que retiene el hilo del pool de hashes que la lee hasta que se
+	 * libera.
+	 */
+	private static final class PasswordBloqueante implements CharSequence {
+
+		private final CountDownLatch leida = new CountDownLatch(1);
+
+		private final CountDownLatch liberada = new CountDownLatch(1);
+
+		@Override
+		public String toString() {
+			leida.countDown();
+			try {
+				liberada.await(30, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return "bloqueante";
+		}
+
+		@Override
+		public int length() {
+			return toString().length();
+		}
+
+		@Override
+		public char charAt(int index) {
+			return toString().charAt(index);
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			return toString().subSequence(start, end);
+		}
+	}
+
+	@Test
+	void colaLlenaResponde503() throws Exception {
+		Usuario usuario = new Usuario();
+		usuario.setUsername("saturado");
+		usuario.setEmail("saturado@ejemplo.com");
+		usuario.setPassword(passwordEncoder.encode("secreto"));
+		usuarioRepository.save(usuario);
+
+		PasswordBloqueante bloqueante = new PasswordBloqueante();
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			// Ocupa el único hilo del pool de hashes
+			Future<Boolean> ocupado = executor.submit(() -> passwordEncoder.matches(bloqueante, "{noop}x"));
+			assertTrue(bloqueante.leida.await(10, TimeUnit.SECONDS));
+
+			// Un login válido espera en la cola sin retener ninguna conexión
+			Future<MockHttpServletResponse> enEspera = executor.submit(() -> login());
+			esperar(() -> enCola() == 1);
+			assertEquals(0, dataSource.unwrap(HikariDataSource.class).getHikariPoolMXBean().getActiveConnections());
+
+			// Con la cola llena, el siguiente login se rechaza enseguida
+			Future<Boolean> ultimo = executor.submit(() -> passwordEncoder.matches("otra", "{noop}x"));
+			esperar(() -> enCola() == 2);
+			MockHttpServletResponse rechazado = login();
+			assertEquals(503, rechazado.getStatus());
+			assertEquals("1", rechazado.getHeader(HttpHeaders.RETRY_AFTER));
+
+			// Al liberar el pool, el login que esperaba termina con éxito
+			bloqueante.liberada.countDown();
+			ocupado.get(10, TimeUnit.SECONDS);
+			ultimo.get(10, TimeUnit.SECONDS);
+			assertEquals(200, enEspera.get(10, TimeUnit.SECONDS).getStatus());
+			assertEquals(200, login().getStatus());
+		} finally {
+			bloqueante.liberada.countDown();
+			executor.shutdownNow();
+		}
+	}
+
+	private MockHttpServletResponse login() throws Exception {
+		return mockMvc.perform(post("/api/usuarios/login")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"username\":\"saturado\",\"password\":\"secreto\"}"))
+				.andReturn().getResponse();
+	}
+
+	// Operaciones esperando en la cola del pool de hashes
+	private double enCola() {
+		return meterRegistry.get("executor.queued").tag("name", "password.hash").gauge().value();
+	}
+
+	private static void esperar(BooleanSupplier condicion) throws InterruptedException {
+		long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (!condicion.getAsBoolean()) {
+			assertTrue(System.nanoTime() < limite, "Tiempo de espera agotado");
+			Thread.sleep(10);
+		}
+	}
+}
@@ -0,0 +1,170 @@
+package com.ejemplo.resenasPeliculas.controller;
+
+import com.ejemplo.resenasPeliculas.model.Pelicula;
+import com.ejemplo.resenasPeliculas.model.Resena;
+import com.ejemplo.resenasPeliculas.model.Usuario;
+import com.ejemplo.resenasPeliculas.repository.UsuarioRepository;
+import com.ejemplo.resenasPeliculas.service.PeliculaService;
+import com.ejemplo.resenasPeliculas.service.ResenaService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Comprueba la paginación por cursor de las reseñas: recorrer todas las páginas
+ * devuelve cada reseña una vez y en orden, también con muchas calificaciones
+ * iguales y con altas entre una página y la siguiente, y los cursores no válidos
+ * se rechazan.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class PaginacionCursorTest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private PeliculaService peliculaService;
+
+	@Autowired
+	private ResenaService resenaService;
+
+	@Autowired
+	private UsuarioRepository usuarioRepository;
+
+	// Compartido entre tests: la base de datos se mantiene durante toda la clase
+	private static int secuencia;
+
+	@Test
+	void recorreTodasLasPaginasEnOrden() throws Exception {
+		Pelicula pelicula = crearPelicula();
+		List<Resena> resenas = crearResenas(pelicula, 25);
+		String url = "/api/peliculas/" + pelicula.getId() + "/resenas";
+
+		// Por id: orden de creación
+		assertEquals(ids(resenas), recorrer(url + "?orden=id&limit=7"));
+
+		// Por calificación: solo hay tres valores distintos, y a igual
+		// calificación el id decide el orden
+		List<Resena> porRating = new ArrayList<>(resenas);
+		porRating.sort(Comparator.comparing(Resena::getRating).thenComparing(Resena::getId).reversed());
+		assertEquals(ids(porRating), recorrer(url + "?orden=rating&limit=4"));
+		assertEquals(ids(porRating), recorrer(url + "?orden=rating&limit=100"));
+	}
+
+	@Test
+	void altasEntrePaginasNoRepitenNiSaltan() throws Exception {
+		Pelicula pelicula = crearPelicula();
+		List<Resena> resenas = crearResenas(pelicula, 12);
+		String url = "/api/peliculas/" + pelicula.getId() + "/resenas?orden=rating&limit=5";
+
+		JsonNode primera = pagina(url);
+		List<Long> vistas = idsDe(primera);
+		// Nuevas reseñas con las mismas calificaciones que las ya entregadas:
+		// tienen ids mayores, así que en este orden quedarían antes del cursor
+		Usuario autor = crearUsuario();
+		for (int i = 0; i < 3; i++) {
+			resenaService.createResena(new Resena("Tardía " + i, 4, pelicula, autor));
+		}
+		String cursor = primera.get("siguienteCursor").asText();
+		while (cursor != null) {
+			JsonNode siguiente = pagina(url + "&cursor=" + cursor);
+			vistas.addAll(idsDe(siguiente));
+			cursor = siguiente.get("hayMas").asBoolean() ? siguiente.get("siguienteCursor").asText() : null;
+		}
+
+		assertEquals(vistas.size(), new HashSet<>(vistas).size());
+		assertTrue(vistas.containsAll(ids(resenas)));
+	}
+
+	@Test
+	void rechazaCursoresNoValidos() throws Exception {
+		Pelicula pelicula = crearPelicula();
+		crearResenas(pelicula, 3);
+		String url = "/api/peliculas/" + pelicula.getId() + "/resenas";
+		String cursorPorId = pagina(url + "?orden=id&limit=1").get("siguienteCursor").asText();
+
+		mockMvc.perform(get(url).param("orden", "rating").param("cursor", cursorPorId))
+				.andExpect(status().isBadRequest());
+		mockMvc.perform(get(url).param("cursor", "no-es-un-cursor")).andExpect(status().isBadRequest());
+		mockMvc.perform(get("/api/resenas").param("orden", "votos")).andExpect(status().isBadRequest());
+		mockMvc.perform(get("/api/resenas").param("limit", "0")).andExpect(status().isBadRequest());
+	}
+
+	// Sigue los cursores hasta la última página y devuelve los ids recibidos
+	private List<Long> recorrer(String url) throws Exception {
+		List<Long> ids = new ArrayList<>();
+		Set<String> cursores = new HashSet<>();
+		JsonNode pagina = pagina(url);
+		ids.addAll(idsDe(pagina));
+		while (pagina.get("hayMas").asBoolean()) {
+			String cursor = pagina.get("siguienteCursor").asText();
+			assertTrue(cursores.add(cursor), "Cursor repetido");
+			pagina = pagina(url + "&cursor=" + cursor);
+			ids.addAll(idsDe(pagina));
+		}
+		assertFalse(pagina.get("hayMas").asBoolean());
+		return ids;
+	}
+
+	private JsonNode pagina(String url) throws Exception {
+		return objectMapper.readTree(mockMvc.perform(get(url))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8));
+	}
+
+	private static List<Long> idsDe(JsonNode pagina) {
+		List<Long> ids = new ArrayList<>();
+		pagina.get("elementos").forEach(resena -> ids.add(resena.get("id").asLong()));
+		return ids;
+	}
+
+	private static List<Long> ids(List<Resena> resenas) {
+		return resenas.stream().map(Resena::getId).toList();
+	}
+
+	private List<Resena> crearResenas(Pelicula pelicula, int cantidad) {
+		Usuario autor = crearUsuario();
+		List<Resena> resenas = new ArrayList<>();
+		for (int i = 0; i < cantidad; i++) {
+			resenas.add(resenaService.createResena(new Resena("Reseña " + i, 2 + i % 3, pelicula, autor)));
+		}
+		return resenas;
+	}
+
+	private Pelicula crearPelicula() {
+		return peliculaService.createPelicula(new Pelicula("Paginada " + (++secuencia), "Director", "Drama", 2000,
+				"Sinopsis", Pelicula.IMAGEN_POR_DEFECTO));
+	}
+
+	private Usuario crearUsuario() {
+		int n = ++secuencia;
+		Usuario usuario = new Usuario();
+		usuario.setUsername("paginacion" + n);
+		usuario.setEmail("paginacion" + n + "@ejemplo.com");
+		usuario.setPassword("secreto" + n);
+		return usuarioRepository.save(usuario);
+	}
+}
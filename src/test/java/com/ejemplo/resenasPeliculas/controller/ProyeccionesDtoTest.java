@@ -0,0 +1,144 @@
+package com.ejemplo.resenasPeliculas.controller;
+
+import com.ejemplo.resenasPeliculas.model.Pelicula;
+import com.ejemplo.resenasPeliculas.model.Resena;
+import com.ejemplo.resenasPeliculas.model.Usuario;
+import com.ejemplo.resenasPeliculas.repository.UsuarioRepository;
+import com.ejemplo.resenasPeliculas.service.CacheRespuestas;
+import com.ejemplo.resenasPeliculas.service.PeliculaService;
+import com.ejemplo.resenasPeliculas.service.ResenaService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Comprueba que los listados devuelven proyecciones compactas: las reseñas sin
+ * la película ni el usuario completos y las películas sin la sinopsis, sin
+ * cargar entidades, y que ninguna respuesta incluye la contraseña.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ProyeccionesDtoTest {
+
+	private static final Set<String> CAMPOS_RESENA = Set.of("id", "contenido", "rating", "peliculaId", "usuarioId",
+			"username");
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private PeliculaService peliculaService;
+
+	@Autowired
+	private ResenaService resenaService;
+
+	@Autowired
+	private UsuarioRepository usuarioRepository;
+
+	@Autowired
+	private CacheRespuestas cacheRespuestas;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Test
+	void listadosDeResenas() throws Exception {
+		Pelicula pelicula = peliculaService.createPelicula(new Pelicula("Proyectada", "Directora", "Drama", 1999,
+				"Una sinopsis larga que no debe viajar en los listados", Pelicula.IMAGEN_POR_DEFECTO));
+		Usuario autor = new Usuario();
+		autor.setUsername("proyecciones");
+		autor.setEmail("proyecciones@ejemplo.com");
+		autor.setPassword("secreto");
+		autor = usuarioRepository.save(autor);
+		Resena resena = resenaService.createResena(new Resena("Compacta", 4, pelicula, autor));
+
+		cacheRespuestas.invalidarTodo();
+		Statistics estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		estadisticas.clear();
+		JsonNode deLaPelicula = json("/api/peliculas/" + pelicula.getId() + "/resenas").get("elementos");
+		JsonNode todas = json("/api/resenas?limit=100").get("elementos");
+		// Se leen columnas sueltas: ni reseñas, ni películas ni usuarios como entidades
+		assertEquals(0, estadisticas.getEntityLoadCount());
+		assertEquals(0, estadisticas.getEntityFetchCount());
+
+		assertEquals(1, deLaPelicula.size());
+		JsonNode elemento = deLaPelicula.get(0);
+		assertEquals(CAMPOS_RESENA, campos(elemento));
+		assertEquals(resena.getId(), elemento.get("id").asLong());
+		assertEquals("Compacta", elemento.get("contenido").asText());
+		assertEquals(4, elemento.get("rating").asInt());
+		assertEquals(pelicula.getId(), elemento.get("peliculaId").asLong());
+		assertEquals(autor.getId(), elemento.get("usuarioId").asLong());
+		assertEquals("proyecciones", elemento.get("username").asText());
+		for (JsonNode otra : todas) {
+			assertEquals(CAMPOS_RESENA, campos(otra));
+		}
+
+		// El detalle de una reseña sigue siendo la entidad, pero sin contraseña
+		String detalle = texto("/api/resenas/" + resena.getId());
+		assertFalse(detalle.contains("password"), detalle);
+		assertFalse(detalle.contains("secreto"), detalle);
+	}
+
+	@Test
+	void listadoDePeliculas() throws Exception {
+		Pelicula pelicula = peliculaService.createPelicula(new Pelicula("Sin sinopsis", "Director", "Comedia", 2011,
+				"Esta sinopsis solo aparece en el detalle", Pelicula.IMAGEN_POR_DEFECTO));
+
+		JsonNode encontrada = null;
+		for (JsonNode elemento : json("/api/peliculas")) {
+			assertFalse(elemento.has("sinopsis"));
+			assertNotNull(elemento.get("estadisticas"));
+			if (elemento.get("id").asLong() == pelicula.getId()) {
+				encontrada = elemento;
+			}
+		}
+		assertNotNull(encontrada);
+		assertEquals("Sin sinopsis", encontrada.get("titulo").asText());
+		assertEquals("Director", encontrada.get("director").asText());
+		assertEquals("Comedia", encontrada.get("genero").asText());
+		assertEquals(2011, encontrada.get("anioEstreno").asInt());
+		assertEquals(Pelicula.IMAGEN_POR_DEFECTO, encontrada.get("imagenUrl").asText());
+
+		assertEquals("Esta sinopsis solo aparece en el detalle",
+				json("/api/peliculas/" + pelicula.getId()).get("sinopsis").asText());
+	}
+
+	private JsonNode json(String url) throws Exception {
+		return objectMapper.readTree(texto(url));
+	}
+
+	private String texto(String url) throws Exception {
+		return mockMvc.perform(get(url))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+	}
+
+	private static Set<String> campos(JsonNode nodo) {
+		Set<String> campos = new HashSet<>();
+		nodo.fieldNames().forEachRemaining(campos::add);
+		return campos;
+	}
+}
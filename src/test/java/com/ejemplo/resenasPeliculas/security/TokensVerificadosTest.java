@@ -0,0 +1,191 @@
+package com.ejemplo.resenasPeliculas.security;
+
+import com.ejemplo.resenasPeliculas.repository.UsuarioRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.security.Key;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Date;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Comprueba la caché de tokens JWT verificados: las peticiones siguientes con
+ * el mismo token no lo vuelven a verificar, las entradas caducan con el token o
+ * con el tiempo máximo configurado, los tokens alterados o caducados se
+ * rechazan sin guardarse y el token de un usuario eliminado deja de valer en
+ * cuanto sale de la caché.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class TokensVerificadosTest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private CacheTokensVerificados cacheTokens;
+
+	@Autowired
+	private JWTUtil jwtUtil;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	private UsuarioRepository usuarioRepository;
+
+	// Compartido entre tests: la base de datos se mantiene durante toda la clase
+	private static int secuencia;
+
+	@Test
+	void lasPeticionesSiguientesSeResuelvenDesdeLaCache() throws Exception {
+		JsonNode login = registrar();
+		String token = login.get("token").asText();
+		cacheTokens.invalidarTodo();
+		double validos = validaciones("valido");
+		long aciertos = autenticaciones("hit");
+
+		for (int i = 0; i < 3; i++) {
+			mockMvc.perform(get("/api/usuarios/me").header("Authorization", "Bearer " + token))
+					.andExpect(status().isOk())
+					.andExpect(jsonPath("$.id", is(login.get("user").get("id").asInt())));
+		}
+		// Solo la primera petición verifica el token
+		assertEquals(validos + 1, validaciones("valido"));
+		assertEquals(aciertos + 2, autenticaciones("hit"));
+		assertEquals(login.get("user").get("id").asLong(), cacheTokens.get(token).getId());
+
+		// Tras vaciar la caché el token se verifica de nuevo
+		cacheTokens.invalidarTodo();
+		mockMvc.perform(get("/api/usuarios/me").header("Authorization", "Bearer " + token))
+				.andExpect(status().isOk());
+		assertEquals(validos + 2, validaciones("valido"));
+	}
+
+	@Test
+	void lasEntradasCaducan() throws Exception {
+		CacheTokensVerificados cache = new CacheTokensVerificados(new SimpleMeterRegistry(), 100,
+				Duration.ofSeconds(1));
+		UsuarioAutenticado usuario = new UsuarioAutenticado(1L, "caducidad", "", Collections.emptyList());
+		long ahora = System.currentTimeMillis();
+
+		// Con la expiración del token
+		cache.put("corto", usuario, ahora + 200);
+		// Con el tiempo máximo, aunque el token dure más
+		cache.put("largo", usuario, ahora + 3_600_000);
+		// Un token ya caducado no se guarda
+		cache.put("caducado", usuario, ahora - 1);
+		assertNotNull(cache.get("corto"));
+		assertNotNull(cache.get("largo"));
+		assertNull(cache.get("caducado"));
+
+		Thread.sleep(400);
+		assertNull(cache.get("corto"));
+		assertNotNull(cache.get("largo"));
+		Thread.sleep(800);
+		assertNull(cache.get("largo"));
+	}
+
+	@Test
+	void losTokensRechazadosNoSeGuardan() throws Exception {
+		JsonNode login = registrar();
+		String token = login.get("token").asText();
+		double invalidos = validaciones("invalido");
+		double caducados = validaciones("caducado");
+
+		// Firma alterada
+		String alterado = token.substring(0, token.length() - 2)
+				+ (token.endsWith("AA") ? "BB" : "AA");
+		mockMvc.perform(get("/api/usuarios/me").header("Authorization", "Bearer " + alterado))
+				.andExpect(status().isForbidden());
+		assertNull(cacheTokens.get(alterado));
+		assertEquals(invalidos + 1, validaciones("invalido"));
+
+		// Firmado correctamente pero caducado
+		Key clave = (Key) ReflectionTestUtils.getField(jwtUtil, "signingKey");
+		String caducado = Jwts.builder()
+				.setSubject(login.get("user").get("username").asText())
+				.claim(JWTUtil.CLAIM_USUARIO_ID, login.get("user").get("id").asLong())
+				.setIssuedAt(new Date(System.currentTimeMillis() - 120_000))
+				.setExpiration(new Date(System.currentTimeMillis() - 60_000))
+				.signWith(clave, SignatureAlgorithm.HS256)
+				.compact();
+		mockMvc.perform(get("/api/usuarios/me").header("Authorization", "Bearer " + caducado))
+				.andExpect(status().isForbidden());
+		assertNull(cacheTokens.get(caducado));
+		assertEquals(caducados + 1, validaciones("caducado"));
+
+		// El token original sigue siendo válido
+		mockMvc.perform(get("/api/usuarios/me").header("Authorization", "Bearer " + token))
+				.andExpect(status().isOk());
+	}
+
+	@Test
+	void elTokenDeUnUsuarioEliminadoSeRechaza() throws Exception {
+		JsonNode login = registrar();
+		String token = login.get("token").asText();
+		mockMvc.perform(get("/api/usuarios/me").header("Authorization", "Bearer " + token))
+				.andExpect(status().isOk());
+		double inexistentes = validaciones("usuario_inexistente");
+
+		usuarioRepository.deleteById(login.get("user").get("id").asLong());
+
+		// Mientras el token está en la caché sigue autenticando, como mucho jwt.cache.ttl-maximo
+		assertNotNull(cacheTokens.get(token));
+
+		// Al verificarlo de nuevo se comprueba que el usuario existe
+		cacheTokens.invalidarTodo();
+		mockMvc.perform(get("/api/usuarios/me").header("Authorization", "Bearer " + token))
+				.andExpect(status().isForbidden());
+		assertNull(cacheTokens.get(token));
+		assertEquals(inexistentes + 1, validaciones("usuario_inexistente"));
+	}
+
+	private double validaciones(String resultado) {
+		return meterRegistry.counter("jwt.validaciones", "resultado", resultado).count();
+	}
+
+	private long autenticaciones(String cache) {
+		return meterRegistry.get("jwt.autenticacion").tag("cache", cache).timer().count();
+	}
+
+	// Registra un usuario nuevo y devuelve la respuesta de su login
+	private JsonNode registrar() throws Exception {
+		String usuario = "tokens" + (++secuencia);
+		mockMvc.perform(post("/api/usuarios/registro").contentType(MediaType.APPLICATION_JSON)
+						.content("{\"username\":\"" + usuario + "\",\"email\":\"" + usuario
+								+ "@ejemplo.com\",\"password\":\"secreto\"}"))
+				.andExpect(status().isCreated());
+		String login = mockMvc.perform(post("/api/usuarios/login").contentType(MediaType.APPLICATION_JSON)
+						.content("{\"username\":\"" + usuario + "\",\"password\":\"secreto\"}"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+		return objectMapper.readTree(login);
+	}
+}
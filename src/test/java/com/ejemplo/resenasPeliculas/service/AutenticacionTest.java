@@ -0,0 +1,85 @@
+package com.ejemplo.resenasPeliculas.service;
+
+import com.ejemplo.resenasPeliculas.model.Usuario;
+import com.ejemplo.resenasPeliculas.repository.UsuarioRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Comprueba que el login vuelve a codificar las contraseñas obsoletas: los
+ * hashes con un coste menor que el configurado y las contraseñas antiguas en
+ * claro, con o sin prefijo {@code {noop}}. Las credenciales erróneas no cambian
+ * nada.
+ * <p>
+ * Usa su propia base de datos en memoria: el coste de BCrypt es distinto del de
+ * los demás tests y el contexto no debe recrear sus tablas.
+ */
+@SpringBootTest(properties = {
+		"seguridad.hash.coste=5",
+		"spring.datasource.url=jdbc:h2:mem:autenticacion;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1" })
+@ActiveProfiles("test")
+class AutenticacionTest {
+
+	// Prefijo de un hash BCrypt con el coste configurado en este test
+	private static final String PREFIJO_COSTE_ACTUAL = "{bcrypt}$2a$05$";
+
+	@Autowired
+	private UsuarioService usuarioService;
+
+	@Autowired
+	private UsuarioRepository usuarioRepository;
+
+	// Compartido entre tests: la base de datos se mantiene durante toda la clase
+	private static int secuencia;
+
+	@Test
+	void rehashTrasSubirElCoste() {
+		String anterior = "{bcrypt}" + new BCryptPasswordEncoder(4).encode("secreto");
+		Usuario usuario = crearUsuario(anterior);
+
+		assertTrue(usuarioService.autenticar(usuario.getUsername(), "incorrecta").isEmpty());
+		assertEquals(anterior, passwordGuardada(usuario));
+
+		assertTrue(usuarioService.autenticar(usuario.getUsername(), "secreto").isPresent());
+		String nueva = passwordGuardada(usuario);
+		assertTrue(nueva.startsWith(PREFIJO_COSTE_ACTUAL), nueva);
+
+		// Con el coste actual ya no se vuelve a codificar
+		assertTrue(usuarioService.autenticar(usuario.getUsername(), "secreto").isPresent());
+		assertEquals(nueva, passwordGuardada(usuario));
+	}
+
+	@Test
+	void migraLasContrasenasEnClaro() {
+		for (String antigua : new String[] { "{noop}secreto", "secreto" }) {
+			Usuario usuario = crearUsuario(antigua);
+
+			assertTrue(usuarioService.autenticar(usuario.getUsername(), "incorrecta").isEmpty());
+			assertEquals(antigua, passwordGuardada(usuario));
+
+			assertTrue(usuarioService.autenticar(usuario.getUsername(), "secreto").isPresent());
+			String nueva = passwordGuardada(usuario);
+			assertTrue(nueva.startsWith(PREFIJO_COSTE_ACTUAL), nueva);
+			assertTrue(usuarioService.autenticar(usuario.getUsername(), "secreto").isPresent());
+		}
+	}
+
+	private Usuario crearUsuario(String password) {
+		int n = ++secuencia;
+		Usuario usuario = new Usuario();
+		usuario.setUsername("autenticacion" + n);
+		usuario.setEmail("autenticacion" + n + "@ejemplo.com");
+		usuario.setPassword(password);
+		return usuarioRepository.save(usuario);
+	}
+
+	private String passwordGuardada(Usuario usuario) {
+		return usuarioRepository.findByUsername(usuario.getUsername()).orElseThrow().getPassword();
+	}
+}
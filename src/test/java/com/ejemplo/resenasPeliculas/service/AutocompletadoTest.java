@@ -0,0 +1,220 @@
+package com.ejemplo.resenasPeliculas.service;
+
+import com.ejemplo.resenasPeliculas.model.Pelicula;
+import com.ejemplo.resenasPeliculas.model.Resena;
+import com.ejemplo.resenasPeliculas.model.Usuario;
+import com.ejemplo.resenasPeliculas.repository.UsuarioRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.emptyIterable;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Comprueba el autocompletado de títulos: coincidencia por prefijo sin
+ * distinguir mayúsculas ni tildes, orden por número de reseñas y cambios de
+ * películas y reseñas reflejados al momento, también cuando llegan a la vez
+ * desde varios hilos.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class AutocompletadoTest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private PeliculaService peliculaService;
+
+	@Autowired
+	private ResenaService resenaService;
+
+	@Autowired
+	private UsuarioRepository usuarioRepository;
+
+	private int secuencia;
+
+	@Test
+	void sugiereLasPeliculasConMasResenas() throws Exception {
+		Pelicula uno = crearPelicula("Quíxote uno");
+		Pelicula dos = crearPelicula("QUIXOTE  dos");
+		Pelicula tres = crearPelicula("Quixote tres");
+		crearResena(dos);
+		Resena resena = crearResena(dos);
+		crearResena(tres);
+
+		sugerencias("quixo", "QUIXOTE  dos", "Quixote tres", "Quíxote uno")
+				.andExpect(jsonPath("$[*].totalResenas", contains(2, 1, 0)));
+		sugerencias("  QUÍXOTE   T", "Quixote tres")
+				.andExpect(jsonPath("$[0].id").value(tres.getId()));
+		sugerencias("quixote ", "QUIXOTE  dos", "Quixote tres", "Quíxote uno");
+		mockMvc.perform(get("/api/peliculas/autocompletar").param("prefijo", "quixotes"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$", emptyIterable()));
+		mockMvc.perform(get("/api/peliculas/autocompletar").param("prefijo", "quixote").param("limit", "1"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$[*].titulo", contains("QUIXOTE  dos")));
+
+		// Una reseña menos y dos más, un título cambiado, una película nueva y una
+		// eliminada
+		resenaService.deleteResena(resena.getId(), resena.getUsuario().getId());
+		crearResena(uno);
+		crearResena(uno);
+		sugerencias("quixo", "Quíxote uno", "QUIXOTE  dos", "Quixote tres")
+				.andExpect(jsonPath("$[*].totalResenas", contains(2, 1, 1)));
+
+		peliculaService.updatePelicula(uno.getId(), new Pelicula("Otro título", uno.getDirector(), uno.getGenero(),
+				uno.getAnioEstreno(), uno.getSinopsis(), uno.getImagenUrl()));
+		Pelicula cuatro = crearPelicula("Quixote cuatro");
+		sugerencias("quixo", "QUIXOTE  dos", "Quixote tres", "Quixote cuatro");
+		peliculaService.deletePelicula(cuatro.getId());
+		sugerencias("quixo", "QUIXOTE  dos", "Quixote tres");
+		sugerencias("otro tit", "Otro título")
+				.andExpect(jsonPath("$[0].id").value(uno.getId()))
+				.andExpect(jsonPath("$[0].totalResenas").value(2));
+	}
+
+	@Test
+	void cambiosConcurrentesIgualQueRecargar() throws Exception {
+		String[] palabras = { "alfa", "Álamo", "beta", "bosque", "cielo", "Cíclope", "delta", "duna" };
+		Random aleatorio = new Random(7);
+		Map<Long, Pelicula> peliculas = new HashMap<>();
+		Map<Long, Long> resenas = new HashMap<>();
+		for (long id = 1; id <= 20_000; id++) {
+			peliculas.put(id, pelicula(id, palabras[aleatorio.nextInt(palabras.length)] + " " + id));
+			resenas.put(id, (long) aleatorio.nextInt(50));
+		}
+		AutocompletadoService incremental = new AutocompletadoService();
+		incremental.cargar(peliculas.values(), resenas);
+
+		// Cada hilo cambia sus propias películas: el resultado no depende del orden
+		int hilos = 4;
+		List<List<Runnable>> cambios = new ArrayList<>();
+		for (int h = 0; h < hilos; h++) {
+			cambios.add(new ArrayList<>());
+		}
+		for (int i = 0; i < 4000; i++) {
+			long id = 1 + aleatorio.nextInt(24_000);
+			List<Runnable> delHilo = cambios.get((int) (id % hilos));
+			switch (aleatorio.nextInt(5)) {
+				case 0 -> {
+					Pelicula nueva = pelicula(id, palabras[aleatorio.nextInt(palabras.length)] + " " + i);
+					peliculas.put(id, nueva);
+					resenas.putIfAbsent(id, 0L);
+					delHilo.add(() -> incremental.onPelicula(
+							new EventoPelicula(EventoPelicula.Tipo.ACTUALIZADA, id, nueva)));
+				}
+				case 1 -> {
+					peliculas.remove(id);
+					resenas.remove(id);
+					delHilo.add(() -> incremental.onPelicula(
+							new EventoPelicula(EventoPelicula.Tipo.ELIMINADA, id, null)));
+				}
+				case 2 -> {
+					// Mismo título normalizado
+					if (peliculas.containsKey(id)) {
+						String titulo = peliculas.get(id).getTitulo();
+						Pelicula nueva = pelicula(id, titulo.equals(titulo.toUpperCase()) ? titulo.toLowerCase()
+								: titulo.toUpperCase());
+						peliculas.put(id, nueva);
+						delHilo.add(() -> incremental.onPelicula(
+								new EventoPelicula(EventoPelicula.Tipo.ACTUALIZADA, id, nueva)));
+					}
+				}
+				default -> {
+					if (peliculas.containsKey(id)) {
+						boolean alta = aleatorio.nextBoolean() || resenas.get(id) == 0;
+						resenas.merge(id, alta ? 1L : -1L, Long::sum);
+						delHilo.add(() -> incremental.onResena(new EventoResena(alta
+								? EventoResena.Tipo.CREADA : EventoResena.Tipo.ELIMINADA, 0L, id, null, null, null, null, 0)));
+					}
+				}
+			}
+		}
+		ExecutorService ejecutor = Executors.newFixedThreadPool(hilos);
+		try {
+			List<Future<?>> tareas = new ArrayList<>();
+			for (List<Runnable> delHilo : cambios) {
+				tareas.add(ejecutor.submit(() -> delHilo.forEach(Runnable::run)));
+			}
+			for (Future<?> tarea : tareas) {
+				tarea.get();
+			}
+		} finally {
+			ejecutor.shutdown();
+		}
+
+		AutocompletadoService recargado = new AutocompletadoService();
+		recargado.cargar(peliculas.values(), resenas);
+		for (String prefijo : new String[] { "a", "al", "ala", "b", "bos", "c", "cic", "d", "delta 1", "z" }) {
+			assertEquals(titulosYResenas(recargado, prefijo), titulosYResenas(incremental, prefijo), prefijo);
+		}
+		// Cada título completo, para llegar también a las películas con pocas reseñas
+		for (String palabra : palabras) {
+			for (int n = 0; n <= 24_000; n++) {
+				String prefijo = palabra + " " + n;
+				assertEquals(titulosYResenas(recargado, prefijo), titulosYResenas(incremental, prefijo), prefijo);
+			}
+		}
+	}
+
+	@Test
+	void prefijoYLimiteObligatorios() throws Exception {
+		mockMvc.perform(get("/api/peliculas/autocompletar").param("prefijo", "  "))
+				.andExpect(status().isBadRequest());
+		mockMvc.perform(get("/api/peliculas/autocompletar").param("prefijo", "a").param("limit", "0"))
+				.andExpect(status().isBadRequest());
+	}
+
+	private ResultActions sugerencias(String prefijo, String... titulos) throws Exception {
+		return mockMvc.perform(get("/api/peliculas/autocompletar").param("prefijo", prefijo))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$[*].titulo", contains(titulos)));
+	}
+
+	private static List<String> titulosYResenas(AutocompletadoService servicio, String prefijo) {
+		return servicio.getSugerencias(prefijo, AutocompletadoService.LIMITE_MAXIMO).stream()
+				.map(s -> s.getId() + " " + s.getTitulo() + " " + s.getTotalResenas())
+				.toList();
+	}
+
+	private static Pelicula pelicula(long id, String titulo) {
+		Pelicula pelicula = new Pelicula(titulo, "Director", "Drama", 2000, null, null);
+		pelicula.setId(id);
+		return pelicula;
+	}
+
+	private Pelicula crearPelicula(String titulo) {
+		return peliculaService.createPelicula(new Pelicula(titulo, "Director", "Aventuras", 2000, "Sinopsis",
+				Pelicula.IMAGEN_POR_DEFECTO));
+	}
+
+	// Cada reseña con un autor nuevo
+	private Resena crearResena(Pelicula pelicula) {
+		int n = ++secuencia;
+		Usuario usuario = new Usuario();
+		usuario.setUsername("autocompletado" + n);
+		usuario.setEmail("autocompletado" + n + "@ejemplo.com");
+		usuario.setPassword("secreto" + n);
+		return resenaService.createResena(new Resena("Reseña " + n, 4, pelicula, usuarioRepository.save(usuario)));
+	}
+}
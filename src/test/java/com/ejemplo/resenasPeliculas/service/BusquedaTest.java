@@ -0,0 +1,223 @@
+package com.ejemplo.resenasPeliculas.service;
+
+import com.ejemplo.resenasPeliculas.dto.ResultadoBusquedaDto;
+import com.ejemplo.resenasPeliculas.model.Pelicula;
+import com.ejemplo.resenasPeliculas.model.Resena;
+import com.ejemplo.resenasPeliculas.model.Usuario;
+import com.ejemplo.resenasPeliculas.repository.UsuarioRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.emptyIterable;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Comprueba la búsqueda de texto completo: el análisis del texto, el orden por
+ * relevancia, los cambios de películas y reseñas reflejados al momento y una
+ * reconstrucción del índice mientras otros hilos escriben reseñas.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class BusquedaTest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private BusquedaService busquedaService;
+
+	@Autowired
+	private PeliculaService peliculaService;
+
+	@Autowired
+	private ResenaService resenaService;
+
+	@Autowired
+	private UsuarioRepository usuarioRepository;
+
+	// Compartido entre tests: la base de datos se mantiene durante toda la clase
+	private static int secuencia;
+
+	@Test
+	void analizaElTextoEnEspanol() {
+		assertEquals(List.of("pelicul", "accion", "pinguin"),
+				AnalizadorTexto.terminos("Las Películas de ACCIÓN y el pingüino"));
+		assertEquals(AnalizadorTexto.terminos("película"), AnalizadorTexto.terminos("PELICULAS"));
+		assertEquals(AnalizadorTexto.terminos("actor"), AnalizadorTexto.terminos("actores"));
+		assertEquals(List.of(), AnalizadorTexto.terminos("de la que por"));
+		assertEquals(List.of(), AnalizadorTexto.terminos(null));
+	}
+
+	@Test
+	void ordenaPorRelevancia() throws Exception {
+		Pelicula enResena = crearPelicula("Otra historia", "Sin relación");
+		Pelicula enSinopsis = crearPelicula("Historia marina", "Un zigurat hundido");
+		Pelicula enTitulo = crearPelicula("El zigurat", "Una historia");
+		crearResena(enResena, "Me recordó a un zigurat");
+
+		// El título pesa más que la sinopsis, y esta más que una reseña
+		buscar("ZIGURATS", enTitulo, enSinopsis, enResena);
+		// Las películas con más términos de la consulta van primero
+		buscar("zigurat hundido", enSinopsis, enTitulo, enResena);
+		mockMvc.perform(get("/api/peliculas/buscar").param("q", "zigurat").param("limit", "1"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$[*].id", contains(enTitulo.getId().intValue())));
+		mockMvc.perform(get("/api/peliculas/buscar").param("q", "de la"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$", emptyIterable()));
+		mockMvc.perform(get("/api/peliculas/buscar").param("q", "zigurat").param("limit", "0"))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void aplicaLosCambiosAlMomento() throws Exception {
+		Pelicula pelicula = crearPelicula("Travesía", "Un viaje largo");
+		buscar("albatros");
+
+		Resena resena = crearResena(pelicula, "Aparece un albatros");
+		buscar("albatros", pelicula);
+
+		resenaService.updateResena(resena.getId(), resena.getUsuario().getId(),
+				new Resena("Aparece una gaviota", 4, null, null));
+		buscar("albatros");
+		buscar("gaviota", pelicula);
+
+		resenaService.deleteResena(resena.getId(), resena.getUsuario().getId());
+		buscar("gaviota");
+
+		peliculaService.updatePelicula(pelicula.getId(), new Pelicula("Travesía del cormorán", "Director", "Drama",
+				2000, "Un viaje largo", Pelicula.IMAGEN_POR_DEFECTO));
+		buscar("cormoran", pelicula);
+		peliculaService.deletePelicula(pelicula.getId());
+		buscar("cormoran");
+	}
+
+	@Test
+	void reconstruirMientrasSeEscribe() throws Exception {
+		String[] palabras = { "zorblax", "quimbo", "flurp", "gadzuk" };
+		List<Pelicula> peliculas = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			peliculas.add(crearPelicula("Mundo " + i, "Sinopsis"));
+		}
+
+		// Cada hilo crea, edita y elimina sus propias reseñas mientras el índice se
+		// reconstruye varias veces
+		AtomicBoolean parar = new AtomicBoolean();
+		AtomicInteger escrituras = new AtomicInteger();
+		ExecutorService ejecutor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<?>> tareas = new ArrayList<>();
+			for (int h = 0; h < 4; h++) {
+				Usuario autor = crearUsuario();
+				Random aleatorio = new Random(h);
+				tareas.add(ejecutor.submit(() -> {
+					List<Resena> propias = new ArrayList<>();
+					while (!parar.get()) {
+						int accion = propias.isEmpty() ? 0 : aleatorio.nextInt(3);
+						if (accion == 0) {
+							propias.add(resenaService.createResena(new Resena(texto(palabras, aleatorio), 3,
+									peliculas.get(aleatorio.nextInt(peliculas.size())), autor)));
+						} else if (accion == 1) {
+							Resena resena = propias.get(aleatorio.nextInt(propias.size()));
+							resenaService.updateResena(resena.getId(), autor.getId(),
+									new Resena(texto(palabras, aleatorio), 4, null, null));
+						} else {
+							Resena resena = propias.remove(aleatorio.nextInt(propias.size()));
+							resenaService.deleteResena(resena.getId(), autor.getId());
+						}
+						escrituras.incrementAndGet();
+					}
+					return null;
+				}));
+			}
+			for (int i = 0; i < 5 || escrituras.get() < 500; i++) {
+				busquedaService.reconstruir();
+			}
+			parar.set(true);
+			for (Future<?> tarea : tareas) {
+				tarea.get();
+			}
+		} finally {
+			ejecutor.shutdown();
+		}
+
+		// El índice mantenido con los eventos coincide con uno recién construido
+		List<Map<Long, Double>> mantenido = new ArrayList<>();
+		for (String palabra : palabras) {
+			mantenido.add(puntuaciones(palabra));
+		}
+		busquedaService.reconstruir();
+		for (int i = 0; i < palabras.length; i++) {
+			Map<Long, Double> reconstruido = puntuaciones(palabras[i]);
+			assertEquals(reconstruido.keySet(), mantenido.get(i).keySet(), palabras[i]);
+			for (Map.Entry<Long, Double> entrada : reconstruido.entrySet()) {
+				assertEquals(entrada.getValue(), mantenido.get(i).get(entrada.getKey()), 1e-6, palabras[i]);
+			}
+		}
+	}
+
+	private void buscar(String consulta, Pelicula... peliculas) throws Exception {
+		List<Integer> ids = new ArrayList<>();
+		for (Pelicula pelicula : peliculas) {
+			ids.add(pelicula.getId().intValue());
+		}
+		ResultActions resultado = mockMvc.perform(get("/api/peliculas/buscar").param("q", consulta))
+				.andExpect(status().isOk());
+		if (ids.isEmpty()) {
+			resultado.andExpect(jsonPath("$", emptyIterable()));
+		} else {
+			resultado.andExpect(jsonPath("$[*].id", contains(ids.toArray())));
+		}
+	}
+
+	private Map<Long, Double> puntuaciones(String consulta) {
+		Map<Long, Double> puntuaciones = new TreeMap<>();
+		for (ResultadoBusquedaDto resultado : busquedaService.buscar(consulta, BusquedaService.LIMITE_MAXIMO)) {
+			puntuaciones.put(resultado.getId(), resultado.getPuntuacion());
+		}
+		return puntuaciones;
+	}
+
+	private static String texto(String[] palabras, Random aleatorio) {
+		return palabras[aleatorio.nextInt(palabras.length)] + " y " + palabras[aleatorio.nextInt(palabras.length)];
+	}
+
+	private Pelicula crearPelicula(String titulo, String sinopsis) {
+		return peliculaService.createPelicula(new Pelicula(titulo, "Director", "Drama", 2000, sinopsis,
+				Pelicula.IMAGEN_POR_DEFECTO));
+	}
+
+	private Resena crearResena(Pelicula pelicula, String contenido) {
+		return resenaService.createResena(new Resena(contenido, 4, pelicula, crearUsuario()));
+	}
+
+	private Usuario crearUsuario() {
+		int n = ++secuencia;
+		Usuario usuario = new Usuario();
+		usuario.setUsername("busqueda" + n);
+		usuario.setEmail("busqueda" + n + "@ejemplo.com");
+		usuario.setPassword("secreto" + n);
+		return usuarioRepository.save(usuario);
+	}
+}
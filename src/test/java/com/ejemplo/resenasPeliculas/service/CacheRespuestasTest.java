@@ -0,0 +1,81 @@
+package com.ejemplo.resenasPeliculas.service;
+
+import com.ejemplo.resenasPeliculas.model.Pelicula;
+import com.ejemplo.resenasPeliculas.model.Resena;
+import com.ejemplo.resenasPeliculas.model.Usuario;
+import com.ejemplo.resenasPeliculas.repository.UsuarioRepository;
+import com.ejemplo.resenasPeliculas.repository.VersionResenasPeliculaRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Comprueba que eliminar una película quita sus respuestas, sus generaciones
+ * y la versión de sus reseñas, y que una respuesta calculada antes de la baja
+ * no vuelve a guardarse.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class CacheRespuestasTest {
+
+	@Autowired
+	private CacheRespuestas cacheRespuestas;
+
+	@Autowired
+	private PeliculaService peliculaService;
+
+	@Autowired
+	private ResenaService resenaService;
+
+	@Autowired
+	private UsuarioRepository usuarioRepository;
+
+	@Autowired
+	private VersionResenasPeliculaRepository versionResenasPeliculaRepository;
+
+	@Test
+	void eliminarLaPeliculaLimpiaSuRastro() throws Exception {
+		Pelicula pelicula = peliculaService.createPelicula(new Pelicula("Efímera", "Directora", "Drama", 2001,
+				"Sinopsis", Pelicula.IMAGEN_POR_DEFECTO));
+		Long peliculaId = pelicula.getId();
+		Usuario autor = new Usuario();
+		autor.setUsername("cacheRespuestas");
+		autor.setEmail("cacheRespuestas@ejemplo.com");
+		autor.setPassword("secreto");
+		autor = usuarioRepository.save(autor);
+		Resena resena = resenaService.createResena(new Resena("Pasajera", 3, pelicula, autor));
+		resenaService.deleteResena(resena.getId(), autor.getId());
+		assertTrue(versionResenasPeliculaRepository.findVersion(peliculaId).isPresent());
+
+		// Cada cambio deja una generación propia para la clave invalidada
+		long leida = cacheRespuestas.getGeneracion(CacheRespuestas.Recurso.PELICULA, peliculaId);
+		peliculaService.updatePelicula(peliculaId, new Pelicula("Efímera", "Directora", "Drama", 2002,
+				"Sinopsis", Pelicula.IMAGEN_POR_DEFECTO));
+		assertNotEquals(leida, cacheRespuestas.getGeneracion(CacheRespuestas.Recurso.PELICULA, peliculaId));
+		long anterior = cacheRespuestas.getGeneracion(CacheRespuestas.Recurso.PELICULA, peliculaId);
+		cacheRespuestas.guardar(CacheRespuestas.Recurso.PELICULA, peliculaId, "", "\"etag\"", Map.of(), anterior);
+		assertNotNull(cacheRespuestas.get(CacheRespuestas.Recurso.PELICULA, peliculaId, ""));
+		int conGeneracion = cacheRespuestas.getClavesConGeneracion();
+
+		peliculaService.deletePelicula(peliculaId);
+
+		// Las dos claves de la película (detalle y reseñas) dejan de ocupar sitio
+		assertEquals(conGeneracion - 2, cacheRespuestas.getClavesConGeneracion());
+		assertNull(cacheRespuestas.get(CacheRespuestas.Recurso.PELICULA, peliculaId, ""));
+		assertFalse(versionResenasPeliculaRepository.findVersion(peliculaId).isPresent());
+
+		// Una respuesta leída antes de la baja se devuelve, pero no se conserva
+		cacheRespuestas.guardar(CacheRespuestas.Recurso.PELICULA, peliculaId, "", "\"etag\"", Map.of(), anterior);
+		assertNull(cacheRespuestas.get(CacheRespuestas.Recurso.PELICULA, peliculaId, ""));
+	}
+}
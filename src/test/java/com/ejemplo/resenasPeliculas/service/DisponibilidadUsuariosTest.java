@@ -0,0 +1,103 @@
+package com.ejemplo.resenasPeliculas.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Comprueba la disponibilidad de nombres de usuario y emails: los valores
+ * libres se responden con el filtro de Bloom, sin consultas, y los usuarios
+ * registrados, antes o después de cargar el filtro, nunca aparecen como libres.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class DisponibilidadUsuariosTest {
+
+	private static final int VALORES_LIBRES = 200;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private DisponibilidadUsuariosService disponibilidadUsuariosService;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Test
+	void usuariosRegistradosNoEstanDisponibles() throws Exception {
+		registrar("disponible1");
+		disponibilidadUsuariosService.reconstruir();
+		registrar("disponible2");
+
+		for (String usuario : new String[] { "disponible1", "disponible2" }) {
+			mockMvc.perform(get("/api/usuarios/disponible").param("username", usuario)
+					.param("email", usuario + "@ejemplo.com"))
+					.andExpect(status().isOk())
+					.andExpect(content().json("{\"username\":false,\"email\":false}", true));
+		}
+		mockMvc.perform(get("/api/usuarios/disponible").param("email", "disponible1@ejemplo.com"))
+				.andExpect(status().isOk())
+				.andExpect(content().json("{\"email\":false}", true));
+	}
+
+	@Test
+	void valoresLibresSinConsultas() throws Exception {
+		double antesFiltro = consultas("username", "filtro");
+		double antesBaseDatos = consultas("username", "base_datos");
+		Statistics estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		long antes = estadisticas.getPrepareStatementCount();
+
+		for (int i = 0; i < VALORES_LIBRES; i++) {
+			mockMvc.perform(get("/api/usuarios/disponible").param("username", "libre" + i))
+					.andExpect(status().isOk())
+					.andExpect(content().json("{\"username\":true}", true));
+		}
+
+		// Solo los falsos positivos del filtro llegan a la base de datos
+		double porBaseDatos = consultas("username", "base_datos") - antesBaseDatos;
+		assertEquals(VALORES_LIBRES, consultas("username", "filtro") - antesFiltro + porBaseDatos);
+		assertEquals(porBaseDatos, estadisticas.getPrepareStatementCount() - antes);
+		assertTrue(porBaseDatos < VALORES_LIBRES / 10, "Consultas a la base de datos: " + porBaseDatos);
+	}
+
+	@Test
+	void sinValoresEsUnError() throws Exception {
+		mockMvc.perform(get("/api/usuarios/disponible").param("username", " "))
+				.andExpect(status().isBadRequest());
+	}
+
+	private void registrar(String usuario) throws Exception {
+		mockMvc.perform(post("/api/usuarios/registro").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"username\":\"" + usuario + "\",\"email\":\"" + usuario
+						+ "@ejemplo.com\",\"password\":\"secreto\"}"))
+				.andExpect(status().isCreated());
+	}
+
+	private double consultas(String campo, String resultado) {
+		return meterRegistry.get("usuarios.disponibilidad.consultas")
+				.tag("campo", campo)
+				.tag("resultado", resultado)
+				.counter()
+				.count();
+	}
+}
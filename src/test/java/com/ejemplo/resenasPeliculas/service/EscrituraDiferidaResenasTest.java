@@ -0,0 +1,189 @@
+package com.ejemplo.resenasPeliculas.service;
+
+import com.ejemplo.resenasPeliculas.model.EstadisticaPelicula;
+import com.ejemplo.resenasPeliculas.model.Pelicula;
+import com.ejemplo.resenasPeliculas.repository.PeliculaRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Comprueba la escritura diferida de reseñas: aceptación con 202, guardado por
+ * lotes con sus estadísticas, rechazo de las reseñas erróneas y guardado de las
+ * pendientes al cerrar.
+ * <p>
+ * Usa su propia base de datos en memoria: el contexto es distinto del de los
+ * demás tests y no debe recrear sus tablas.
+ */
+@SpringBootTest(properties = {
+		"resenas.escritura-diferida.habilitada=true",
+		"spring.datasource.url=jdbc:h2:mem:escritura_diferida;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1" })
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class EscrituraDiferidaResenasTest {
+
+	private static final long ESPERA_MAXIMA_MS = 10_000;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private PeliculaRepository peliculaRepository;
+
+	@Autowired
+	private EstadisticaPeliculaService estadisticaPeliculaService;
+
+	@Autowired
+	private EscrituraDiferidaResenas escrituraDiferida;
+
+	// Compartido entre tests: la base de datos se mantiene durante toda la clase
+	private static int secuencia;
+
+	private String token;
+
+	@BeforeEach
+	void autenticar() throws Exception {
+		String usuario = "diferida" + (++secuencia);
+		mockMvc.perform(post("/api/usuarios/registro").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"username\":\"" + usuario + "\",\"email\":\"" + usuario
+						+ "@ejemplo.com\",\"password\":\"secreto\"}"))
+				.andExpect(status().isCreated());
+		MvcResult login = mockMvc.perform(post("/api/usuarios/login").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"username\":\"" + usuario + "\",\"password\":\"secreto\"}"))
+				.andReturn();
+		token = "Bearer " + json(login).get("token").asText();
+	}
+
+	@Test
+	void guardaLasResenasAceptadas() throws Exception {
+		Pelicula pelicula = crearPelicula();
+		String urlResenas = "/api/peliculas/" + pelicula.getId() + "/resenas?limit=100";
+		assertEquals(0, json(mockMvc.perform(get(urlResenas)).andReturn()).get("elementos").size());
+
+		List<String> pendientes = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			pendientes.add(enviar(pelicula.getId(), 1 + i % 5));
+		}
+
+		Set<Long> ids = new HashSet<>();
+		for (String pendiente : pendientes) {
+			JsonNode estado = esperar(pendiente);
+			assertEquals("GUARDADA", estado.get("estado").asText());
+			ids.add(estado.get("resenaId").asLong());
+		}
+		assertEquals(50, ids.size());
+
+		// Estadísticas, página de reseñas (cacheada antes) y detalle de una reseña
+		EstadisticaPelicula estadisticas = estadisticaPeliculaService.getEstadisticas(pelicula.getId());
+		assertEquals(50, estadisticas.getTotalResenas());
+		assertEquals(150, estadisticas.getSumaRatings());
+		assertEquals(50, json(mockMvc.perform(get(urlResenas)).andReturn()).get("elementos").size());
+		mockMvc.perform(get("/api/resenas/" + ids.iterator().next())).andExpect(status().isOk());
+	}
+
+	@Test
+	void rechazaLasResenasQueNoSePuedenGuardar() throws Exception {
+		Pelicula pelicula = crearPelicula();
+		String valida = enviar(pelicula.getId(), 4);
+		String invalida = enviar(Long.MAX_VALUE, 4);
+
+		assertEquals("GUARDADA", esperar(valida).get("estado").asText());
+		assertEquals("RECHAZADA", esperar(invalida).get("estado").asText());
+		assertEquals(1, estadisticaPeliculaService.getEstadisticas(pelicula.getId()).getTotalResenas());
+		mockMvc.perform(get("/api/resenas/pendientes/no-existe")).andExpect(status().isNotFound());
+	}
+
+	@Test
+	void guardaLasPendientesAlCerrar() throws Exception {
+		Pelicula pelicula = crearPelicula();
+		List<String> pendientes = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			pendientes.add(enviar(pelicula.getId(), 5));
+		}
+		try {
+			escrituraDiferida.stop();
+
+			// Tras detenerse no queda ninguna pendiente ni se aceptan más
+			for (String pendiente : pendientes) {
+				assertEquals("GUARDADA", estado(pendiente).get("estado").asText());
+			}
+			assertEquals(200, estadisticaPeliculaService.getEstadisticas(pelicula.getId()).getTotalResenas());
+			mockMvc.perform(post("/api/resenas").header("Authorization", token)
+					.contentType(MediaType.APPLICATION_JSON).content(resena(pelicula.getId(), 5)))
+					.andExpect(status().isServiceUnavailable())
+					.andExpect(header().exists("Retry-After"));
+		} finally {
+			escrituraDiferida.start();
+		}
+	}
+
+	// Envía una reseña y devuelve el identificador de su estado
+	private String enviar(Long peliculaId, int rating) throws Exception {
+		MvcResult resultado = mockMvc.perform(post("/api/resenas").header("Authorization", token)
+				.contentType(MediaType.APPLICATION_JSON).content(resena(peliculaId, rating)))
+				.andExpect(status().isAccepted())
+				.andExpect(header().exists("Location"))
+				.andReturn();
+		JsonNode pendiente = json(resultado);
+		assertTrue(resultado.getResponse().getHeader("Location").endsWith(pendiente.get("id").asText()));
+		return pendiente.get("id").asText();
+	}
+
+	// Espera a que una reseña deje de estar pendiente
+	private JsonNode esperar(String pendiente) throws Exception {
+		long limite = System.currentTimeMillis() + ESPERA_MAXIMA_MS;
+		while (System.currentTimeMillis() < limite) {
+			JsonNode estado = estado(pendiente);
+			if (!"PENDIENTE".equals(estado.get("estado").asText())) {
+				return estado;
+			}
+			Thread.sleep(10);
+		}
+		return fail("La reseña " + pendiente + " sigue pendiente");
+	}
+
+	private JsonNode estado(String pendiente) throws Exception {
+		return json(mockMvc.perform(get("/api/resenas/pendientes/" + pendiente))
+				.andExpect(status().isOk())
+				.andReturn());
+	}
+
+	private JsonNode json(MvcResult resultado) throws Exception {
+		return objectMapper.readTree(resultado.getResponse().getContentAsString());
+	}
+
+	private static String resena(Long peliculaId, int rating) {
+		return "{\"contenido\":\"Reseña diferida\",\"rating\":" + rating + ",\"pelicula\":{\"id\":" + peliculaId
+				+ "}}";
+	}
+
+	private Pelicula crearPelicula() {
+		int n = ++secuencia;
+		return peliculaRepository.save(new Pelicula("Película " + n, "Director " + n, "Drama", 2000,
+				"Sinopsis " + n, Pelicula.IMAGEN_POR_DEFECTO));
+	}
+}
@@ -0,0 +1,128 @@
+package com.ejemplo.resenasPeliculas.service;
+
+import com.ejemplo.resenasPeliculas.model.EstadisticaPelicula;
+import com.ejemplo.resenasPeliculas.model.Pelicula;
+import com.ejemplo.resenasPeliculas.model.Resena;
+import com.ejemplo.resenasPeliculas.model.Usuario;
+import com.ejemplo.resenasPeliculas.repository.EstadisticaPeliculaRepository;
+import com.ejemplo.resenasPeliculas.repository.UsuarioRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Comprueba que las estadísticas de una película siguen el alta, el cambio de
+ * calificación y la baja de sus reseñas, que una baja o un cambio sin
+ * estadísticas previas no deja contadores negativos y que la reconstrucción
+ * quita las estadísticas de películas que ya no existen.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class EstadisticasPeliculaTest {
+
+	@Autowired
+	private ResenaService resenaService;
+
+	@Autowired
+	private PeliculaService peliculaService;
+
+	@Autowired
+	private EstadisticaPeliculaService estadisticaPeliculaService;
+
+	@Autowired
+	private EstadisticaPeliculaRepository estadisticaPeliculaRepository;
+
+	@Autowired
+	private UsuarioRepository usuarioRepository;
+
+	// Compartido entre tests: la base de datos se mantiene durante toda la clase
+	private static int secuencia;
+
+	@Test
+	void siguenAltasCambiosYBajas() {
+		Pelicula pelicula = crearPelicula();
+		Usuario autor = crearUsuario();
+		Resena cuatro = resenaService.createResena(new Resena("Buena", 4, pelicula, autor));
+		Resena dos = resenaService.createResena(new Resena("Floja", 2, pelicula, autor));
+		comprobar(pelicula, 2, 6, 0, 1, 0, 1, 0);
+
+		resenaService.updateResena(dos.getId(), autor.getId(), new Resena("Mejor de lo que pensaba", 5, null, null));
+		comprobar(pelicula, 2, 9, 0, 0, 0, 1, 1);
+
+		resenaService.deleteResena(cuatro.getId(), autor.getId());
+		comprobar(pelicula, 1, 5, 0, 0, 0, 0, 1);
+
+		resenaService.deleteResena(dos.getId(), autor.getId());
+		comprobar(pelicula, 0, 0, 0, 0, 0, 0, 0);
+	}
+
+	@Test
+	void sinEstadisticasNoQuedanNegativas() {
+		Pelicula pelicula = crearPelicula();
+		Usuario autor = crearUsuario();
+		Resena primera = resenaService.createResena(new Resena("Primera", 3, pelicula, autor));
+		Resena segunda = resenaService.createResena(new Resena("Segunda", 4, pelicula, autor));
+
+		// Contadores desviados: la fila desaparece mientras quedan reseñas
+		estadisticaPeliculaService.eliminar(pelicula.getId());
+		resenaService.updateResena(primera.getId(), autor.getId(), new Resena("Cambiada", 1, null, null));
+		resenaService.deleteResena(segunda.getId(), autor.getId());
+		assertFalse(estadisticaPeliculaRepository.existsById(pelicula.getId()));
+		comprobar(pelicula, 0, 0, 0, 0, 0, 0, 0);
+
+		// Un alta vuelve a crear la fila, y una baja de más no la deja en negativo
+		Resena tercera = resenaService.createResena(new Resena("Tercera", 5, pelicula, autor));
+		comprobar(pelicula, 1, 5, 0, 0, 0, 0, 1);
+		estadisticaPeliculaService.registrarBaja(pelicula.getId(), 2);
+		comprobar(pelicula, 0, 3, 0, 0, 0, 0, 1);
+
+		// La reconstrucción corrige la desviación
+		estadisticaPeliculaService.reconstruir();
+		comprobar(pelicula, 2, 6, 1, 0, 0, 0, 1);
+		resenaService.deleteResena(tercera.getId(), autor.getId());
+		comprobar(pelicula, 1, 1, 1, 0, 0, 0, 0);
+	}
+
+	@Test
+	void reconstruccionQuitaLasHuerfanas() {
+		Pelicula pelicula = crearPelicula();
+		Usuario autor = crearUsuario();
+		resenaService.createResena(new Resena("Única", 3, pelicula, autor));
+		// Contadores desviados y estadísticas de una película que ya no existe
+		estadisticaPeliculaService.registrarAltas(pelicula.getId(), List.of(5, 5));
+		Long inexistente = pelicula.getId() + 1_000_000;
+		estadisticaPeliculaService.registrarAlta(inexistente, 4);
+
+		estadisticaPeliculaService.reconstruir();
+		comprobar(pelicula, 1, 3, 0, 0, 1, 0, 0);
+		assertFalse(estadisticaPeliculaRepository.existsById(inexistente));
+	}
+
+	private void comprobar(Pelicula pelicula, long total, long suma, long... histograma) {
+		EstadisticaPelicula estadisticas = estadisticaPeliculaService.getEstadisticas(pelicula.getId());
+		assertEquals(total, estadisticas.getTotalResenas());
+		assertEquals(suma, estadisticas.getSumaRatings());
+		assertArrayEquals(histograma, estadisticas.getHistograma());
+	}
+
+	private Pelicula crearPelicula() {
+		return peliculaService.createPelicula(new Pelicula("Estadísticas " + (++secuencia), "Director", "Drama",
+				2000, "Sinopsis", Pelicula.IMAGEN_POR_DEFECTO));
+	}
+
+	private Usuario crearUsuario() {
+		int n = ++secuencia;
+		Usuario usuario = new Usuario();
+		usuario.setUsername("estadisticas" + n);
+		usuario.setEmail("estadisticas" + n + "@ejemplo.com");
+		usuario.setPassword("secreto" + n);
+		return usuarioRepository.save(usuario);
+	}
+}
@@ -0,0 +1,260 @@
+package com.ejemplo.resenasPeliculas.service;
+
+import com.ejemplo.resenasPeliculas.model.EstadisticaPelicula;
+import com.ejemplo.resenasPeliculas.model.Pelicula;
+import com.ejemplo.resenasPeliculas.model.Resena;
+import com.ejemplo.resenasPeliculas.model.Usuario;
+import com.ejemplo.resenasPeliculas.repository.UsuarioRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doAnswer;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Comprueba el ranking de películas mejor valoradas: el orden sigue la media
+ * bayesiana y no la media simple, se filtra por género sin distinguir
+ * mayúsculas ni tildes, y las altas, cambios y bajas de reseñas y los cambios
+ * de las películas se reflejan sin recargar el ranking, incluso los que llegan
+ * durante una recarga.
+ * <p>
+ * Usa su propia base de datos en memoria: la media global depende de todas las
+ * reseñas y no debe verse afectada por los datos de otros tests.
+ */
+@SpringBootTest(properties = {
+		"ranking.peso-previo=10",
+		"spring.datasource.url=jdbc:h2:mem:ranking;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1" })
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class RankingPeliculasTest {
+
+	private static final double PESO_PREVIO = 10;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private PeliculaService peliculaService;
+
+	@Autowired
+	private ResenaService resenaService;
+
+	@Autowired
+	private RankingService rankingService;
+
+	@MockitoSpyBean
+	private EstadisticaPeliculaService estadisticaPeliculaService;
+
+	@Autowired
+	private UsuarioRepository usuarioRepository;
+
+	// Compartido entre tests: la base de datos se mantiene durante toda la clase
+	private static int secuencia;
+
+	private Usuario autor;
+
+	@BeforeEach
+	void crearAutor() {
+		int n = ++secuencia;
+		Usuario usuario = new Usuario();
+		usuario.setUsername("ranking" + n);
+		usuario.setEmail("ranking" + n + "@ejemplo.com");
+		usuario.setPassword("secreto" + n);
+		autor = usuarioRepository.save(usuario);
+	}
+
+	@Test
+	void ordenaPorMediaBayesiana() throws Exception {
+		String genero = "Ciencia ficción " + (++secuencia);
+		// Una sola reseña de cinco estrellas
+		Pelicula unica = crearPelicula(genero);
+		resenar(unica, 5);
+		// Veinte reseñas con media 4,5
+		Pelicula consolidada = crearPelicula("Drama " + (++secuencia));
+		for (int i = 0; i < 20; i++) {
+			resenar(consolidada, 4 + i % 2);
+		}
+		// Tres reseñas de tres estrellas
+		Pelicula discreta = crearPelicula(genero);
+		for (int i = 0; i < 3; i++) {
+			resenar(discreta, 3);
+		}
+		rankingService.reconstruir();
+		double media = mediaGlobal();
+
+		// La película con una sola reseña de cinco estrellas no supera a la consolidada
+		List<Long> esperado = List.of(consolidada.getId(), unica.getId(), discreta.getId());
+		List<JsonNode> general = top(null, 100).stream()
+				.filter(pelicula -> esperado.contains(pelicula.get("id").asLong()))
+				.toList();
+		assertEquals(esperado, ids(general));
+		comprobar(general.get(0), media, 20, 90);
+		comprobar(general.get(1), media, 1, 5);
+		comprobar(general.get(2), media, 3, 9);
+
+		// Por género, sin distinguir mayúsculas ni tildes
+		assertEquals(List.of(unica.getId(), discreta.getId()),
+				ids(top(genero.toUpperCase().replace("Ó", "O"), 10)));
+		assertEquals(List.of(), top("Inexistente", 10));
+
+		// Límite
+		assertEquals(List.of(unica.getId()), ids(top(genero, 1)));
+		mockMvc.perform(get("/api/peliculas/top").param("limit", "0")).andExpect(status().isBadRequest());
+		mockMvc.perform(get("/api/peliculas/top").param("limit", String.valueOf(RankingService.LIMITE_MAXIMO + 1)))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void seActualizaConLosEventos() throws Exception {
+		String genero = "Terror " + (++secuencia);
+		Pelicula primera = crearPelicula(genero);
+		Pelicula segunda = crearPelicula(genero);
+		resenar(primera, 4);
+		resenar(primera, 4);
+		rankingService.reconstruir();
+		// Entre recargas la media global no cambia
+		double media = mediaGlobal();
+
+		// Una película sin reseñas no entra en el ranking
+		List<JsonNode> ranking = top(genero, 10);
+		assertEquals(List.of(primera.getId()), ids(ranking));
+		comprobar(ranking.get(0), media, 2, 8);
+
+		// Alta de reseñas
+		List<Resena> resenas = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			resenas.add(resenar(segunda, 5));
+		}
+		ranking = top(genero, 10);
+		assertEquals(List.of(segunda.getId(), primera.getId()), ids(ranking));
+		comprobar(ranking.get(0), media, 4, 20);
+
+		// Cambio de calificación
+		for (Resena resena : resenas) {
+			resenaService.updateResena(resena.getId(), autor.getId(), new Resena("Cambiada", 1, null, null));
+		}
+		ranking = top(genero, 10);
+		assertEquals(List.of(primera.getId(), segunda.getId()), ids(ranking));
+		comprobar(ranking.get(1), media, 4, 4);
+
+		// Baja de reseñas: sin ninguna, la película sale del ranking
+		for (Resena resena : resenas) {
+			resenaService.deleteResena(resena.getId(), autor.getId());
+		}
+		assertEquals(List.of(primera.getId()), ids(top(genero, 10)));
+
+		// Un cambio de género la mueve de ranking y conserva sus reseñas
+		String otroGenero = "Comedia " + (++secuencia);
+		primera.setGenero(otroGenero);
+		peliculaService.updatePelicula(primera.getId(), primera);
+		assertEquals(List.of(), top(genero, 10));
+		ranking = top(otroGenero, 10);
+		assertEquals(List.of(primera.getId()), ids(ranking));
+		comprobar(ranking.get(0), media, 2, 8);
+
+		// La recarga llega al mismo estado
+		List<Long> antes = ids(top(null, 100));
+		rankingService.reconstruir();
+		assertEquals(antes, ids(top(null, 100)));
+	}
+
+	@Test
+	void recargaConEscriturasEnCurso() throws Exception {
+		String genero = "Suspense " + (++secuencia);
+		Pelicula pelicula = crearPelicula(genero);
+		Resena editada = resenar(pelicula, 2);
+		Resena eliminada = resenar(pelicula, 3);
+		rankingService.reconstruir();
+
+		// Durante la recarga, una escritura termina antes de leer las estadísticas y
+		// las demás después; todas llegan como eventos mientras se recarga
+		ExecutorService escritor = Executors.newSingleThreadExecutor();
+		try {
+			doAnswer(invocacion -> {
+				escritor.submit(() -> resenar(pelicula, 5)).get();
+				Object estadisticas = invocacion.callRealMethod();
+				escritor.submit(() -> {
+					resenar(pelicula, 3);
+					resenaService.updateResena(editada.getId(), autor.getId(), new Resena("Cambiada", 1, null, null));
+					resenaService.deleteResena(eliminada.getId(), autor.getId());
+				}).get();
+				return estadisticas;
+			}).when(estadisticaPeliculaService).getTodasLasEstadisticas();
+			rankingService.reconstruir();
+		} finally {
+			escritor.shutdown();
+		}
+
+		// Ninguna escritura se pierde ni se cuenta dos veces: quedan 1, 5 y 3
+		JsonNode recargada = top(genero, 10).get(0);
+		assertEquals(3, recargada.get("totalResenas").asLong());
+		assertEquals(3.0, recargada.get("media").asDouble(), 1e-9);
+	}
+
+	// Comprueba los contadores de una película del ranking y su puntuación
+	private static void comprobar(JsonNode pelicula, double media, long total, long suma) {
+		assertEquals(total, pelicula.get("totalResenas").asLong());
+		assertEquals((double) suma / total, pelicula.get("media").asDouble(), 1e-9);
+		assertEquals((PESO_PREVIO * media + suma) / (PESO_PREVIO + total), pelicula.get("puntuacion").asDouble(),
+				1e-9);
+		assertTrue(pelicula.has("titulo"));
+	}
+
+	// Media de todas las reseñas, la que usa el ranking tras una recarga
+	private double mediaGlobal() {
+		long total = 0;
+		long suma = 0;
+		for (EstadisticaPelicula estadistica : estadisticaPeliculaService.getTodasLasEstadisticas().values()) {
+			total += estadistica.getTotalResenas();
+			suma += estadistica.getSumaRatings();
+		}
+		return (double) suma / total;
+	}
+
+	private List<JsonNode> top(String genero, int limite) throws Exception {
+		MockHttpServletRequestBuilder peticion = get("/api/peliculas/top").param("limit", String.valueOf(limite));
+		if (genero != null) {
+			peticion.param("genero", genero);
+		}
+		JsonNode respuesta = objectMapper.readTree(mockMvc.perform(peticion)
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8));
+		List<JsonNode> peliculas = new ArrayList<>();
+		respuesta.forEach(peliculas::add);
+		return peliculas;
+	}
+
+	private static List<Long> ids(List<JsonNode> peliculas) {
+		return peliculas.stream().map(pelicula -> pelicula.get("id").asLong()).toList();
+	}
+
+	private Resena resenar(Pelicula pelicula, int rating) {
+		return resenaService.createResena(new Resena("Reseña", rating, pelicula, autor));
+	}
+
+	private Pelicula crearPelicula(String genero) {
+		return peliculaService.createPelicula(new Pelicula("Clasificada " + (++secuencia), "Director", genero, 2000,
+				"Sinopsis", Pelicula.IMAGEN_POR_DEFECTO));
+	}
+}
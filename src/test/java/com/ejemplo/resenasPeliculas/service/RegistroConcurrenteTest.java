@@ -0,0 +1,126 @@
+package com.ejemplo.resenasPeliculas.service;
+
+import com.ejemplo.resenasPeliculas.model.Usuario;
+import com.ejemplo.resenasPeliculas.repository.UsuarioRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Registra usuarios desde varios hilos a la vez, con nombres de usuario y emails
+ * repetidos: cada valor se registra una sola vez, los intentos repetidos reciben
+ * el mensaje de error que corresponde y cada intento ejecuta una única sentencia
+ * SQL.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class RegistroConcurrenteTest {
+
+	private static final int HILOS = 8;
+
+	private static final int GRUPOS = 20;
+
+	private static final int INTENTOS_POR_GRUPO = 5;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private UsuarioRepository usuarioRepository;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	// Intento de registro y el grupo de intentos repetidos al que pertenece
+	private record Intento(String grupo, String username, String email) {
+	}
+
+	private record Resultado(String grupo, int status, String cuerpo) {
+	}
+
+	@Test
+	void registrosConcurrentesSinDuplicados() throws Exception {
+		// Cada grupo repite el nombre de usuario o el email en todos sus intentos
+		List<Intento> intentos = new ArrayList<>();
+		for (int g = 0; g < GRUPOS; g++) {
+			for (int i = 0; i < INTENTOS_POR_GRUPO; i++) {
+				intentos.add(new Intento("username" + g, "concurrente" + g, "concurrente" + g + "_" + i + "@ejemplo.com"));
+				intentos.add(new Intento("email" + g, "simultaneo" + g + "_" + i, "simultaneo" + g + "@ejemplo.com"));
+			}
+		}
+		Collections.shuffle(intentos, new Random(42));
+
+		Statistics estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		long antes = estadisticas.getPrepareStatementCount();
+		List<Resultado> resultados = registrar(intentos);
+		long sentencias = estadisticas.getPrepareStatementCount() - antes;
+
+		Map<String, Integer> altasPorGrupo = new HashMap<>();
+		for (Resultado resultado : resultados) {
+			if (resultado.status() == 201) {
+				altasPorGrupo.merge(resultado.grupo(), 1, Integer::sum);
+			} else {
+				assertEquals(400, resultado.status(), resultado.cuerpo());
+				assertEquals(resultado.grupo().startsWith("username") ? "El nombre de usuario ya existe"
+						: "El email ya existe", resultado.cuerpo());
+			}
+		}
+
+		// Un alta por grupo, tanto en las respuestas como en la base de datos
+		assertEquals(2 * GRUPOS, altasPorGrupo.size());
+		assertEquals(2 * GRUPOS, altasPorGrupo.values().stream().mapToInt(Integer::intValue).sum());
+		List<Usuario> usuarios = usuarioRepository.findAll();
+		assertEquals(GRUPOS, usuarios.stream().filter(u -> u.getUsername().startsWith("concurrente")).count());
+		assertEquals(GRUPOS, usuarios.stream().filter(u -> u.getEmail().startsWith("simultaneo")).count());
+
+		// Un INSERT por intento, tanto si tiene éxito como si no
+		assertEquals(intentos.size(), sentencias);
+	}
+
+	private List<Resultado> registrar(List<Intento> intentos) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(HILOS);
+		try {
+			List<Callable<Resultado>> tareas = new ArrayList<>();
+			for (Intento intento : intentos) {
+				tareas.add(() -> {
+					MockHttpServletResponse respuesta = mockMvc.perform(post("/api/usuarios/registro")
+							.contentType(MediaType.APPLICATION_JSON)
+							.content("{\"username\":\"" + intento.username() + "\",\"email\":\"" + intento.email()
+									+ "\",\"password\":\"secreto\"}"))
+							.andReturn().getResponse();
+					return new Resultado(intento.grupo(), respuesta.getStatus(), respuesta.getContentAsString());
+				});
+			}
+			List<Resultado> resultados = new ArrayList<>();
+			for (Future<Resultado> resultado : executor.invokeAll(tareas)) {
+				resultados.add(resultado.get());
+			}
+			return resultados;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
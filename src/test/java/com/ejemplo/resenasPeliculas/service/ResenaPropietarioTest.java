@@ -0,0 +1,129 @@
+package com.ejemplo.resenasPeliculas.service;
+
+import com.ejemplo.resenasPeliculas.config.ContadorSentencias;
+import com.ejemplo.resenasPeliculas.model.Pelicula;
+import com.ejemplo.resenasPeliculas.model.Resena;
+import com.ejemplo.resenasPeliculas.model.Usuario;
+import com.ejemplo.resenasPeliculas.repository.ResenaRepository;
+import com.ejemplo.resenasPeliculas.repository.UsuarioRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Comprueba la edición y el borrado de reseñas por su autor: el resultado lo
+ * decide el número de filas afectadas, las reseñas ajenas o inexistentes no se
+ * modifican, las comprobaciones de propiedad solo se hacen si la escritura no
+ * afecta a ninguna fila y una escritura con una versión antigua no afecta a
+ * ninguna fila.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ResenaPropietarioTest {
+
+	@Autowired
+	private ResenaService resenaService;
+
+	@Autowired
+	private PeliculaService peliculaService;
+
+	@Autowired
+	private EstadisticaPeliculaService estadisticaPeliculaService;
+
+	@Autowired
+	private ResenaRepository resenaRepository;
+
+	@Autowired
+	private UsuarioRepository usuarioRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	// Compartido entre tests: la base de datos se mantiene durante toda la clase
+	private static int secuencia;
+
+	@Test
+	void soloElAutorEditaYElimina() {
+		Pelicula pelicula = peliculaService.createPelicula(new Pelicula("Propietario", "Director", "Drama", 2000,
+				"Sinopsis", Pelicula.IMAGEN_POR_DEFECTO));
+		Usuario autor = crearUsuario();
+		Usuario otro = crearUsuario();
+		Resena resena = resenaService.createResena(new Resena("Original", 2, pelicula, autor));
+
+		assertEquals(ResultadoOperacion.NO_AUTORIZADO,
+				resenaService.updateResena(resena.getId(), otro.getId(), new Resena("Ajena", 5, null, null)));
+		assertEquals(ResultadoOperacion.NO_ENCONTRADO,
+				resenaService.updateResena(Long.MAX_VALUE, autor.getId(), new Resena("Nada", 5, null, null)));
+		assertEquals(ResultadoOperacion.NO_AUTORIZADO, resenaService.deleteResena(resena.getId(), otro.getId()));
+
+		Resena cambios = new Resena("Editada", 5, null, null);
+		assertEquals(ResultadoOperacion.OK, resenaService.updateResena(resena.getId(), autor.getId(), cambios));
+		assertEquals(pelicula.getId(), cambios.getPelicula().getId());
+		Resena guardada = resenaRepository.findById(resena.getId()).orElseThrow();
+		assertEquals("Editada", guardada.getContenido());
+		assertEquals(1, guardada.getVersion());
+		assertEquals(5, estadisticaPeliculaService.getEstadisticas(pelicula.getId()).getSumaRatings());
+
+		assertEquals(ResultadoOperacion.OK, resenaService.deleteResena(resena.getId(), autor.getId()));
+		assertFalse(resenaRepository.existsById(resena.getId()));
+		assertEquals(0, estadisticaPeliculaService.getEstadisticas(pelicula.getId()).getTotalResenas());
+		assertEquals(ResultadoOperacion.NO_ENCONTRADO, resenaService.deleteResena(resena.getId(), autor.getId()));
+	}
+
+	@Test
+	void sinConsultasDeDiagnostico() {
+		Pelicula pelicula = peliculaService.createPelicula(new Pelicula("Diagnóstico", "Director", "Drama", 2000,
+				"Sinopsis", Pelicula.IMAGEN_POR_DEFECTO));
+		Usuario autor = crearUsuario();
+		Usuario otro = crearUsuario();
+		Resena resena = resenaService.createResena(new Resena("Original", 2, pelicula, autor));
+
+		// Inexistente: solo la lectura de los valores anteriores
+		ContadorSentencias.iniciar();
+		assertEquals(ResultadoOperacion.NO_ENCONTRADO, resenaService.deleteResena(Long.MAX_VALUE, autor.getId()));
+		assertEquals(1, ContadorSentencias.detener());
+
+		// Ajena: la lectura y la escritura condicionada, sin más consultas
+		ContadorSentencias.iniciar();
+		assertEquals(ResultadoOperacion.NO_AUTORIZADO,
+				resenaService.updateResena(resena.getId(), otro.getId(), new Resena("Ajena", 5, null, null)));
+		assertEquals(2, ContadorSentencias.detener());
+		ContadorSentencias.iniciar();
+		assertEquals(ResultadoOperacion.NO_AUTORIZADO, resenaService.deleteResena(resena.getId(), otro.getId()));
+		assertEquals(2, ContadorSentencias.detener());
+		assertEquals("Original", resenaRepository.findById(resena.getId()).orElseThrow().getContenido());
+	}
+
+	@Test
+	void versionAntiguaNoAfectaFilas() {
+		Pelicula pelicula = peliculaService.createPelicula(new Pelicula("Versiones", "Director", "Drama", 2000,
+				"Sinopsis", Pelicula.IMAGEN_POR_DEFECTO));
+		Usuario autor = crearUsuario();
+		Resena resena = resenaService.createResena(new Resena("Original", 3, pelicula, autor));
+		resenaService.updateResena(resena.getId(), autor.getId(), new Resena("Primera edición", 4, null, null));
+
+		TransactionTemplate transaccion = new TransactionTemplate(transactionManager);
+		assertEquals(0, (int) transaccion.execute(estado -> resenaRepository.actualizarDeUsuario(resena.getId(),
+				autor.getId(), 0, "Perdida", 1)));
+		assertEquals(0, (int) transaccion.execute(estado -> resenaRepository.eliminarDeUsuario(resena.getId(),
+				autor.getId(), 0)));
+		assertEquals(1, (int) transaccion.execute(estado -> resenaRepository.actualizarDeUsuario(resena.getId(),
+				autor.getId(), 1, "Segunda edición", 1)));
+		assertEquals("Segunda edición", resenaRepository.findById(resena.getId()).orElseThrow().getContenido());
+	}
+
+	private Usuario crearUsuario() {
+		int n = ++secuencia;
+		Usuario usuario = new Usuario();
+		usuario.setUsername("propietario" + n);
+		usuario.setEmail("propietario" + n + "@ejemplo.com");
+		usuario.setPassword("secreto" + n);
+		return usuarioRepository.save(usuario);
+	}
+}